@@ -0,0 +1,141 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.bulkedit;
+
+/**
+ * Utility class to count the changes of a batch edit, for imports too large
+ * to keep a BulkEditChange for every changed item in memory.
+ */
+public class BulkEditSummary
+{
+    /** The number of CSV lines processed */
+    private int lines;
+
+    /** The number of items with changes, including new items */
+    private int changedItems;
+
+    /** The number of new items */
+    private int newItems;
+
+    /** The number of metadata values added */
+    private int addedValues;
+
+    /** The number of metadata values removed */
+    private int removedValues;
+
+    /** The number of items moved to another owning collection, or mapped into or out of collections */
+    private int collectionChanges;
+
+    /** The number of deleted items */
+    private int deleted;
+
+    /** The number of withdrawn items */
+    private int withdrawn;
+
+    /** The number of reinstated items */
+    private int reinstated;
+
+    /**
+     * Record that a CSV line has been processed
+     */
+    public void addLine()
+    {
+        lines++;
+    }
+
+    /**
+     * Count the changes of an item
+     *
+     * @param change The changes of the item
+     */
+    public void add(BulkEditChange change)
+    {
+        changedItems++;
+        if (change.isNewItem())
+        {
+            newItems++;
+        }
+        addedValues += change.getAdds().size();
+        removedValues += change.getRemoves().size();
+        if ((change.getNewOwningCollection() != null) || (change.getOldOwningCollection() != null) ||
+            (change.getNewMappedCollections().size() > 0) || (change.getOldMappedCollections().size() > 0))
+        {
+            collectionChanges++;
+        }
+        if (change.isDeleted())
+        {
+            deleted++;
+        }
+        if (change.isWithdrawn())
+        {
+            withdrawn++;
+        }
+        if (change.isReinstated())
+        {
+            reinstated++;
+        }
+    }
+
+    public int getLines()
+    {
+        return lines;
+    }
+
+    public int getChangedItems()
+    {
+        return changedItems;
+    }
+
+    public int getNewItems()
+    {
+        return newItems;
+    }
+
+    public int getAddedValues()
+    {
+        return addedValues;
+    }
+
+    public int getRemovedValues()
+    {
+        return removedValues;
+    }
+
+    public int getCollectionChanges()
+    {
+        return collectionChanges;
+    }
+
+    public int getDeleted()
+    {
+        return deleted;
+    }
+
+    public int getWithdrawn()
+    {
+        return withdrawn;
+    }
+
+    public int getReinstated()
+    {
+        return reinstated;
+    }
+
+    /**
+     * Return the summary as a human readable string
+     *
+     * @return The summary
+     */
+    public String toString()
+    {
+        return lines + " line(s) processed, " + changedItems + " item(s) changed ("
+                + newItems + " new, " + deleted + " expunged, " + withdrawn + " withdrawn, "
+                + reinstated + " reinstated, " + collectionChanges + " with collection changes), "
+                + addedValues + " value(s) added, " + removedValues + " value(s) removed";
+    }
+}
@@ -43,6 +43,9 @@ public class DSpaceCSV implements Serializable
     /** The headings of the CSV file */
     private List<String> headings;
 
+    /** The headings of the CSV file, for fast lookups */
+    private Set<String> headingSet;
+
     /** An array list of CSV lines */
     private List<DSpaceCSVLine> lines;
 
@@ -102,137 +105,107 @@ public class DSpaceCSV implements Serializable
         // Initialise the class
         init();
 
-        // Open the CSV file
-        BufferedReader input = null;
+        // Read all lines of the CSV file
+        DSpaceCSVReader reader = new DSpaceCSVReader(f, c, this);
         try
         {
-            input = new BufferedReader(new InputStreamReader(new FileInputStream(f),"UTF-8"));
-
-            // Read the heading line
-            String head = input.readLine();
-            String[] headingElements = head.split(escapedFieldSeparator);
-            int columnCounter = 0;
-            for (String element : headingElements)
+            DSpaceCSVLine line;
+            while ((line = reader.next()) != null)
             {
-                columnCounter++;
+                lines.add(line);
+                counter++;
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
 
-                // Remove surrounding quotes if there are any
-                if ((element.startsWith("\"")) && (element.endsWith("\"")))
-                {
-                    element = element.substring(1, element.length() - 1);
-                }
+    /**
+     * Read the headings from the heading line of a CSV file, and check them
+     * against the metadata registry
+     *
+     * @param head The heading line
+     * @param c The DSpace Context
+     *
+     * @throws Exception thrown if a heading is invalid
+     */
+    final void addHeadings(String head, Context c) throws Exception
+    {
+        String[] headingElements = head.split(escapedFieldSeparator);
+        int columnCounter = 0;
+        for (String element : headingElements)
+        {
+            columnCounter++;
+
+            // Remove surrounding quotes if there are any
+            if ((element.startsWith("\"")) && (element.endsWith("\"")))
+            {
+                element = element.substring(1, element.length() - 1);
+            }
 
+            // Store the heading
+            if ("collection".equals(element))
+            {
                 // Store the heading
-                if ("collection".equals(element))
-                {
-                    // Store the heading
-                    headings.add(element);
-                }
-                // Store the action
-                else if ("action".equals(element))
-                {
-                    // Store the heading
-                    headings.add(element);
+                headings.add(element);
+                headingSet.add(element);
+            }
+            // Store the action
+            else if ("action".equals(element))
+            {
+                // Store the heading
+                headings.add(element);
+                headingSet.add(element);
+            }
+            else if (!"id".equals(element))
+            {
+                String authorityPrefix = "";
+                AuthorityValue authorityValueType = MetadataImport.getAuthorityValueType(element);
+                if (authorityValueType != null) {
+                    String authorityType = authorityValueType.getAuthorityType();
+                    authorityPrefix = element.substring(0, authorityType.length() + 1);
+                    element = element.substring(authorityPrefix.length());
                 }
-                else if (!"id".equals(element))
-                {
-                    String authorityPrefix = "";
-                    AuthorityValue authorityValueType = MetadataImport.getAuthorityValueType(element);
-                    if (authorityValueType != null) {
-                        String authorityType = authorityValueType.getAuthorityType();
-                        authorityPrefix = element.substring(0, authorityType.length() + 1);
-                        element = element.substring(authorityPrefix.length());
-                    }
-
-                    // Verify that the heading is valid in the metadata registry
-                    String[] clean = element.split("\\[");
-                    String[] parts = clean[0].split("\\.");
-
-                    if (parts.length < 2) {
-                        throw new MetadataImportInvalidHeadingException(element,
-                                                                        MetadataImportInvalidHeadingException.ENTRY,
-                                                                        columnCounter);
-                    }
-
-                    String metadataSchema = parts[0];
-                    String metadataElement = parts[1];
-                    String metadataQualifier = null;
-                    if (parts.length > 2) {
-                        metadataQualifier = parts[2];
-                    }
 
-                    // Check that the scheme exists
-                    MetadataSchema foundSchema = MetadataSchema.find(c, metadataSchema);
-                    if (foundSchema == null) {
-                        throw new MetadataImportInvalidHeadingException(clean[0],
-                                                                        MetadataImportInvalidHeadingException.SCHEMA,
-                                                                        columnCounter);
-                    }
-
-                    // Check that the metadata element exists in the schema
-                    int schemaID = foundSchema.getSchemaID();
-                    MetadataField foundField = MetadataField.findByElement(c, schemaID, metadataElement, metadataQualifier);
-                    if (foundField == null) {
-                        throw new MetadataImportInvalidHeadingException(clean[0],
-                                                                        MetadataImportInvalidHeadingException.ELEMENT,
-                                                                        columnCounter);
-                    }
+                // Verify that the heading is valid in the metadata registry
+                String[] clean = element.split("\\[");
+                String[] parts = clean[0].split("\\.");
 
-                    // Store the heading
-                    headings.add(authorityPrefix + element);
+                if (parts.length < 2) {
+                    throw new MetadataImportInvalidHeadingException(element,
+                                                                    MetadataImportInvalidHeadingException.ENTRY,
+                                                                    columnCounter);
                 }
-            }
-
-            // Read each subsequent line
-            StringBuilder lineBuilder = new StringBuilder();
-            String lineRead;
 
-            while (StringUtils.isNotBlank(lineRead = input.readLine()))
-            {
-                if (lineBuilder.length() > 0) {
-                    // Already have a previously read value - add this line
-                    lineBuilder.append("\n").append(lineRead);
-
-                    // Count the number of quotes in the buffer
-                    int quoteCount = 0;
-                    for (int pos = 0; pos < lineBuilder.length(); pos++) {
-                        if (lineBuilder.charAt(pos) == '"') {
-                            quoteCount++;
-                        }
-                    }
+                String metadataSchema = parts[0];
+                String metadataElement = parts[1];
+                String metadataQualifier = null;
+                if (parts.length > 2) {
+                    metadataQualifier = parts[2];
+                }
 
-                    if (quoteCount % 2 == 0) {
-                        // Number of quotes is a multiple of 2, add the item
-                        addItem(lineBuilder.toString());
-                        lineBuilder = new StringBuilder();
-                    }
-                } else if (lineRead.indexOf('"') > -1) {
-                    // Get the number of quotes in the line
-                    int quoteCount = 0;
-                    for (int pos = 0; pos < lineRead.length(); pos++) {
-                        if (lineRead.charAt(pos) == '"') {
-                            quoteCount++;
-                        }
-                    }
+                // Check that the scheme exists
+                MetadataSchema foundSchema = MetadataSchema.find(c, metadataSchema);
+                if (foundSchema == null) {
+                    throw new MetadataImportInvalidHeadingException(clean[0],
+                                                                    MetadataImportInvalidHeadingException.SCHEMA,
+                                                                    columnCounter);
+                }
 
-                    if (quoteCount % 2 == 0) {
-                        // Number of quotes is a multiple of 2, add the item
-                        addItem(lineRead);
-                    } else {
-                        // Uneven quotes - add to the buffer and leave for later
-                        lineBuilder.append(lineRead);
-                    }
-                } else {
-                    // No previously read line, and no quotes in the line - add item
-                    addItem(lineRead);
+                // Check that the metadata element exists in the schema
+                int schemaID = foundSchema.getSchemaID();
+                MetadataField foundField = MetadataField.findByElement(c, schemaID, metadataElement, metadataQualifier);
+                if (foundField == null) {
+                    throw new MetadataImportInvalidHeadingException(clean[0],
+                                                                    MetadataImportInvalidHeadingException.ELEMENT,
+                                                                    columnCounter);
                 }
-            }
-        }
-        finally
-        {
-            if (input != null)
-            {
-                input.close();
+
+                // Store the heading
+                headings.add(authorityPrefix + element);
+                headingSet.add(authorityPrefix + element);
             }
         }
     }
@@ -253,6 +226,7 @@ public class DSpaceCSV implements Serializable
 
         // Create the headings
         headings = new ArrayList<String>();
+        headingSet = new HashSet<String>();
 
         // Create the blank list of items
         lines = new ArrayList<DSpaceCSVLine>();
@@ -399,11 +373,30 @@ public class DSpaceCSV implements Serializable
      * @throws Exception if something goes wrong with adding the Item
      */
     public final void addItem(Item i) throws Exception
+    {
+        DSpaceCSVLine line = createLine(i);
+        if (line != null)
+        {
+            lines.add(line);
+            counter++;
+        }
+    }
+
+    /**
+     * Create the CSV line of a DSpace item, adding its metadata keys to the
+     * headings, without adding the line to this CSV file
+     *
+     * @param i The DSpace item
+     * @return The CSV line, or null if the item has no owning collection
+     *
+     * @throws Exception if something goes wrong with creating the line
+     */
+    final DSpaceCSVLine createLine(Item i) throws Exception
     {
         // If the item does not have an "owningCollection" the the below "getHandle()" call will fail
         // This should not happen but is here for safety.
         if (i.getOwningCollection() == null) {
-            return;
+            return null;
         }
 
         // Create the CSV line
@@ -454,14 +447,14 @@ public class DSpaceCSV implements Serializable
                     mdValue += authoritySeparator + value.authority + authoritySeparator +  (value.confidence != -1 ? value.confidence : Choices.CF_ACCEPTED);
                 }
                 line.add(key, mdValue);
-                if (!headings.contains(key))
+                if (!headingSet.contains(key))
                 {
+                    headingSet.add(key);
                     headings.add(key);
                 }
             }
         }
-        lines.add(line);
-        counter++;
+        return line;
     }
 
     /**
@@ -471,6 +464,19 @@ public class DSpaceCSV implements Serializable
      * @throws Exception Thrown if an error occurs when adding the item
      */
     public final void addItem(String line) throws Exception
+    {
+        lines.add(parseLine(line));
+        counter++;
+    }
+
+    /**
+     * Parse a CSV line of elements, using the headings of this CSV file
+     *
+     * @param line The line of elements
+     * @return The parsed line
+     * @throws Exception Thrown if an error occurs when parsing the line
+     */
+    final DSpaceCSVLine parseLine(String line) throws Exception
     {
         // Check to see if the last character is a field separator, which hides the last empty column
         boolean last = false;
@@ -587,8 +593,7 @@ public class DSpaceCSV implements Serializable
             }
             i++;
         }
-        lines.add(csvLine);
-        counter++;
+        return csvLine;
     }
 
     /**
@@ -611,13 +616,8 @@ public class DSpaceCSV implements Serializable
     {
         // Create the headings line
         String[] csvLines = new String[counter + 1];
-        csvLines[0] = "id" + fieldSeparator + "collection";
-        List<String> headingsCopy = new ArrayList<String>(headings);
-        Collections.sort(headingsCopy);
-        for (String value : headingsCopy)
-        {
-            csvLines[0] = csvLines[0] + fieldSeparator + value;
-        }
+        List<String> headingsCopy = getSortedHeadings();
+        csvLines[0] = getHeadingLine(headingsCopy);
 
         Iterator<DSpaceCSVLine> i = lines.iterator();
         int c = 1;
@@ -629,6 +629,34 @@ public class DSpaceCSV implements Serializable
         return csvLines;
     }
 
+    /**
+     * Get a sorted copy of the headings, in the order they are written out
+     *
+     * @return The sorted headings
+     */
+    final List<String> getSortedHeadings()
+    {
+        List<String> headingsCopy = new ArrayList<String>(headings);
+        Collections.sort(headingsCopy);
+        return headingsCopy;
+    }
+
+    /**
+     * Get the CSV formatted heading line for the given headings
+     *
+     * @param sortedHeadings The headings, as returned by getSortedHeadings()
+     * @return The heading line
+     */
+    final String getHeadingLine(List<String> sortedHeadings)
+    {
+        StringBuilder headingLine = new StringBuilder("id").append(fieldSeparator).append("collection");
+        for (String value : sortedHeadings)
+        {
+            headingLine.append(fieldSeparator).append(value);
+        }
+        return headingLine.toString();
+    }
+
     /**
      * Save the CSV file to the given filename
      *
@@ -9,6 +9,9 @@ package org.dspace.app.bulkedit;
 
 import org.dspace.authority.AuthorityValue;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
@@ -212,5 +215,68 @@ public class DSpaceCSVLine implements Serializable
         // Replace internal quotes with two sets of quotes
         return "\"" + s.replaceAll("\"", "\"\"") + "\"";
     }
-}
 
+    /**
+     * Write this line in a compact binary form, to be read back by read().
+     * Used to spool lines to a temporary file while streaming an export.
+     *
+     * @param out The output to write to
+     * @throws IOException Thrown if an error occurs when writing
+     */
+    void write(DataOutput out) throws IOException
+    {
+        out.writeInt(id);
+        out.writeInt(items.size());
+        for (String key : items.keySet())
+        {
+            writeString(out, key);
+            List<String> values = get(key);
+            out.writeInt(values.size());
+            for (String value : values)
+            {
+                writeString(out, value);
+            }
+        }
+    }
+
+    /**
+     * Read a line written by write()
+     *
+     * @param in The input to read from
+     * @return The line
+     * @throws IOException Thrown if an error occurs when reading
+     */
+    static DSpaceCSVLine read(DataInput in) throws IOException
+    {
+        DSpaceCSVLine line = new DSpaceCSVLine(in.readInt());
+        int keys = in.readInt();
+        for (int k = 0; k < keys; k++)
+        {
+            String key = readString(in);
+            line.add(key, null);
+            int values = in.readInt();
+            for (int v = 0; v < values; v++)
+            {
+                line.add(key, readString(in));
+            }
+        }
+        return line;
+    }
+
+    /**
+     * Write a string of any length (DataOutput.writeUTF is limited to 64K)
+     */
+    private static void writeString(DataOutput out, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes("UTF-8");
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException
+    {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.bulkedit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.dspace.core.Context;
+
+import java.io.*;
+
+/**
+ * Reads a CSV file one line at a time, so that files of any size can be
+ * imported without holding all of their lines in memory.
+ *
+ * The headings are read (and checked against the metadata registry) when the
+ * reader is created, and are available from the DSpaceCSV returned by getCSV(),
+ * which holds no lines itself.
+ */
+public class DSpaceCSVReader implements Closeable
+{
+    /** The CSV file the headings are read into */
+    private final DSpaceCSV csv;
+
+    /** The file being read */
+    private final BufferedReader input;
+
+    /** The number of lines returned so far */
+    private int counter;
+
+    /**
+     * Open a CSV file and read its headings
+     *
+     * @param f The file to read from
+     * @param c The DSpace Context
+     *
+     * @throws Exception thrown if there is an error reading the file or its headings
+     */
+    public DSpaceCSVReader(File f, Context c) throws Exception
+    {
+        this(f, c, new DSpaceCSV(false));
+    }
+
+    /**
+     * Open a CSV file and read its headings into the given CSV file
+     *
+     * @param f The file to read from
+     * @param c The DSpace Context
+     * @param csv The CSV file to add the headings to
+     *
+     * @throws Exception thrown if there is an error reading the file or its headings
+     */
+    DSpaceCSVReader(File f, Context c, DSpaceCSV csv) throws Exception
+    {
+        this.csv = csv;
+        this.input = new BufferedReader(new InputStreamReader(new FileInputStream(f),"UTF-8"));
+        try
+        {
+            // Read the heading line
+            csv.addHeadings(input.readLine(), c);
+        }
+        catch (Exception e)
+        {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the CSV file holding the headings of the file being read
+     *
+     * @return The CSV file
+     */
+    public DSpaceCSV getCSV()
+    {
+        return csv;
+    }
+
+    /**
+     * Get the number of lines read so far
+     *
+     * @return The number of lines
+     */
+    public int getLineCount()
+    {
+        return counter;
+    }
+
+    /**
+     * Read the next line. A line may span several lines of the file, if it
+     * contains quoted values with line breaks.
+     *
+     * @return The next line, or null if there are no more lines
+     * @throws Exception Thrown if an error occurs when reading or parsing the line
+     */
+    public DSpaceCSVLine next() throws Exception
+    {
+        StringBuilder lineBuilder = new StringBuilder();
+        String lineRead;
+
+        while (StringUtils.isNotBlank(lineRead = input.readLine()))
+        {
+            if (lineBuilder.length() > 0) {
+                // Already have a previously read value - add this line
+                lineBuilder.append("\n").append(lineRead);
+
+                if (countQuotes(lineBuilder) % 2 == 0) {
+                    // Number of quotes is a multiple of 2, return the item
+                    return parse(lineBuilder.toString());
+                }
+            } else if (lineRead.indexOf('"') > -1) {
+                if (countQuotes(lineRead) % 2 == 0) {
+                    // Number of quotes is a multiple of 2, return the item
+                    return parse(lineRead);
+                } else {
+                    // Uneven quotes - add to the buffer and leave for later
+                    lineBuilder.append(lineRead);
+                }
+            } else {
+                // No previously read line, and no quotes in the line - return the item
+                return parse(lineRead);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Close the file
+     *
+     * @throws IOException Thrown if an error occurs when closing the file
+     */
+    public void close() throws IOException
+    {
+        input.close();
+    }
+
+    private DSpaceCSVLine parse(String line) throws Exception
+    {
+        counter++;
+        return csv.parseLine(line);
+    }
+
+    private static int countQuotes(CharSequence s)
+    {
+        int quoteCount = 0;
+        for (int pos = 0; pos < s.length(); pos++) {
+            if (s.charAt(pos) == '"') {
+                quoteCount++;
+            }
+        }
+        return quoteCount;
+    }
+}
@@ -14,9 +14,12 @@ import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.handle.HandleManager;
 
+import java.io.*;
 import java.util.ArrayList;
 import java.sql.SQLException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Metadata exporter to allow the batch export of metadata into a file
@@ -57,7 +60,7 @@ public class MetadataExport
         try
         {
             // Try to export the community
-            this.toExport = new ItemIterator(c, buildFromCommunity(toExport, new ArrayList<Integer>(), 0));
+            this.toExport = new ItemIterator(c, new ArrayList<Integer>(buildFromCommunity(toExport, new LinkedHashSet<Integer>(), 0)));
             this.exportAll = exportAll;
         }
         catch (SQLException sqle)
@@ -73,12 +76,12 @@ public class MetadataExport
      * Build an array list of item ids that are in a community (include sub-communities and collections)
      *
      * @param community The community to build from
-     * @param itemIDs The itemID (used for recursion - use an empty ArrayList)
+     * @param itemIDs The itemID (used for recursion - use an empty LinkedHashSet)
      * @param indent How many spaces to use when writing out the names of items added
      * @return The list of item ids
      * @throws SQLException
      */
-    private List<Integer> buildFromCommunity(Community community, List<Integer> itemIDs, int indent)
+    private Set<Integer> buildFromCommunity(Community community, Set<Integer> itemIDs, int indent)
                                                                                throws SQLException
     {
         // Add all the collections
@@ -91,15 +94,18 @@ public class MetadataExport
             }
 
             ItemIterator items = collection.getAllItems();
-            while (items.hasNext())
+            try
             {
-                int id = items.next().getID();
-                // Only add if not already included (so mapped items only appear once)
-                if (!itemIDs.contains(id))
+                while (items.hasNext())
                 {
-                    itemIDs.add(id);
+                    // Only add if not already included (so mapped items only appear once)
+                    itemIDs.add(items.nextID());
                 }
             }
+            finally
+            {
+                items.close();
+            }
         }
 
         // Add all the sub-communities
@@ -144,6 +150,73 @@ public class MetadataExport
         }
     }
 
+    /**
+     * Run the export, writing the CSV to the given stream as the items are
+     * read. Unlike export(), the lines are not kept in memory: as the
+     * headings are only known after all items have been read, the lines are
+     * spooled to a temporary file first, and each item is removed from the
+     * cache of the Context once its line has been created.
+     *
+     * @param out The stream to write the CSV to. It is not closed.
+     * @throws Exception if something goes wrong with reading the items or
+     *                   writing the CSV
+     */
+    public void export(OutputStream out) throws Exception
+    {
+        DSpaceCSV csv = new DSpaceCSV(exportAll);
+        File spool = File.createTempFile("metadataexport", ".tmp");
+        try
+        {
+            // Create the lines, collecting the headings
+            DataOutputStream spoolOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spool)));
+            int count = 0;
+            try
+            {
+                while (toExport.hasNext())
+                {
+                    Item item = toExport.next();
+                    DSpaceCSVLine line = csv.createLine(item);
+                    if (line != null)
+                    {
+                        line.write(spoolOut);
+                        count++;
+                    }
+                    item.decache();
+                }
+            }
+            finally
+            {
+                spoolOut.close();
+                toExport.close();
+            }
+
+            // Write the headings, then the lines in the order of the headings
+            List<String> headings = csv.getSortedHeadings();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+            writer.write(csv.getHeadingLine(headings) + "\n");
+            DataInputStream spoolIn = new DataInputStream(new BufferedInputStream(new FileInputStream(spool)));
+            try
+            {
+                for (int i = 0; i < count; i++)
+                {
+                    writer.write(DSpaceCSVLine.read(spoolIn).toCSV(headings) + "\n");
+                }
+            }
+            finally
+            {
+                spoolIn.close();
+            }
+            writer.flush();
+        }
+        finally
+        {
+            if (!spool.delete())
+            {
+                spool.deleteOnExit();
+            }
+        }
+    }
+
     /**
      * Print the help message
      *
@@ -256,11 +329,16 @@ public class MetadataExport
             }
         }
 
-        // Perform the export
-        DSpaceCSV csv = exporter.export();
-
-        // Save the files to the file
-        csv.save(filename);        
+        // Perform the export, writing to the file as we go
+        OutputStream out = new FileOutputStream(filename);
+        try
+        {
+            exporter.export(out);
+        }
+        finally
+        {
+            out.close();
+        }
 
         // Finish off and tidy up
         c.restoreAuthSystemState();
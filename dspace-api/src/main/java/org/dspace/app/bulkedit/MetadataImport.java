@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -53,6 +54,9 @@ public class MetadataImport
     /** The lines to import */
     List<DSpaceCSVLine> toImport;
 
+    /** The file to read the lines to import from, if they are not held in memory */
+    File file;
+
     /** The authority controlled fields */
     private static Set<String> authorityControlled;
     static
@@ -83,6 +87,33 @@ public class MetadataImport
         this.toImport = toImport.getCSVLines();
     }
 
+    /**
+     * Create an instance of the metadata importer that reads the lines to
+     * examine from a CSV file one at a time, each time the import is run.
+     * The headings of the file are checked straight away.
+     *
+     * @param c The context
+     * @param toImport The CSV file to examine
+     *
+     * @throws Exception if the file can not be read or has invalid headings
+     */
+    public MetadataImport(Context c, File toImport) throws Exception
+    {
+        // Store the import settings
+        this.c = c;
+        DSpaceCSVReader reader = new DSpaceCSVReader(toImport, c);
+        try
+        {
+            csv = reader.getCSV();
+        }
+        finally
+        {
+            reader.close();
+        }
+        this.toImport = csv.getCSVLines();
+        file = toImport;
+    }
+
     /**
      * Run an import. The import can either be read-only to detect changes, or
      * can write changes as it goes.
@@ -107,300 +138,451 @@ public class MetadataImport
         try
         {
             // Process each change
-            for (DSpaceCSVLine line : toImport)
+            DSpaceCSVReader reader = (file != null) ? new DSpaceCSVReader(file, c) : null;
+            try
             {
-                // Get the DSpace item to compare with
-                int id = line.getID();
+                Iterator<DSpaceCSVLine> lines = (reader == null) ? toImport.iterator() : null;
+                DSpaceCSVLine line;
+                while ((line = nextLine(reader, lines)) != null)
+                {
+                    BulkEditChange whatHasChanged = importLine(line, change, useWorkflow, workflowNotify, useTemplate);
 
-                // Is there an action column?
-                if (csv.hasActions() && (!"".equals(line.getAction())) && (id == -1))
+                    // Only record if changes have been made
+                    if (whatHasChanged.isNewItem() || whatHasChanged.hasChanges())
+                    {
+                        changes.add(whatHasChanged);
+                    }
+                }
+            }
+            finally
+            {
+                if (reader != null)
                 {
-                    throw new MetadataImportException("'action' not allowed for new items!");
+                    reader.close();
                 }
+            }
+        }
+        catch (MetadataImportException mie)
+        {
+            throw mie;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
 
-                // Is this a new item?
-                if (id != -1)
+        // Return the changes
+        return changes;
+    }
+
+    /**
+     * Run an import in batches, without keeping the changes of all items in
+     * memory. The lines are read one at a time if this importer was created
+     * with a file. After every batch of lines the changes are committed (if
+     * they are being made), optionally displayed, and the items of the batch
+     * are removed from the cache of the Context. Only a summary of the changes
+     * is returned.
+     *
+     * @param change Whether or not to write the changes to the database
+     * @param useWorkflow Whether the workflows should be used when creating new items
+     * @param workflowNotify If the workflows should be used, whether to send notifications or not
+     * @param useTemplate Use collection template if create new item
+     * @param batchSize The number of lines to process between commits
+     * @param display Whether to print the changes of each batch
+     * @return A summary of the changes
+     *
+     * @throws MetadataImportException if something goes wrong
+     */
+    public BulkEditSummary runImport(boolean change,
+                                     boolean useWorkflow,
+                                     boolean workflowNotify,
+                                     boolean useTemplate,
+                                     int batchSize,
+                                     boolean display) throws MetadataImportException
+    {
+        BulkEditSummary summary = new BulkEditSummary();
+        List<BulkEditChange> batch = new ArrayList<BulkEditChange>();
+
+        try
+        {
+            DSpaceCSVReader reader = (file != null) ? new DSpaceCSVReader(file, c) : null;
+            try
+            {
+                Iterator<DSpaceCSVLine> lines = (reader == null) ? toImport.iterator() : null;
+                DSpaceCSVLine line;
+                while ((line = nextLine(reader, lines)) != null)
                 {
-                    // Get the item
-                    Item item = Item.find(c, id);
-                    if (item == null)
+                    batch.add(importLine(line, change, useWorkflow, workflowNotify, useTemplate));
+                    summary.addLine();
+                    if (batch.size() >= batchSize)
                     {
-                        throw new MetadataImportException("Unknown item ID " + id);
+                        finishBatch(batch, summary, change, display);
                     }
+                }
+                finishBatch(batch, summary, change, display);
+            }
+            finally
+            {
+                if (reader != null)
+                {
+                    reader.close();
+                }
+            }
+        }
+        catch (MetadataImportException mie)
+        {
+            throw mie;
+        }
+        catch (Exception e)
+        {
+            e.printStackTrace();
+        }
 
-                    // Record changes
-                    BulkEditChange whatHasChanged = new BulkEditChange(item);
+        return summary;
+    }
 
-                    // Has it moved collection?
-                    List<String> collections = line.get("collection");
-                    if (collections != null)
-                    {
-                        // Sanity check we're not orphaning it
-                        if (collections.size() == 0)
+    /**
+     * Count, commit and display the changes of a batch of lines, and remove
+     * its items from the cache
+     */
+    private void finishBatch(List<BulkEditChange> batch, BulkEditSummary summary,
+                             boolean change, boolean display) throws SQLException
+    {
+        List<BulkEditChange> changes = new ArrayList<BulkEditChange>();
+        for (BulkEditChange whatHasChanged : batch)
+        {
+            if (whatHasChanged.isNewItem() || whatHasChanged.hasChanges())
+            {
+                changes.add(whatHasChanged);
+                summary.add(whatHasChanged);
+            }
+        }
+
+        if (change)
+        {
+            c.commit();
+        }
+
+        if (display)
+        {
+            displayChanges(changes, change);
+        }
+
+        for (BulkEditChange whatHasChanged : batch)
+        {
+            if (whatHasChanged.getItem() != null)
+            {
+                whatHasChanged.getItem().decache();
+            }
+        }
+        batch.clear();
+    }
+
+    /**
+     * Get the next line, either from the reader or from the lines in memory
+     */
+    private static DSpaceCSVLine nextLine(DSpaceCSVReader reader, Iterator<DSpaceCSVLine> lines) throws Exception
+    {
+        if (reader != null)
+        {
+            return reader.next();
+        }
+        return lines.hasNext() ? lines.next() : null;
+    }
+
+    /**
+     * Import a single line
+     *
+     * @param line The line to import
+     * @param change Whether or not to write the changes to the database
+     * @param useWorkflow Whether the workflows should be used when creating new items
+     * @param workflowNotify If the workflows should be used, whether to send notifications or not
+     * @param useTemplate Use collection template if create new item
+     * @return The changes of the item of the line
+     *
+     * @throws Exception if something goes wrong
+     */
+    private BulkEditChange importLine(DSpaceCSVLine line,
+                                      boolean change,
+                                      boolean useWorkflow,
+                                      boolean workflowNotify,
+                                      boolean useTemplate) throws Exception
+    {
+        // Get the DSpace item to compare with
+        int id = line.getID();
+
+        // Is there an action column?
+        if (csv.hasActions() && (!"".equals(line.getAction())) && (id == -1))
+        {
+            throw new MetadataImportException("'action' not allowed for new items!");
+        }
+
+        // Is this a new item?
+        if (id != -1)
+        {
+            // Get the item
+            Item item = Item.find(c, id);
+            if (item == null)
+            {
+                throw new MetadataImportException("Unknown item ID " + id);
+            }
+
+            // Record changes
+            BulkEditChange whatHasChanged = new BulkEditChange(item);
+
+            // Has it moved collection?
+            List<String> collections = line.get("collection");
+            if (collections != null)
+            {
+                // Sanity check we're not orphaning it
+                if (collections.size() == 0)
+                {
+                    throw new MetadataImportException("Missing collection from item " + item.getHandle());
+                }
+                Collection[] actualCollections = item.getCollections();
+                compare(item, collections, actualCollections, whatHasChanged, change);
+            }
+
+            // Iterate through each metadata element in the csv line
+            for (String md : line.keys())
+            {
+                // Get the values we already have
+                if (!"id".equals(md))
+                {
+                    // Get the values from the CSV
+                    String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
+                    // Remove authority unless the md is not authority controlled
+                    if (!isAuthorityControlledField(md))
+                    { 
+                        for (int i=0; i<fromCSV.length; i++)
                         {
-                            throw new MetadataImportException("Missing collection from item " + item.getHandle());
+                            int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
+                            if (pos > -1)
+                            {
+                                fromCSV[i] = fromCSV[i].substring(0, pos);
+                            }
                         }
-                        Collection[] actualCollections = item.getCollections();
-                        compare(item, collections, actualCollections, whatHasChanged, change);
                     }
 
-                    // Iterate through each metadata element in the csv line
-                    for (String md : line.keys())
-                    {
-                        // Get the values we already have
-                        if (!"id".equals(md))
-                        {
-                            // Get the values from the CSV
-                            String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
-                            // Remove authority unless the md is not authority controlled
-                            if (!isAuthorityControlledField(md))
-                            { 
-                                for (int i=0; i<fromCSV.length; i++)
-                                {
-                                    int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
-                                    if (pos > -1)
-                                    {
-                                        fromCSV[i] = fromCSV[i].substring(0, pos);
-                                    }
-                                }
-                            }
+                    // Compare
+                    compare(item, fromCSV, change, md, whatHasChanged, line);
+                }
+            }
 
-                            // Compare
-                            compare(item, fromCSV, change, md, whatHasChanged, line);
-                        }
+            if (csv.hasActions())
+            {
+                // Perform the action
+                String action = line.getAction();
+                if ("".equals(action))
+                {
+                    // Do nothing
+                }
+                else if ("expunge".equals(action))
+                {
+                    // Does the configuration allow deletes?
+                    if (!ConfigurationManager.getBooleanProperty("bulkedit", "allowexpunge", false))
+                    {
+                        throw new MetadataImportException("'expunge' action denied by configuration");
                     }
 
-                    if (csv.hasActions())
+                    // Remove the item
+                    Collection[] owners = item.getCollections();
+                    for (Collection owner : owners)
                     {
-                        // Perform the action
-                        String action = line.getAction();
-                        if ("".equals(action))
+                        if (change)
                         {
-                            // Do nothing
+                            owner.removeItem(item);
                         }
-                        else if ("expunge".equals(action))
+                    }
+                    whatHasChanged.setDeleted();
+                }
+                else if ("withdraw".equals(action))
+                {
+                    // Withdraw the item
+                    if (!item.isWithdrawn())
+                    {
+                        if (change)
                         {
-                            // Does the configuration allow deletes?
-                            if (!ConfigurationManager.getBooleanProperty("bulkedit", "allowexpunge", false))
-                            {
-                                throw new MetadataImportException("'expunge' action denied by configuration");
-                            }
-
-                            // Remove the item
-                            Collection[] owners = item.getCollections();
-                            for (Collection owner : owners)
-                            {
-                                if (change)
-                                {
-                                    owner.removeItem(item);
-                                }
-                            }
-                            whatHasChanged.setDeleted();
+                            item.withdraw();
                         }
-                        else if ("withdraw".equals(action))
+                        whatHasChanged.setWithdrawn();
+                    }
+                }
+                else if ("reinstate".equals(action))
+                {
+                    // Reinstate the item
+                    if (item.isWithdrawn())
+                    {
+                        if (change)
                         {
-                            // Withdraw the item
-                            if (!item.isWithdrawn())
-                            {
-                                if (change)
-                                {
-                                    item.withdraw();
-                                }
-                                whatHasChanged.setWithdrawn();
-                            }
+                            item.reinstate();
                         }
-                        else if ("reinstate".equals(action))
+                        whatHasChanged.setReinstated();
+                    }
+                }
+                else {
+                    // Unknown action!
+                    throw new MetadataImportException("Unknown action: " + action);
+                }
+            }
+
+            return whatHasChanged;
+        }
+        else
+        {
+            // This is marked as a new item, so no need to compare
+
+            // First check a user is set, otherwise this can't happen
+            if (c.getCurrentUser() == null)
+            {
+                throw new MetadataImportException("When adding new items, a user must be specified with the -e option");
+            }
+
+            // Iterate through each metadata element in the csv line
+            BulkEditChange whatHasChanged = new BulkEditChange();
+            for (String md : line.keys())
+            {
+                // Get the values we already have
+                if (!"id".equals(md))
+                {
+                    // Get the values from the CSV
+                    String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
+
+                    // Remove authority unless the md is not authority controlled
+                    if (!isAuthorityControlledField(md))
+                    { 
+                        for (int i=0; i<fromCSV.length; i++)
                         {
-                            // Reinstate the item
-                            if (item.isWithdrawn())
+                            int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
+                            if (pos > -1)
                             {
-                                if (change)
-                                {
-                                    item.reinstate();
-                                }
-                                whatHasChanged.setReinstated();
+                                fromCSV[i] = fromCSV[i].substring(0, pos);
                             }
                         }
-                        else {
-                            // Unknown action!
-                            throw new MetadataImportException("Unknown action: " + action);
-                        }
                     }
 
-                    // Only record if changes have been made
-                    if (whatHasChanged.hasChanges())
-                    {
-                        changes.add(whatHasChanged);
-                    }
+                    // Add all the values from the CSV line
+                    add(fromCSV, md, whatHasChanged);
                 }
-                else
+            }
+
+            // Check it has an owning collection
+            List<String> collections = line.get("collection");
+            if (collections == null)
+            {
+                throw new MetadataImportException("New items must have a 'collection' assigned in the form of a handle");
+            }
+
+            // Check collections are really collections
+            ArrayList<Collection> check = new ArrayList<Collection>();
+            Collection collection;
+            for (String handle : collections)
+            {
+                try
                 {
-                    // This is marked as a new item, so no need to compare
+                    // Resolve the handle to the collection
+                    collection = (Collection)HandleManager.resolveToObject(c, handle);
 
-                    // First check a user is set, otherwise this can't happen
-                    if (c.getCurrentUser() == null)
+                    // Check it resolved OK
+                    if (collection == null)
                     {
-                        throw new MetadataImportException("When adding new items, a user must be specified with the -e option");
+                        throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items");
                     }
 
-                    // Iterate through each metadata element in the csv line
-                    BulkEditChange whatHasChanged = new BulkEditChange();
-                    for (String md : line.keys())
+                    // Check for duplicate
+                    if (check.contains(collection))
                     {
-                        // Get the values we already have
-                        if (!"id".equals(md))
-                        {
-                            // Get the values from the CSV
-                            String[] fromCSV = line.get(md).toArray(new String[line.get(md).size()]);
-
-                            // Remove authority unless the md is not authority controlled
-                            if (!isAuthorityControlledField(md))
-                            { 
-                                for (int i=0; i<fromCSV.length; i++)
-                                {
-                                    int pos = fromCSV[i].indexOf(DSpaceCSV.authoritySeparator);
-                                    if (pos > -1)
-                                    {
-                                        fromCSV[i] = fromCSV[i].substring(0, pos);
-                                    }
-                                }
-                            }
-
-                            // Add all the values from the CSV line
-                            add(fromCSV, md, whatHasChanged);
-                        }
+                        throw new MetadataImportException("Duplicate collection assignment detected in new item! " + handle);
                     }
-
-                    // Check it has an owning collection
-                    List<String> collections = line.get("collection");
-                    if (collections == null)
+                    else
                     {
-                        throw new MetadataImportException("New items must have a 'collection' assigned in the form of a handle");
+                        check.add(collection);
                     }
+                }
+                catch (Exception ex)
+                {
+                    throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items", ex);
+                }
+            }
 
-                    // Check collections are really collections
-                    ArrayList<Collection> check = new ArrayList<Collection>();
-                    Collection collection;
-                    for (String handle : collections)
-                    {
-                        try
-                        {
-                            // Resolve the handle to the collection
-                            collection = (Collection)HandleManager.resolveToObject(c, handle);
+            // Record the addition to collections
+            boolean first = true;
+            for (String handle : collections)
+            {
+                Collection extra = (Collection)HandleManager.resolveToObject(c, handle);
+                if (first)
+                {
+                    whatHasChanged.setOwningCollection(extra);
+                }
+                else
+                {
+                    whatHasChanged.registerNewMappedCollection(extra);
+                }
+                first = false;
+            }
 
-                            // Check it resolved OK
-                            if (collection == null)
-                            {
-                                throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items");
-                            }
+            // Create the new item?
+            if (change)
+            {
+                // Create the item
+                String collectionHandle = line.get("collection").get(0);
+                collection = (Collection)HandleManager.resolveToObject(c, collectionHandle);
+                WorkspaceItem wsItem = WorkspaceItem.create(c, collection, useTemplate);
+                Item item = wsItem.getItem();
+
+                // Add the metadata to the item
+                for (Metadatum dcv : whatHasChanged.getAdds())
+                {
+                    item.addMetadata(dcv.schema,
+                                     dcv.element,
+                                     dcv.qualifier,
+                                     dcv.language,
+                                     dcv.value,
+                                     dcv.authority,
+                                     dcv.confidence);
+                }
 
-                            // Check for duplicate
-                            if (check.contains(collection))
-                            {
-                                throw new MetadataImportException("Duplicate collection assignment detected in new item! " + handle);
-                            }
-                            else
-                            {
-                                check.add(collection);
-                            }
+                // Should the workflow be used?
+                if(useWorkflow){
+                    if (ConfigurationManager.getProperty("workflow", "workflow.framework").equals("xmlworkflow")) {
+                        if (workflowNotify) {
+                            XmlWorkflowManager.start(c, wsItem);
+                        } else {
+                            XmlWorkflowManager.startWithoutNotify(c, wsItem);
                         }
-                        catch (Exception ex)
-                        {
-                            throw new MetadataImportException("'" + handle + "' is not a Collection! You must specify a valid collection for new items", ex);
+                    } else {
+                        if (workflowNotify) {
+                            WorkflowManager.start(c, wsItem);
+                        } else {
+                            WorkflowManager.startWithoutNotify(c, wsItem);
                         }
                     }
+                }
+                else
+                {
+                    // Install the item
+                    InstallItem.installItem(c, wsItem);
+                }
 
-                    // Record the addition to collections
-                    boolean first = true;
-                    for (String handle : collections)
+                // Add to extra collections
+                if (line.get("collection").size() > 0)
+                {
+                    for (int i = 1; i < collections.size(); i++)
                     {
+                        String handle = collections.get(i);
                         Collection extra = (Collection)HandleManager.resolveToObject(c, handle);
-                        if (first)
-                        {
-                            whatHasChanged.setOwningCollection(extra);
-                        }
-                        else
-                        {
-                            whatHasChanged.registerNewMappedCollection(extra);
-                        }
-                        first = false;
+                        extra.addItem(item);
                     }
-
-                    // Create the new item?
-                    if (change)
-                    {
-                        // Create the item
-                        String collectionHandle = line.get("collection").get(0);
-                        collection = (Collection)HandleManager.resolveToObject(c, collectionHandle);
-                        WorkspaceItem wsItem = WorkspaceItem.create(c, collection, useTemplate);
-                        Item item = wsItem.getItem();
-
-                        // Add the metadata to the item
-                        for (Metadatum dcv : whatHasChanged.getAdds())
-                        {
-                            item.addMetadata(dcv.schema,
-                                             dcv.element,
-                                             dcv.qualifier,
-                                             dcv.language,
-                                             dcv.value,
-                                             dcv.authority,
-                                             dcv.confidence);
-                        }
-
-                        // Should the workflow be used?
-                        if(useWorkflow){
-                            if (ConfigurationManager.getProperty("workflow", "workflow.framework").equals("xmlworkflow")) {
-                                if (workflowNotify) {
-                                    XmlWorkflowManager.start(c, wsItem);
-                                } else {
-                                    XmlWorkflowManager.startWithoutNotify(c, wsItem);
-                                }
-                            } else {
-                                if (workflowNotify) {
-                                    WorkflowManager.start(c, wsItem);
-                                } else {
-                                    WorkflowManager.startWithoutNotify(c, wsItem);
-                                }
-                            }
-                        }
-                        else
-                        {
-                            // Install the item
-                            InstallItem.installItem(c, wsItem);
-                        }
-
-                        // Add to extra collections
-                        if (line.get("collection").size() > 0)
-                        {
-                            for (int i = 1; i < collections.size(); i++)
-                            {
-                                String handle = collections.get(i);
-                                Collection extra = (Collection)HandleManager.resolveToObject(c, handle);
-                                extra.addItem(item);
-                            }
-                        }
-
-                        // Commit changes to the object
-                        c.commit();
-                        whatHasChanged.setItem(item);
-                    }
-
-                    // Record the changes
-                    changes.add(whatHasChanged);
                 }
+
+                // Commit changes to the object
+                c.commit();
+                whatHasChanged.setItem(item);
             }
-        }
-        catch (MetadataImportException mie)
-        {
-            throw mie;
-        }
-        catch (Exception e)
-        {
-            e.printStackTrace();
-        }
 
-        // Return the changes
-        return changes;
+            // Record the changes
+            return whatHasChanged;
+        }
     }
 
     /**
@@ -1213,6 +1395,7 @@ public class MetadataImport
         options.addOption("w", "workflow", false, "workflow - when adding new items, use collection workflow");
         options.addOption("n", "notify", false, "notify - when adding new items using a workflow, send notification emails");
         options.addOption("t", "template", false, "template - when adding new items, use the collection template (if it exists)");        
+        options.addOption("b", "batch", true, "batch - read the file one line at a time and commit the changes every <batch> lines, for very large files");
         options.addOption("h", "help", false, "help");
 
         // Parse the command line arguments
@@ -1312,11 +1495,37 @@ public class MetadataImport
         // Is this a silent run?
         boolean change = false;
 
+        // Read the CSV file in batches?
+        int batchSize = 0;
+        if (line.hasOption('b'))
+        {
+            try
+            {
+                batchSize = Integer.parseInt(line.getOptionValue('b'));
+            }
+            catch (NumberFormatException nfe)
+            {
+                batchSize = 0;
+            }
+            if (batchSize < 1)
+            {
+                System.err.println("Invalid option 'b': (batch) must be a positive number.");
+                System.exit(1);
+            }
+        }
+
         // Read lines from the CSV file
-        DSpaceCSV csv;
+        MetadataImport importer;
         try
         {
-            csv = new DSpaceCSV(new File(filename), c);
+            if (batchSize > 0)
+            {
+                importer = new MetadataImport(c, new File(filename));
+            }
+            else
+            {
+                importer = new MetadataImport(c, new DSpaceCSV(new File(filename), c));
+            }
         }
         catch (MetadataImportInvalidHeadingException miihe)
         {
@@ -1332,15 +1541,27 @@ public class MetadataImport
         }
 
         // Perform the first import - just highlight differences
-        MetadataImport importer = new MetadataImport(c, csv);
         List<BulkEditChange> changes;
 
         if (!line.hasOption('s'))
         {
             // See what has changed
+            int changeCounter;
             try
             {
-                changes = importer.runImport(false, useWorkflow, workflowNotify, useTemplate);
+                if (batchSize > 0)
+                {
+                    // Display the changes batch by batch
+                    changeCounter = importer.runImport(false, useWorkflow, workflowNotify, useTemplate,
+                                                       batchSize, true).getChangedItems();
+                }
+                else
+                {
+                    changes = importer.runImport(false, useWorkflow, workflowNotify, useTemplate);
+
+                    // Display the changes
+                    changeCounter = displayChanges(changes, false);
+                }
             }
             catch (MetadataImportException mie)
             {
@@ -1349,9 +1570,6 @@ public class MetadataImport
                 return;
             }
 
-            // Display the changes
-            int changeCounter = displayChanges(changes, false);
-
             // If there were changes, ask if we should execute them
             if (changeCounter > 0)
             {
@@ -1394,8 +1612,21 @@ public class MetadataImport
             {
                 try
                 {
-                    // Make the changes
-                    changes = importer.runImport(true, useWorkflow, workflowNotify, useTemplate);
+                    if (batchSize > 0)
+                    {
+                        // Make and display the changes, committing each batch
+                        BulkEditSummary summary = importer.runImport(true, useWorkflow, workflowNotify,
+                                                                     useTemplate, batchSize, true);
+                        System.out.println("\n" + summary);
+                    }
+                    else
+                    {
+                        // Make the changes
+                        changes = importer.runImport(true, useWorkflow, workflowNotify, useTemplate);
+
+                        // Display the changes
+                        displayChanges(changes, true);
+                    }
                 }
                 catch (MetadataImportException mie)
                 {
@@ -1404,9 +1635,6 @@ public class MetadataImport
                     return;
                 }
 
-                // Display the changes
-                displayChanges(changes, true);
-
                 // Commit the change to the DB
                 c.commit();
             }
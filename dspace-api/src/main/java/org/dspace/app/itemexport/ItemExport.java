@@ -15,6 +15,7 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
@@ -402,12 +403,7 @@ public class ItemExport
     private static void writeMetadata(Context c, Item i, File destDir, boolean migrate)
             throws Exception
     {
-        Set<String> schemas = new HashSet<String>();
-        Metadatum[] dcValues = i.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
-        for (Metadatum dcValue : dcValues)
-        {
-            schemas.add(dcValue.schema);
-        }
+        Set<String> schemas = getSchemas(i);
 
         // Save each of the schemas into it's own metadata file
         for (String schema : schemas)
@@ -420,15 +416,7 @@ public class ItemExport
     private static void writeMetadata(Context c, String schema, Item i,
             File destDir, boolean migrate) throws Exception
     {
-        String filename;
-        if (schema.equals(MetadataSchema.DC_SCHEMA))
-        {
-            filename = "dublin_core.xml";
-        }
-        else
-        {
-            filename = "metadata_" + schema + ".xml";
-        }
+        String filename = getMetadataFileName(schema);
 
         File outFile = new File(destDir, filename);
 
@@ -438,97 +426,143 @@ public class ItemExport
         {
             BufferedOutputStream out = new BufferedOutputStream(
                     new FileOutputStream(outFile));
+            try
+            {
+                writeMetadata(schema, i, out, migrate);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        else
+        {
+            throw new Exception("Cannot create dublin_core.xml in " + destDir);
+        }
+    }
 
-            Metadatum[] dcorevalues = i.getMetadata(schema, Item.ANY, Item.ANY,
-                    Item.ANY);
+    /**
+     * Get the name of the metadata file of a schema
+     *
+     * @param schema the short name of the schema
+     * @return dublin_core.xml for the DC schema, metadata_[schema].xml otherwise
+     */
+    static String getMetadataFileName(String schema)
+    {
+        if (schema.equals(MetadataSchema.DC_SCHEMA))
+        {
+            return "dublin_core.xml";
+        }
+        else
+        {
+            return "metadata_" + schema + ".xml";
+        }
+    }
 
-            // XML preamble
-            byte[] utf8 = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n"
-                    .getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
+    /**
+     * Get the schemas used by the metadata of an item
+     *
+     * @param i the item
+     * @return the short names of the schemas
+     */
+    static Set<String> getSchemas(Item i)
+    {
+        Set<String> schemas = new HashSet<String>();
+        Metadatum[] dcValues = i.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
+        for (Metadatum dcValue : dcValues)
+        {
+            schemas.add(dcValue.schema);
+        }
+        return schemas;
+    }
 
-            String dcTag = "<dublin_core schema=\"" + schema + "\">\n";
-            utf8 = dcTag.getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
+    // write the item's metadata of one schema to a stream
+    static void writeMetadata(String schema, Item i, OutputStream out,
+            boolean migrate) throws IOException, SQLException
+    {
+        Metadatum[] dcorevalues = i.getMetadata(schema, Item.ANY, Item.ANY,
+                Item.ANY);
 
-            String dateIssued = null;
-            String dateAccessioned = null;
+        // XML preamble
+        byte[] utf8 = "<?xml version=\"1.0\" encoding=\"utf-8\" standalone=\"no\"?>\n"
+                .getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
 
-            for (Metadatum dcv : dcorevalues)
-            {
-                String qualifier = dcv.qualifier;
+        String dcTag = "<dublin_core schema=\"" + schema + "\">\n";
+        utf8 = dcTag.getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
 
-                if (qualifier == null)
-                {
-                    qualifier = "none";
-                }
+        String dateIssued = null;
+        String dateAccessioned = null;
 
-                String language = dcv.language;
+        for (Metadatum dcv : dcorevalues)
+        {
+            String qualifier = dcv.qualifier;
 
-                if (language != null)
-                {
-                    language = " language=\"" + language + "\"";
-                }
-                else
-                {
-                    language = "";
-                }
+            if (qualifier == null)
+            {
+                qualifier = "none";
+            }
 
-                utf8 = ("  <dcvalue element=\"" + dcv.element + "\" "
-                        + "qualifier=\"" + qualifier + "\""
-                        + language + ">"
-                        + Utils.addEntities(dcv.value) + "</dcvalue>\n")
-                        .getBytes("UTF-8");
-
-                if ((!migrate) ||
-                    (migrate && !(
-                     ("date".equals(dcv.element) && "issued".equals(qualifier)) ||
-                     ("date".equals(dcv.element) && "accessioned".equals(qualifier)) ||
-                     ("date".equals(dcv.element) && "available".equals(qualifier)) ||
-                     ("identifier".equals(dcv.element) && "uri".equals(qualifier) &&
-                      (dcv.value != null && dcv.value.startsWith("http://hdl.handle.net/" +
-                       HandleManager.getPrefix() + "/"))) ||
-                     ("description".equals(dcv.element) && "provenance".equals(qualifier)) ||
-                     ("format".equals(dcv.element) && "extent".equals(qualifier)) ||
-                     ("format".equals(dcv.element) && "mimetype".equals(qualifier)))))
-                {
-                    out.write(utf8, 0, utf8.length);
-                }
+            String language = dcv.language;
 
-                // Store the date issued and accession to see if they are different
-                // because we need to keep date.issued if they are, when migrating
-                if (("date".equals(dcv.element) && "issued".equals(qualifier)))
-                {
-                    dateIssued = dcv.value;
-                }
-                if (("date".equals(dcv.element) && "accessioned".equals(qualifier)))
-                {
-                    dateAccessioned = dcv.value;
-                }
+            if (language != null)
+            {
+                language = " language=\"" + language + "\"";
+            }
+            else
+            {
+                language = "";
             }
 
-            // When migrating, only keep date.issued if it is different to date.accessioned
-            if ((migrate) &&
-                (dateIssued != null) &&
-                (dateAccessioned != null) &&
-                (!dateIssued.equals(dateAccessioned)))
+            utf8 = ("  <dcvalue element=\"" + dcv.element + "\" "
+                    + "qualifier=\"" + qualifier + "\""
+                    + language + ">"
+                    + Utils.addEntities(dcv.value) + "</dcvalue>\n")
+                    .getBytes("UTF-8");
+
+            if ((!migrate) ||
+                (migrate && !(
+                 ("date".equals(dcv.element) && "issued".equals(qualifier)) ||
+                 ("date".equals(dcv.element) && "accessioned".equals(qualifier)) ||
+                 ("date".equals(dcv.element) && "available".equals(qualifier)) ||
+                 ("identifier".equals(dcv.element) && "uri".equals(qualifier) &&
+                  (dcv.value != null && dcv.value.startsWith("http://hdl.handle.net/" +
+                   HandleManager.getPrefix() + "/"))) ||
+                 ("description".equals(dcv.element) && "provenance".equals(qualifier)) ||
+                 ("format".equals(dcv.element) && "extent".equals(qualifier)) ||
+                 ("format".equals(dcv.element) && "mimetype".equals(qualifier)))))
             {
-                utf8 = ("  <dcvalue element=\"date\" "
-                        + "qualifier=\"issued\">"
-                        + Utils.addEntities(dateIssued) + "</dcvalue>\n")
-                        .getBytes("UTF-8");
                 out.write(utf8, 0, utf8.length);
             }
 
-            utf8 = "</dublin_core>\n".getBytes("UTF-8");
-            out.write(utf8, 0, utf8.length);
-
-            out.close();
+            // Store the date issued and accession to see if they are different
+            // because we need to keep date.issued if they are, when migrating
+            if (("date".equals(dcv.element) && "issued".equals(qualifier)))
+            {
+                dateIssued = dcv.value;
+            }
+            if (("date".equals(dcv.element) && "accessioned".equals(qualifier)))
+            {
+                dateAccessioned = dcv.value;
+            }
         }
-        else
+
+        // When migrating, only keep date.issued if it is different to date.accessioned
+        if ((migrate) &&
+            (dateIssued != null) &&
+            (dateAccessioned != null) &&
+            (!dateIssued.equals(dateAccessioned)))
         {
-            throw new Exception("Cannot create dublin_core.xml in " + destDir);
+            utf8 = ("  <dcvalue element=\"date\" "
+                    + "qualifier=\"issued\">"
+                    + Utils.addEntities(dateIssued) + "</dcvalue>\n")
+                    .getBytes("UTF-8");
+            out.write(utf8, 0, utf8.length);
         }
+
+        utf8 = "</dublin_core>\n".getBytes("UTF-8");
+        out.write(utf8, 0, utf8.length);
     }
 
     // create the file 'handle' which contains the handle assigned to the item
@@ -590,8 +624,6 @@ public class ItemExport
                 // bundles can have multiple bitstreams now...
                 Bitstream[] bitstreams = bundles[j].getBitstreams();
 
-                String bundleName = bundles[j].getName();
-
                 for (int k = 0; k < bitstreams.length; k++)
                 {
                     Bitstream b = bitstreams[k];
@@ -599,20 +631,6 @@ public class ItemExport
                     String myName = b.getName();
                     String oldName = myName;
 
-                    String description = b.getDescription();
-                    if (!StringUtils.isEmpty(description))
-                    {
-                        description = "\tdescription:" + description;
-                    } else
-                    {
-                        description = "";
-                    }
-
-                    String primary = "";
-                    if (bundles[j].getPrimaryBitstreamID() == b.getID()) {
-                        primary = "\tprimary:true ";
-                    }
-
                     int myPrefix = 1; // only used with name conflict
 
                     InputStream is = b.retrieve();
@@ -645,18 +663,7 @@ public class ItemExport
                             fos.close();
 
                             // write the manifest file entry
-                            if (b.isRegisteredBitstream())
-                            {
-                                out.println("-r -s " + b.getStoreNumber()
-                                        + " -f " + myName +
-                                        "\tbundle:" + bundleName +
-                                        primary + description);
-                            }
-                            else
-                            {
-                                out.println(myName + "\tbundle:" + bundleName +
-                                            primary + description);
-                            }
+                            out.println(getContentsLine(bundles[j], b, myName));
 
                             isDone = true;
                         }
@@ -682,6 +689,47 @@ public class ItemExport
         }
     }
 
+    /**
+     * Create the line of the contents file for an exported bitstream
+     *
+     * @param bundle
+     *            the bundle of the bitstream
+     * @param b
+     *            the bitstream
+     * @param name
+     *            the name of the exported file
+     * @return the line for the contents file
+     */
+    static String getContentsLine(Bundle bundle, Bitstream b, String name)
+    {
+        String description = b.getDescription();
+        if (!StringUtils.isEmpty(description))
+        {
+            description = "\tdescription:" + description;
+        } else
+        {
+            description = "";
+        }
+
+        String primary = "";
+        if (bundle.getPrimaryBitstreamID() == b.getID()) {
+            primary = "\tprimary:true ";
+        }
+
+        if (b.isRegisteredBitstream())
+        {
+            return "-r -s " + b.getStoreNumber()
+                    + " -f " + name +
+                    "\tbundle:" + bundle.getName() +
+                    primary + description;
+        }
+        else
+        {
+            return name + "\tbundle:" + bundle.getName() +
+                   primary + description;
+        }
+    }
+
     /**
      * Method to perform an export and save it as a zip file.
      *
@@ -697,27 +745,63 @@ public class ItemExport
                                    String destDirName, String zipFileName,
                                    int seqStart, boolean migrate) throws Exception
     {
-        String workDir = getExportWorkDirectory() +
-                         System.getProperty("file.separator") +
-                         zipFileName;
+        File dnDir = new File(destDirName);
+        if (!dnDir.exists() && !dnDir.mkdirs())
+        {
+            log.error("Unable to create destination directory");
+        }
 
-        File wkDir = new File(workDir);
-        if (!wkDir.exists() && !wkDir.mkdirs())
+        System.out.println("Beginning export");
+
+        // write the items straight into the zip file
+        ItemExportZipWriter zip = openZip(destDirName + System.getProperty("file.separator") + zipFileName, migrate);
+        try
         {
-            log.error("Unable to create working direcory");
+            zip.addItems(items, "", seqStart);
         }
+        catch (Exception e)
+        {
+            abortZip(zip, destDirName + System.getProperty("file.separator") + zipFileName);
+            throw e;
+        }
+        closeZip(zip, destDirName + System.getProperty("file.separator") + zipFileName);
+    }
 
-        File dnDir = new File(destDirName);
-        if (!dnDir.exists() && !dnDir.mkdirs())
+    /**
+     * Start writing a zip file, to a temporary file next to the target
+     */
+    private static ItemExportZipWriter openZip(String target, boolean migrate) throws IOException
+    {
+        File targetFile = new File(target + "_tmp");
+        if (!targetFile.createNewFile())
         {
-            log.error("Unable to create destination directory");
+            log.warn("Target file already exists: " + targetFile.getName());
         }
+        return new ItemExportZipWriter(new BufferedOutputStream(new FileOutputStream(targetFile)), migrate);
+    }
 
-        // export the items using normal export method
-        exportItem(context, items, workDir, seqStart, migrate);
+    /**
+     * Finish writing a zip file, and move it to the target
+     */
+    private static void closeZip(ItemExportZipWriter zip, String target) throws IOException
+    {
+        zip.close();
+        if (!new File(target + "_tmp").renameTo(new File(target)))
+        {
+            log.error("Unable to rename file");
+        }
+    }
 
-        // now zip up the export directory created above
-        zip(workDir, destDirName + System.getProperty("file.separator") + zipFileName);
+    /**
+     * Stop writing a zip file after a failure, and delete it
+     */
+    private static void abortZip(ItemExportZipWriter zip, String target)
+    {
+        zip.abort();
+        if (!new File(target + "_tmp").delete())
+        {
+            log.error("Unable to delete file: " + target + "_tmp");
+        }
     }
 
     /**
@@ -798,8 +882,8 @@ public class ItemExport
 
     /**
      * Does the work creating a List with all the Items in the Community or
-     * Collection It then kicks off a new Thread to export the items, zip the
-     * export directory and send confirmation email
+     * Collection It then kicks off a new Thread to export the items straight
+     * into a zip file and send confirmation email
      *
      * @param dsObjects
      *            - List of dspace objects to process
@@ -975,9 +1059,6 @@ public class ItemExport
 
                         String fileName = assembleFileName("item", eperson,
                                 new Date());
-                        String workParentDir = getExportWorkDirectory()
-                                + System.getProperty("file.separator")
-                                + fileName;
                         String downloadDir = getExportDownloadDirectory(eperson
                                 .getID());
                         File dnDir = new File(downloadDir);
@@ -985,33 +1066,31 @@ public class ItemExport
                         {
                             log.error("Unable to create download directory");
                         }
+                        String target = downloadDir
+                                + System.getProperty("file.separator")
+                                + fileName + ".zip";
 
-                        Iterator<String> iter = itemsMap.keySet().iterator();
-                        while(iter.hasNext())
+                        // write the items straight into the zip file, one
+                        // directory per collection or item
+                        ItemExportZipWriter zip = openZip(target, migrate);
+                        try
                         {
-                            String keyName = iter.next();
-                            iitems = new ItemIterator(context, itemsMap.get(keyName));
-
-                            String workDir = workParentDir 
-                                    + System.getProperty("file.separator")
-                                    + keyName;
-
-                            File wkDir = new File(workDir);
-                            if (!wkDir.exists() && !wkDir.mkdirs())
+                            Iterator<String> iter = itemsMap.keySet().iterator();
+                            while(iter.hasNext())
                             {
-                                log.error("Unable to create working directory");
+                                String keyName = iter.next();
+                                iitems = new ItemIterator(context, itemsMap.get(keyName));
+                                zip.addItems(iitems, keyName + "/", 1);
+                                iitems.close();
                             }
-
-
-                            // export the items using normal export method
-                            exportItem(context, iitems, workDir, 1, migrate);
-                            iitems.close();
                         }
+                        catch (Exception e)
+                        {
+                            abortZip(zip, target);
+                            throw e;
+                        }
+                        closeZip(zip, target);
 
-                        // now zip up the export directory created above
-                        zip(workParentDir, downloadDir
-                                + System.getProperty("file.separator")
-                                + fileName + ".zip");
                         // email message letting user know the file is ready for
                         // download
                         emailSuccessMessage(context, eperson, fileName + ".zip");
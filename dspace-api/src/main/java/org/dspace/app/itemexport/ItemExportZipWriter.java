@@ -0,0 +1,456 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.content.ItemIterator;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Utils;
+
+/**
+ * Writes items in the simple archive format straight into a zip file, as they
+ * are read, without exporting them to a work directory first.
+ * <P>
+ * Bitstreams no larger than org.dspace.app.itemexport.prefetch.max.size
+ * (in kilobytes) are read ahead into memory by
+ * org.dspace.app.itemexport.prefetch.threads threads, at most
+ * org.dspace.app.itemexport.prefetch.window of them at a time, while the
+ * preceding entries are being compressed. Larger bitstreams are copied
+ * straight from the asset store when their turn comes.
+ * <P>
+ * Bitstreams with a MIME type listed in
+ * org.dspace.app.itemexport.zip.stored.formats are already compressed, so
+ * they are stored in the zip file as they are instead of being deflated again.
+ */
+class ItemExportZipWriter implements Closeable
+{
+    /** The zip file being written */
+    private final ZipOutputStream zip;
+
+    /** Whether to export for migration */
+    private final boolean migrate;
+
+    /** The threads reading bitstreams ahead, or null if bitstreams are not read ahead */
+    private final ExecutorService prefetcher;
+
+    /** The largest bitstream to read ahead, in bytes */
+    private final long maxPrefetchSize;
+
+    /** The largest number of bitstreams to read ahead */
+    private final int window;
+
+    /** The MIME types of bitstreams to store without compressing them */
+    private final Set<String> storedFormats;
+
+    /** The entries waiting to be written, in order */
+    private final LinkedList<PendingEntry> pending = new LinkedList<PendingEntry>();
+
+    /** The number of pending entries being read ahead */
+    private int prefetching = 0;
+
+    /**
+     * Create a writer using the configured read ahead and stored formats
+     *
+     * @param out
+     *            the stream to write the zip file to
+     * @param migrate
+     *            whether to export for migration
+     */
+    ItemExportZipWriter(OutputStream out, boolean migrate)
+    {
+        this(out, migrate,
+             ConfigurationManager.getIntProperty("org.dspace.app.itemexport.prefetch.threads", 4),
+             ConfigurationManager.getLongProperty("org.dspace.app.itemexport.prefetch.max.size", 1024) * 1024,
+             ConfigurationManager.getIntProperty("org.dspace.app.itemexport.prefetch.window", 32),
+             getConfiguredStoredFormats());
+    }
+
+    /**
+     * @param out
+     *            the stream to write the zip file to
+     * @param migrate
+     *            whether to export for migration
+     * @param threads
+     *            the number of threads reading bitstreams ahead, 0 to read
+     *            every bitstream only when it is written
+     * @param maxPrefetchSize
+     *            the largest bitstream to read ahead, in bytes
+     * @param window
+     *            the largest number of bitstreams to read ahead
+     * @param storedFormats
+     *            the MIME types of bitstreams to store without compressing them
+     */
+    ItemExportZipWriter(OutputStream out, boolean migrate, int threads,
+            long maxPrefetchSize, int window, Set<String> storedFormats)
+    {
+        this.zip = new ZipOutputStream(out);
+        this.zip.setLevel(9);
+        this.migrate = migrate;
+        this.prefetcher = (threads > 0) ? Executors.newFixedThreadPool(threads) : null;
+        this.maxPrefetchSize = maxPrefetchSize;
+        this.window = Math.max(1, window);
+        this.storedFormats = storedFormats;
+    }
+
+    private static Set<String> getConfiguredStoredFormats()
+    {
+        Set<String> formats = new HashSet<String>();
+        String property = ConfigurationManager.getProperty("org.dspace.app.itemexport.zip.stored.formats");
+        if (property != null)
+        {
+            for (String format : property.split(","))
+            {
+                if (format.trim().length() > 0)
+                {
+                    formats.add(format.trim().toLowerCase());
+                }
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * Add items, each to its own directory numbered from seqStart
+     *
+     * @param items
+     *            the items to add
+     * @param dir
+     *            the directory of the zip file to add the item directories
+     *            to, or an empty string for the top level
+     * @param seqStart
+     *            the number of the directory of the first item
+     * @throws Exception
+     *             if there is a problem reading the items or writing the zip file
+     */
+    void addItems(ItemIterator items, String dir, int seqStart) throws Exception
+    {
+        int mySequenceNumber = seqStart;
+        while (items.hasNext())
+        {
+            Item item = items.next();
+            System.out.println("Exporting Item " + item.getID() + " to "
+                    + dir + mySequenceNumber);
+            addItem(item, dir + mySequenceNumber + "/");
+            item.decache();
+            mySequenceNumber++;
+        }
+    }
+
+    /**
+     * Add the metadata, handle, contents and bitstreams of an item
+     *
+     * @param item
+     *            the item to add
+     * @param itemDir
+     *            the directory of the zip file to add the item to, ending
+     *            with a slash
+     * @throws Exception
+     *             if there is a problem reading the item or writing the zip file
+     */
+    void addItem(Item item, String itemDir) throws Exception
+    {
+        // the names in use, as they can't be used by bitstreams
+        Set<String> names = new HashSet<String>();
+
+        for (String schema : ItemExport.getSchemas(item))
+        {
+            String name = ItemExport.getMetadataFileName(schema);
+            ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+            ItemExport.writeMetadata(schema, item, metadata, migrate);
+            add(new PendingEntry(itemDir + name, metadata.toByteArray()));
+            names.add(name);
+        }
+
+        String handle = migrate ? null : item.getHandle();
+        names.add("contents");
+        if (handle != null)
+        {
+            names.add("handle");
+        }
+
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        PrintWriter contentsOut = new PrintWriter(new OutputStreamWriter(contents, "UTF-8"));
+        for (Bundle bundle : item.getBundles())
+        {
+            for (Bitstream b : bundle.getBitstreams())
+            {
+                // keep prefixing numbers to the name until it is unique
+                String myName = b.getName();
+                for (int myPrefix = 1; !names.add(myName); myPrefix++)
+                {
+                    myName = myPrefix + "_" + b.getName();
+                }
+
+                add(createEntry(itemDir + myName.replace(File.separatorChar, '/'), b));
+                contentsOut.println(ItemExport.getContentsLine(bundle, b, myName));
+            }
+        }
+        contentsOut.close();
+        add(new PendingEntry(itemDir + "contents", contents.toByteArray()));
+
+        if (handle != null)
+        {
+            add(new PendingEntry(itemDir + "handle",
+                    (handle + System.getProperty("line.separator")).getBytes("UTF-8")));
+        }
+    }
+
+    /**
+     * Create the entry for a bitstream, starting to read it ahead if it is
+     * small enough
+     */
+    private PendingEntry createEntry(String name, Bitstream b) throws Exception
+    {
+        BitstreamFormat format = b.getFormat();
+        boolean stored = (format != null) && (format.getMIMEType() != null)
+                && storedFormats.contains(format.getMIMEType().toLowerCase());
+
+        if ((prefetcher != null) && (b.getSize() <= maxPrefetchSize))
+        {
+            // Open the bitstream here, as that needs the context, and only
+            // read it in the background
+            final InputStream is = b.retrieve();
+            final int size = (int) b.getSize();
+            Future<byte[]> data = prefetcher.submit(new Callable<byte[]>()
+            {
+                @Override
+                public byte[] call() throws IOException
+                {
+                    try
+                    {
+                        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, size));
+                        Utils.bufferedCopy(is, out);
+                        return out.toByteArray();
+                    }
+                    finally
+                    {
+                        is.close();
+                    }
+                }
+            });
+            prefetching++;
+            return new PendingEntry(name, data, is, stored);
+        }
+        return new PendingEntry(name, b, stored);
+    }
+
+    /**
+     * Queue an entry, writing the oldest entries while too many are waiting
+     */
+    private void add(PendingEntry entry) throws Exception
+    {
+        pending.add(entry);
+        while ((prefetching > window) || (pending.size() > 4 * window))
+        {
+            write(pending.removeFirst());
+        }
+    }
+
+    private void write(PendingEntry entry) throws Exception
+    {
+        byte[] data = entry.data;
+        if (entry.prefetched != null)
+        {
+            prefetching--;
+            try
+            {
+                data = entry.prefetched.get();
+            }
+            catch (ExecutionException e)
+            {
+                if (e.getCause() instanceof Exception)
+                {
+                    throw (Exception) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        ZipEntry zipEntry = new ZipEntry(entry.name);
+        if (data != null)
+        {
+            if (entry.stored)
+            {
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(data.length);
+                zipEntry.setCompressedSize(data.length);
+                zipEntry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(zipEntry);
+            zip.write(data);
+            zip.closeEntry();
+        }
+        else
+        {
+            // The checksum of a stored entry has to be known before it is
+            // written, so rather than reading the bitstream twice, deflate it
+            // without compressing
+            if (entry.stored)
+            {
+                zip.setLevel(Deflater.NO_COMPRESSION);
+            }
+            InputStream is = entry.bitstream.retrieve();
+            try
+            {
+                zip.putNextEntry(zipEntry);
+                Utils.bufferedCopy(is, zip);
+                zip.closeEntry();
+            }
+            finally
+            {
+                is.close();
+                zip.setLevel(9);
+            }
+        }
+    }
+
+    /**
+     * Write the remaining entries and finish the zip file. The stream the zip
+     * file is written to is closed as well.
+     *
+     * @throws IOException
+     *             if there is a problem writing the zip file
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            while (!pending.isEmpty())
+            {
+                write(pending.removeFirst());
+            }
+            zip.finish();
+        }
+        catch (IOException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new IOException(e);
+        }
+        finally
+        {
+            // entries left after a failure
+            discardPending();
+            zip.close();
+        }
+    }
+
+    /**
+     * Stop writing the zip file after a failure, discarding the remaining
+     * entries. The stream the zip file is written to is closed.
+     */
+    void abort()
+    {
+        discardPending();
+        try
+        {
+            zip.close();
+        }
+        catch (IOException e)
+        {
+            // the zip file is discarded anyway
+        }
+    }
+
+    /**
+     * Discard the pending entries and stop reading ahead. The bitstreams of
+     * entries whose reading ahead never started are closed here, the others
+     * are closed by the tasks reading them.
+     */
+    private void discardPending()
+    {
+        for (PendingEntry entry : pending)
+        {
+            if ((entry.prefetched != null) && entry.prefetched.cancel(false))
+            {
+                try
+                {
+                    entry.source.close();
+                }
+                catch (IOException e)
+                {
+                    // nothing is read from it anymore
+                }
+            }
+        }
+        pending.clear();
+        prefetching = 0;
+        if (prefetcher != null)
+        {
+            prefetcher.shutdownNow();
+        }
+    }
+
+    /**
+     * An entry waiting to be written. Its content is either known already, is
+     * being read ahead, or is read from the bitstream when the entry is written.
+     */
+    private static class PendingEntry
+    {
+        private final String name;
+        private final byte[] data;
+        private final Future<byte[]> prefetched;
+        private final InputStream source;
+        private final Bitstream bitstream;
+        private final boolean stored;
+
+        PendingEntry(String name, byte[] data)
+        {
+            this(name, data, null, null, null, false);
+        }
+
+        PendingEntry(String name, Future<byte[]> prefetched, InputStream source, boolean stored)
+        {
+            this(name, null, prefetched, source, null, stored);
+        }
+
+        PendingEntry(String name, Bitstream bitstream, boolean stored)
+        {
+            this(name, null, null, null, bitstream, stored);
+        }
+
+        private PendingEntry(String name, byte[] data, Future<byte[]> prefetched,
+                InputStream source, Bitstream bitstream, boolean stored)
+        {
+            this.name = name;
+            this.data = data;
+            this.prefetched = prefetched;
+            this.source = source;
+            this.bitstream = bitstream;
+            this.stored = stored;
+        }
+    }
+}
@@ -20,6 +20,11 @@ import java.net.URL;
 import java.sql.SQLException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipEntry;
 
@@ -101,6 +106,21 @@ public class ItemImport
 
     private static PrintWriter mapOut = null;
 
+    /** number of threads used to add items, each with its own Context */
+    private int threads = 1;
+
+    /** number of items added before committing, if more than one thread is used */
+    private int batchSize = 100;
+
+    /** the caller commits, see addItemsInParallel */
+    private boolean batchMode = false;
+
+    /** zip archive the bitstreams are read from, if it was not extracted completely */
+    private ZipFile zipSource = null;
+
+    /** path of each placeholder file to the name of its entry in zipSource */
+    private Map<String, String> zipEntries = null;
+
     private static final String tempWorkDir = ConfigurationManager.getProperty("org.dspace.app.batchitemimport.work.dir");
 
     static {
@@ -172,6 +192,10 @@ public class ItemImport
             options.addOption("R", "resume", false,
                     "resume a failed import (add only)");
             options.addOption("q", "quiet", false, "don't display metadata");
+            options.addOption("T", "threads", true,
+                    "number of threads adding items (add only), default 1");
+            options.addOption("B", "batch-size", true,
+                    "number of items each thread adds per transaction, default 100");
 
             options.addOption("h", "help", false, "help");
 
@@ -362,6 +386,14 @@ public class ItemImport
                     System.out.println(" (run with -h flag for details)");
                     System.exit(1);
                 }
+
+                // BTE reads its input from the source file (or the loader's
+                // configuration), never from an item directory of a zip
+                if (zip)
+                {
+                    System.out.println("Warning - the zip option is ignored by --add-bte");
+                    zip = false;
+                }
             }
             else if ("delete".equals(command))
             {
@@ -401,6 +433,44 @@ public class ItemImport
             }
 
             ItemImport myloader = new ItemImport();
+            if (line.hasOption('T'))
+            {
+                int threads;
+                try
+                {
+                    threads = Integer.parseInt(line.getOptionValue('T'));
+                }
+                catch (NumberFormatException nfe)
+                {
+                    threads = 0;
+                }
+                if (threads < 1)
+                {
+                    System.out.println("Error - the number of threads (-T) must be a positive number");
+                    System.out.println(" (run with -h flag for details)");
+                    System.exit(1);
+                }
+                myloader.setThreads(threads);
+            }
+            if (line.hasOption('B'))
+            {
+                int batchSize;
+                try
+                {
+                    batchSize = Integer.parseInt(line.getOptionValue('B'));
+                }
+                catch (NumberFormatException nfe)
+                {
+                    batchSize = 0;
+                }
+                if (batchSize < 1)
+                {
+                    System.out.println("Error - the batch size (-B) must be a positive number");
+                    System.out.println(" (run with -h flag for details)");
+                    System.exit(1);
+                }
+                myloader.setBatchSize(batchSize);
+            }
 
             // create a context
             Context c = new Context();
@@ -485,9 +555,10 @@ public class ItemImport
 
             try
             {
-                // If this is a zip archive, unzip it first
+                // If this is a zip archive, extract the metadata files only,
+                // the bitstreams are read from the archive directly
                 if (zip) {
-                    sourcedir = unzip(sourcedir, zipfilename);
+                    sourcedir = myloader.openZip(new File(zipfilename));
                 }
 
 
@@ -520,6 +591,10 @@ public class ItemImport
                 System.out.println(e);
                 status = 1;
             }
+            finally
+            {
+                myloader.closeZip();
+            }
 
             // Delete the unzipped file
             try
@@ -704,6 +779,24 @@ public class ItemImport
 
             Arrays.sort(dircontents, ComparatorUtils.naturalComparator());
 
+        if (threads > 1)
+        {
+            List<String> toAdd = new ArrayList<String>();
+            for (String dircontent : dircontents)
+            {
+                if (skipItems.containsKey(dircontent))
+                {
+                    System.out.println("Skipping import of " + dircontent);
+                }
+                else
+                {
+                    toAdd.add(dircontent);
+                }
+            }
+            addItemsInParallel(c, mycollections, sourceDir, toAdd, template);
+            return;
+        }
+
         for (int i = 0; i < dircontents.length; i++)
         {
             if (skipItems.containsKey(dircontents[i]))
@@ -747,6 +840,147 @@ public class ItemImport
         }
     }
 
+    /**
+     * Add the items using several threads. Each thread has its own Context
+     * and commits every batchSize items. Lines are only written to the
+     * mapfile once their items are committed, so a failed import can be
+     * resumed.
+     */
+    private void addItemsInParallel(Context c, final Collection[] mycollections,
+            final String sourceDir, final List<String> itemDirs, final boolean template)
+            throws Exception
+    {
+        final int epersonID = c.getCurrentUser().getID();
+        final AtomicInteger cursor = new AtomicInteger(0);
+        final AtomicInteger added = new AtomicInteger(0);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+        System.out.println("Adding " + itemDirs.size() + " items using " + threads
+                + " threads, committing every " + batchSize + " items");
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++)
+        {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    Context wc = null;
+                    StringWriter pending = new StringWriter();
+                    try
+                    {
+                        wc = new Context();
+                        wc.setCurrentUser(EPerson.find(wc, epersonID));
+                        wc.turnOffAuthorisationSystem();
+
+                        // collections must belong to the Context of this thread
+                        Collection[] collections = null;
+                        if (mycollections != null)
+                        {
+                            collections = new Collection[mycollections.length];
+                            for (int i = 0; i < collections.length; i++)
+                            {
+                                collections[i] = Collection.find(wc, mycollections[i].getID());
+                            }
+                        }
+
+                        ItemImport worker = new ItemImport();
+                        worker.batchMode = true;
+                        worker.zipSource = zipSource;
+                        worker.zipEntries = zipEntries;
+
+                        PrintWriter workerMapOut = new PrintWriter(pending);
+                        int inBatch = 0;
+                        int i;
+                        while ((i = cursor.getAndIncrement()) < itemDirs.size())
+                        {
+                            String itemDir = itemDirs.get(i);
+                            Collection[] clist = collections;
+                            if (clist == null)
+                            {
+                                try
+                                {
+                                    clist = worker.processCollectionFile(wc,
+                                            sourceDir + File.separatorChar + itemDir, "collections");
+                                }
+                                catch (IllegalArgumentException e)
+                                {
+                                    System.out.println(e.getMessage() + " Skipping.");
+                                    continue;
+                                }
+                                if (clist == null)
+                                {
+                                    System.out.println("No collections specified for item " + itemDir + ". Skipping.");
+                                    continue;
+                                }
+                            }
+
+                            worker.addItem(wc, clist, sourceDir, itemDir, workerMapOut, template);
+                            System.out.println(i + " " + itemDir);
+
+                            if (++inBatch >= batchSize)
+                            {
+                                commitBatch(wc, workerMapOut, pending);
+                                added.addAndGet(inBatch);
+                                inBatch = 0;
+                            }
+                        }
+                        commitBatch(wc, workerMapOut, pending);
+                        added.addAndGet(inBatch);
+                    }
+                    catch (Exception e)
+                    {
+                        log.error("Error while adding items, the current batch is rolled back", e);
+                        failure.compareAndSet(null, e);
+                        // let the other threads finish their current item and stop
+                        cursor.set(itemDirs.size());
+                    }
+                    finally
+                    {
+                        if (wc != null && wc.isValid())
+                        {
+                            wc.abort();
+                        }
+                    }
+                }
+            });
+        }
+
+        executor.shutdown();
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+        {
+            log.info(added.get() + " of " + itemDirs.size() + " items added so far");
+        }
+
+        System.out.println(added.get() + " items added");
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Commit the items added by a thread since the last batch and write
+     * their lines to the mapfile.
+     */
+    private static void commitBatch(Context c, PrintWriter workerMapOut, StringWriter pending)
+            throws SQLException
+    {
+        c.commit();
+        c.clearCache();
+
+        workerMapOut.flush();
+        if (mapOut != null && pending.getBuffer().length() > 0)
+        {
+            synchronized (mapOut)
+            {
+                mapOut.print(pending.toString());
+                mapOut.flush();
+            }
+        }
+        pending.getBuffer().setLength(0);
+    }
+
     private void replaceItems(Context c, Collection[] mycollections,
             String sourceDir, String mapFile, boolean template) throws Exception
     {
@@ -952,7 +1186,11 @@ public class ItemImport
             mapOut.println(mapOutputString);
         }
 
-        c.commit();
+        // in batch mode the caller commits after a number of items
+        if (!batchMode)
+        {
+            c.commit();
+        }
 
         return myitem;
     }
@@ -1549,8 +1787,7 @@ public class ItemImport
         String fullpath = path + File.separatorChar + fileName;
 
         // get an input stream
-        BufferedInputStream bis = new BufferedInputStream(new FileInputStream(
-                fullpath));
+        BufferedInputStream bis = new BufferedInputStream(openContentFile(fullpath));
 
         Bitstream bs = null;
         String newBundleName = bundleName;
@@ -1610,6 +1847,24 @@ public class ItemImport
         bis.close();
     }
 
+    /**
+     * Open a file of an item directory. Bitstreams of a zip archive opened
+     * by openZip are read from the archive directly.
+     */
+    private InputStream openContentFile(String fullpath) throws IOException
+    {
+        if (zipEntries != null)
+        {
+            String entryName = zipEntries.get(new File(fullpath).getPath());
+            if (entryName != null)
+            {
+                return zipSource.getInputStream(zipSource.getEntry(entryName));
+            }
+        }
+
+        return new FileInputStream(fullpath);
+    }
+
     /**
      * Register the bitstream file into DSpace
      *
@@ -1988,6 +2243,64 @@ public class ItemImport
     }
     
     public static String unzip(File zipfile, String destDir) throws IOException {
+        return unzip(zipfile, destDir, null);
+    }
+
+    /**
+     * Prepare the import of a zip archive without extracting the bitstreams.
+     * Only the metadata files of the items are extracted, every other file
+     * is replaced by an empty placeholder and read from the archive while
+     * importing.
+     *
+     * @param zipfile the zip archive in the Simple Archive Format
+     * @return the source directory to import from
+     */
+    public String openZip(File zipfile) throws IOException
+    {
+        Map<String, String> entries = new HashMap<String, String>();
+        String sourcedir = unzip(zipfile, null, entries);
+        zipSource = new ZipFile(zipfile);
+        zipEntries = entries;
+        return sourcedir;
+    }
+
+    /**
+     * Close the zip archive opened by openZip, if any.
+     */
+    public void closeZip()
+    {
+        if (zipSource != null)
+        {
+            try
+            {
+                zipSource.close();
+            }
+            catch (IOException e)
+            {
+                log.warn("Unable to close zip archive " + zipSource.getName(), e);
+            }
+            zipSource = null;
+            zipEntries = null;
+        }
+    }
+
+    /**
+     * Whether a file of an item directory is read to create the item rather
+     * than stored as a bitstream.
+     */
+    private static boolean isMetadataFile(String fileName)
+    {
+        return "dublin_core.xml".equals(fileName) || fileName.startsWith("metadata_")
+                || "contents".equals(fileName) || "handle".equals(fileName)
+                || "collections".equals(fileName);
+    }
+
+    /**
+     * @param deferred if not null, files other than metadata files are not
+     *                 extracted. An empty placeholder is created instead, and
+     *                 its path is mapped to the name of the zip entry.
+     */
+    private static String unzip(File zipfile, String destDir, Map<String, String> deferred) throws IOException {
         // 2
         // does the zip file exist and can we write to the temp directory
         if (!zipfile.canRead())
@@ -2033,9 +2346,6 @@ public class ItemImport
             }
             else
             {
-                System.out.println("Extracting file: " + entry.getName());
-                log.info("Extracting file: " + entry.getName());
-
                 int index = entry.getName().lastIndexOf('/');
                 if (index == -1)
                 {
@@ -2067,6 +2377,21 @@ public class ItemImport
 
 
                 }
+                String fileName = entry.getName().substring(index + 1);
+                if (deferred != null && !isMetadataFile(fileName))
+                {
+                    File placeholder = new File(zipDir + entry.getName());
+                    if (!placeholder.createNewFile())
+                    {
+                        log.error("Unable to create placeholder file: " + placeholder.getAbsolutePath());
+                    }
+                    deferred.put(placeholder.getPath(), entry.getName());
+                    continue;
+                }
+
+                System.out.println("Extracting file: " + entry.getName());
+                log.info("Extracting file: " + entry.getName());
+
                 byte[] buffer = new byte[1024];
                 int len;
                 InputStream in = zf.getInputStream(entry);
@@ -2439,6 +2764,16 @@ public class ItemImport
 		FileDeleteStrategy.FORCE.delete(new File(uploadDir));
     }
 
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
     public static String getTempWorkDir() {
         return tempWorkDir;
     }
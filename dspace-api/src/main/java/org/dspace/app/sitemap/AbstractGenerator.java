@@ -7,6 +7,7 @@
  */
 package org.dspace.app.sitemap;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -33,6 +34,10 @@ import java.util.zip.GZIPOutputStream;
  *   }
  *   g.finish();
  * </pre>
+ * <P>
+ * Every file is written to a temporary file first, which replaces the
+ * previous version of the file once it is complete. Single files can be
+ * rewritten with {@link #startFile(int)}, for updating a sitemap incrementally.
  *
  * @author Robert Tansley
  */
@@ -53,6 +58,9 @@ public abstract class AbstractGenerator
     /** Current output */
     protected PrintStream currentOutput;
 
+    /** Temporary file the current output is written to */
+    private File currentFile;
+
     /** Size in bytes of trailing boilerplate */
     private int trailingByteCount;
 
@@ -81,15 +89,8 @@ public abstract class AbstractGenerator
     {
         String lbp = getLeadingBoilerPlate();
 
-        OutputStream fo = new FileOutputStream(new File(outputDir,
-                getFilename(fileCount)));
-
-        if (useCompression())
-        {
-            fo = new GZIPOutputStream(fo);
-        }
-
-        currentOutput = new PrintStream(fo);
+        currentFile = new File(outputDir, getFilename(fileCount) + ".tmp");
+        currentOutput = openFile(currentFile);
         currentOutput.print(lbp);
         bytesWritten = lbp.length();
         urlsWritten = 0;
@@ -115,8 +116,7 @@ public abstract class AbstractGenerator
 
         String newURLText = getURLText(url, lastMod);
 
-        if (bytesWritten + newURLText.length() + trailingByteCount > getMaxSize()
-                || urlsWritten + 1 > getMaxURLs())
+        if (isFull(newURLText))
         {
             closeCurrentFile();
             startNewFile();
@@ -127,6 +127,31 @@ public abstract class AbstractGenerator
         urlsWritten++;
     }
 
+    /**
+     * Whether the given URL would exceed the size or the number of URLs
+     * allowed in the current file.
+     */
+    private boolean isFull(String newURLText)
+    {
+        return bytesWritten + newURLText.length() + trailingByteCount > getMaxSize()
+                || urlsWritten + 1 > getMaxURLs();
+    }
+
+    /**
+     * Check whether the given URL can be added to the current sitemap file,
+     * without starting a new file.
+     *
+     * @param url
+     *            Full URL to add
+     * @param lastMod
+     *            Date URL was last modified, or {@code null}
+     * @return {@code true} if the URL fits in the current file
+     */
+    public boolean fits(String url, Date lastMod)
+    {
+        return currentOutput == null || !isFull(getURLText(url, lastMod));
+    }
+
     /**
      * Finish with the current sitemap file.
      *
@@ -136,10 +161,72 @@ public abstract class AbstractGenerator
     protected void closeCurrentFile() throws IOException
     {
         currentOutput.print(getTrailingBoilerPlate());
-        currentOutput.close();
+        replaceFile(currentOutput, currentFile,
+                new File(outputDir, getFilename(fileCount)));
+        currentOutput = null;
         fileCount++;
     }
 
+    /**
+     * Finish the current sitemap file, if any, so that the next URL added
+     * starts a new file.
+     *
+     * @throws IOException
+     *             if an error occurs writing
+     */
+    public void closeFile() throws IOException
+    {
+        if (null != currentOutput)
+        {
+            closeCurrentFile();
+        }
+    }
+
+    /**
+     * Start rewriting the sitemap file with the given number. The URLs added
+     * next replace the contents of that file, and then (if they don't fit) of
+     * the files following it.
+     *
+     * @param number
+     *            index of the sitemap file (zero is first).
+     * @throws IOException
+     *             if an error occurs writing
+     */
+    public void startFile(int number) throws IOException
+    {
+        closeFile();
+        fileCount = number;
+        startNewFile();
+    }
+
+    /**
+     * Stop writing the current sitemap file, leaving the previous version of
+     * the file in place.
+     */
+    public void discardFile()
+    {
+        if (null != currentOutput)
+        {
+            currentOutput.close();
+            currentOutput = null;
+            if (!currentFile.delete())
+            {
+                currentFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Return the index of the sitemap file URLs are currently added to, which
+     * is also the number of files finished before it.
+     *
+     * @return the index of the current sitemap file.
+     */
+    public int getFileCount()
+    {
+        return fileCount;
+    }
+
     /**
      * Complete writing sitemap files and write the index files. This is invoked
      * when all calls to {@link AbstractGenerator#addURL(String, Date)} have
@@ -152,24 +239,71 @@ public abstract class AbstractGenerator
      */
     public int finish() throws IOException
     {
-        if (null != currentOutput)
-        {
-            closeCurrentFile();
-        }
+        return finish(0);
+    }
 
-        OutputStream fo = new FileOutputStream(new File(outputDir,
-                getIndexFilename()));
+    /**
+     * Complete writing sitemap files and write the index files, listing at
+     * least the given number of sitemap files. This is used when only some of
+     * the files of a sitemap were rewritten.
+     *
+     * @param sitemapCount
+     *            the number of sitemap files there are at least
+     * @return number of sitemap files listed in the index.
+     *
+     * @throws IOException
+     *             if an error occurs writing
+     */
+    public int finish(int sitemapCount) throws IOException
+    {
+        closeFile();
+
+        int count = Math.max(fileCount, sitemapCount);
+        File indexFile = new File(outputDir, getIndexFilename() + ".tmp");
+        PrintStream out = openFile(indexFile);
+        writeIndex(out, count);
+        replaceFile(out, indexFile, new File(outputDir, getIndexFilename()));
+
+        return count;
+    }
+
+    /**
+     * Open a file for writing, compressing it if required.
+     */
+    private PrintStream openFile(File file) throws IOException
+    {
+        OutputStream fo = new FileOutputStream(file);
 
         if (useCompression())
         {
-            fo = new GZIPOutputStream(fo);
+            fo = new GZIPOutputStream(fo, 65536);
         }
 
-        PrintStream out = new PrintStream(fo);
-        writeIndex(out, fileCount);
+        return new PrintStream(new BufferedOutputStream(fo, 65536), false, "UTF-8");
+    }
+
+    /**
+     * Close a temporary file, and replace the target file with it.
+     */
+    private static void replaceFile(PrintStream out, File file, File target)
+            throws IOException
+    {
         out.close();
+        if (out.checkError())
+        {
+            if (!file.delete())
+            {
+                file.deleteOnExit();
+            }
+            throw new IOException("Unable to write " + target);
+        }
 
-        return fileCount;
+        // On most platforms a rename replaces the target in one step, so
+        // readers never see a partly written file
+        if (!file.renameTo(target) && !(target.delete() && file.renameTo(target)))
+        {
+            throw new IOException("Unable to replace " + target);
+        }
     }
 
     /**
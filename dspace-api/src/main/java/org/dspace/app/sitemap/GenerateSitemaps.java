@@ -17,7 +17,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -34,6 +39,8 @@ import org.dspace.content.ItemIterator;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRowIterator;
 
 /**
  * Command-line utility for generating HTML and Sitemaps.org protocol Sitemaps.
@@ -65,6 +72,8 @@ public class GenerateSitemaps
         options
                 .addOption("p", "ping", true,
                         "ping specified search engine URL");
+        options.addOption("i", "incremental", false,
+                "only rewrite the sitemap files listing items changed since the last run");
 
         CommandLine line = null;
 
@@ -108,7 +117,8 @@ public class GenerateSitemaps
         // Note the negation (CLI options indicate NOT to generate a sitemap)
         if (!line.hasOption('b') || !line.hasOption('s'))
         {
-            generateSitemaps(!line.hasOption('b'), !line.hasOption('s'));
+            generateSitemaps(!line.hasOption('b'), !line.hasOption('s'),
+                    line.hasOption('i'));
         }
 
         if (line.hasOption('a'))
@@ -148,10 +158,31 @@ public class GenerateSitemaps
     public static void generateSitemaps(boolean makeHTMLMap,
             boolean makeSitemapOrg) throws SQLException, IOException
     {
-        String sitemapStem = ConfigurationManager.getProperty("dspace.url")
-                + "/sitemap";
-        String htmlMapStem = ConfigurationManager.getProperty("dspace.url")
-                + "/htmlmap";
+        generateSitemaps(makeHTMLMap, makeSitemapOrg, false);
+    }
+
+    /**
+     * Generate sitemap.org protocol and/or basic HTML sitemaps. When updating
+     * incrementally, only the files listing items that were changed, added,
+     * withdrawn or removed since the sitemap was last generated are rewritten,
+     * along with the files listing communities and collections and the index.
+     * A sitemap is regenerated completely if it was not generated before, or
+     * if the changed items no longer fit in their files.
+     * 
+     * @param makeHTMLMap
+     *            if {@code true}, generate an HTML sitemap.
+     * @param makeSitemapOrg
+     *            if {@code true}, generate an sitemap.org sitemap.
+     * @param incremental
+     *            if {@code true}, update the existing sitemaps if possible.
+     * @throws SQLException
+     *             if a database error occurs.
+     * @throws IOException
+     *             if IO error occurs.
+     */
+    public static void generateSitemaps(boolean makeHTMLMap,
+            boolean makeSitemapOrg, boolean incremental) throws SQLException, IOException
+    {
         String handleURLStem = ConfigurationManager.getProperty("dspace.url")
                 + "/handle/";
 
@@ -160,23 +191,84 @@ public class GenerateSitemaps
         {
             log.error("Unable to create output directory");
         }
-        
-        AbstractGenerator html = null;
-        AbstractGenerator sitemapsOrg = null;
 
-        if (makeHTMLMap)
+        // Changes made from now on are picked up by the next update
+        long start = System.currentTimeMillis();
+
+        Context c = new Context();
+        try
+        {
+            List<AbstractGenerator> generators = new ArrayList<AbstractGenerator>();
+            if (makeHTMLMap)
+            {
+                if (!incremental || !updateSitemap(c, createGenerator(true, outputDir),
+                        outputDir, handleURLStem, start))
+                {
+                    generators.add(createGenerator(true, outputDir));
+                }
+            }
+            if (makeSitemapOrg)
+            {
+                if (!incremental || !updateSitemap(c, createGenerator(false, outputDir),
+                        outputDir, handleURLStem, start))
+                {
+                    generators.add(createGenerator(false, outputDir));
+                }
+            }
+
+            if (!generators.isEmpty())
+            {
+                generateSitemaps(c, generators, outputDir, handleURLStem, start);
+            }
+        }
+        finally
         {
-            html = new HTMLSitemapGenerator(outputDir, htmlMapStem + "?map=",
-                    null);
+            c.abort();
         }
+    }
 
-        if (makeSitemapOrg)
+    private static AbstractGenerator createGenerator(boolean html, File outputDir)
+    {
+        if (html)
+        {
+            String htmlMapStem = ConfigurationManager.getProperty("dspace.url")
+                    + "/htmlmap";
+            return new HTMLSitemapGenerator(outputDir, htmlMapStem + "?map=",
+                    null);
+        }
+        else
         {
-            sitemapsOrg = new SitemapsOrgGenerator(outputDir, sitemapStem
+            String sitemapStem = ConfigurationManager.getProperty("dspace.url")
+                    + "/sitemap";
+            return new SitemapsOrgGenerator(outputDir, sitemapStem
                     + "?map=", null);
         }
+    }
 
-        Context c = new Context();
+    private static String getType(AbstractGenerator generator)
+    {
+        return (generator instanceof HTMLSitemapGenerator) ? "html" : "sitemaps.org";
+    }
+
+    /**
+     * The file recording which items each file of a sitemap lists
+     */
+    private static File getShardsFile(File outputDir, AbstractGenerator generator)
+    {
+        return new File(outputDir, generator.getIndexFilename() + ".shards");
+    }
+
+    /**
+     * Generate sitemaps completely, reading all objects only once.
+     */
+    private static void generateSitemaps(Context c, List<AbstractGenerator> generators,
+            File outputDir, String handleURLStem, long start) throws SQLException, IOException
+    {
+        SitemapShards[] shards = new SitemapShards[generators.size()];
+        for (int g = 0; g < shards.length; g++)
+        {
+            shards[g] = new SitemapShards(start);
+        }
 
         Community[] comms = Community.findAll(c);
 
@@ -184,13 +276,9 @@ public class GenerateSitemaps
         {
             String url = handleURLStem + comms[i].getHandle();
 
-            if (makeHTMLMap)
+            for (AbstractGenerator generator : generators)
             {
-                html.addURL(url, null);
-            }
-            if (makeSitemapOrg)
-            {
-                sitemapsOrg.addURL(url, null);
+                generator.addURL(url, null);
             }
         }
 
@@ -200,17 +288,20 @@ public class GenerateSitemaps
         {
             String url = handleURLStem + colls[i].getHandle();
 
-            if (makeHTMLMap)
+            for (AbstractGenerator generator : generators)
             {
-                html.addURL(url, null);
-            }
-            if (makeSitemapOrg)
-            {
-                sitemapsOrg.addURL(url, null);
+                generator.addURL(url, null);
             }
         }
 
-        ItemIterator allItems = Item.findAll(c);
+        // Items are listed in their own files, so these can be updated later
+        for (int g = 0; g < shards.length; g++)
+        {
+            generators.get(g).closeFile();
+            shards[g].setContainerFiles(generators.get(g).getFileCount());
+        }
+
+        ItemIterator allItems = findItems(c, -1, -1);
         try
         {
             int itemCount = 0;
@@ -221,46 +312,200 @@ public class GenerateSitemaps
                 String url = handleURLStem + i.getHandle();
                 Date lastMod = i.getLastModified();
 
-                if (makeHTMLMap)
+                for (int g = 0; g < shards.length; g++)
                 {
-                    html.addURL(url, lastMod);
-                }
-                if (makeSitemapOrg)
-                {
-                    sitemapsOrg.addURL(url, lastMod);
+                    generators.get(g).addURL(url, lastMod);
+                    shards[g].addItem(generators.get(g).getFileCount(), i.getID());
                 }
                 i.decache();
 
                 itemCount++;
             }
 
-            if (makeHTMLMap)
+            for (int g = 0; g < shards.length; g++)
             {
-                int files = html.finish();
+                AbstractGenerator generator = generators.get(g);
+                int files = generator.finish();
+                shards[g].save(getShardsFile(outputDir, generator));
                 log.info(LogManager.getHeader(c, "write_sitemap",
-                        "type=html,num_files=" + files + ",communities="
+                        "type=" + getType(generator) + ",num_files=" + files + ",communities="
                                 + comms.length + ",collections=" + colls.length
                                 + ",items=" + itemCount));
             }
+        }
+        finally
+        {
+            if (allItems != null)
+            {
+                allItems.close();
+            }
+        }
+    }
 
-            if (makeSitemapOrg)
+    /**
+     * Update a sitemap, rewriting only the files listing changed items.
+     *
+     * @return {@code false} if the sitemap has to be generated completely
+     */
+    private static boolean updateSitemap(Context c, AbstractGenerator generator,
+            File outputDir, String handleURLStem, long start) throws SQLException, IOException
+    {
+        File shardsFile = getShardsFile(outputDir, generator);
+        SitemapShards shards = SitemapShards.load(shardsFile);
+        if (shards == null)
+        {
+            return false;
+        }
+        int shardCount = shards.getShardCount();
+
+        // Find the shards with changed items, including withdrawn ones
+        Set<Integer> changed = new TreeSet<Integer>();
+        TableRowIterator tri = DatabaseManager.query(c,
+                "SELECT item_id FROM item WHERE last_modified > ?",
+                new Timestamp(shards.getGenerated()));
+        try
+        {
+            while (tri.hasNext())
             {
-                int files = sitemapsOrg.finish();
-                log.info(LogManager.getHeader(c, "write_sitemap",
-                        "type=html,num_files=" + files + ",communities="
-                                + comms.length + ",collections=" + colls.length
-                                + ",items=" + itemCount));
+                changed.add(shards.findShard(tri.next().getIntColumn("item_id")));
             }
         }
         finally
         {
-            if (allItems != null)
+            tri.close();
+        }
+
+        // and the shards with new or removed items
+        int[] counts = new int[shardCount];
+        int itemCount = 0;
+        tri = DatabaseManager.query(c,
+                "SELECT item_id FROM item WHERE in_archive='1'");
+        try
+        {
+            while (tri.hasNext())
             {
-                allItems.close();
+                int shard = shards.findShard(tri.next().getIntColumn("item_id"));
+                if (shard < 0)
+                {
+                    // There were no items before, start afresh
+                    return false;
+                }
+                counts[shard]++;
+                itemCount++;
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        for (int shard = 0; shard < shardCount; shard++)
+        {
+            if (counts[shard] != shards.getCount(shard))
+            {
+                changed.add(shard);
             }
         }
-        
-        c.abort();
+        changed.remove(-1);
+
+        // Communities and collections are always listed again
+        Community[] comms = Community.findAll(c);
+        Collection[] colls = Collection.findAll(c);
+        if (shards.getContainerFiles() == 0 || comms.length + colls.length == 0)
+        {
+            if (shards.getContainerFiles() != 0 || comms.length + colls.length != 0)
+            {
+                return false;
+            }
+        }
+        else
+        {
+            generator.startFile(0);
+            for (int i = 0; i < comms.length; i++)
+            {
+                generator.addURL(handleURLStem + comms[i].getHandle(), null);
+            }
+            for (int i = 0; i < colls.length; i++)
+            {
+                generator.addURL(handleURLStem + colls[i].getHandle(), null);
+            }
+            generator.closeFile();
+            if (generator.getFileCount() != shards.getContainerFiles())
+            {
+                // The item files would have to be renumbered
+                return false;
+            }
+        }
+
+        for (int shard : changed)
+        {
+            boolean last = (shard == shardCount - 1);
+            ItemIterator items = findItems(c,
+                    (shard == 0) ? -1 : shards.getLastItemID(shard - 1),
+                    last ? -1 : shards.getLastItemID(shard));
+            try
+            {
+                generator.startFile(shards.getFileNumber(shard));
+                shards.resetShard(shard);
+                while (items.hasNext())
+                {
+                    Item i = items.next();
+                    String url = handleURLStem + i.getHandle();
+                    Date lastMod = i.getLastModified();
+
+                    // Only the last file can overflow into new files
+                    if (!last && !generator.fits(url, lastMod))
+                    {
+                        generator.discardFile();
+                        log.info("Sitemap file " + shards.getFileNumber(shard)
+                                + " is full, regenerating the " + getType(generator) + " sitemap");
+                        return false;
+                    }
+                    generator.addURL(url, lastMod);
+                    shards.addItem(generator.getFileCount(), i.getID());
+                    i.decache();
+                }
+                generator.closeFile();
+            }
+            finally
+            {
+                items.close();
+            }
+        }
+
+        int files = generator.finish(shards.getFileNumber(shards.getShardCount()));
+        shards.setGenerated(start);
+        shards.save(shardsFile);
+        log.info(LogManager.getHeader(c, "write_sitemap",
+                "type=" + getType(generator) + ",incremental=true,num_files=" + files
+                        + ",rewritten_files=" + changed.size() + ",communities="
+                        + comms.length + ",collections=" + colls.length
+                        + ",items=" + itemCount));
+        return true;
+    }
+
+    /**
+     * Find the archived items with IDs in a range, in the order of their IDs.
+     *
+     * @param after
+     *            the items have IDs above this, or -1 for no lower bound
+     * @param upTo
+     *            the items have IDs up to and including this, or -1 for no
+     *            upper bound
+     */
+    private static ItemIterator findItems(Context c, int after, int upTo) throws SQLException
+    {
+        String query = "SELECT * FROM item WHERE in_archive='1' AND item_id > ?";
+        TableRowIterator rows;
+        if (upTo < 0)
+        {
+            rows = DatabaseManager.queryTable(c, "item", query + " ORDER BY item_id", after);
+        }
+        else
+        {
+            rows = DatabaseManager.queryTable(c, "item", query + " AND item_id <= ? ORDER BY item_id",
+                    after, upTo);
+        }
+        return new ItemIterator(c, rows);
     }
 
     /**
@@ -0,0 +1,277 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.sitemap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records which sitemap file each item is listed in, so that a sitemap can be
+ * updated by rewriting only the files listing items that changed.
+ * <P>
+ * The communities and collections are listed in the first files of a sitemap.
+ * Each of the following files (the shards) lists the items with IDs above the
+ * last item ID of the previous shard, up to and including its own last item
+ * ID. The last shard also lists any items with higher IDs.
+ */
+public class SitemapShards
+{
+    /** Logger */
+    private static Logger log = Logger.getLogger(SitemapShards.class);
+
+    /** When the sitemap was (last) generated */
+    private long generated;
+
+    /** Number of files listing the communities and collections */
+    private int containerFiles;
+
+    /** The last item ID of each shard */
+    private List<Integer> lastItemIDs = new ArrayList<Integer>();
+
+    /** The number of items listed in each shard */
+    private List<Integer> counts = new ArrayList<Integer>();
+
+    /**
+     * Create an empty record of the files of a sitemap.
+     *
+     * @param generated
+     *            the time the sitemap generation started at, in milliseconds
+     */
+    public SitemapShards(long generated)
+    {
+        this.generated = generated;
+    }
+
+    /**
+     * Read the record of the files of a sitemap.
+     *
+     * @param file
+     *            the file the record was saved to
+     * @return the record, or {@code null} if there is no (readable) record
+     */
+    public static SitemapShards load(File file)
+    {
+        if (!file.exists())
+        {
+            return null;
+        }
+
+        Properties props = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream(file);
+            props.load(in);
+
+            SitemapShards shards = new SitemapShards(Long.parseLong(props.getProperty("generated")));
+            shards.containerFiles = Integer.parseInt(props.getProperty("containerFiles"));
+            int shardCount = Integer.parseInt(props.getProperty("shards"));
+            for (int i = 0; i < shardCount; i++)
+            {
+                String[] shard = props.getProperty("shard." + i).split(",");
+                shards.lastItemIDs.add(Integer.valueOf(shard[0]));
+                shards.counts.add(Integer.valueOf(shard[1]));
+            }
+            return shards;
+        }
+        catch (Exception e)
+        {
+            log.warn("Unable to read sitemap record " + file + ", regenerating the sitemap", e);
+            return null;
+        }
+        finally
+        {
+            if (in != null)
+            {
+                try
+                {
+                    in.close();
+                }
+                catch (IOException e)
+                {
+                    // nothing more to read
+                }
+            }
+        }
+    }
+
+    /**
+     * Save this record, replacing the previous one.
+     *
+     * @param file
+     *            the file to save the record to
+     * @throws IOException
+     *             if the file can't be written
+     */
+    public void save(File file) throws IOException
+    {
+        Properties props = new Properties();
+        props.setProperty("generated", String.valueOf(generated));
+        props.setProperty("containerFiles", String.valueOf(containerFiles));
+        props.setProperty("shards", String.valueOf(lastItemIDs.size()));
+        for (int i = 0; i < lastItemIDs.size(); i++)
+        {
+            props.setProperty("shard." + i, lastItemIDs.get(i) + "," + counts.get(i));
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        OutputStream out = new FileOutputStream(tmp);
+        try
+        {
+            props.store(out, "Items listed in each sitemap file");
+        }
+        finally
+        {
+            out.close();
+        }
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+        {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * @return when the sitemap was generated, in milliseconds
+     */
+    public long getGenerated()
+    {
+        return generated;
+    }
+
+    /**
+     * @param generated
+     *            when the sitemap was generated, in milliseconds
+     */
+    public void setGenerated(long generated)
+    {
+        this.generated = generated;
+    }
+
+    /**
+     * @return the number of files listing the communities and collections
+     */
+    public int getContainerFiles()
+    {
+        return containerFiles;
+    }
+
+    /**
+     * @param containerFiles
+     *            the number of files listing the communities and collections
+     */
+    public void setContainerFiles(int containerFiles)
+    {
+        this.containerFiles = containerFiles;
+    }
+
+    /**
+     * @return the number of files listing items
+     */
+    public int getShardCount()
+    {
+        return lastItemIDs.size();
+    }
+
+    /**
+     * @param shard
+     *            index of the shard (zero is first)
+     * @return the number of the sitemap file of the shard
+     */
+    public int getFileNumber(int shard)
+    {
+        return containerFiles + shard;
+    }
+
+    /**
+     * @param shard
+     *            index of the shard (zero is first)
+     * @return the last item ID listed in the shard
+     */
+    public int getLastItemID(int shard)
+    {
+        return lastItemIDs.get(shard);
+    }
+
+    /**
+     * @param shard
+     *            index of the shard (zero is first)
+     * @return the number of items listed in the shard
+     */
+    public int getCount(int shard)
+    {
+        return counts.get(shard);
+    }
+
+    /**
+     * Find the shard an item is listed in, or would be listed in.
+     *
+     * @param itemID
+     *            the item ID
+     * @return index of the shard, or -1 if there are no shards
+     */
+    public int findShard(int itemID)
+    {
+        int low = 0;
+        int high = lastItemIDs.size() - 1;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (lastItemIDs.get(mid) < itemID)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Forget the items listed in a shard, before it is rewritten. Its range of
+     * item IDs remains the same.
+     *
+     * @param shard
+     *            index of the shard (zero is first)
+     */
+    public void resetShard(int shard)
+    {
+        counts.set(shard, 0);
+    }
+
+    /**
+     * Record that an item is listed in a sitemap file. Items must be added in
+     * the order of their IDs.
+     *
+     * @param fileNumber
+     *            the number of the sitemap file
+     * @param itemID
+     *            the item ID
+     */
+    public void addItem(int fileNumber, int itemID)
+    {
+        int shard = fileNumber - containerFiles;
+        while (lastItemIDs.size() <= shard)
+        {
+            lastItemIDs.add(itemID);
+            counts.add(0);
+        }
+        lastItemIDs.set(shard, Math.max(lastItemIDs.get(shard), itemID));
+        counts.set(shard, counts.get(shard) + 1);
+    }
+}
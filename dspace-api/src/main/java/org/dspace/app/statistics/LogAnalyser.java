@@ -30,6 +30,16 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * This class performs all the actual analysis of a given set of DSpace log
@@ -202,6 +212,12 @@ public class LogAnalyser
         
    /** the end date of the report as obtained from the log files */
    private static Date logEndDate = null;
+   
+   /** the time stamp every log line starts with, 0 standing for any digit */
+   private static final String LOG_PREFIX = "0000-00-00 00:00:00,000 ";
+   
+   /** the size of the chunks log files are split into for parallel analysis */
+   private static final int CHUNK_SIZE = 64 * 1024 * 1024;
 
     /**
      * main method to be run from command line.  See usage information for
@@ -225,6 +241,7 @@ public class LogAnalyser
         Date myStartDate = null;
         Date myEndDate = null;
         boolean myLookUp = false;
+        int myThreads = 1;
         
         // read in our command line options
         for (int i = 0; i < argv.length; i++)
@@ -269,10 +286,44 @@ public class LogAnalyser
             {
                 myLookUp = true;
             }
+            
+            if (argv[i].equals("-threads"))
+            {
+                myThreads = parseThreads((i + 1 < argv.length) ? argv[i+1] : null);
+                if (myThreads < 1)
+                {
+                    System.out.println("-threads must be followed by a positive number");
+                    LogAnalyser.usage();
+                    System.exit(1);
+                }
+            }
         }
         
         // now call the method which actually processes the logs
-        processLogs(context, myLogDir, myFileTemplate, myConfigFile, myOutFile, myStartDate, myEndDate, myLookUp);
+        processLogs(context, myLogDir, myFileTemplate, myConfigFile, myOutFile, myStartDate, myEndDate, myLookUp, myThreads);
+    }
+    
+    /**
+     * parse the value of the -threads option
+     *
+     * @param   value   the value, or null if it is missing
+     *
+     * @return  the number of threads, or 0 if the value is not a number
+     */
+    private static int parseThreads(String value)
+    {
+        if (value == null)
+        {
+            return 0;
+        }
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
     }
     
     /**
@@ -293,6 +344,49 @@ public class LogAnalyser
                                     String myOutFile, Date myStartDate, 
                                     Date myEndDate, boolean myLookUp)
         throws IOException, SQLException
+    {
+        processLogs(context, myLogDir, myFileTemplate, myConfigFile, myOutFile,
+                    myStartDate, myEndDate, myLookUp, 1);
+    }
+    
+    /**
+     * using the pre-configuration information passed here, analyse the logs
+     * and produce the aggregation file, optionally analysing the log files in
+     * parallel.  The aggregation file is the same either way.
+     *
+     * @param   context     the DSpace context object this occurs under
+     * @param   myLogDir    the passed log directory.  Uses default if null
+     * @param   myFileTemplate  the passed file name regex.  Uses default if null
+     * @param   myConfigFile    the DStat config file.  Uses default if null
+     * @param   myOutFile    the file to which to output aggregation data.  Uses default if null
+     * @param   myStartDate     the desired start of the analysis.  Starts from the beginning otherwise
+     * @param   myEndDate       the desired end of the analysis.  Goes to the end otherwise
+     * @param   myLookUp        force a lookup of the database
+     * @param   threads         the number of threads analysing chunks of the
+     *                          log files, or 1 to read them line by line
+     */
+    public static void processLogs(Context context, String myLogDir, 
+                                    String myFileTemplate, String myConfigFile, 
+                                    String myOutFile, Date myStartDate, 
+                                    Date myEndDate, boolean myLookUp, int threads)
+        throws IOException, SQLException
+    {
+        processLogs(context, myLogDir, myFileTemplate, myConfigFile, myOutFile,
+                    myStartDate, myEndDate, myLookUp, threads, CHUNK_SIZE);
+    }
+    
+    /**
+     * analyse the logs as above, splitting the log files into chunks of the
+     * given size when analysing them in parallel
+     *
+     * @param   chunkSize       the size of the chunks, in bytes
+     */
+    static void processLogs(Context context, String myLogDir, 
+                            String myFileTemplate, String myConfigFile, 
+                            String myOutFile, Date myStartDate, 
+                            Date myEndDate, boolean myLookUp, int threads,
+                            int chunkSize)
+        throws IOException, SQLException
     {
         // FIXME: perhaps we should have all parameters and aggregators put 
         // together in a single aggregating object
@@ -313,14 +407,17 @@ public class LogAnalyser
         excludeTypes = new ArrayList<String>();
         excludeChars = new ArrayList<String>();
         itemTypes = new ArrayList<String>();
+        
+        // reset the counts of any previous analysis
+        lineCount = 0;
+        warnCount = 0;
+        logStartDate = null;
+        logEndDate = null;
+        views = 0;
               
         // set the parameters for this analysis
         setParameters(myLogDir, myFileTemplate, myConfigFile, myOutFile, myStartDate, myEndDate, myLookUp);
         
-        // pre prepare our standard file readers and buffered readers
-        FileReader fr = null;
-        BufferedReader br = null;
-        
         // read in the config information, throwing an error if we fail to open
         // the given config file
         readConfig(configFile);
@@ -335,149 +432,32 @@ public class LogAnalyser
         // standard loop counter
         int i = 0;
         
+        // pick out the log files, checking each against the global regex
+        List<File> files = new ArrayList<File>();
+        for (i = 0; i < logFiles.length; i++)
+        {
+            Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
+            if (matchRegex.matches())
+            {
+                files.add(logFiles[i]);
+            }
+        }
+        
         // for every log file do analysis
         // FIXME: it is easy to implement not processing log files after the
         // dates exceed the end boundary, but is there an easy way to do it
         // for the start of the file?  Note that we can assume that the contents
         // of the log file are sequential, but can we assume the files are
         // provided in a data sequence?
-        for (i = 0; i < logFiles.length; i++)
+        if (threads > 1 && canSplit())
         {
-            // check to see if this file is a log file agains the global regex
-            Matcher matchRegex = logRegex.matcher(logFiles[i].getName());
-            if (matchRegex.matches())
+            analyseInParallel(files, threads, chunkSize);
+        }
+        else
+        {
+            for (File file : files)
             {
-                // if it is a log file, open it up and lets have a look at the
-                // contents.
-                try 
-                {  
-                    fr = new FileReader(logFiles[i].toString());  
-                    br = new BufferedReader(fr);
-                } 
-                catch (IOException e) 
-                {  
-                    System.out.println("Failed to read log file " + logFiles[i].toString());
-                    System.exit(0);
-                } 
-
-                // for each line in the file do the analysis
-                // FIXME: perhaps each section needs to be dolled out to an
-                // analysing class to allow pluggability of other methods of
-                // analysis, and ease of code reading too - Pending further thought
-                String line = null;
-                while ((line = br.readLine()) != null)
-                {
-                    // get the log line object
-                    LogLine logLine = getLogLine(line);
-                    
-                    // if there are line segments get on with the analysis
-                    if (logLine != null)
-                    {
-                        // first find out if we are constraining by date and 
-                        // if so apply the restrictions
-                        if ((startDate != null) && (!logLine.afterDate(startDate)))
-                        {
-                            continue;
-                        }
-                        
-                        if ((endDate !=null) && (!logLine.beforeDate(endDate)))
-                        {
-                            break;
-                        }
-                        
-                        // count the number of lines parsed
-                        lineCount++;
-                        
-                        // if we are not constrained by date, register the date
-                        // as the start/end date if it is the earliest/latest so far
-                        // FIXME: this should probably have a method of its own
-                        if (startDate == null)
-                        {
-                            if (logStartDate != null)
-                            {
-                                if (logLine.beforeDate(logStartDate))
-                                {
-                                    logStartDate = logLine.getDate();
-                                }
-                            }
-                            else
-                            {
-                                logStartDate = logLine.getDate();
-                            }
-                        }
-                        
-                        if (endDate == null)
-                        {
-                            if (logEndDate != null)
-                            {
-                                if (logLine.afterDate(logEndDate))
-                                {
-                                    logEndDate = logLine.getDate();
-                                }
-                            }
-                            else
-                            {
-                                logEndDate = logLine.getDate();
-                            }
-                        }
-                        
-                        // count the warnings
-                        if (logLine.isLevel("WARN"))
-                        {
-                            // FIXME: really, this ought to be some kind of level
-                            // aggregator
-                            warnCount++;
-                        }
-
-                        // is the action a search?
-                        if (logLine.isAction("search"))
-                        {
-                            // get back all the valid search words from the query
-                            String[] words = analyseQuery(logLine.getParams());
-                            
-                            // for each search word add to the aggregator or
-                            // increment the aggregator's counter
-                            for (int j = 0; j < words.length; j++)
-                            {
-                                // FIXME: perhaps aggregators ought to be objects
-                                // themselves
-                                searchAggregator.put(words[j], increment(searchAggregator, words[j]));
-                            }
-                        }
-
-                        // is the action a login, and are we counting user logins?
-                        if (logLine.isAction("login") && !userEmail.equals("off"))
-                        {
-                            userAggregator.put(logLine.getUser(), increment(userAggregator, logLine.getUser()));
-                        }
-
-                        // is the action an item view?
-                        if (logLine.isAction("view_item"))
-                        {
-                            String handle = logLine.getParams();
-
-                            // strip the handle string
-                            Matcher matchHandle = handleRX.matcher(handle);
-                            handle = matchHandle.replaceAll("");
-                            
-                            // strip the item id string
-                            Matcher matchItem = itemRX.matcher(handle);
-                            handle = matchItem.replaceAll("").trim();
-
-                            // either add the handle to the aggregator or
-                            // increment its counter
-                            itemAggregator.put(handle, increment(itemAggregator, handle));
-                        }
-
-                        // log all the activity
-                        actionAggregator.put(logLine.getAction(), increment(actionAggregator, logLine.getAction()));
-                    }
-                }
-
-                // close the file reading buffers
-                br.close();
-                fr.close();
-
+                analyse(file);
             }
         }
         
@@ -519,6 +499,220 @@ public class LogAnalyser
     }
    
     
+    /**
+     * analyse a log file line by line, adding the results to the aggregators
+     *
+     * @param   logFile     the log file to analyse
+     */
+    private static void analyse(File logFile)
+        throws IOException
+    {
+        // pre prepare our standard file readers and buffered readers
+        FileReader fr = null;
+        BufferedReader br = null;
+        
+        // open the log file up and lets have a look at the contents.
+        try 
+        {  
+            fr = new FileReader(logFile.toString());  
+            br = new BufferedReader(fr);
+        } 
+        catch (IOException e) 
+        {  
+            System.out.println("Failed to read log file " + logFile.toString());
+            System.exit(0);
+        } 
+
+        // for each line in the file do the analysis, until we are past the
+        // end date
+        LogCounts counts = new LogCounts();
+        String line = null;
+        while ((line = br.readLine()) != null)
+        {
+            if (!counts.analyse(line))
+            {
+                break;
+            }
+        }
+
+        // close the file reading buffers
+        br.close();
+        fr.close();
+        
+        counts.merge();
+    }
+    
+    
+    /**
+     * find out whether log files can be split into chunks of lines at the
+     * bytes of line breaks, which requires that these bytes do not occur
+     * within any other characters of the default encoding (which is what the
+     * line by line analysis uses)
+     *
+     * @return  true if the log files can be split
+     */
+    private static boolean canSplit()
+    {
+        Charset charset = Charset.defaultCharset();
+        return Arrays.equals("\r\n0:".getBytes(charset), new byte[] { '\r', '\n', '0', ':' })
+            && ("UTF-8".equals(charset.name()) || charset.newEncoder().maxBytesPerChar() == 1.0f);
+    }
+    
+    
+    /**
+     * analyse log files in parallel.  The files are split into chunks of whole
+     * lines, which are memory mapped and analysed by the given number of
+     * threads.  The results of the chunks are added to the aggregators in the
+     * order of the chunks, so that the aggregation file is the same as when
+     * the files are analysed line by line.
+     *
+     * @param   files       the log files to analyse
+     * @param   threads     the number of threads to use
+     * @param   chunkSize   the size of the chunks, in bytes
+     */
+    private static void analyseInParallel(List<File> files, int threads, int chunkSize)
+        throws IOException
+    {
+        // split the files into chunks
+        List<LogChunk> chunks = new ArrayList<LogChunk>();
+        for (File file : files)
+        {
+            RandomAccessFile raf = null;
+            try
+            {
+                raf = new RandomAccessFile(file, "r");
+            }
+            catch (IOException e)
+            {
+                System.out.println("Failed to read log file " + file.toString());
+                System.exit(0);
+            }
+            
+            try
+            {
+                long length = raf.length();
+                long start = 0;
+                while (start < length)
+                {
+                    long end = nextLineStart(raf, Math.min(start + chunkSize, length));
+                    chunks.add(new LogChunk(file, start, end));
+                    start = end;
+                }
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        
+        // analyse the chunks, keeping only a few more chunks than threads in
+        // progress so the results waiting to be added stay few
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            LinkedList<Future<LogCounts>> queued = new LinkedList<Future<LogCounts>>();
+            int next = 0;
+            int merged = 0;
+            while (merged < chunks.size())
+            {
+                while (next < chunks.size() && queued.size() < 2 * threads)
+                {
+                    queued.add(executor.submit(chunks.get(next++)));
+                }
+                
+                LogCounts counts = getCounts(queued.removeFirst());
+                counts.merge();
+                File file = chunks.get(merged++).file;
+                
+                // once we are past the end date skip the rest of the file
+                if (counts.pastEndDate)
+                {
+                    while (merged < chunks.size() && chunks.get(merged).file.equals(file))
+                    {
+                        if (merged < next)
+                        {
+                            queued.removeFirst().cancel(true);
+                        }
+                        else
+                        {
+                            next++;
+                        }
+                        merged++;
+                    }
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    
+    /**
+     * wait for the analysis of a chunk
+     */
+    private static LogCounts getCounts(Future<LogCounts> future)
+        throws IOException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analysing log files", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to analyse log file", e.getCause());
+        }
+    }
+    
+    
+    /**
+     * find the start of the first line at or after the given position
+     *
+     * @param   raf         the log file
+     * @param   position    the position to start looking from
+     *
+     * @return  the position of the line start, or the file length if there is
+     *          no further line
+     */
+    private static long nextLineStart(RandomAccessFile raf, long position)
+        throws IOException
+    {
+        long length = raf.length();
+        if (position >= length)
+        {
+            return length;
+        }
+        
+        // the line starts at the position if the preceding byte ends a line
+        byte[] buffer = new byte[8192];
+        long offset = position - 1;
+        raf.seek(offset);
+        int read;
+        while ((read = raf.read(buffer)) > 0)
+        {
+            for (int i = 0; i < read; i++)
+            {
+                if (buffer[i] == '\n')
+                {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return length;
+    }
+    
+    
     /**
      * set the passed parameters up as global class variables.  This has to
      * be done in a separate method because the API permits for running from
@@ -1098,12 +1292,33 @@ public class LogAnalyser
      * @return          a Log Line object for the given line
      */
     public static LogLine getLogLine(String line)
+    {
+        return getLogLine(line, null);
+    }
+    
+    
+    /**
+     * split the given line into it's relevant segments if applicable, parsing
+     * the date through the given counts (which remember the last date)
+     *
+     * @param   line    the line to be segmented
+     * @param   counts  the counts to parse the date with, or null
+     * @return          a Log Line object for the given line
+     */
+    private static LogLine getLogLine(String line, LogCounts counts)
     {
         // FIXME: consider moving this code into the LogLine class.  To do this
         // we need to much more carefully define the structure and behaviour
         // of the LogLine class
         Matcher match;
         
+        // most lines which are not log lines (such as stack traces) can be
+        // ruled out without the regular expressions
+        if (!hasLogPrefix(line) || line.indexOf(" @ ") < 0)
+        {
+            return null;
+        }
+        
         if (line.indexOf(":ip_addr") > 0)
         {
             match = valid14.matcher(line);
@@ -1116,7 +1331,8 @@ public class LogAnalyser
         if (match.matches())
         {
             // set up a new log line object
-            LogLine logLine = new LogLine(parseDate(match.group(1).trim()),
+            String date = match.group(1).trim();
+            LogLine logLine = new LogLine((counts == null) ? parseDate(date) : counts.parseDate(date),
                                           LogManager.unescapeLogField(match.group(2)).trim(),
                                           LogManager.unescapeLogField(match.group(3)).trim(),
                                           LogManager.unescapeLogField(match.group(4)).trim(),
@@ -1131,6 +1347,61 @@ public class LogAnalyser
     }
  
     
+    /**
+     * check whether a line starts with a time stamp like the one of a log line,
+     * "yyyy-MM-dd HH:mm:ss,SSS "
+     *
+     * @param   line    the line to check
+     * @return          true if the line starts with a time stamp
+     */
+    private static boolean hasLogPrefix(CharSequence line)
+    {
+        if (line.length() < LOG_PREFIX.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < LOG_PREFIX.length(); i++)
+        {
+            char expected = LOG_PREFIX.charAt(i);
+            char c = line.charAt(i);
+            if ((expected == '0') ? (c < '0' || c > '9') : (c != expected))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    
+    /**
+     * check whether the bytes of a line start with a time stamp like the one
+     * of a log line.  As the time stamp is all ASCII, this is the same as
+     * checking the decoded line.
+     *
+     * @param   buffer  the bytes of the line
+     * @param   start   the start of the line
+     * @param   length  the length of the line
+     * @return          true if the line starts with a time stamp
+     */
+    private static boolean hasLogPrefix(ByteBuffer buffer, int start, int length)
+    {
+        if (length < LOG_PREFIX.length())
+        {
+            return false;
+        }
+        for (int i = 0; i < LOG_PREFIX.length(); i++)
+        {
+            char expected = LOG_PREFIX.charAt(i);
+            byte b = buffer.get(start + i);
+            if ((expected == '0') ? (b < '0' || b > '9') : (b != expected))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    
     /**
      * get the number of items in the archive which were accessioned between 
      * the provided start and end dates, with the given value for the DC field
@@ -1329,9 +1600,263 @@ public class LogAnalyser
                             "\tOptional\n" +
                             "\tForce a lookup of the current database statistics\n" +
                             "\tOnly needs to be used if date constraints are also in place\n" +
+                        "-threads [number of threads]\n" +
+                            "\tOptional\n" +
+                            "\tAnalyse the log files in chunks, using the given number of threads\n" +
+                            "\tThe results are the same as when reading the files line by line\n" +
+                            "\tDefault is 1, reading the files line by line\n" +
                         "-help\n" +
                             "\tdisplay this usage information\n";
         
         System.out.println(usage);
     }
+    
+    
+    /**
+     * a chunk of whole lines of a log file, analysed by a thread of its own
+     */
+    private static class LogChunk implements Callable<LogCounts>
+    {
+        /** the log file */
+        private final File file;
+        
+        /** the position of the first line of the chunk */
+        private final long start;
+        
+        /** the position after the last line of the chunk */
+        private final long end;
+        
+        LogChunk(File file, long start, long end)
+        {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+        }
+        
+        public LogCounts call() throws IOException
+        {
+            MappedByteBuffer buffer;
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try
+            {
+                buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            }
+            finally
+            {
+                raf.close();
+            }
+            
+            // split the chunk into lines the way BufferedReader.readLine()
+            // does, at \n, \r or \r\n
+            Charset charset = Charset.defaultCharset();
+            LogCounts counts = new LogCounts();
+            byte[] bytes = new byte[1024];
+            int limit = buffer.limit();
+            int pos = 0;
+            while (pos < limit)
+            {
+                int i = pos;
+                while (i < limit && buffer.get(i) != '\n' && buffer.get(i) != '\r')
+                {
+                    i++;
+                }
+                
+                // only decode lines which might be log lines
+                int length = i - pos;
+                if (hasLogPrefix(buffer, pos, length))
+                {
+                    if (bytes.length < length)
+                    {
+                        bytes = new byte[Math.max(length, 2 * bytes.length)];
+                    }
+                    buffer.position(pos);
+                    buffer.get(bytes, 0, length);
+                    if (!counts.analyse(new String(bytes, 0, length, charset)))
+                    {
+                        break;
+                    }
+                }
+                
+                if (i + 1 < limit && buffer.get(i) == '\r' && buffer.get(i + 1) == '\n')
+                {
+                    i++;
+                }
+                pos = i + 1;
+            }
+            return counts;
+        }
+    }
+    
+    
+    /**
+     * the counts of the lines of a log file, or of a chunk of it, which are
+     * added to the aggregators once the file or chunk has been analysed.  The
+     * keys of each map are kept in the order they were first counted in, so
+     * that the aggregators end up with their keys added in the same order as
+     * when counting into them directly.
+     */
+    private static class LogCounts
+    {
+        private final Map<String, Integer> actions = new LinkedHashMap<String, Integer>();
+        private final Map<String, Integer> searches = new LinkedHashMap<String, Integer>();
+        private final Map<String, Integer> users = new LinkedHashMap<String, Integer>();
+        private final Map<String, Integer> items = new LinkedHashMap<String, Integer>();
+        private int lines = 0;
+        private int warnings = 0;
+        private Date firstDate = null;
+        private Date lastDate = null;
+        
+        /** whether a line after the end date was found */
+        private boolean pastEndDate = false;
+        
+        /** the last date parsed, as log lines mostly share their dates */
+        private String parsedDateString = null;
+        private Date parsedDate = null;
+        
+        Date parseDate(String date)
+        {
+            if (!date.equals(parsedDateString))
+            {
+                parsedDate = LogAnalyser.parseDate(date);
+                parsedDateString = date;
+            }
+            return parsedDate;
+        }
+        
+        /**
+         * count a log file line
+         *
+         * @param   line    the line
+         * @return          false if the line is after the end date, and the
+         *                  rest of the file is to be skipped
+         */
+        boolean analyse(String line)
+        {
+            // get the log line object
+            LogLine logLine = getLogLine(line, this);
+            
+            // if there are line segments get on with the analysis
+            if (logLine == null)
+            {
+                return true;
+            }
+            
+            // first find out if we are constraining by date and 
+            // if so apply the restrictions
+            if ((startDate != null) && (!logLine.afterDate(startDate)))
+            {
+                return true;
+            }
+            
+            if ((endDate !=null) && (!logLine.beforeDate(endDate)))
+            {
+                pastEndDate = true;
+                return false;
+            }
+            
+            // count the number of lines parsed
+            lines++;
+            
+            // if we are not constrained by date, register the date
+            // as the start/end date if it is the earliest/latest so far
+            if (startDate == null)
+            {
+                if ((firstDate == null) || logLine.beforeDate(firstDate))
+                {
+                    firstDate = logLine.getDate();
+                }
+            }
+            
+            if (endDate == null)
+            {
+                if ((lastDate == null) || logLine.afterDate(lastDate))
+                {
+                    lastDate = logLine.getDate();
+                }
+            }
+            
+            // count the warnings
+            if (logLine.isLevel("WARN"))
+            {
+                warnings++;
+            }
+
+            // is the action a search?
+            if (logLine.isAction("search"))
+            {
+                // get back all the valid search words from the query
+                String[] words = analyseQuery(logLine.getParams());
+                
+                // for each search word add to the aggregator or
+                // increment the aggregator's counter
+                for (int j = 0; j < words.length; j++)
+                {
+                    searches.put(words[j], increment(searches, words[j]));
+                }
+            }
+
+            // is the action a login, and are we counting user logins?
+            if (logLine.isAction("login") && !userEmail.equals("off"))
+            {
+                users.put(logLine.getUser(), increment(users, logLine.getUser()));
+            }
+
+            // is the action an item view?
+            if (logLine.isAction("view_item"))
+            {
+                String handle = logLine.getParams();
+
+                // strip the handle string
+                Matcher matchHandle = handleRX.matcher(handle);
+                handle = matchHandle.replaceAll("");
+                
+                // strip the item id string
+                Matcher matchItem = itemRX.matcher(handle);
+                handle = matchItem.replaceAll("").trim();
+
+                // either add the handle to the aggregator or
+                // increment its counter
+                items.put(handle, increment(items, handle));
+            }
+
+            // log all the activity
+            actions.put(logLine.getAction(), increment(actions, logLine.getAction()));
+            
+            return true;
+        }
+        
+        /**
+         * add the counts to the aggregators
+         */
+        void merge()
+        {
+            lineCount += lines;
+            warnCount += warnings;
+            
+            if ((firstDate != null) && ((logStartDate == null) || firstDate.before(logStartDate)))
+            {
+                logStartDate = firstDate;
+            }
+            if ((lastDate != null) && ((logEndDate == null) || lastDate.after(logEndDate)))
+            {
+                logEndDate = lastDate;
+            }
+            
+            merge(actions, actionAggregator);
+            merge(searches, searchAggregator);
+            merge(users, userAggregator);
+            merge(items, itemAggregator);
+        }
+        
+        private static void merge(Map<String, Integer> counts, Map<String, Integer> aggregator)
+        {
+            for (Map.Entry<String, Integer> count : counts.entrySet())
+            {
+                Integer value = aggregator.get(count.getKey());
+                aggregator.put(count.getKey(), Integer.valueOf(
+                        (value == null) ? count.getValue().intValue()
+                                        : value.intValue() + count.getValue().intValue()));
+            }
+        }
+    }
 }
@@ -10,13 +10,15 @@ package org.dspace.authenticate;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.log4j.Logger;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
@@ -38,6 +40,12 @@ import org.dspace.eperson.Group;
  * 111.222,-111.222.333.
  * <p>
  * For supported IP ranges see {@link org.dspace.authenticate.IPMatcher}.
+ * <p>
+ * The ranges are indexed by {@link IPRangeIndex}, and the groups of the
+ * latest client addresses are cached: up to
+ * {@code authentication-ip.cache.size} addresses (1000 by default, 0 to
+ * disable the cache). Both are built when the configuration is read, so they
+ * are replaced with the configuration.
  * 
  * @version $Revision$
  * @author Robert Tansley
@@ -50,22 +58,17 @@ public class IPAuthentication implements AuthenticationMethod
     /** Whether to look for x-forwarded headers for logging IP addresses */
     private static Boolean useProxies;
 
-    /** All the IP matchers */
-    private List<IPMatcher> ipMatchers;
+    /** The names of the groups with IP ranges, in the order they are numbered in the index */
+    private List<String> groupNames;
 
-    /** All the negative IP matchers */
-    private List<IPMatcher> ipNegativeMatchers;
+    /** The IP ranges of the groups */
+    private IPRangeIndex rangeIndex;
 
-    
-    /**
-     * Maps IPMatchers to group names when we don't know group DB ID yet. When
-     * the DB ID is known, the IPMatcher is moved to ipMatcherGroupIDs and then
-     * points to the DB ID.
-     */
-    private Map<IPMatcher, String> ipMatcherGroupNames;
+    /** The group numbers found for the latest client addresses, or null if not cached */
+    private Cache<String, int[]> addressGroups;
 
-    /** Maps IPMatchers to group IDs (Integers) where we know the group DB ID */
-    private Map<IPMatcher, Integer> ipMatcherGroupIDs;
+    /** The group DB IDs we know, by group name */
+    private Map<String, Integer> knownGroupIDs = new ConcurrentHashMap<String, Integer>();
 
     /**
      * Initialize an IP authenticator, reading in the configuration. Note this
@@ -73,10 +76,10 @@ public class IPAuthentication implements AuthenticationMethod
      */
     public IPAuthentication()
     {
-        ipMatchers = new ArrayList<IPMatcher>();
-        ipNegativeMatchers = new ArrayList<IPMatcher>();
-        ipMatcherGroupIDs = new HashMap<IPMatcher, Integer>();
-        ipMatcherGroupNames = new HashMap<IPMatcher, String>();
+        groupNames = new ArrayList<String>();
+        List<IPMatcher> matchers = new ArrayList<IPMatcher>();
+        List<Integer> groups = new ArrayList<Integer>();
+        List<Boolean> negative = new ArrayList<Boolean>();
 
         Enumeration e = ConfigurationManager.propertyNames("authentication-ip");
 
@@ -89,7 +92,8 @@ public class IPAuthentication implements AuthenticationMethod
 
                 if (nameParts.length == 2)
                 {
-                    addMatchers(nameParts[1], ConfigurationManager.getProperty("authentication-ip", propName));
+                    addMatchers(nameParts[1], ConfigurationManager.getProperty("authentication-ip", propName),
+                            matchers, groups, negative);
                 }
                 else
                 {
@@ -98,6 +102,15 @@ public class IPAuthentication implements AuthenticationMethod
                 }
             }
         }
+
+        rangeIndex = new IPRangeIndex(matchers, groups, negative);
+
+        // Addresses are looked up again on every request of a client
+        int cacheSize = ConfigurationManager.getIntProperty("authentication-ip", "cache.size", 1000);
+        if (cacheSize > 0)
+        {
+            addressGroups = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        }
     }
 
     /**
@@ -107,27 +120,40 @@ public class IPAuthentication implements AuthenticationMethod
      *            name of group
      * @param ipRanges
      *            IP ranges
+     * @param matchers
+     *            the matchers, to add to
+     * @param groups
+     *            the group number of each matcher, to add to
+     * @param negative
+     *            whether each matcher is negative, to add to
      */
-    private void addMatchers(String groupName, String ipRanges)
+    private void addMatchers(String groupName, String ipRanges, List<IPMatcher> matchers,
+            List<Integer> groups, List<Boolean> negative)
     {
         String[] ranges = ipRanges.split("\\s*,\\s*");
 
+        int group = groupNames.indexOf(groupName);
+        if (group < 0)
+        {
+            group = groupNames.size();
+            groupNames.add(groupName);
+        }
+
         for (String entry : ranges)
         {
             try
             {
-                IPMatcher ipm;
                 if (entry.startsWith("-"))
                 {
-                    ipm = new IPMatcher(entry.substring(1));
-                    ipNegativeMatchers.add(ipm);
+                    matchers.add(new IPMatcher(entry.substring(1)));
+                    negative.add(Boolean.TRUE);
                 }
                 else
                 {
-                    ipm = new IPMatcher(entry);
-                    ipMatchers.add(ipm);
+                    matchers.add(new IPMatcher(entry));
+                    negative.add(Boolean.FALSE);
                 }
-                ipMatcherGroupNames.put(ipm, groupName);
+                groups.add(group);
 
                 if (log.isDebugEnabled())
                 {
@@ -191,98 +217,56 @@ public class IPAuthentication implements AuthenticationMethod
             }
         }
 
-        for (IPMatcher ipm : ipMatchers)
+        int[] groups = null;
+        if (addressGroups != null)
+        {
+            groups = addressGroups.getIfPresent(addr);
+        }
+        if (groups == null)
         {
             try
             {
-                if (ipm.match(addr))
-                {
-                    // Do we know group ID?
-                    Integer g = ipMatcherGroupIDs.get(ipm);
-                    if (g != null)
-                    {
-                        groupIDs.add(g);
-                    }
-                    else
-                    {
-                        // See if we have a group name
-                        String groupName = ipMatcherGroupNames.get(ipm);
-
-                        if (groupName != null)
-                        {
-                            Group group = Group.findByName(context, groupName);
-                            if (group != null)
-                            {
-                                // Add ID so we won't have to do lookup again
-                                ipMatcherGroupIDs.put(ipm, Integer.valueOf(group.getID()));
-                                ipMatcherGroupNames.remove(ipm);
-
-                                groupIDs.add(Integer.valueOf(group.getID()));
-                            }
-                            else
-                            {
-                                log.warn(LogManager.getHeader(context,
-                                        "configuration_error", "unknown_group="
-                                                + groupName));
-                            }
-                        }
-                    }
-                }
+                groups = rangeIndex.getGroups(addr);
             }
             catch (IPMatcherException ipme)
             {
                 log.warn(LogManager.getHeader(context, "configuration_error",
                         "bad_ip=" + addr), ipme);
+                groups = new int[0];
+            }
+            if (addressGroups != null)
+            {
+                addressGroups.put(addr, groups);
             }
         }
 
-        // Now remove any negative matches
-        for (IPMatcher ipm : ipNegativeMatchers)
+        for (int group : groups)
         {
-            try
+            // Do we know group ID?
+            String groupName = groupNames.get(group);
+            Integer g = knownGroupIDs.get(groupName);
+            if (g == null)
             {
-                if (ipm.match(addr))
+                Group dbGroup = Group.findByName(context, groupName);
+                if (dbGroup != null)
+                {
+                    // Add ID so we won't have to do lookup again
+                    g = Integer.valueOf(dbGroup.getID());
+                    knownGroupIDs.put(groupName, g);
+                }
+                else
                 {
-                    // Do we know group ID?
-                    Integer g = ipMatcherGroupIDs.get(ipm);
-                    if (g != null)
-                    {
-                        groupIDs.remove(g);
-                    }
-                    else
-                    {
-                        // See if we have a group name
-                        String groupName = ipMatcherGroupNames.get(ipm);
-
-                        if (groupName != null)
-                        {
-                            Group group = Group.findByName(context, groupName);
-                            if (group != null)
-                            {
-                                // Add ID so we won't have to do lookup again
-                                ipMatcherGroupIDs.put(ipm, Integer.valueOf(group.getID()));
-                                ipMatcherGroupNames.remove(ipm);
-
-                                groupIDs.remove(Integer.valueOf(group.getID()));
-                            }
-                            else
-                            {
-                                log.warn(LogManager.getHeader(context,
-                                        "configuration_error", "unknown_group="
-                                                + groupName));
-                            }
-                        }
-                    }
+                    log.warn(LogManager.getHeader(context,
+                            "configuration_error", "unknown_group="
+                                    + groupName));
                 }
             }
-            catch (IPMatcherException ipme)
+            if (g != null)
             {
-                log.warn(LogManager.getHeader(context, "configuration_error",
-                        "bad_ip=" + addr), ipme);
+                groupIDs.add(g);
             }
         }
 
-
         int[] results = new int[groupIDs.size()];
         for (int i = 0; i < groupIDs.size(); i++)
         {
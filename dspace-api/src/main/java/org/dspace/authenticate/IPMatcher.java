@@ -264,6 +264,38 @@ public class IPMatcher
     public boolean match(String ipIn) throws IPMatcherException
     {
         log.debug("ipIn: "+ipIn);
+        byte[] candidate = toIp6(ipIn);
+
+        for (int i = 0; i < netmask.length; i++)
+        {
+            if ((candidate[i] & netmask[i]) != (network[i] & netmask[i]))
+            {
+                if (log.isDebugEnabled()) {
+                    log.debug("candidate[i]: "+candidate[i]);
+                    log.debug("netmask[i]: "+netmask[i]);
+                    log.debug("candidate[i] & netmask[i]: "+(candidate[i] & netmask[i]));
+                    log.debug("network[i]: "+network[i]);
+                    log.debug("network[i] & netmask[i]: "+(network[i] & netmask[i]));
+                }
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Parse a full IP address into the 16 bytes it is matched on: IPv4
+     * addresses are converted to IPv4-compatible IPv6 addresses.
+     *
+     * @param ipIn
+     *            IP address as dot-delimited String, or IPv6 address
+     * @return the 16 bytes of the address
+     * @throws IPMatcherException
+     *             if the IP cannot be parsed correctly (i.e. is malformed)
+     */
+    static byte[] toIp6(String ipIn) throws IPMatcherException
+    {
         byte[] candidate;
 
         if (ipIn.indexOf(':') < 0)
@@ -273,6 +305,7 @@ public class IPMatcher
             candidate = ip4ToIp6(candidate);
         }
         else
+        {
             try
             {
                 candidate = Inet6Address.getByName(ipIn).getAddress();
@@ -282,24 +315,66 @@ public class IPMatcher
                 throw new IPMatcherException("Malformed IPv6 address ",e);
             }
 
-        for (int i = 0; i < netmask.length; i++)
+            // IPv4-mapped addresses are returned as IPv4 addresses
+            if (candidate.length == 4)
+            {
+                candidate = ip4ToIp6(candidate);
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Whether the range is a single block of addresses, from
+     * {@link #getLowAddress()} to {@link #getHighAddress()}. That is not the
+     * case when a netmask has holes, e.g. {@code 255.0.255.0}.
+     *
+     * @return {@code true} if the bits of the mask are all leading bits
+     */
+    boolean isBlock()
+    {
+        boolean inMask = true;
+        for (byte b : netmask)
         {
-            if ((candidate[i] & netmask[i]) != (network[i] & netmask[i]))
+            for (int bit = 7; bit >= 0; bit--)
             {
-                if (log.isDebugEnabled()) {
-                    log.debug("candidate[i]: "+candidate[i]);
-                    log.debug("netmask[i]: "+netmask[i]);
-                    log.debug("candidate[i] & netmask[i]: "+(candidate[i] & netmask[i]));
-                    log.debug("network[i]: "+network[i]);
-                    log.debug("network[i] & netmask[i]: "+(network[i] & netmask[i]));
+                boolean set = (b & (1 << bit)) != 0;
+                if (set && !inMask)
+                {
+                    return false;
                 }
-                return false;
+                inMask = set;
             }
         }
-
         return true;
     }
 
+    /**
+     * @return the lowest address of the range, as 16 bytes
+     */
+    byte[] getLowAddress()
+    {
+        byte[] low = new byte[16];
+        for (int i = 0; i < low.length; i++)
+        {
+            low[i] = (byte) (network[i] & netmask[i]);
+        }
+        return low;
+    }
+
+    /**
+     * @return the highest address of the range, as 16 bytes
+     */
+    byte[] getHighAddress()
+    {
+        byte[] high = new byte[16];
+        for (int i = 0; i < high.length; i++)
+        {
+            high[i] = (byte) (network[i] | ~netmask[i]);
+        }
+        return high;
+    }
+
     /**
      * Convert an IPv4 address to an IPv6 IPv4-compatible address.
      * @param ip4 an IPv4 address
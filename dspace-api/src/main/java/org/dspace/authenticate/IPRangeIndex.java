@@ -0,0 +1,217 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authenticate;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of the IP ranges of groups, which finds the groups of an address
+ * without testing every range. IPv4 and IPv6 ranges are indexed alike, as
+ * {@link IPMatcher} turns IPv4 addresses into IPv6 ones.
+ * <p>
+ * The address space is cut into segments at the first address of each range
+ * and the one after its last address, and each segment holds the groups
+ * (numbered from 0) of the ranges which include it, so an address is looked
+ * up with a binary search. Ranges whose netmask has holes are not blocks of
+ * addresses, and are tested one by one.
+ * <p>
+ * An address is in a group if it is in one of the group's ranges and in none
+ * of its negative ranges. The index can not be changed once it is built.
+ */
+class IPRangeIndex
+{
+    /** Compares 16 byte addresses as unsigned numbers */
+    private static final Comparator<byte[]> ADDRESS_ORDER = new Comparator<byte[]>()
+    {
+        public int compare(byte[] a, byte[] b)
+        {
+            for (int i = 0; i < a.length; i++)
+            {
+                int diff = (a[i] & 0xff) - (b[i] & 0xff);
+                if (diff != 0)
+                {
+                    return diff;
+                }
+            }
+            return 0;
+        }
+    };
+
+    /** The first address of each segment, in ascending order */
+    private final byte[][] segmentStarts;
+
+    /** The groups of each segment */
+    private final BitSet[] segmentGroups;
+
+    /** The groups each segment is excluded from */
+    private final BitSet[] segmentExclusions;
+
+    /** The ranges which are not blocks */
+    private final List<IPMatcher> otherMatchers = new ArrayList<IPMatcher>();
+    private final List<Integer> otherGroups = new ArrayList<Integer>();
+    private final List<Boolean> otherNegative = new ArrayList<Boolean>();
+
+    /**
+     * Build the index of the given ranges.
+     *
+     * @param matchers the ranges
+     * @param groups the group of each range
+     * @param negative whether each range excludes addresses from its group
+     */
+    IPRangeIndex(List<IPMatcher> matchers, List<Integer> groups, List<Boolean> negative)
+    {
+        // The changes to the groups at the start of each segment: +1 or -1
+        // for each group whose range starts or ends there, negative ranges
+        // being counted as groups after the others
+        int groupCount = 0;
+        for (Integer group : groups)
+        {
+            groupCount = Math.max(groupCount, group + 1);
+        }
+        TreeMap<byte[], Map<Integer, Integer>> changes = new TreeMap<byte[], Map<Integer, Integer>>(ADDRESS_ORDER);
+        for (int i = 0; i < matchers.size(); i++)
+        {
+            IPMatcher matcher = matchers.get(i);
+            if (!matcher.isBlock())
+            {
+                otherMatchers.add(matcher);
+                otherGroups.add(groups.get(i));
+                otherNegative.add(negative.get(i));
+                continue;
+            }
+
+            int counter = negative.get(i) ? groupCount + groups.get(i) : groups.get(i);
+            addChange(changes, matcher.getLowAddress(), counter, 1);
+            byte[] end = next(matcher.getHighAddress());
+            if (end != null)
+            {
+                addChange(changes, end, counter, -1);
+            }
+        }
+
+        segmentStarts = new byte[changes.size()][];
+        segmentGroups = new BitSet[changes.size()];
+        segmentExclusions = new BitSet[changes.size()];
+        int[] counts = new int[2 * groupCount];
+        int segment = 0;
+        for (Map.Entry<byte[], Map<Integer, Integer>> change : changes.entrySet())
+        {
+            for (Map.Entry<Integer, Integer> count : change.getValue().entrySet())
+            {
+                counts[count.getKey()] += count.getValue();
+            }
+
+            BitSet included = new BitSet(groupCount);
+            BitSet excluded = new BitSet(groupCount);
+            for (int group = 0; group < groupCount; group++)
+            {
+                included.set(group, counts[group] > 0);
+                excluded.set(group, counts[groupCount + group] > 0);
+            }
+            segmentStarts[segment] = change.getKey();
+            segmentGroups[segment] = included;
+            segmentExclusions[segment] = excluded;
+            segment++;
+        }
+    }
+
+    private static void addChange(TreeMap<byte[], Map<Integer, Integer>> changes, byte[] address, int counter, int delta)
+    {
+        Map<Integer, Integer> change = changes.get(address);
+        if (change == null)
+        {
+            change = new TreeMap<Integer, Integer>();
+            changes.put(address, change);
+        }
+        Integer count = change.get(counter);
+        change.put(counter, (count == null ? 0 : count) + delta);
+    }
+
+    /**
+     * @return the address after the given one, or null if it is the last one
+     */
+    private static byte[] next(byte[] address)
+    {
+        byte[] next = address.clone();
+        for (int i = next.length - 1; i >= 0; i--)
+        {
+            next[i]++;
+            if (next[i] != 0)
+            {
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Find the groups of an address.
+     *
+     * @param address
+     *            IP address as dot-delimited String, or IPv6 address
+     * @return the groups, in ascending order
+     * @throws IPMatcherException
+     *             if the address cannot be parsed
+     */
+    int[] getGroups(String address) throws IPMatcherException
+    {
+        byte[] candidate = IPMatcher.toIp6(address);
+
+        BitSet included = new BitSet();
+        BitSet excluded = new BitSet();
+        int segment = findSegment(candidate);
+        if (segment >= 0)
+        {
+            included.or(segmentGroups[segment]);
+            excluded.or(segmentExclusions[segment]);
+        }
+        for (int i = 0; i < otherMatchers.size(); i++)
+        {
+            if (otherMatchers.get(i).match(address))
+            {
+                (otherNegative.get(i) ? excluded : included).set(otherGroups.get(i));
+            }
+        }
+        included.andNot(excluded);
+
+        int[] groups = new int[included.cardinality()];
+        int i = 0;
+        for (int group = included.nextSetBit(0); group >= 0; group = included.nextSetBit(group + 1))
+        {
+            groups[i++] = group;
+        }
+        return groups;
+    }
+
+    /**
+     * @return the segment which includes the address, or -1 if it is before the first segment
+     */
+    private int findSegment(byte[] address)
+    {
+        int low = 0;
+        int high = segmentStarts.length - 1;
+        while (low <= high)
+        {
+            int middle = (low + high) >>> 1;
+            if (ADDRESS_ORDER.compare(segmentStarts[middle], address) <= 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+}
@@ -586,6 +586,60 @@ public class AuthorizeManager
     }
 
 
+    /**
+     * Return a List of the policies of an item, of its bundles and of their
+     * bitstreams, read in a single query, ordered by policy ID.
+     *
+     * @param c
+     *         current context
+     * @param item
+     *         item to retrieve policies for
+     * @return List of <code>ResourcePolicy</code> objects
+     */
+    public static List<ResourcePolicy> getItemContentPolicies(Context c, Item item)
+            throws SQLException
+    {
+        TableRowIterator tri = DatabaseManager.queryTable(c, "resourcepolicy",
+                "SELECT * FROM resourcepolicy WHERE (resource_type_id= ? AND resource_id= ?) "
+                + "OR (resource_type_id= ? AND resource_id IN "
+                + "(SELECT bundle_id FROM item2bundle WHERE item_id= ?)) "
+                + "OR (resource_type_id= ? AND resource_id IN "
+                + "(SELECT bundle2bitstream.bitstream_id FROM bundle2bitstream, item2bundle "
+                + "WHERE bundle2bitstream.bundle_id=item2bundle.bundle_id AND item2bundle.item_id= ?)) "
+                + "ORDER BY policy_id",
+                Constants.ITEM, item.getID(), Constants.BUNDLE, item.getID(),
+                Constants.BITSTREAM, item.getID());
+
+        List<ResourcePolicy> policies = new ArrayList<ResourcePolicy>();
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+
+                ResourcePolicy cachepolicy = (ResourcePolicy) c.fromCache(
+                        ResourcePolicy.class, row.getIntColumn("policy_id"));
+
+                if (cachepolicy != null)
+                {
+                    policies.add(cachepolicy);
+                } else
+                {
+                    policies.add(new ResourcePolicy(c, row));
+                }
+            }
+        } finally
+        {
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+
+        return policies;
+    }
+
     /**
      * Return a List of the policies for an object
      *
@@ -25,6 +25,10 @@ import org.dspace.storage.rdbms.TableRowIterator;
  * <P>
  * Changes to the bitstream format metadata are only written to the database
  * when <code>update</code> is called.
+ * <P>
+ * Formats are looked up in a snapshot of the registry shared by all the
+ * threads (see {@link BitstreamFormatRegistry}), except by a context which has
+ * changed the registry.
  * 
  * @author Robert Tansley
  * @version $Revision$
@@ -108,6 +112,28 @@ public class BitstreamFormat
         context.cache(this, row.getIntColumn("bitstream_format_id"));
     }
 
+    /**
+     * Class constructor for creating a BitstreamFormat object based on the
+     * contents of a DB table row and its file extensions, which have been
+     * read from the database already.
+     * 
+     * @param context
+     *            the context this object exists in
+     * @param row
+     *            the corresponding row in the table
+     * @param extensions
+     *            the file extensions of the format
+     */
+    BitstreamFormat(Context context, TableRow row, List<String> extensions)
+    {
+        bfContext = context;
+        bfRow = row;
+        this.extensions = extensions;
+
+        // Cache ourselves
+        context.cache(this, row.getIntColumn("bitstream_format_id"));
+    }
+
     /**
      * Get a bitstream format from the database.
      * 
@@ -131,6 +157,12 @@ public class BitstreamFormat
             return fromCache;
         }
 
+        BitstreamFormatRegistry registry = BitstreamFormatRegistry.get(context);
+        if (registry != null)
+        {
+            return registry.find(context, id);
+        }
+
         TableRow row = DatabaseManager.find(context, "bitstreamformatregistry",
                 id);
 
@@ -173,6 +205,12 @@ public class BitstreamFormat
     public static BitstreamFormat findByMIMEType(Context context,
             String mimeType) throws SQLException
     {
+        BitstreamFormatRegistry registry = BitstreamFormatRegistry.get(context);
+        if (registry != null)
+        {
+            return registry.find(context, registry.findByMIMEType(mimeType));
+        }
+
         // NOTE: Avoid internal formats since e.g. "License" also has
         // a MIMEtype of text/plain.
         TableRow formatRow = DatabaseManager.querySingle(context,
@@ -202,6 +240,12 @@ public class BitstreamFormat
     public static BitstreamFormat findByShortDescription(Context context,
             String desc) throws SQLException
     {
+        BitstreamFormatRegistry registry = BitstreamFormatRegistry.get(context);
+        if (registry != null)
+        {
+            return registry.find(context, registry.findByShortDescription(desc));
+        }
+
         TableRow formatRow = DatabaseManager.findByUnique(context,
                 "bitstreamformatregistry", "short_description", desc);
 
@@ -280,6 +324,16 @@ public class BitstreamFormat
     {
         List<BitstreamFormat> formats = new ArrayList<BitstreamFormat>();
 
+        BitstreamFormatRegistry registry = BitstreamFormatRegistry.get(context);
+        if (registry != null)
+        {
+            for (Integer id : registry.getIDs())
+            {
+                formats.add(registry.find(context, id));
+            }
+            return formats.toArray(new BitstreamFormat[formats.size()]);
+        }
+
         TableRowIterator tri = DatabaseManager.queryTable(context, "bitstreamformatregistry",
                         "SELECT * FROM bitstreamformatregistry ORDER BY bitstream_format_id");
 
@@ -399,6 +453,8 @@ public class BitstreamFormat
                     "Only administrators can create bitstream formats");
         }
 
+        BitstreamFormatRegistry.changed(context);
+
         // Create a table row
         TableRow row = DatabaseManager.create(context,
                 "bitstreamformatregistry");
@@ -580,6 +636,8 @@ public class BitstreamFormat
                     "Only administrators can modify bitstream formats");
         }
 
+        BitstreamFormatRegistry.changed(bfContext);
+
         log.info(LogManager.getHeader(bfContext, "update_bitstream_format",
                 "bitstream_format_id=" + getID()));
 
@@ -625,6 +683,8 @@ public class BitstreamFormat
             throw new IllegalArgumentException("The Unknown bitstream format may not be deleted.");
         }
 
+        BitstreamFormatRegistry.changed(bfContext);
+
         // Remove from cache
         bfContext.removeCached(this, getID());
 
@@ -0,0 +1,284 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * An immutable snapshot of the bitstream format registry and its file
+ * extensions, indexed by ID, MIME type, short description and file
+ * extension, which is shared by all the threads. The registry rarely
+ * changes, so formats are looked up in the snapshot rather than in the
+ * database.
+ * <P>
+ * A context which has changed the registry looks formats up in the database
+ * until it is committed or aborted, as only that context sees its changes
+ * until then. The snapshot is read again from the database afterwards.
+ */
+final class BitstreamFormatRegistry
+{
+    /** log4j logger */
+    private static Logger log = Logger.getLogger(BitstreamFormatRegistry.class);
+
+    /** The snapshot, or null if it must be read from the database */
+    private static volatile BitstreamFormatRegistry current = null;
+
+    /** Incremented whenever the snapshot is discarded */
+    private static int generation = 0;
+
+    /** The contexts which have changed the registry */
+    private static final RegistryEditors editors = new RegistryEditors(new RegistryEditors.Refresh()
+    {
+        public void refresh(Set<Integer> ids)
+        {
+            discard();
+        }
+    });
+
+    /** The rows of the formats, by ID, in the order of their IDs */
+    private final Map<Integer, TableRow> rows;
+
+    /** The file extensions of the formats, by ID */
+    private final Map<Integer, List<String>> extensions;
+
+    /** The IDs of the non-internal formats, by MIME type */
+    private final Map<String, Integer> mimeTypes;
+
+    /** The IDs of the formats, by short description */
+    private final Map<String, Integer> shortDescriptions;
+
+    /** The IDs of the formats, by file extension */
+    private final Map<String, Integer> fileExtensions;
+
+    private BitstreamFormatRegistry(Map<Integer, TableRow> rows, Map<Integer, List<String>> extensions)
+    {
+        this.rows = rows;
+        this.extensions = extensions;
+        mimeTypes = new HashMap<String, Integer>();
+        shortDescriptions = new HashMap<String, Integer>();
+        fileExtensions = new HashMap<String, Integer>();
+
+        // If several formats have the same key, the one with the lowest ID wins
+        for (TableRow row : rows.values())
+        {
+            Integer id = row.getIntColumn("bitstream_format_id");
+            if (!row.getBooleanColumn("internal"))
+            {
+                putFirst(mimeTypes, row.getStringColumn("mimetype"), id);
+            }
+            putFirst(shortDescriptions, row.getStringColumn("short_description"), id);
+            for (String extension : extensions.get(id))
+            {
+                putFirst(fileExtensions, extension, id);
+            }
+        }
+    }
+
+    private static void putFirst(Map<String, Integer> index, String key, Integer id)
+    {
+        if (key != null && !index.containsKey(key))
+        {
+            index.put(key, id);
+        }
+    }
+
+    /**
+     * Get the snapshot of the registry, reading it from the database if
+     * needed.
+     *
+     * @param context
+     *            DSpace context object
+     * @return the snapshot, or null if the context has changed the registry
+     *         and must use the database instead
+     * @throws SQLException
+     */
+    static BitstreamFormatRegistry get(Context context) throws SQLException
+    {
+        if (editors.contains(context))
+        {
+            return null;
+        }
+
+        BitstreamFormatRegistry registry = current;
+        if (registry == null)
+        {
+            int loadedGeneration;
+            synchronized (BitstreamFormatRegistry.class)
+            {
+                loadedGeneration = generation;
+            }
+            registry = loadFromPrimary();
+            synchronized (BitstreamFormatRegistry.class)
+            {
+                // Do not publish a snapshot discarded while it was read
+                if (loadedGeneration == generation)
+                {
+                    current = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Note that a context has changed the registry, so that the snapshot is
+     * read again once the context is committed or aborted.
+     *
+     * @param context
+     *            DSpace context object
+     */
+    static void changed(Context context)
+    {
+        editors.add(context);
+    }
+
+    private static synchronized void discard()
+    {
+        generation++;
+        current = null;
+    }
+
+    /**
+     * Read the snapshot through a context of its own, which is not read-only:
+     * the snapshot is shared, so it must not be read from a read-only
+     * database which may lag behind the main one, as the context of the
+     * caller might.
+     */
+    private static BitstreamFormatRegistry loadFromPrimary() throws SQLException
+    {
+        Context primary = new Context();
+        try
+        {
+            return load(primary);
+        }
+        finally
+        {
+            primary.abort();
+        }
+    }
+
+    private static BitstreamFormatRegistry load(Context context) throws SQLException
+    {
+        log.info("Loading the bitstream format registry into cache.");
+
+        Map<Integer, TableRow> rows = new LinkedHashMap<Integer, TableRow>();
+        Map<Integer, List<String>> extensions = new HashMap<Integer, List<String>>();
+        TableRowIterator tri = DatabaseManager.queryTable(context, "bitstreamformatregistry",
+                "SELECT * FROM bitstreamformatregistry ORDER BY bitstream_format_id");
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                rows.put(row.getIntColumn("bitstream_format_id"), row);
+                extensions.put(row.getIntColumn("bitstream_format_id"), new ArrayList<String>());
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        tri = DatabaseManager.query(context,
+                "SELECT * FROM fileextension ORDER BY file_extension_id");
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow row = tri.next();
+                List<String> formatExtensions = extensions.get(row.getIntColumn("bitstream_format_id"));
+                if (formatExtensions != null)
+                {
+                    formatExtensions.add(row.getStringColumn("extension"));
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        return new BitstreamFormatRegistry(rows, extensions);
+    }
+
+    /**
+     * Get a format of the snapshot, from the context cache if it is there.
+     * Each context gets its own copy of the format, which it may change.
+     *
+     * @param context
+     *            DSpace context object
+     * @param id
+     *            ID of the format
+     * @return the format, or null if there is no format with this ID
+     */
+    BitstreamFormat find(Context context, Integer id)
+    {
+        if (id == null)
+        {
+            return null;
+        }
+
+        BitstreamFormat fromCache = (BitstreamFormat) context.fromCache(BitstreamFormat.class, id);
+        if (fromCache != null)
+        {
+            return fromCache;
+        }
+
+        TableRow row = rows.get(id);
+        if (row == null)
+        {
+            return null;
+        }
+        return new BitstreamFormat(context, row.copy(), new ArrayList<String>(extensions.get(id)));
+    }
+
+    /**
+     * @return the ID of the first non-internal format with this MIME type,
+     *         or null
+     */
+    Integer findByMIMEType(String mimeType)
+    {
+        return mimeTypes.get(mimeType);
+    }
+
+    /**
+     * @return the ID of the format with this short description, or null
+     */
+    Integer findByShortDescription(String desc)
+    {
+        return shortDescriptions.get(desc);
+    }
+
+    /**
+     * @return the ID of the first format with this file extension, or null
+     */
+    Integer findByExtension(String extension)
+    {
+        return fileExtensions.get(extension);
+    }
+
+    /**
+     * @return the IDs of all the formats, in increasing order
+     */
+    List<Integer> getIDs()
+    {
+        return new ArrayList<Integer>(rows.keySet());
+    }
+}
@@ -1270,40 +1270,7 @@ public abstract class DSpaceObject
                     {
                         while (tri.hasNext())
                         {
-                            TableRow resultRow = tri.next();
-
-                            // Get the associated metadata field and schema information
-                            int fieldID = resultRow.getIntColumn("metadata_field_id");
-                            MetadataField field = MetadataField.find(c, fieldID);
-
-                            if (field == null)
-                            {
-                                log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resourceTypeId + " and resourceId=" + resourceId);
-                            }
-                            else
-                            {
-                                MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
-                                if (schema == null)
-                                {
-                                    log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
-                                }
-                                else
-                                {
-                                    // Make a Metadatum object
-                                    Metadatum dcv = new Metadatum();
-                                    dcv.element = field.getElement();
-                                    dcv.qualifier = field.getQualifier();
-                                    dcv.value = resultRow.getStringColumn("text_value");
-                                    dcv.language = resultRow.getStringColumn("text_lang");
-                                    //dcv.namespace = schema.getNamespace();
-                                    dcv.schema = schema.getName();
-                                    dcv.authority = resultRow.getStringColumn("authority");
-                                    dcv.confidence = resultRow.getIntColumn("confidence");
-
-                                    // Add it to the list
-                                    metadata.add(dcv);
-                                }
-                            }
+                            add(c, tri.next(), log);
                         }
                     }
                     finally
@@ -1320,6 +1287,46 @@ public abstract class DSpaceObject
             return metadata;
         }
 
+        /**
+         * Add a row of the MetadataValue table to the metadata, which have
+         * to be loaded (or set) already.
+         */
+        void add(Context c, TableRow resultRow, Logger log) throws SQLException
+        {
+            // Get the associated metadata field and schema information
+            int fieldID = resultRow.getIntColumn("metadata_field_id");
+            MetadataField field = MetadataField.find(c, fieldID);
+
+            if (field == null)
+            {
+                log.error("Loading item - cannot find metadata field " + fieldID + " for resourceType=" + resultRow.getIntColumn("resource_type_id") + " and resourceId=" + resultRow.getIntColumn("resource_id"));
+            }
+            else
+            {
+                MetadataSchema schema = MetadataSchema.find(c, field.getSchemaID());
+                if (schema == null)
+                {
+                    log.error("Loading item - cannot find metadata schema " + field.getSchemaID() + ", field " + fieldID);
+                }
+                else
+                {
+                    // Make a Metadatum object
+                    Metadatum dcv = new Metadatum();
+                    dcv.element = field.getElement();
+                    dcv.qualifier = field.getQualifier();
+                    dcv.value = resultRow.getStringColumn("text_value");
+                    dcv.language = resultRow.getStringColumn("text_lang");
+                    //dcv.namespace = schema.getNamespace();
+                    dcv.schema = schema.getName();
+                    dcv.authority = resultRow.getStringColumn("authority");
+                    dcv.confidence = resultRow.getIntColumn("confidence");
+
+                    // Add it to the list
+                    metadata.add(dcv);
+                }
+            }
+        }
+
         void set(List<Metadatum> m)
         {
             metadata = m;
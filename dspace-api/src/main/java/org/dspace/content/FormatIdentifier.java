@@ -66,6 +66,12 @@ public class FormatIdentifier
             return null;
         }
 
+        BitstreamFormatRegistry registry = BitstreamFormatRegistry.get(context);
+        if (registry != null)
+        {
+            return registry.find(context, registry.findByExtension(extension));
+        }
+
         // See if the extension is in the fileextension table
         TableRowIterator tri = DatabaseManager.query(context,
                 "SELECT bitstreamformatregistry.* FROM bitstreamformatregistry, " + 
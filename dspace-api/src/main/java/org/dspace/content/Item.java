@@ -94,6 +94,25 @@ public class Item extends DSpaceObject
      * @throws SQLException
      */
     Item(Context context, TableRow row) throws SQLException
+    {
+        this(context, row, null);
+
+        // Get our Handle if any
+        handle = HandleManager.findHandle(context, this);
+    }
+
+    /**
+     * Construct an item with the given table row, whose handle has been
+     * looked up already (see {@link HandleManager#findHandles})
+     *
+     * @param context
+     *            the context this object exists in
+     * @param row
+     *            the corresponding row in the table
+     * @param handle
+     *            the handle of the item, or null if it has none
+     */
+    Item(Context context, TableRow row, String handle)
     {
         super(context);
 
@@ -104,9 +123,7 @@ public class Item extends DSpaceObject
         itemRow = row;
         modified = false;
         clearDetails();
-
-        // Get our Handle if any
-        handle = HandleManager.findHandle(context, this);
+        this.handle = handle;
 
         // Cache ourselves
         context.cache(this, row.getIntColumn("item_id"));
@@ -651,42 +668,8 @@ public class Item extends DSpaceObject
     {
         if (bundles == null)
         {
-                bundles = new ArrayList<Bundle>();
-                // Get bundles
-                TableRowIterator tri = DatabaseManager.queryTable(ourContext, "bundle",
-                                        "SELECT bundle.* FROM bundle, item2bundle WHERE " +
-                                        "item2bundle.bundle_id=bundle.bundle_id AND " +
-                                        "item2bundle.item_id= ? ",
-                        itemRow.getIntColumn("item_id"));
-
-            try
-            {
-                while (tri.hasNext())
-                {
-                    TableRow r = tri.next();
-
-                    // First check the cache
-                    Bundle fromCache = (Bundle) ourContext.fromCache(Bundle.class,
-                                                r.getIntColumn("bundle_id"));
-
-                    if (fromCache != null)
-                    {
-                        bundles.add(fromCache);
-                    }
-                    else
-                    {
-                        bundles.add(new Bundle(ourContext, r));
-                    }
-                }
-            }
-            finally
-            {
-                // close the TableRowIterator to free up resources
-                if (tri != null)
-                {
-                    tri.close();
-                }
-            }
+            // Load the bundles and their bitstreams and formats at once
+            ItemContentLoader.load(ourContext, this);
         }
         
         Bundle[] bundleArray = new Bundle[bundles.size()];
@@ -695,6 +678,26 @@ public class Item extends DSpaceObject
         return bundleArray;
     }
 
+    /**
+     * @return whether the bundles of this item have been loaded from the database
+     */
+    boolean isBundlesLoaded()
+    {
+        return bundles != null;
+    }
+
+    /**
+     * Set the bundles of this item, which have been loaded from the database
+     * by ItemContentLoader.
+     * 
+     * @param loadedBundles
+     *            the bundles in this item
+     */
+    void setBundles(List<Bundle> loadedBundles)
+    {
+        bundles = loadedBundles;
+    }
+
     /**
      * Get the bundles matching a bundle name (name corresponds roughly to type)
      *
@@ -0,0 +1,529 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.handle.HandleManager;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRow;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Loads the bundles of items, with their bitstreams, the formats of the
+ * bitstreams and the metadata of both, in a constant number of queries
+ * however many items, bundles and bitstreams there are. The objects loaded
+ * are put in the context cache, as when they are loaded one by one.
+ * <P>
+ * Loading the bundles of an item one by one takes a query for the bundles,
+ * then two queries for each bundle (its bitstreams and its metadata), and one
+ * for each bitstream (its metadata), plus those for any format that is not
+ * cached yet.
+ */
+public class ItemContentLoader
+{
+    /** log4j logger */
+    private static final Logger log = Logger.getLogger(ItemContentLoader.class);
+
+    /** The largest number of IDs to query for at once */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Load the bundles of the given items, unless they have been loaded
+     * already.
+     *
+     * @param context
+     *            DSpace context object
+     * @param items
+     *            the items
+     */
+    public static void load(Context context, Item... items) throws SQLException
+    {
+        Map<Integer, Item> toLoad = new LinkedHashMap<Integer, Item>();
+        for (Item item : items)
+        {
+            if (!item.isBundlesLoaded())
+            {
+                toLoad.put(item.getID(), item);
+            }
+        }
+        if (toLoad.isEmpty())
+        {
+            return;
+        }
+
+        Map<Integer, List<Bundle>> bundles = loadBundles(context, toLoad.keySet());
+        for (Item item : toLoad.values())
+        {
+            item.setBundles(bundles.get(item.getID()));
+        }
+    }
+
+    /**
+     * Load the bundles of the given items, unless they have been loaded
+     * already.
+     *
+     * @param context
+     *            DSpace context object
+     * @param items
+     *            the items
+     */
+    public static void load(Context context, List<Item> items) throws SQLException
+    {
+        load(context, items.toArray(new Item[items.size()]));
+    }
+
+    /**
+     * Load the items with the given IDs into the context cache, unless they
+     * are there already, with a query per batch of IDs for the items and one
+     * for their handles. Later calls to {@link Item#find} are answered from
+     * the cache.
+     *
+     * @param context
+     *            DSpace context object
+     * @param itemIDs
+     *            the IDs of the items
+     */
+    public static void loadItems(Context context, Collection<Integer> itemIDs) throws SQLException
+    {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Integer id : new LinkedHashSet<Integer>(itemIDs))
+        {
+            if (context.fromCache(Item.class, id) == null)
+            {
+                ids.add(id);
+            }
+        }
+
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE)
+        {
+            List<Integer> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            Map<Integer, String> handles = HandleManager.findHandles(context, Constants.ITEM, batch);
+            TableRowIterator tri = DatabaseManager.queryTable(context, "item",
+                    "SELECT * FROM item WHERE item_id IN (" + placeholders(batch.size()) + ")",
+                    batch.toArray());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow r = tri.next();
+                    // The constructor adds the item to the cache
+                    new Item(context, r, handles.get(r.getIntColumn("item_id")));
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+    }
+
+    /**
+     * Load the collections with the given IDs into the context cache, unless
+     * they are there already, with a query per batch of IDs. Later calls to
+     * {@link org.dspace.content.Collection#find} are answered from the cache.
+     *
+     * @param context
+     *            DSpace context object
+     * @param collectionIDs
+     *            the IDs of the collections
+     */
+    public static void loadCollections(Context context, Collection<Integer> collectionIDs) throws SQLException
+    {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (Integer id : new LinkedHashSet<Integer>(collectionIDs))
+        {
+            if (context.fromCache(org.dspace.content.Collection.class, id) == null)
+            {
+                ids.add(id);
+            }
+        }
+
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE)
+        {
+            List<Integer> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            List<TableRow> rows = DatabaseManager.queryTable(context, "collection",
+                    "SELECT * FROM collection WHERE collection_id IN (" + placeholders(batch.size()) + ")",
+                    batch.toArray()).toList();
+            for (TableRow r : rows)
+            {
+                // The constructor adds the collection to the cache, it looks
+                // up the logo, template item and groups of the collection
+                new org.dspace.content.Collection(context, r);
+            }
+        }
+    }
+
+    /**
+     * Get when the items with the given IDs were last modified, without
+     * having to load the items themselves.
+     *
+     * @param context
+     *            DSpace context object
+     * @param itemIDs
+     *            the IDs of the items
+     * @return the last modification dates by item ID; items which do not
+     *         exist, or have no date, are left out
+     */
+    public static Map<Integer, Date> loadLastModified(Context context, Collection<Integer> itemIDs)
+            throws SQLException
+    {
+        Map<Integer, Date> result = new HashMap<Integer, Date>();
+        List<Integer> ids = new ArrayList<Integer>(new LinkedHashSet<Integer>(itemIDs));
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE)
+        {
+            List<Integer> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            TableRowIterator tri = DatabaseManager.query(context,
+                    "SELECT item_id, last_modified FROM item WHERE item_id IN ("
+                    + placeholders(batch.size()) + ")", batch.toArray());
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow r = tri.next();
+                    Date lastModified = r.getDateColumn("last_modified");
+                    if (lastModified != null)
+                    {
+                        result.put(r.getIntColumn("item_id"), lastModified);
+                    }
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the bundles of the items with the given IDs, without having to load
+     * the items themselves. The bundles of items which are in the context
+     * cache are only loaded if they have not been loaded already.
+     *
+     * @param context
+     *            DSpace context object
+     * @param itemIDs
+     *            the IDs of the items
+     * @return the bundles (with their bitstreams loaded) by item ID, in the
+     *         order of the database
+     */
+    public static Map<Integer, List<Bundle>> loadBundles(Context context, Collection<Integer> itemIDs)
+            throws SQLException
+    {
+        Map<Integer, List<Bundle>> result = new HashMap<Integer, List<Bundle>>();
+        List<Integer> toLoad = new ArrayList<Integer>();
+        for (Integer itemID : new LinkedHashSet<Integer>(itemIDs))
+        {
+            Item cached = (Item) context.fromCache(Item.class, itemID);
+            if (cached != null && cached.isBundlesLoaded())
+            {
+                result.put(itemID, Arrays.asList(cached.getBundles()));
+            }
+            else
+            {
+                result.put(itemID, new ArrayList<Bundle>());
+                toLoad.add(itemID);
+            }
+        }
+
+        for (int start = 0; start < toLoad.size(); start += BATCH_SIZE)
+        {
+            loadBatch(context, toLoad.subList(start, Math.min(start + BATCH_SIZE, toLoad.size())), result);
+        }
+
+        // Items in the cache need not load their bundles again
+        for (Integer itemID : toLoad)
+        {
+            Item cached = (Item) context.fromCache(Item.class, itemID);
+            if (cached != null && !cached.isBundlesLoaded())
+            {
+                cached.setBundles(result.get(itemID));
+            }
+        }
+        return result;
+    }
+
+    private static void loadBatch(Context context, List<Integer> itemIDs, Map<Integer, List<Bundle>> result)
+            throws SQLException
+    {
+        // The bundles of the items, in the order of the database. The bundles
+        // which are not cached are only created once their bitstreams are known.
+        List<Integer> bundleItemIDs = new ArrayList<Integer>();
+        List<Object> itemBundles = new ArrayList<Object>();
+        Map<Integer, TableRow> bundleRows = new LinkedHashMap<Integer, TableRow>();
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT bundle.*, item2bundle.item_id FROM bundle, item2bundle WHERE "
+                + "item2bundle.bundle_id=bundle.bundle_id AND "
+                + "item2bundle.item_id IN (" + placeholders(itemIDs.size()) + ")",
+                itemIDs.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow r = tri.next();
+                int bundleID = r.getIntColumn("bundle_id");
+                Bundle fromCache = (Bundle) context.fromCache(Bundle.class, bundleID);
+                bundleItemIDs.add(r.getIntColumn("item_id"));
+                if (fromCache != null)
+                {
+                    itemBundles.add(fromCache);
+                }
+                else
+                {
+                    // as for bitstreams, the row has a column of another table
+                    r.setTable("bundle");
+                    itemBundles.add(bundleID);
+                    bundleRows.put(bundleID, r);
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        Map<Integer, Bundle> bundles = new HashMap<Integer, Bundle>();
+        if (!bundleRows.isEmpty())
+        {
+            List<Integer> bundleIDs = new ArrayList<Integer>(bundleRows.keySet());
+            Map<Integer, List<Bitstream>> bitstreams = loadBitstreams(context, bundleIDs);
+
+            List<DSpaceObject> loaded = new ArrayList<DSpaceObject>();
+            for (Map.Entry<Integer, TableRow> bundleRow : bundleRows.entrySet())
+            {
+                Bundle bundle = new Bundle(context, bundleRow.getValue(), bitstreams.get(bundleRow.getKey()));
+                bundles.put(bundleRow.getKey(), bundle);
+                loaded.add(bundle);
+            }
+            loadMetadata(context, Constants.BUNDLE, loaded);
+        }
+
+        for (int i = 0; i < itemBundles.size(); i++)
+        {
+            Object bundle = itemBundles.get(i);
+            result.get(bundleItemIDs.get(i)).add(bundle instanceof Bundle ? (Bundle) bundle : bundles.get(bundle));
+        }
+    }
+
+    /**
+     * Load the bitstreams of bundles, in the order configured by
+     * webui.bitstream.order.field and webui.bitstream.order.direction
+     *
+     * @return the bitstreams by bundle ID
+     */
+    private static Map<Integer, List<Bitstream>> loadBitstreams(Context context, List<Integer> bundleIDs)
+            throws SQLException
+    {
+        String bitstreamOrderingField  = ConfigurationManager.getProperty("webui.bitstream.order.field");
+        String bitstreamOrderingDirection   = ConfigurationManager.getProperty("webui.bitstream.order.direction");
+
+        if (bitstreamOrderingField == null)
+        {
+            bitstreamOrderingField = "sequence_id";
+        }
+
+        if (bitstreamOrderingDirection == null)
+        {
+            bitstreamOrderingDirection = "ASC";
+        }
+
+        StringBuilder query = new StringBuilder();
+        query.append("SELECT bitstream.*,bundle2bitstream.bundle_id,bundle2bitstream.bitstream_order FROM bitstream, bundle2bitstream WHERE");
+        query.append(" bundle2bitstream.bitstream_id=bitstream.bitstream_id AND");
+        query.append(" bundle2bitstream.bundle_id IN (").append(placeholders(bundleIDs.size())).append(")");
+        query.append(" ORDER BY bundle2bitstream.bundle_id, ");
+        query.append(bitstreamOrderingField);
+        query.append(" ");
+        query.append(bitstreamOrderingDirection);
+
+        // The bitstreams of each bundle, either from the cache or as the rows to create them from
+        Map<Integer, List<Object>> bundleBitstreams = new HashMap<Integer, List<Object>>();
+        for (Integer bundleID : bundleIDs)
+        {
+            bundleBitstreams.put(bundleID, new ArrayList<Object>());
+        }
+        // The bitstreams look their formats up in the registry, unless the context may not use it
+        Set<Integer> formatIDs = new LinkedHashSet<Integer>();
+        boolean loadFormats = (BitstreamFormatRegistry.get(context) == null);
+        TableRowIterator tri = DatabaseManager.query(context, query.toString(), bundleIDs.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow r = tri.next();
+                Bitstream fromCache = (Bitstream) context.fromCache(Bitstream.class, r.getIntColumn("bitstream_id"));
+                if (fromCache != null)
+                {
+                    bundleBitstreams.get(r.getIntColumn("bundle_id")).add(fromCache);
+                }
+                else
+                {
+                    //Since bitstreams can be ordered by a column in bundle2bitstream
+                    //We cannot use queryTable & so we need to add our table later on
+                    r.setTable("bitstream");
+                    bundleBitstreams.get(r.getIntColumn("bundle_id")).add(r);
+                    int formatID = r.getIntColumn("bitstream_format_id");
+                    if (loadFormats && context.fromCache(BitstreamFormat.class, formatID) == null)
+                    {
+                        formatIDs.add(formatID);
+                    }
+                }
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        // The bitstreams look their formats up when they are created
+        if (!formatIDs.isEmpty())
+        {
+            loadFormats(context, new ArrayList<Integer>(formatIDs));
+        }
+
+        Map<Integer, List<Bitstream>> result = new HashMap<Integer, List<Bitstream>>();
+        List<DSpaceObject> loaded = new ArrayList<DSpaceObject>();
+        for (Map.Entry<Integer, List<Object>> entry : bundleBitstreams.entrySet())
+        {
+            List<Bitstream> bitstreams = new ArrayList<Bitstream>();
+            for (Object bitstream : entry.getValue())
+            {
+                if (bitstream instanceof Bitstream)
+                {
+                    bitstreams.add((Bitstream) bitstream);
+                }
+                else
+                {
+                    Bitstream created = new Bitstream(context, (TableRow) bitstream);
+                    bitstreams.add(created);
+                    loaded.add(created);
+                }
+            }
+            result.put(entry.getKey(), bitstreams);
+        }
+        if (!loaded.isEmpty())
+        {
+            loadMetadata(context, Constants.BITSTREAM, loaded);
+        }
+        return result;
+    }
+
+    /**
+     * Load bitstream formats with their file extensions into the context cache
+     */
+    private static void loadFormats(Context context, List<Integer> formatIDs) throws SQLException
+    {
+        Map<Integer, List<String>> extensions = new HashMap<Integer, List<String>>();
+        for (Integer formatID : formatIDs)
+        {
+            extensions.put(formatID, new ArrayList<String>());
+        }
+        TableRowIterator tri = DatabaseManager.query(context,
+                "SELECT * FROM fileextension WHERE bitstream_format_id IN (" + placeholders(formatIDs.size()) + ")",
+                formatIDs.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow r = tri.next();
+                extensions.get(r.getIntColumn("bitstream_format_id")).add(r.getStringColumn("extension"));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+
+        tri = DatabaseManager.queryTable(context, "bitstreamformatregistry",
+                "SELECT * FROM bitstreamformatregistry WHERE bitstream_format_id IN (" + placeholders(formatIDs.size()) + ")",
+                formatIDs.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                TableRow r = tri.next();
+                new BitstreamFormat(context, r, extensions.get(r.getIntColumn("bitstream_format_id")));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+    }
+
+    /**
+     * Load the metadata of DSpace objects of one type, which have just been
+     * created and have not loaded their metadata yet
+     */
+    private static void loadMetadata(Context context, int type, List<DSpaceObject> dsos) throws SQLException
+    {
+        Map<Integer, DSpaceObject> byID = new HashMap<Integer, DSpaceObject>();
+        for (DSpaceObject dso : dsos)
+        {
+            dso.metadataCache.set(new ArrayList<Metadatum>());
+            byID.put(dso.getID(), dso);
+        }
+
+        List<Integer> ids = new ArrayList<Integer>(byID.keySet());
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE)
+        {
+            List<Integer> batch = ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()));
+            Object[] parameters = new Object[batch.size() + 1];
+            parameters[0] = type;
+            for (int i = 0; i < batch.size(); i++)
+            {
+                parameters[i + 1] = batch.get(i);
+            }
+
+            TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataValue",
+                    "SELECT * FROM MetadataValue WHERE resource_type_id = ? AND resource_id IN ("
+                    + placeholders(batch.size()) + ") ORDER BY resource_id, metadata_field_id, place",
+                    parameters);
+            try
+            {
+                while (tri.hasNext())
+                {
+                    TableRow r = tri.next();
+                    byID.get(r.getIntColumn("resource_id")).metadataCache.add(context, r, log);
+                }
+            }
+            finally
+            {
+                tri.close();
+            }
+        }
+    }
+
+    /**
+     * @return n comma separated parameter placeholders
+     */
+    static String placeholders(int n)
+    {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < n; i++)
+        {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+}
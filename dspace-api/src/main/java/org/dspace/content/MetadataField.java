@@ -13,9 +13,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -50,11 +53,19 @@ public class MetadataField
     /** The row in the table representing this type */
     private TableRow row;
 
-    // cache of field by ID (Integer)
-    private static Map<Integer, MetadataField> id2field = null;
+    // cache of the fields, shared by all the threads, or null if it must
+    // be read from the database
+    private static volatile FieldCache cache = null;
 
-    /** metadatafield cache */
-    private static Map<String, MetadataField> metadatafieldcache = null;
+    // the contexts which have changed the fields, and the fields they have
+    // changed, which are read again into the shared cache once they end
+    private static final RegistryEditors editors = new RegistryEditors(new RegistryEditors.Refresh()
+    {
+        public void refresh(Set<Integer> ids)
+        {
+            refreshCache(ids);
+        }
+    });
 
 
     /**
@@ -252,10 +263,10 @@ public class MetadataField
         row.setColumn("qualifier", qualifier);
         row.setColumn("scope_note", scopeNote);
         DatabaseManager.insert(context, row);
-        decache();
 
         // Remember the new row number
         this.fieldID = row.getIntColumn("metadata_field_id");
+        changed(context, false);
 
         log.info(LogManager.getHeader(context, "create_metadata_field",
                 "metadata_field_id=" + row.getIntColumn("metadata_field_id")));
@@ -275,18 +286,19 @@ public class MetadataField
     public static MetadataField findByElement(Context context, int schemaID,
             String element, String qualifier) throws SQLException
     {
-
-        if (!isCacheInitialized()){
-            initCache(context);
+        Map<String, Map<String, MetadataField>> elements = getCache(context).schema2fields.get(schemaID);
+        if (elements == null)
+        {
+            return null;
         }
 
-        // 'sanity check' first.
-        String metadataFieldKey = schemaID+"."+element+"."+qualifier;
-        if(!metadatafieldcache.containsKey(metadataFieldKey)) {
+        Map<String, MetadataField> qualifiers = elements.get(element);
+        if (qualifiers == null)
+        {
             return null;
         }
 
-        return metadatafieldcache.get(metadataFieldKey);
+        return qualifiers.get(qualifier);
     }
 
     /**
@@ -408,7 +420,7 @@ public class MetadataField
         row.setColumn("qualifier", qualifier);
         row.setColumn("scope_note", scopeNote);
         DatabaseManager.update(context, row);
-        decache();
+        changed(context, false);
 
         log.info(LogManager.getHeader(context, "update_metadatafieldregistry",
                 "metadata_field_id=" + getFieldID() + "element=" + getElement()
@@ -455,7 +467,7 @@ public class MetadataField
                 "metadata_field_id=" + getFieldID()));
 
         DatabaseManager.delete(context, row);
-        decache();
+        changed(context, true);
     }
 
     /**
@@ -569,70 +581,179 @@ public class MetadataField
     public static MetadataField find(Context context, int id)
             throws SQLException
     {
-        if (!isCacheInitialized())
-        {
-            initCache(context);
-        }
+        return getCache(context).id2field.get(id);
+    }
 
-        // 'sanity check' first.
-        Integer iid = Integer.valueOf(id);
-        if (!id2field.containsKey(iid))
+    // get the cache, reading it from the database if needed. Reading it
+    // takes no lock, unless it must be read from the database. A context
+    // which has changed the fields gets a cache of its own, as the others
+    // must not see its changes before it is completed: the shared cache,
+    // with the fields it has changed read again through the context.
+    private static FieldCache getCache(Context context) throws SQLException
+    {
+        if (editors.contains(context))
         {
-            return null;
+            FieldCache own = (FieldCache) context.fromCache(FieldCache.class, 0);
+            if (own == null)
+            {
+                Set<Integer> ids = editors.changedBy(context);
+                own = (ids == null) ? new FieldCache(load(context))
+                        : getSharedCache().reread(context, ids);
+                context.cache(own, 0);
+            }
+            return own;
         }
 
-        return id2field.get(iid);
+        return getSharedCache();
     }
 
-    // invalidate the cache e.g. after something modifies DB state.
-    private static void decache()
+    private static FieldCache getSharedCache() throws SQLException
     {
-        id2field = null;
+        FieldCache current = cache;
+        if (current == null)
+        {
+            current = initCache();
+        }
+        return current;
     }
 
-    private static boolean isCacheInitialized()
+    // note that a context has created, updated or deleted this field. The
+    // change is applied to the cache of the context, if it has one, and to
+    // the shared cache once the context is committed or aborted.
+    private void changed(Context context, boolean deleted)
     {
-        return id2field != null;
+        boolean editing = editors.contains(context);
+        editors.add(context, fieldID);
+        FieldCache own = (FieldCache) context.fromCache(FieldCache.class, 0);
+        if (own == null)
+        {
+            return;
+        }
+
+        if (editing)
+        {
+            List<MetadataField> fields = deleted ? Collections.<MetadataField>emptyList()
+                    : Collections.singletonList(new MetadataField(row.copy()));
+            context.cache(own.with(Collections.singleton(fieldID), fields), 0);
+        }
+        else
+        {
+            // left over from before the context was last committed
+            context.removeCached(own, 0);
+        }
     }
-    
-    // load caches if necessary
-    private static synchronized void initCache(Context context) throws SQLException
+
+    // load the shared cache if necessary. It is read from the main database,
+    // through a context of its own, as the context of the caller may read a
+    // replica which lags behind.
+    private static synchronized FieldCache initCache() throws SQLException
     {
-        if (!isCacheInitialized())
+        if (cache == null)
         {
-            Map<Integer, MetadataField> new_id2field = new HashMap<Integer, MetadataField>();
-            Map<String, MetadataField> new_metadatafieldcache = new HashMap<String, MetadataField>();
             log.info("Loading MetadataField elements into cache.");
-
-            // Grab rows from DB
-            TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataFieldRegistry",
-                    "SELECT * from MetadataFieldRegistry");
-
+            Context primary = new Context();
             try
             {
-                while (tri.hasNext())
-                {
-                    TableRow row = tri.next();
-                    int fieldID = row.getIntColumn("metadata_field_id");
-                    MetadataField metadataField = new MetadataField(row);
-                    new_id2field.put(Integer.valueOf(fieldID), metadataField);
-                    new_metadatafieldcache.put(metadataField.getSchemaID()+"."+metadataField.getElement()+"."+metadataField.getQualifier(), metadataField);
-                }
+                cache = new FieldCache(load(primary));
             }
             finally
             {
-                // close the TableRowIterator to free up resources
-                if (tri != null)
-                {
-                    tri.close();
-                }
+                primary.abort();
             }
+        }
+        return cache;
+    }
+
+    // apply the changes of a context to the shared cache once it has been
+    // committed or aborted, by reading the fields it changed again. They are
+    // read under the lock, so a field changed by two contexts ends up as it
+    // was last committed.
+    private static synchronized void refreshCache(Set<Integer> ids)
+    {
+        if (cache == null)
+        {
+            return;
+        }
 
-            id2field = new_id2field;
-            metadatafieldcache = new_metadatafieldcache;
+        if (ids == null)
+        {
+            cache = null;
+            return;
+        }
+
+        Context primary = null;
+        try
+        {
+            primary = new Context();
+            cache = cache.reread(primary, ids);
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to refresh the MetadataField cache, discarding it", e);
+            cache = null;
+        }
+        finally
+        {
+            if (primary != null)
+            {
+                primary.abort();
+            }
         }
     }
 
+    // read the fields from the database
+    private static List<MetadataField> load(Context context) throws SQLException
+    {
+        List<MetadataField> fields = new ArrayList<MetadataField>();
+
+        // Grab rows from DB
+        TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataFieldRegistry",
+                "SELECT * from MetadataFieldRegistry");
+
+        try
+        {
+            while (tri.hasNext())
+            {
+                fields.add(new MetadataField(tri.next()));
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+        return fields;
+    }
+
+    // read the fields with these IDs from the database
+    private static List<MetadataField> load(Context context, Set<Integer> ids) throws SQLException
+    {
+        List<MetadataField> fields = new ArrayList<MetadataField>();
+        if (ids.isEmpty())
+        {
+            return fields;
+        }
+
+        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataFieldRegistry",
+                "SELECT * FROM MetadataFieldRegistry WHERE metadata_field_id IN ("
+                + ItemContentLoader.placeholders(ids.size()) + ")", ids.toArray());
+        try
+        {
+            while (tri.hasNext())
+            {
+                fields.add(new MetadataField(tri.next()));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return fields;
+    }
+
     /**
      * Return <code>true</code> if <code>other</code> is the same MetadataField
      * as this object, <code>false</code> otherwise
@@ -674,4 +795,71 @@ public class MetadataField
         hash = 47 * hash + this.schemaID;
         return hash;
     }
+
+    /**
+     * An immutable snapshot of the fields, indexed for fast finds. When
+     * fields change, it is replaced by a copy with the changed fields.
+     */
+    private static final class FieldCache
+    {
+        // fields by ID
+        private final Map<Integer, MetadataField> id2field = new HashMap<Integer, MetadataField>();
+
+        // fields by schema ID, element and qualifier (null if none)
+        private final Map<Integer, Map<String, Map<String, MetadataField>>> schema2fields =
+                new HashMap<Integer, Map<String, Map<String, MetadataField>>>();
+
+        FieldCache(Collection<MetadataField> fields)
+        {
+            for (MetadataField field : fields)
+            {
+                id2field.put(field.fieldID, field);
+
+                Map<String, Map<String, MetadataField>> elements = schema2fields.get(field.schemaID);
+                if (elements == null)
+                {
+                    elements = new HashMap<String, Map<String, MetadataField>>();
+                    schema2fields.put(field.schemaID, elements);
+                }
+                Map<String, MetadataField> qualifiers = elements.get(field.element);
+                if (qualifiers == null)
+                {
+                    // most elements have a few qualifiers at most
+                    qualifiers = new HashMap<String, MetadataField>(4);
+                    elements.put(field.element, qualifiers);
+                }
+                qualifiers.put(field.qualifier, field);
+            }
+        }
+
+        /**
+         * @return a copy of this snapshot, in which the fields with the given
+         *         IDs are replaced by the given fields, or removed if there
+         *         is none with their ID. The other fields are built again
+         *         from their rows, which only an update changes, so a field
+         *         changed in memory without being updated is not kept.
+         */
+        FieldCache with(Set<Integer> ids, Collection<MetadataField> fields)
+        {
+            List<MetadataField> copy = new ArrayList<MetadataField>(id2field.size() + fields.size());
+            for (MetadataField field : id2field.values())
+            {
+                if (!ids.contains(field.fieldID))
+                {
+                    copy.add(new MetadataField(field.row));
+                }
+            }
+            copy.addAll(fields);
+            return new FieldCache(copy);
+        }
+
+        /**
+         * @return a copy of this snapshot, with the fields with the given
+         *         IDs read again through the context
+         */
+        FieldCache reread(Context context, Set<Integer> ids) throws SQLException
+        {
+            return with(ids, load(context, ids));
+        }
+    }
 }
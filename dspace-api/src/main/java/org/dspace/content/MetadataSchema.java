@@ -11,10 +11,13 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
@@ -56,11 +59,19 @@ public class MetadataSchema
     private String namespace;
     private String name;
 
-    // cache of schema by ID (Integer)
-    private static Map<Integer, MetadataSchema> id2schema = null;
+    // cache of the schemas, shared by all the threads, or null if it must
+    // be read from the database
+    private static volatile SchemaCache cache = null;
 
-    // cache of schema by short name
-    private static Map<String, MetadataSchema> name2schema = null;
+    // the contexts which have changed the schemas, and the schemas they have
+    // changed, which are read again into the shared cache once they end
+    private static final RegistryEditors editors = new RegistryEditors(new RegistryEditors.Refresh()
+    {
+        public void refresh(Set<Integer> ids)
+        {
+            refreshCache(ids);
+        }
+    });
 
 
     /**
@@ -236,12 +247,12 @@ public class MetadataSchema
         row.setColumn("short_id", name);
         DatabaseManager.insert(context, row);
 
-        // invalidate our fast-find cache.
-        decache();
-
         // Remember the new row number
         this.schemaID = row.getIntColumn("metadata_schema_id");
 
+        // other contexts see the new schema once this one is completed
+        changed(context, false);
+
         log
                 .info(LogManager.getHeader(context, "create_metadata_schema",
                         "metadata_schema_id="
@@ -259,36 +270,7 @@ public class MetadataSchema
     public static MetadataSchema findByNamespace(Context context,
             String namespace) throws SQLException
     {
-        // Grab rows from DB
-        TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataSchemaRegistry",
-                "SELECT * FROM MetadataSchemaRegistry WHERE namespace= ? ", 
-                namespace);
-
-        TableRow row = null;
-        try
-        {
-            if (tri.hasNext())
-            {
-                row = tri.next();
-            }
-        }
-        finally
-        {
-            // close the TableRowIterator to free up resources
-            if (tri != null)
-            {
-                tri.close();
-            }
-        }
-
-        if (row == null)
-        {
-            return null;
-        }
-        else
-        {
-            return new MetadataSchema(row);
-        }
+        return getCache(context).namespace2schema.get(namespace);
     }
 
     /**
@@ -327,7 +309,7 @@ public class MetadataSchema
         row.setColumn("short_id", getName());
         DatabaseManager.update(context, row);
 
-        decache();
+        changed(context, false);
 
         log.info(LogManager.getHeader(context, "update_metadata_schema",
                 "metadata_schema_id=" + getSchemaID() + "namespace="
@@ -354,7 +336,7 @@ public class MetadataSchema
                 "metadata_schema_id=" + getSchemaID()));
 
         DatabaseManager.delete(context, row);
-        decache();
+        changed(context, true);
     }
 
     /**
@@ -511,20 +493,7 @@ public class MetadataSchema
     public static MetadataSchema find(Context context, int id)
             throws SQLException
     {
-        if (!isCacheInitialized())
-        {
-            initCache(context);
-        }
-        
-        Integer iid = Integer.valueOf(id);
-
-        // sanity check
-        if (!id2schema.containsKey(iid))
-        {
-            return null;
-        }
-
-        return id2schema.get(iid);
+        return getCache(context).id2schema.get(id);
     }
 
     /**
@@ -546,65 +515,229 @@ public class MetadataSchema
             return null;
         }
 
-        if (!isCacheInitialized())
+        return getCache(context).name2schema.get(shortName);
+    }
+
+    // get the cache, reading it from the database if needed. Reading it
+    // takes no lock, unless it must be read from the database. A context
+    // which has changed the schemas gets a cache of its own, as the others
+    // must not see its changes before it is completed: the shared cache,
+    // with the schemas it has changed read again through the context.
+    private static SchemaCache getCache(Context context) throws SQLException
+    {
+        if (editors.contains(context))
         {
-            initCache(context);
+            SchemaCache own = (SchemaCache) context.fromCache(SchemaCache.class, 0);
+            if (own == null)
+            {
+                Set<Integer> ids = editors.changedBy(context);
+                own = (ids == null) ? new SchemaCache(load(context))
+                        : getSharedCache().reread(context, ids);
+                context.cache(own, 0);
+            }
+            return own;
         }
 
-        if (!name2schema.containsKey(shortName))
+        return getSharedCache();
+    }
+
+    private static SchemaCache getSharedCache() throws SQLException
+    {
+        SchemaCache current = cache;
+        if (current == null)
         {
-            return null;
+            current = initCache();
+        }
+        return current;
+    }
+
+    // note that a context has created, updated or deleted this schema. The
+    // cache of the context, if it has one, gets the change at once, and the
+    // shared cache once the context is committed or aborted.
+    private void changed(Context context, boolean deleted)
+    {
+        boolean editing = editors.contains(context);
+        editors.add(context, schemaID);
+        SchemaCache own = (SchemaCache) context.fromCache(SchemaCache.class, 0);
+        if (own == null)
+        {
+            return;
         }
 
-        return name2schema.get(shortName);
+        if (editing)
+        {
+            List<MetadataSchema> schemas = deleted ? Collections.<MetadataSchema>emptyList()
+                    : Collections.singletonList(new MetadataSchema(row.copy()));
+            context.cache(own.with(Collections.singleton(schemaID), schemas), 0);
+        }
+        else
+        {
+            // left over from before the context was last committed
+            context.removeCached(own, 0);
+        }
     }
 
-    // invalidate the cache e.g. after something modifies DB state.
-    private static void decache()
+    // load the shared cache if necessary, from the main database: the
+    // context of the caller may be read-only, and read a lagging replica.
+    private static synchronized SchemaCache initCache() throws SQLException
     {
-        id2schema = null;
-        name2schema = null;
+        if (cache == null)
+        {
+            log.info("Loading schema cache for fast finds");
+            Context primary = new Context();
+            try
+            {
+                cache = new SchemaCache(load(primary));
+            }
+            finally
+            {
+                primary.abort();
+            }
+        }
+        return cache;
     }
 
-    private static boolean isCacheInitialized()
+    // read the schemas changed by a context into the shared cache again,
+    // once the context has been committed or aborted. This is done under
+    // the lock, so the last committed state of a schema wins.
+    private static synchronized void refreshCache(Set<Integer> ids)
     {
-        return (id2schema != null && name2schema != null);
+        if (cache == null)
+        {
+            return;
+        }
+
+        if (ids == null)
+        {
+            cache = null;
+            return;
+        }
+
+        Context primary = null;
+        try
+        {
+            primary = new Context();
+            cache = cache.reread(primary, ids);
+        }
+        catch (SQLException e)
+        {
+            log.error("Unable to refresh the schema cache, discarding it", e);
+            cache = null;
+        }
+        finally
+        {
+            if (primary != null)
+            {
+                primary.abort();
+            }
+        }
     }
 
-    // load caches if necessary
-    private static synchronized void initCache(Context context) throws SQLException
+    // read the schemas from the database
+    private static List<MetadataSchema> load(Context context) throws SQLException
     {
-        if (!isCacheInitialized())
+        List<MetadataSchema> schemas = new ArrayList<MetadataSchema>();
+
+        TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataSchemaRegistry",
+                "SELECT * from MetadataSchemaRegistry");
+
+        try
         {
-            log.info("Loading schema cache for fast finds");
-            Map<Integer, MetadataSchema> new_id2schema = new HashMap<Integer, MetadataSchema>();
-            Map<String, MetadataSchema> new_name2schema = new HashMap<String, MetadataSchema>();
+            while (tri.hasNext())
+            {
+                schemas.add(new MetadataSchema(tri.next()));
+            }
+        }
+        finally
+        {
+            // close the TableRowIterator to free up resources
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+        return schemas;
+    }
 
-            TableRowIterator tri = DatabaseManager.queryTable(context,"MetadataSchemaRegistry",
-                    "SELECT * from MetadataSchemaRegistry");
+    // read the schemas with these IDs from the database
+    private static List<MetadataSchema> load(Context context, Set<Integer> ids) throws SQLException
+    {
+        List<MetadataSchema> schemas = new ArrayList<MetadataSchema>();
+        if (ids.isEmpty())
+        {
+            return schemas;
+        }
 
-            try
+        TableRowIterator tri = DatabaseManager.queryTable(context, "MetadataSchemaRegistry",
+                "SELECT * FROM MetadataSchemaRegistry WHERE metadata_schema_id IN ("
+                + ItemContentLoader.placeholders(ids.size()) + ")", ids.toArray());
+        try
+        {
+            while (tri.hasNext())
             {
-                while (tri.hasNext())
-                {
-                    TableRow row = tri.next();
+                schemas.add(new MetadataSchema(tri.next()));
+            }
+        }
+        finally
+        {
+            tri.close();
+        }
+        return schemas;
+    }
 
-                    MetadataSchema s = new MetadataSchema(row);
-                    new_id2schema.put(Integer.valueOf(s.schemaID), s);
-                    new_name2schema.put(s.name, s);
-                }
+    /**
+     * An immutable snapshot of the schemas, indexed for fast finds. When
+     * schemas change, it is replaced by a copy with the changed schemas.
+     */
+    private static final class SchemaCache
+    {
+        // schemas by ID
+        private final Map<Integer, MetadataSchema> id2schema = new HashMap<Integer, MetadataSchema>();
+
+        // schemas by short name
+        private final Map<String, MetadataSchema> name2schema = new HashMap<String, MetadataSchema>();
+
+        // schemas by namespace
+        private final Map<String, MetadataSchema> namespace2schema = new HashMap<String, MetadataSchema>();
+
+        SchemaCache(Collection<MetadataSchema> schemas)
+        {
+            for (MetadataSchema s : schemas)
+            {
+                id2schema.put(s.schemaID, s);
+                name2schema.put(s.name, s);
+                namespace2schema.put(s.namespace, s);
             }
-            finally
+        }
+
+        /**
+         * @return a copy of this snapshot, in which the schemas with the
+         *         given IDs are replaced by the given schemas, or removed if
+         *         there is none with their ID. The other schemas are built
+         *         again from their rows, so a schema renamed in memory
+         *         without being updated is not kept.
+         */
+        SchemaCache with(Set<Integer> ids, Collection<MetadataSchema> schemas)
+        {
+            List<MetadataSchema> copy = new ArrayList<MetadataSchema>(id2schema.size() + schemas.size());
+            for (MetadataSchema s : id2schema.values())
             {
-                // close the TableRowIterator to free up resources
-                if (tri != null)
+                if (!ids.contains(s.schemaID))
                 {
-                    tri.close();
+                    copy.add(new MetadataSchema(s.row));
                 }
             }
+            copy.addAll(schemas);
+            return new SchemaCache(copy);
+        }
 
-            id2schema = new_id2schema;
-            name2schema = new_name2schema;
+        /**
+         * @return a copy of this snapshot, with the schemas with the given
+         *         IDs read again through the context
+         */
+        SchemaCache reread(Context context, Set<Integer> ids) throws SQLException
+        {
+            return with(ids, load(context, ids));
         }
     }
 }
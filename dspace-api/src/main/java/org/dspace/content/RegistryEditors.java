@@ -0,0 +1,162 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.dspace.core.Context;
+
+/**
+ * The contexts which have changed a registry cached in memory, such as the
+ * bitstream format registry, and have not been committed, completed or
+ * aborted yet, with the IDs of the rows each of them has changed. Until they
+ * have, their changes may still be rolled back, so the cache must be
+ * refreshed from the database once they have: the given {@link Refresh} is
+ * run as an end action of each of these contexts (see
+ * {@link Context#addEndAction(Runnable)}). A context garbage collected
+ * without being completed is aborted, so it is run then too.
+ * <P>
+ * Checking whether a context has changed the registry takes no lock unless a
+ * context has.
+ */
+final class RegistryEditors
+{
+    /**
+     * Refreshes the cache of a registry once a context which has changed it
+     * is committed, completed or aborted.
+     */
+    interface Refresh
+    {
+        /**
+         * @param ids
+         *            the IDs of the rows the context has changed, or null if
+         *            they are not known
+         */
+        void refresh(Set<Integer> ids);
+    }
+
+    /**
+     * The contexts, with the IDs of the rows they have changed (null if not
+     * known), which are forgotten if they are garbage collected
+     */
+    private final Map<Context, Set<Integer>> editors = new WeakHashMap<Context, Set<Integer>>();
+
+    /** True if editors may not be empty */
+    private volatile boolean edited = false;
+
+    /** Refreshes the cache of the registry */
+    private final Refresh refresh;
+
+    /**
+     * @param refresh
+     *            refreshes the cache of the registry, once a context which
+     *            has changed it is committed, completed or aborted
+     */
+    RegistryEditors(Refresh refresh)
+    {
+        this.refresh = refresh;
+    }
+
+    /**
+     * Note that a context has changed the registry, without telling which
+     * rows it has changed.
+     *
+     * @param context
+     *            DSpace context object
+     */
+    void add(Context context)
+    {
+        add(context, null);
+    }
+
+    /**
+     * Note that a context has changed a row of the registry.
+     *
+     * @param context
+     *            DSpace context object
+     * @param id
+     *            ID of the row created, updated or deleted, or null if not
+     *            known
+     */
+    void add(final Context context, Integer id)
+    {
+        synchronized (editors)
+        {
+            boolean added = !editors.containsKey(context);
+            Set<Integer> ids = added ? new HashSet<Integer>() : editors.get(context);
+            if (ids != null)
+            {
+                if (id == null)
+                {
+                    ids = null;
+                }
+                else
+                {
+                    ids.add(id);
+                }
+            }
+            editors.put(context, ids);
+            edited = true;
+            if (!added)
+            {
+                return;
+            }
+        }
+
+        context.addEndAction(new Runnable()
+        {
+            public void run()
+            {
+                Set<Integer> ids;
+                synchronized (editors)
+                {
+                    ids = editors.remove(context);
+                    edited = !editors.isEmpty();
+                }
+                refresh.refresh(ids);
+            }
+        });
+    }
+
+    /**
+     * @param context
+     *            DSpace context object
+     * @return the IDs of the rows the context has changed since it was last
+     *         committed, or null if they are not known
+     */
+    Set<Integer> changedBy(Context context)
+    {
+        synchronized (editors)
+        {
+            Set<Integer> ids = editors.get(context);
+            return ids == null ? null : new HashSet<Integer>(ids);
+        }
+    }
+
+    /**
+     * @param context
+     *            DSpace context object
+     * @return true if the context has changed the registry and has not been
+     *         committed, completed or aborted yet
+     */
+    boolean contains(Context context)
+    {
+        if (!edited)
+        {
+            return false;
+        }
+
+        synchronized (editors)
+        {
+            return editors.containsKey(context);
+        }
+    }
+}
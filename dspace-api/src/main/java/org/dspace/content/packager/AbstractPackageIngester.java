@@ -11,10 +11,16 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 
@@ -26,6 +32,7 @@ import org.dspace.content.crosswalk.CrosswalkException;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
+import org.dspace.eperson.EPerson;
 import org.dspace.handle.HandleManager;
 
 /**
@@ -79,7 +86,7 @@ public abstract class AbstractPackageIngester
      * The key is the package file (which was used to create the object),
      * and the value is the Identifier (i.e. Handle) of the DSpaceObject created/replaced.
      **/
-    private Map<File, String> pkgIngestedMap = new LinkedHashMap<File, String>();
+    private Map<File, String> pkgIngestedMap = Collections.synchronizedMap(new LinkedHashMap<File, String>());
 
     /**
      * Recursively create one or more DSpace Objects out of the contents
@@ -180,7 +187,13 @@ public abstract class AbstractPackageIngester
                 
                 //we can only recursively ingest child packages
                 //if we have references to them 
-                if(childPkgRefs!=null && !childPkgRefs.isEmpty())
+                if(childPkgRefs!=null && !childPkgRefs.isEmpty()
+                        && Constants.COLLECTION == dso.getType() && params.getIngestThreads() > 1)
+                {
+                    // Items of a Collection can be ingested concurrently
+                    processItemsInParallel(context, (Collection) dso, pkgFile, childPkgRefs, params, license, false);
+                }
+                else if(childPkgRefs!=null && !childPkgRefs.isEmpty())
                 {
                     //Recursively ingest each child package, using this current object as the parent DSpace Object
                     for(String childPkgRef : childPkgRefs)
@@ -305,7 +318,13 @@ public abstract class AbstractPackageIngester
 
                 //we can only recursively ingest child packages
                 //if we have references to them
-                if(childPkgRefs!=null && !childPkgRefs.isEmpty())
+                if(childPkgRefs!=null && !childPkgRefs.isEmpty()
+                        && Constants.COLLECTION == replacedDso.getType() && params.getIngestThreads() > 1)
+                {
+                    // Items of a Collection can be replaced concurrently
+                    processItemsInParallel(context, (Collection) replacedDso, pkgFile, childPkgRefs, params, null, true);
+                }
+                else if(childPkgRefs!=null && !childPkgRefs.isEmpty())
                 {
                     //Recursively replace each child package
                     for(String childPkgRef : childPkgRefs)
@@ -347,7 +366,155 @@ public abstract class AbstractPackageIngester
         return getIngestedList();
     }
 
-   
+
+    /**
+     * Ingest (or replace) the child packages of a Collection concurrently,
+     * using <code>params.getIngestThreads()</code> threads. Each child
+     * package is processed by a new instance of this ingester, using its own
+     * Context, and committed on its own. The Collection is committed first,
+     * so that it is visible to these Contexts.
+     * <P>
+     * Afterwards all Items are mapped to the Collection, as the sequential
+     * ingestAll() and replaceAll() do.
+     *
+     * @param context DSpace context of the Collection
+     * @param collection the Collection just ingested/replaced
+     * @param pkgFile the package of the Collection
+     * @param childPkgRefs references to the child packages
+     * @param params Packager parameters
+     * @param license may be null, only used when ingesting
+     * @param replace true to call replaceAll(), false to call ingestAll()
+     */
+    protected void processItemsInParallel(Context context, Collection collection, File pkgFile,
+                                          List<String> childPkgRefs, final PackageParameters params,
+                                          final String license, final boolean replace)
+        throws PackageException, CrosswalkException, AuthorizeException,
+               SQLException, IOException
+    {
+        // the Contexts of the threads must see the Collection
+        context.commit();
+
+        final int epersonID = context.getCurrentUser() != null ? context.getCurrentUser().getID() : -1;
+        final boolean ignoreAuth = context.ignoreAuthorization();
+
+        List<File> childPkgs = new ArrayList<File>(childPkgRefs.size());
+        List<Future<Void>> results = new ArrayList<Future<Void>>(childPkgRefs.size());
+        ExecutorService executor = Executors.newFixedThreadPool(params.getIngestThreads());
+        try
+        {
+            for(String childPkgRef : childPkgRefs)
+            {
+                //Assume package reference is relative to current (parent) package location
+                final File childPkg = new File(pkgFile.getAbsoluteFile().getParent(), childPkgRef);
+                childPkgs.add(childPkg);
+                results.add(executor.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        Context childContext = new Context();
+                        try
+                        {
+                            if (epersonID >= 0)
+                            {
+                                childContext.setCurrentUser(EPerson.find(childContext, epersonID));
+                            }
+                            if (ignoreAuth)
+                            {
+                                childContext.turnOffAuthorisationSystem();
+                            }
+
+                            // the ingesters keep state per package, so each
+                            // thread needs its own instance
+                            AbstractPackageIngester ingester = AbstractPackageIngester.this.getClass().newInstance();
+                            ingester.pkgIngestedMap = pkgIngestedMap;
+                            PackageParameters childParams = new PackageParameters();
+                            childParams.putAll(params);
+
+                            if (replace)
+                            {
+                                ingester.replaceAll(childContext, null, childPkg, childParams);
+                            }
+                            else
+                            {
+                                ingester.ingestAll(childContext, null, childPkg, childParams, license);
+                            }
+                            childContext.complete();
+                            return null;
+                        }
+                        finally
+                        {
+                            if (childContext.isValid())
+                            {
+                                childContext.abort();
+                            }
+                        }
+                    }
+                }));
+            }
+
+            for (Future<Void> result : results)
+            {
+                result.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new PackageException(e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof PackageException)
+            {
+                throw (PackageException) cause;
+            }
+            if (cause instanceof CrosswalkException)
+            {
+                throw (CrosswalkException) cause;
+            }
+            if (cause instanceof AuthorizeException)
+            {
+                throw (AuthorizeException) cause;
+            }
+            if (cause instanceof SQLException)
+            {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new PackageException(cause);
+        }
+        finally
+        {
+            // don't start any further packages after an error
+            executor.shutdownNow();
+        }
+
+        // A Collection can map to Items that it does not "own".
+        // If a Collection package has an Item as a child, it
+        // should be mapped regardless of ownership.
+        for (File childPkg : childPkgs)
+        {
+            String childHandle = getIngestedMap().get(childPkg);
+            if(childHandle!=null)
+            {
+                Item childItem = (Item) HandleManager.resolveToObject(context, childHandle);
+                if (childItem!=null && !childItem.isIn(collection))
+                {
+                    collection.addItem(childItem);
+                }
+            }
+        }
+    }
+
     /**
      * During ingestion process, some submission information packages (SIPs)
      * may reference other packages to be ingested (recursively).
@@ -444,11 +611,9 @@ public abstract class AbstractPackageIngester
     {
         // We have the list of ingested objects in our IngestedMap.
         // So, we simply have to convert that Collection to a List
-        java.util.Collection<String> coll = pkgIngestedMap.values();
-        
-        if(coll instanceof List)
-            return (List) coll;
-        else
-            return new ArrayList(coll);
+        synchronized (pkgIngestedMap)
+        {
+            return new ArrayList<String>(pkgIngestedMap.values());
+        }
     }   
 }
@@ -15,10 +15,17 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
+import org.apache.xerces.parsers.XMLGrammarPreparser;
+import org.apache.xerces.util.XMLGrammarPoolImpl;
+import org.apache.xerces.xni.grammars.XMLGrammarDescription;
+import org.apache.xerces.xni.grammars.XMLGrammarPool;
+import org.apache.xerces.xni.parser.XMLInputSource;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
@@ -167,6 +174,16 @@ public class METSManifest
     // Create list of local schemas at load time, since it depends only
     // on the DSpace configuration.
     private static String localSchemas;
+
+    // Namespace and URL of each local schema, first entry per namespace only
+    private static Map<String, String> localSchemaURLs = new LinkedHashMap<String, String>();
+
+    // Xerces property to share parsed schemas between parsers
+    private static final String GRAMMAR_POOL_PROPERTY = "http://apache.org/xml/properties/internal/grammar-pool";
+
+    // Parsed schemas, shared by all validating parsers, see getGrammarPool()
+    private static XMLGrammarPool grammarPool = null;
+
     static
     {
         String dspace_dir = ConfigurationManager.getProperty("dspace.dir");
@@ -208,6 +225,10 @@ public class METSManifest
                                 result.append(" ");
                             }
                             result.append(val[0]).append(" ").append(u);
+                            if (!localSchemaURLs.containsKey(val[0]))
+                            {
+                                localSchemaURLs.put(val[0], u);
+                            }
                         }
                         catch (java.net.MalformedURLException e)
                         {
@@ -228,6 +249,48 @@ public class METSManifest
         }
     }
 
+    /**
+     * Returns the pool of parsed XML schemas used for validation. It is
+     * created on first use, with all local schemas parsed in advance. Any
+     * other schema is added once it has been loaded for the first
+     * manifest that refers to it, so it is not loaded and parsed again for
+     * every manifest. As with the local schemas, the first schema parsed
+     * for a namespace is used for all later manifests.
+     * <P>
+     * The pool is thread safe, it may be used by parsers in several threads.
+     *
+     * @return the grammar pool, or null if it could not be created
+     */
+    private static synchronized XMLGrammarPool getGrammarPool()
+    {
+        if (grammarPool == null)
+        {
+            XMLGrammarPool pool = new XMLGrammarPoolImpl();
+            XMLGrammarPreparser preparser = new XMLGrammarPreparser();
+            preparser.registerPreparser(XMLGrammarDescription.XML_SCHEMA, null);
+            preparser.setProperty(GRAMMAR_POOL_PROPERTY, pool);
+            preparser.setFeature("http://xml.org/sax/features/namespaces", true);
+            preparser.setFeature("http://apache.org/xml/features/validation/schema", true);
+
+            for (Map.Entry<String, String> schema : localSchemaURLs.entrySet())
+            {
+                try
+                {
+                    preparser.preparseGrammar(XMLGrammarDescription.XML_SCHEMA,
+                            new XMLInputSource(null, schema.getValue(), null));
+                }
+                catch (Exception e)
+                {
+                    // it will be parsed when a manifest needs it
+                    log.warn("Unable to pre-parse schema " + schema.getValue()
+                            + " for namespace " + schema.getKey() + ": " + e.toString());
+                }
+            }
+            grammarPool = pool;
+        }
+        return grammarPool;
+    }
+
     /**
      * Default constructor, only called internally.
      * @param builder XML parser (for parsing mdRef'd files and binData)
@@ -255,16 +318,23 @@ public class METSManifest
             throws IOException,
             MetadataValidationException
     {
-        SAXBuilder builder = new SAXBuilder(validate);
-
-        builder.setIgnoringElementContentWhitespace(true);
+        SAXBuilder builder;
 
         // Set validation feature
         if (validate)
         {
+            // use Xerces directly, to share the parsed schemas
+            builder = new SAXBuilder("org.apache.xerces.parsers.SAXParser", true);
             builder.setFeature("http://apache.org/xml/features/validation/schema", true);
+            builder.setProperty(GRAMMAR_POOL_PROPERTY, getGrammarPool());
+        }
+        else
+        {
+            builder = new SAXBuilder(false);
         }
 
+        builder.setIgnoringElementContentWhitespace(true);
+
         // Tell the parser where local copies of schemas are, to speed up
         // validation.  Local XSDs are identified in the configuration file.
         if (localSchemas.length() > 0)
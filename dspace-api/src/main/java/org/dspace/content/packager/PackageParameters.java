@@ -337,5 +337,38 @@ public class PackageParameters extends Properties
         addProperty("recursiveMode", String.valueOf(value));
     }
 
+    /***
+     * Utility method to get the number of threads used to ingest (or
+     * replace) the Items of a Collection in recursive mode.
+     * <p>
+     * With more than one thread, the Collection is committed before its
+     * Items are ingested, and each Item is committed on its own. So an
+     * error no longer rolls back everything ingested so far.
+     * <p>
+     * Defaults to 1 if previously unset.
+     *
+     * @return number of threads
+     */
+    public int getIngestThreads()
+    {
+        String stringValue = getProperty("ingestThreads");
+        if (stringValue == null)
+        {
+            return 1;
+        }
+        return Math.max(1, Integer.parseInt(stringValue.trim()));
+    }
+
+    /***
+     * Utility method to set the number of threads used to ingest (or
+     * replace) the Items of a Collection in recursive mode.
+     *
+     * @param value number of threads
+     */
+    public void setIngestThreads(int value)
+    {
+        setProperty("ingestThreads", String.valueOf(value));
+    }
+
 
 }
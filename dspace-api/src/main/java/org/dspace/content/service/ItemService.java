@@ -14,10 +14,16 @@ import org.dspace.content.Item;
 import org.dspace.content.dao.ItemDAO;
 import org.dspace.content.dao.ItemDAOFactory;
 import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.ItemContentLoader;
 import org.dspace.content.Thumbnail;
 import org.dspace.core.Context;
 
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class ItemService
 {
@@ -56,6 +62,99 @@ public class ItemService
         return null;
     }
 
+    /**
+     * Get the thumbnails of several items at once, as getThumbnail does for
+     * one item. The bundles of all the items are loaded in a few queries,
+     * rather than a few queries for each item.
+     *
+     * @param context DSpace context object
+     * @param itemIds the IDs of the items
+     * @param requireOriginal whether the original bitstream is needed when the items have no primary bitstream
+     * @return the thumbnails by item ID; items without a thumbnail are left out
+     */
+    public static Map<Integer, Thumbnail> getThumbnails(Context context, Collection<Integer> itemIds, boolean requireOriginal) throws SQLException
+    {
+        Map<Integer, Thumbnail> thumbnails = new HashMap<Integer, Thumbnail>();
+        for (Map.Entry<Integer, List<Bundle>> itemBundles : ItemContentLoader.loadBundles(context, itemIds).entrySet())
+        {
+            Thumbnail thumbnail = getThumbnail(context, itemBundles.getValue(), requireOriginal);
+            if (thumbnail != null)
+            {
+                thumbnails.put(itemBundles.getKey(), thumbnail);
+            }
+        }
+        return thumbnails;
+    }
+
+    private static Thumbnail getThumbnail(Context context, List<Bundle> bundles, boolean requireOriginal) throws SQLException
+    {
+        Bitstream thumbBitstream = null;
+        Bitstream primaryBitstream = null;
+        Bundle original = getFirstBundle(bundles, "ORIGINAL");
+        if (original != null && original.getPrimaryBitstreamID() > 0)
+        {
+            primaryBitstream = Bitstream.find(context, original.getPrimaryBitstreamID());
+        }
+
+        if (primaryBitstream != null)
+        {
+            if (primaryBitstream.getFormat().getMIMEType().equals("text/html"))
+            {
+                return null;
+            }
+
+            String thumbName = primaryBitstream.getName() + ".jpg";
+            for (Bundle bundle : bundles)
+            {
+                if ("THUMBNAIL".equals(bundle.getName()) && bundle.getBitstreamByName(thumbName) != null)
+                {
+                    thumbBitstream = bundle.getBitstreamByName(thumbName);
+                    break;
+                }
+            }
+        }
+        else
+        {
+            if (requireOriginal)
+            {
+                primaryBitstream = getFirstBitstream(bundles, "ORIGINAL");
+            }
+
+            thumbBitstream   = getFirstBitstream(bundles, "THUMBNAIL");
+        }
+
+        if (thumbBitstream != null)
+        {
+            return new Thumbnail(thumbBitstream, primaryBitstream);
+        }
+
+        return null;
+    }
+
+    private static Bundle getFirstBundle(List<Bundle> bundles, String bundleName)
+    {
+        for (Bundle bundle : bundles)
+        {
+            if (bundleName.equals(bundle.getName()))
+            {
+                return bundle;
+            }
+        }
+        return null;
+    }
+
+    private static Bitstream getFirstBitstream(List<Bundle> bundles, String bundleName)
+    {
+        for (Bundle bundle : bundles)
+        {
+            if (bundleName.equals(bundle.getName()) && bundle.getBitstreams().length > 0)
+            {
+                return bundle.getBitstreams()[0];
+            }
+        }
+        return null;
+    }
+
     public static String getFirstMetadataValue(Item item, String metadataKey) {
         Metadatum[] dcValue = item.getMetadataByMetadataString(metadataKey);
         if(dcValue.length > 0) {
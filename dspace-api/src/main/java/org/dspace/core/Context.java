@@ -25,6 +25,12 @@ import org.springframework.util.CollectionUtils;
  * information such as the current authenticated user and the database
  * connection being used.
  * <P>
+ * The database connection is only borrowed from the pool when it is first
+ * asked for, so that a context which never uses the database (e.g. because
+ * what it serves is cached) does not hold a connection. The connection of a
+ * read-only context is borrowed from the read-only pool, if one is
+ * configured (see {@link DatabaseManager#getReadOnlyConnection()}).
+ * <P>
  * Typical use of the context object will involve constructing one, and setting
  * the current user if one is authenticated. Several operations may be performed
  * using the context object. If all goes well, <code>complete</code> is called
@@ -44,9 +50,18 @@ public class Context
     /** option flags */
     public static final short READ_ONLY = 0x01;
 
-    /** Database connection */
+    /** Database connection, null until it is first used */
     private Connection connection;
 
+    /** Whether the context has not been completed or aborted yet */
+    private boolean valid;
+
+    /** When the connection was borrowed, as of System.nanoTime() */
+    private long connectionBorrowed;
+
+    /** Time the connection has been held for, in nanoseconds */
+    private long connectionHoldTime;
+
     /** Current user - null means anonymous access */
     private EPerson currentUser;
 
@@ -83,9 +98,12 @@ public class Context
     /** options */
     private short options = 0;
 
+    /** Actions to run once the context is completed or aborted */
+    private List<Runnable> endActions = null;
+
     /**
-     * Construct a new context object with default options. A database connection is opened.
-     * No user is authenticated.
+     * Construct a new context object with default options. A database connection is
+     * opened when first used. No user is authenticated.
      * 
      * @exception SQLException
      *                if there was an error obtaining a database connection
@@ -96,8 +114,8 @@ public class Context
     }
 
     /**
-     * Construct a new context object with passed options. A database connection is opened.
-     * No user is authenticated.
+     * Construct a new context object with passed options. A database connection is
+     * opened when first used. No user is authenticated.
      * 
      * @param options   context operation flags
      * @exception SQLException
@@ -117,9 +135,7 @@ public class Context
      */
     private void init() throws SQLException
     {
-        // Obtain a non-auto-committing connection
-        connection = DatabaseManager.getConnection();
-        connection.setAutoCommit(false);
+        valid = true;
 
         currentUser = null;
         currentLocale = I18nUtil.DEFAULTLOCALE;
@@ -134,15 +150,64 @@ public class Context
     }
 
     /**
-     * Get the database connection associated with the context
+     * Get the database connection associated with the context, borrowing it
+     * from the pool if this is the first time it is used.
      * 
-     * @return the database connection
+     * @return the database connection, or <code>null</code> if the context
+     *         is no longer valid
+     * @exception SQLException
+     *                if there was an error obtaining a database connection
      */
-    public Connection getDBConnection()
+    public Connection getDBConnection() throws SQLException
     {
+        if (connection == null && valid)
+        {
+            // Obtain a non-auto-committing connection
+            Connection newConnection = isReadOnly() ? DatabaseManager.getReadOnlyConnection()
+                    : DatabaseManager.getConnection();
+            try
+            {
+                newConnection.setAutoCommit(false);
+            }
+            catch (SQLException e)
+            {
+                DatabaseManager.freeConnection(newConnection);
+                throw e;
+            }
+            connection = newConnection;
+            connectionBorrowed = System.nanoTime();
+        }
+
         return connection;
     }
 
+    /**
+     * Find out if the database connection of this context has been borrowed
+     * from the pool, and not freed yet.
+     *
+     * @return <code>true</code> if the context holds a database connection
+     */
+    public boolean hasDBConnection()
+    {
+        return (connection != null);
+    }
+
+    /**
+     * Get the time the database connection of this context has been held
+     * for, including the time it is still being held for, if it still is.
+     * 
+     * @return the time, in milliseconds
+     */
+    public long getConnectionHoldTime()
+    {
+        long holdTime = connectionHoldTime;
+        if (connection != null)
+        {
+            holdTime += System.nanoTime() - connectionBorrowed;
+        }
+        return holdTime / 1000000;
+    }
+
     /**
      * Set the current user. Authentication must have been performed by the
      * caller - this call does not attempt any authentication.
@@ -340,9 +405,9 @@ public class Context
         {
             // Free the DB connection
             // If connection is closed or null, this is a no-op
-            DatabaseManager.freeConnection(connection);
-            connection = null;
+            freeConnection();
             clearCache();
+            runEndActions();
         }
     }
 
@@ -386,12 +451,12 @@ public class Context
                 }
 
                 dispatcher = EventManager.getDispatcher(dispName);
-                connection.commit();
+                commitConnection();
                 dispatcher.dispatch(this);
             }
             else
             {
-                connection.commit();
+                commitConnection();
             }
 
         }
@@ -404,6 +469,7 @@ public class Context
             }
         }
 
+        runEndActions();
     }
 
     /**
@@ -492,7 +558,7 @@ public class Context
         try
         {
             // Rollback if we have a database connection, and it is NOT Read Only
-            if (isValid() && !connection.isClosed() && !isReadOnly())
+            if (isValid() && connection != null && !connection.isClosed() && !isReadOnly())
             {
                 connection.rollback();
             }
@@ -507,15 +573,91 @@ public class Context
             {
                 // Free the DB connection
                 // If connection is closed or null, this is a no-op
-                DatabaseManager.freeConnection(connection);
+                freeConnection();
             }
             catch (Exception ex)
             {
                 log.error("Exception aborting context", ex);
             }
-            connection = null;
             events = null;
             clearCache();
+            runEndActions();
+        }
+    }
+
+    /**
+     * Add an action to run once the current transaction of this context
+     * ends, i.e. once it is committed, completed or aborted, e.g. to discard
+     * a cache of rows which the context has changed, as other contexts may
+     * only see the changes from then on. The action is also run if the
+     * context is aborted when garbage collected.
+     *
+     * @param action
+     *            the action to run
+     */
+    public void addEndAction(Runnable action)
+    {
+        if (endActions == null)
+        {
+            endActions = new ArrayList<Runnable>();
+        }
+        endActions.add(action);
+    }
+
+    /**
+     * Run the end actions, once.
+     */
+    private void runEndActions()
+    {
+        if (endActions == null)
+        {
+            return;
+        }
+
+        List<Runnable> actions = endActions;
+        endActions = null;
+        for (Runnable action : actions)
+        {
+            try
+            {
+                action.run();
+            }
+            catch (RuntimeException e)
+            {
+                log.error("Exception running end action of context", e);
+            }
+        }
+    }
+
+    /**
+     * Commit the database connection, if it has been borrowed: if not,
+     * nothing has been written.
+     */
+    private void commitConnection() throws SQLException
+    {
+        if (connection != null)
+        {
+            connection.commit();
+        }
+    }
+
+    /**
+     * Free the database connection, if it has been borrowed, and invalidate
+     * the context.
+     */
+    private void freeConnection()
+    {
+        valid = false;
+        if (connection != null)
+        {
+            DatabaseManager.freeConnection(connection);
+            connection = null;
+            connectionHoldTime += System.nanoTime() - connectionBorrowed;
+            if (log.isDebugEnabled())
+            {
+                log.debug(LogManager.getHeader(this, "free_connection",
+                        "held_ms=" + getConnectionHoldTime()));
+            }
         }
     }
 
@@ -529,8 +671,8 @@ public class Context
      */
     public boolean isValid()
     {
-        // Only return true if our DB connection is live
-        return (connection != null);
+        // The DB connection may not have been borrowed yet
+        return valid;
     }
 
     /**
@@ -671,7 +813,7 @@ public class Context
          * If a context is garbage-collected, we roll back and free up the
          * database connection if there is one.
          */
-        if (connection != null)
+        if (isValid())
         {
             abort();
         }
@@ -235,6 +235,22 @@ public class Email
      * @throws IOException 
      */
     public void send() throws MessagingException, IOException
+    {
+        send(null);
+    }
+
+    /**
+     * Queues the email for delivery by the given sender, which reuses its
+     * connection to the mail server for many emails and retries failed
+     * deliveries. Delivery errors are logged by the sender, not thrown.
+     *
+     * @param sender
+     *            the sender to deliver the email, or null to send it now
+     * @throws MessagingException
+     *             if there was a problem creating or queueing the mail.
+     * @throws IOException 
+     */
+    public void send(QueuedEmailSender sender) throws MessagingException, IOException
     {
         // Get the mail configuration properties
         String from = ConfigurationManager.getProperty("mail.from.address");
@@ -247,8 +263,16 @@ public class Email
         }
 
         // Get session
-        Session session = new DSpace().getServiceManager().
-                getServicesByType(EmailService.class).get(0).getSession();
+        Session session;
+        if (sender != null)
+        {
+            session = sender.getSession();
+        }
+        else
+        {
+            session = new DSpace().getServiceManager().
+                    getServicesByType(EmailService.class).get(0).getSession();
+        }
 
         // Create message
         MimeMessage message = new MimeMessage(session);
@@ -355,6 +379,8 @@ public class Email
 
             log.info(text);
         }
+        else if (sender != null)
+            sender.send(message);
         else
             Transport.send(message);
     }
@@ -0,0 +1,270 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Session;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import org.apache.log4j.Logger;
+import org.dspace.services.EmailService;
+import org.dspace.utils.DSpace;
+
+/**
+ * Delivers many emails through a queue, for batch jobs like the subscription
+ * mailer. {@link Email#send(QueuedEmailSender)} adds a message to the queue
+ * and returns at once; a few sender threads deliver the queued messages, each
+ * keeping its SMTP connection open for the following messages instead of
+ * opening a new connection per message as {@link Email#send()} does.
+ * <p>
+ * A delivery that fails is retried on a new connection after a delay, which
+ * grows with every attempt. Messages with addresses the server rejected are
+ * not retried.
+ * </p>
+ * Call {@link #close()} to wait until all queued messages are delivered and
+ * to close the connections.
+ */
+public class QueuedEmailSender
+{
+    private static final Logger log = Logger.getLogger(QueuedEmailSender.class);
+
+    private final Session session;
+    private final int maxRetries;
+    private final long retryDelay;
+    private final BlockingQueue<MimeMessage> queue;
+    private final Thread[] senders;
+
+    private final AtomicInteger sent = new AtomicInteger(0);
+    private final AtomicInteger failed = new AtomicInteger(0);
+
+    private volatile boolean closed = false;
+
+    /**
+     * Create a sender using the configured mail session and the settings
+     * mail.queue.threads (default 1), mail.queue.size (default 1000),
+     * mail.queue.retries (default 3) and mail.queue.retry.delay (in
+     * milliseconds, default 5000).
+     */
+    public QueuedEmailSender()
+    {
+        this(new DSpace().getServiceManager().getServicesByType(EmailService.class).get(0).getSession(),
+                ConfigurationManager.getIntProperty("mail.queue.threads", 1),
+                ConfigurationManager.getIntProperty("mail.queue.size", 1000),
+                ConfigurationManager.getIntProperty("mail.queue.retries", 3),
+                ConfigurationManager.getLongProperty("mail.queue.retry.delay", 5000));
+    }
+
+    /**
+     * @param session    mail session to deliver the messages with
+     * @param threads    number of sender threads, each with its own connection
+     * @param queueSize  maximum number of queued messages; adding a message to
+     *                   a full queue waits until there is room again
+     * @param maxRetries number of times a failed delivery is retried
+     * @param retryDelay delay in milliseconds before the first retry
+     */
+    public QueuedEmailSender(Session session, int threads, int queueSize, int maxRetries, long retryDelay)
+    {
+        this.session = session;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelay = Math.max(0, retryDelay);
+        this.queue = new ArrayBlockingQueue<MimeMessage>(Math.max(1, queueSize));
+        this.senders = new Thread[Math.max(1, threads)];
+        for (int i = 0; i < senders.length; i++)
+        {
+            senders[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    deliverQueued();
+                }
+            }, "QueuedEmailSender-" + i);
+            senders[i].setDaemon(true);
+            senders[i].start();
+        }
+    }
+
+    /**
+     * @return the session messages for this sender must be created with
+     */
+    public Session getSession()
+    {
+        return session;
+    }
+
+    /**
+     * Add a message to the queue, waiting for room if the queue is full.
+     *
+     * @param message the message to deliver
+     * @throws MessagingException if the sender was closed already or the
+     *         current thread was interrupted while waiting
+     */
+    public void send(MimeMessage message) throws MessagingException
+    {
+        if (closed)
+        {
+            throw new MessagingException("The sender has been closed already.");
+        }
+        try
+        {
+            queue.put(message);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while queueing a message.", e);
+        }
+    }
+
+    /**
+     * Wait until all queued messages are delivered (or given up) and close the
+     * connections. No messages can be added afterwards.
+     */
+    public void close()
+    {
+        closed = true;
+        for (Thread sender : senders)
+        {
+            try
+            {
+                sender.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("Delivered " + sent.get() + " queued emails, " + failed.get() + " failed.");
+    }
+
+    /**
+     * @return the number of messages delivered so far
+     */
+    public int getSentCount()
+    {
+        return sent.get();
+    }
+
+    /**
+     * @return the number of messages that could not be delivered so far
+     */
+    public int getFailedCount()
+    {
+        return failed.get();
+    }
+
+    private void deliverQueued()
+    {
+        Transport transport = null;
+        try
+        {
+            while (true)
+            {
+                MimeMessage message = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (message == null)
+                {
+                    if (closed && queue.isEmpty())
+                    {
+                        return;
+                    }
+                    continue;
+                }
+                transport = deliver(transport, message);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            closeQuietly(transport);
+        }
+    }
+
+    /**
+     * Deliver one message, retrying on a new connection if necessary.
+     *
+     * @return the connection to use for the next message, may be null
+     */
+    private Transport deliver(Transport transport, MimeMessage message) throws InterruptedException
+    {
+        for (int attempt = 0; ; attempt++)
+        {
+            try
+            {
+                if (transport == null || !transport.isConnected())
+                {
+                    closeQuietly(transport);
+                    transport = session.getTransport("smtp");
+                    transport.connect();
+                }
+                message.saveChanges();
+                transport.sendMessage(message, message.getAllRecipients());
+                sent.incrementAndGet();
+                return transport;
+            }
+            catch (SendFailedException e)
+            {
+                // The server rejected (some of) the addresses, trying again won't help
+                failed.incrementAndGet();
+                log.error("Failed to send email to " + getRecipients(message), e);
+                return transport;
+            }
+            catch (MessagingException e)
+            {
+                closeQuietly(transport);
+                transport = null;
+                if (attempt >= maxRetries)
+                {
+                    failed.incrementAndGet();
+                    log.error("Failed to send email to " + getRecipients(message)
+                            + " after " + (attempt + 1) + " attempts", e);
+                    return null;
+                }
+                log.warn("Failed to send email to " + getRecipients(message)
+                        + ", retrying: " + e.getMessage());
+                Thread.sleep(retryDelay * (attempt + 1));
+            }
+        }
+    }
+
+    private static String getRecipients(MimeMessage message)
+    {
+        try
+        {
+            return Arrays.toString(message.getAllRecipients());
+        }
+        catch (MessagingException e)
+        {
+            return "unknown recipients";
+        }
+    }
+
+    private static void closeQuietly(Transport transport)
+    {
+        if (transport != null)
+        {
+            try
+            {
+                transport.close();
+            }
+            catch (MessagingException e)
+            {
+                log.debug("Error while closing the mail connection", e);
+            }
+        }
+    }
+}
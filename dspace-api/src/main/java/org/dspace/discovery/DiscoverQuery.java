@@ -49,6 +49,9 @@ public class DiscoverQuery {
     /** Misc attributes can be implementation dependent **/
     private Map<String, List<String>> properties;
 
+    /** Return read-only views of the hits built from the index, instead of DSpace objects **/
+    private boolean projection;
+
     public DiscoverQuery() {
         //Initialize all our lists
         this.filterQueries = new ArrayList<String>();
@@ -273,4 +276,18 @@ public class DiscoverQuery {
     public void setSpellCheck(boolean spellCheck) {
         this.spellCheck = spellCheck;
     }
+
+    public boolean isProjection() {
+        return projection;
+    }
+
+    /**
+     * Return the hits as read-only views built from the fields stored in the
+     * index (see DiscoverResult.getDSpaceObjectViews()) instead of loading
+     * the DSpace objects from the database.
+     * @param projection whether to return views of the hits
+     */
+    public void setProjection(boolean projection) {
+        this.projection = projection;
+    }
 }
@@ -21,6 +21,7 @@ public class DiscoverResult {
     private long totalSearchResults;
     private int start;
     private List<DSpaceObject> dspaceObjects;
+    private List<DSpaceObjectView> dspaceObjectViews;
     private Map<String, List<FacetResult>> facetResults;
     /** A map that contains all the documents sougth after, the key is a string representation of the DSpace object */
     private Map<String, List<SearchDocument>> searchDocuments;
@@ -32,6 +33,7 @@ public class DiscoverResult {
 
     public DiscoverResult() {
         dspaceObjects = new ArrayList<DSpaceObject>();
+        dspaceObjectViews = new ArrayList<DSpaceObjectView>();
         facetResults = new LinkedHashMap<String, List<FacetResult>>();
         searchDocuments = new LinkedHashMap<String, List<SearchDocument>>();
         highlightedResults = new HashMap<String, DSpaceObjectHighlightResult>();
@@ -46,6 +48,20 @@ public class DiscoverResult {
         return dspaceObjects;
     }
 
+    public void addDSpaceObjectView(DSpaceObjectView view){
+        this.dspaceObjectViews.add(view);
+    }
+
+    /**
+     * Returns the views of the hits, if the query asked for a projection
+     * (see DiscoverQuery.setProjection()). The DSpace objects are not
+     * returned then.
+     * @return the views of the hits
+     */
+    public List<DSpaceObjectView> getDSpaceObjectViews() {
+        return dspaceObjectViews;
+    }
+
     public long getTotalSearchResults() {
         return totalSearchResults;
     }
@@ -108,6 +124,16 @@ public class DiscoverResult {
         this.highlightedResults.put(dso.getHandle(), highlightedResult);
     }
 
+    public DSpaceObjectHighlightResult getHighlightedResults(DSpaceObjectView view)
+    {
+        return highlightedResults.get(view.getHandle());
+    }
+
+    public void addHighlightedResult(DSpaceObjectView view, DSpaceObjectHighlightResult highlightedResult)
+    {
+        this.highlightedResults.put(view.getHandle(), highlightedResult);
+    }
+
     public static final class FacetResult{
         private String asFilterQuery;
         private String displayedValue;
@@ -170,6 +196,10 @@ public class DiscoverResult {
             this.highlightResults = highlightResults;
         }
 
+        /**
+         * @return the highlighted object, or null if the query asked for a
+         * projection and only a view of the object is available
+         */
         public DSpaceObject getDso()
         {
             return dso;
@@ -182,7 +212,14 @@ public class DiscoverResult {
     }
 
     public void addSearchDocument(DSpaceObject dso, SearchDocument searchDocument){
-        String dsoString = SearchDocument.getDspaceObjectStringRepresentation(dso);
+        addSearchDocument(SearchDocument.getDspaceObjectStringRepresentation(dso), searchDocument);
+    }
+
+    public void addSearchDocument(DSpaceObjectView view, SearchDocument searchDocument){
+        addSearchDocument(SearchDocument.getDspaceObjectStringRepresentation(view.getType(), view.getID()), searchDocument);
+    }
+
+    private void addSearchDocument(String dsoString, SearchDocument searchDocument){
         List<SearchDocument> docs = searchDocuments.get(dsoString);
         if(docs == null){
             docs = new ArrayList<SearchDocument>();
@@ -197,7 +234,19 @@ public class DiscoverResult {
      * @return the search documents list
      */
     public List<SearchDocument> getSearchDocument(DSpaceObject dso){
-        String dsoString = SearchDocument.getDspaceObjectStringRepresentation(dso);
+        return getSearchDocument(SearchDocument.getDspaceObjectStringRepresentation(dso));
+    }
+
+    /**
+     * Returns all the sought after search document values
+     * @param view the view of the dspace object we want our search documents for
+     * @return the search documents list
+     */
+    public List<SearchDocument> getSearchDocument(DSpaceObjectView view){
+        return getSearchDocument(SearchDocument.getDspaceObjectStringRepresentation(view.getType(), view.getID()));
+    }
+
+    private List<SearchDocument> getSearchDocument(String dsoString){
         List<SearchDocument> result = searchDocuments.get(dsoString);
         if(result == null){
             return new ArrayList<SearchDocument>();
@@ -237,7 +286,117 @@ public class DiscoverResult {
         }
 
         public static String getDspaceObjectStringRepresentation(DSpaceObject dso){
-            return dso.getType() + ":" + dso.getID();
+            return getDspaceObjectStringRepresentation(dso.getType(), dso.getID());
+        }
+
+        public static String getDspaceObjectStringRepresentation(int type, int id){
+            return type + ":" + id;
+        }
+    }
+
+    /**
+     * A read-only view of a hit, built from the fields stored in the index
+     * so that it can be displayed without loading the DSpace object.
+     */
+    public static final class DSpaceObjectView
+    {
+        private int type;
+        private int id;
+        private String handle;
+        private String title;
+        private List<String> authors;
+        private String date;
+        private int thumbnailID;
+        private boolean openAccess;
+        private Map<String, List<String>> metadata;
+
+        public DSpaceObjectView(int type, int id, String handle, String title, List<String> authors, String date,
+                                int thumbnailID, boolean openAccess, Map<String, List<String>> metadata)
+        {
+            this.type = type;
+            this.id = id;
+            this.handle = handle;
+            this.title = title;
+            this.authors = Collections.unmodifiableList(authors);
+            this.date = date;
+            this.thumbnailID = thumbnailID;
+            this.openAccess = openAccess;
+            this.metadata = Collections.unmodifiableMap(metadata);
+        }
+
+        /**
+         * @return the type of the object, as in org.dspace.core.Constants
+         */
+        public int getType()
+        {
+            return type;
+        }
+
+        public int getID()
+        {
+            return id;
+        }
+
+        public String getHandle()
+        {
+            return handle;
+        }
+
+        /**
+         * @return the title, or null if there is none
+         */
+        public String getTitle()
+        {
+            return title;
+        }
+
+        public List<String> getAuthors()
+        {
+            return authors;
+        }
+
+        /**
+         * @return the (issue) date as stored in the metadata, or null if there is none
+         */
+        public String getDate()
+        {
+            return date;
+        }
+
+        /**
+         * @return the ID of a thumbnail bitstream anyone may read, or -1 if there is none
+         */
+        public int getThumbnailID()
+        {
+            return thumbnailID;
+        }
+
+        /**
+         * @return whether anyone may read some of the content (bitstreams) of the item
+         */
+        public boolean isOpenAccess()
+        {
+            return openAccess;
+        }
+
+        /**
+         * Returns the values of a metadata field, if it is stored in the index
+         * (see discovery.index.projection)
+         * @param field the metadata field, as schema.element[.qualifier]
+         * @return the values, empty if there are none or they are not stored
+         */
+        public List<String> getMetadata(String field)
+        {
+            List<String> values = metadata.get(field);
+            return values == null ? Collections.<String>emptyList() : values;
+        }
+
+        /**
+         * @return the stored metadata values, by metadata field
+         */
+        public Map<String, List<String>> getMetadata()
+        {
+            return metadata;
         }
     }
 }
@@ -0,0 +1,294 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dspace.content.Item;
+import org.dspace.content.authority.Choices;
+import org.dspace.content.authority.MetadataAuthorityManager;
+import org.dspace.discovery.configuration.DiscoveryConfiguration;
+import org.dspace.discovery.configuration.DiscoveryHitHighlightFieldConfiguration;
+import org.dspace.discovery.configuration.DiscoveryHitHighlightingConfiguration;
+import org.dspace.discovery.configuration.DiscoveryMoreLikeThisConfiguration;
+import org.dspace.discovery.configuration.DiscoveryRecentSubmissionsConfiguration;
+import org.dspace.discovery.configuration.DiscoverySearchFilter;
+import org.dspace.discovery.configuration.DiscoverySortConfiguration;
+import org.dspace.discovery.configuration.DiscoverySortFieldConfiguration;
+import org.dspace.services.ConfigurationService;
+
+/**
+ * The Discovery configurations of a set of collections, compiled into what
+ * has to be indexed for the values of each metadata field, so that the
+ * configurations are not searched again for every value of every item.
+ * <p>
+ * The plan of a metadata field is resolved the first time a value of that
+ * field is indexed, and is kept for as long as the plan itself.
+ */
+public class DiscoveryIndexingPlan
+{
+    /** The search filters, by the metadata fields they are configured for */
+    private final Map<String, List<DiscoverySearchFilter>> searchFilters = new HashMap<String, List<DiscoverySearchFilter>>();
+
+    /** The types of the sort fields, by metadata field */
+    private final Map<String, String> sortTypes = new HashMap<String, String>();
+
+    private final Set<String> hitHighlightingFields = new HashSet<String>();
+
+    private final Set<String> moreLikeThisFields = new HashSet<String>();
+
+    private final List<String> projectionFields;
+
+    private final List<String> ignoredFields;
+
+    /** The separator of the lower case and regular case of facet values */
+    private final String separator;
+
+    private final ConfigurationService config;
+
+    /** The plans of the metadata fields resolved so far, by field name */
+    private final Map<String, FieldPlan> fieldPlans = new ConcurrentHashMap<String, FieldPlan>();
+
+    /**
+     * Compile the given configurations.
+     *
+     * @param discoveryConfigurations the configurations applying to the items
+     * @param projectionFields the metadata fields to store, which may end with .*
+     * @param ignoredFields the metadata fields not to index, which may end with .*, or null
+     * @param config the DSpace configuration
+     */
+    public DiscoveryIndexingPlan(List<DiscoveryConfiguration> discoveryConfigurations,
+            List<String> projectionFields, List<String> ignoredFields, ConfigurationService config)
+    {
+        Map<String, DiscoverySortFieldConfiguration> sortFields = new HashMap<String, DiscoverySortFieldConfiguration>();
+        Map<String, DiscoveryRecentSubmissionsConfiguration> recentSubmissionsConfigurationMap = new HashMap<String, DiscoveryRecentSubmissionsConfiguration>();
+        for (DiscoveryConfiguration discoveryConfiguration : discoveryConfigurations)
+        {
+            for (DiscoverySearchFilter discoverySearchFilter : discoveryConfiguration.getSearchFilters())
+            {
+                for (String metadataField : discoverySearchFilter.getMetadataFields())
+                {
+                    List<DiscoverySearchFilter> resultingList = searchFilters.get(metadataField);
+                    if (resultingList == null)
+                    {
+                        resultingList = new ArrayList<DiscoverySearchFilter>();
+                        searchFilters.put(metadataField, resultingList);
+                    }
+                    resultingList.add(discoverySearchFilter);
+                }
+            }
+
+            DiscoverySortConfiguration sortConfiguration = discoveryConfiguration.getSearchSortConfiguration();
+            if (sortConfiguration != null)
+            {
+                for (DiscoverySortFieldConfiguration discoverySortConfiguration : sortConfiguration.getSortFields())
+                {
+                    sortFields.put(discoverySortConfiguration.getMetadataField(), discoverySortConfiguration);
+                }
+            }
+
+            DiscoveryRecentSubmissionsConfiguration recentSubmissionConfiguration = discoveryConfiguration.getRecentSubmissionConfiguration();
+            if (recentSubmissionConfiguration != null)
+            {
+                recentSubmissionsConfigurationMap.put(recentSubmissionConfiguration.getMetadataSortField(), recentSubmissionConfiguration);
+            }
+
+            DiscoveryHitHighlightingConfiguration hitHighlightingConfiguration = discoveryConfiguration.getHitHighlightingConfiguration();
+            if (hitHighlightingConfiguration != null)
+            {
+                for (DiscoveryHitHighlightFieldConfiguration fieldConfiguration : hitHighlightingConfiguration.getMetadataFields())
+                {
+                    hitHighlightingFields.add(fieldConfiguration.getField());
+                }
+            }
+
+            DiscoveryMoreLikeThisConfiguration moreLikeThisConfiguration = discoveryConfiguration.getMoreLikeThisConfiguration();
+            if (moreLikeThisConfiguration != null)
+            {
+                moreLikeThisFields.addAll(moreLikeThisConfiguration.getSimilarityMetadataFields());
+            }
+        }
+
+        // The sort fields take precedence over the recent submissions
+        for (Map.Entry<String, DiscoveryRecentSubmissionsConfiguration> recentSubmissions : recentSubmissionsConfigurationMap.entrySet())
+        {
+            sortTypes.put(recentSubmissions.getKey(), recentSubmissions.getValue().getType());
+        }
+        for (Map.Entry<String, DiscoverySortFieldConfiguration> sortField : sortFields.entrySet())
+        {
+            sortTypes.put(sortField.getKey(), sortField.getValue().getType());
+        }
+
+        this.projectionFields = projectionFields;
+        this.ignoredFields = ignoredFields;
+        this.config = config;
+
+        String separator = config.getProperty("discovery.solr.facets.split.char");
+        this.separator = (separator == null) ? SolrServiceImpl.FILTER_SEPARATOR : separator;
+    }
+
+    /**
+     * @return the separator of the lower case and regular case of facet values
+     */
+    public String getSeparator()
+    {
+        return separator;
+    }
+
+    /**
+     * Get what has to be indexed for the values of a metadata field.
+     *
+     * @param schema the schema of the field
+     * @param element the element of the field
+     * @param qualifier the qualifier of the field, or null
+     * @return the plan of the field
+     */
+    public FieldPlan getFieldPlan(String schema, String element, String qualifier)
+    {
+        if (qualifier != null && qualifier.trim().equals(""))
+        {
+            qualifier = null;
+        }
+        String field = schema + "." + element + (qualifier == null ? "" : "." + qualifier);
+        FieldPlan fieldPlan = fieldPlans.get(field);
+        if (fieldPlan == null)
+        {
+            // resolving a field twice at the same time does no harm
+            fieldPlan = new FieldPlan(schema, element, qualifier, field);
+            fieldPlans.put(field, fieldPlan);
+        }
+        return fieldPlan;
+    }
+
+    /**
+     * What has to be indexed for the values of a metadata field.
+     */
+    public final class FieldPlan
+    {
+        private final String field;
+        private final boolean ignored;
+        private final List<DiscoverySearchFilter> searchFilters;
+        private final String sortType;
+        private final boolean hitHighlighting;
+        private final boolean moreLikeThis;
+        private final boolean projection;
+        private final boolean authorityControlled;
+        private final int minConfidence;
+        private final boolean ignoreAuthority;
+        private final boolean ignorePrefered;
+        private final boolean ignoreVariants;
+
+        private FieldPlan(String schema, String element, String qualifier, String field)
+        {
+            String anyQualifierField = schema + "." + element + "." + Item.ANY;
+
+            this.field = field;
+            ignored = ignoredFields != null && (ignoredFields.contains(field) || ignoredFields.contains(anyQualifierField));
+
+            List<DiscoverySearchFilter> filters = DiscoveryIndexingPlan.this.searchFilters.get(field);
+            if (filters == null)
+            {
+                filters = DiscoveryIndexingPlan.this.searchFilters.get(anyQualifierField);
+            }
+            searchFilters = (filters == null) ? Collections.<DiscoverySearchFilter>emptyList() : filters;
+
+            sortType = sortTypes.get(field);
+            hitHighlighting = hitHighlightingFields.contains(field) || hitHighlightingFields.contains("*") || hitHighlightingFields.contains(anyQualifierField);
+            moreLikeThis = moreLikeThisFields.contains(field) || moreLikeThisFields.contains(anyQualifierField);
+            projection = projectionFields.contains(field) || projectionFields.contains(anyQualifierField);
+
+            MetadataAuthorityManager authorityManager = MetadataAuthorityManager.getManager();
+            authorityControlled = authorityManager.isAuthorityControlled(schema, element, qualifier);
+            minConfidence = authorityControlled ? authorityManager.getMinConfidence(schema, element, qualifier) : Choices.CF_ACCEPTED;
+            ignoreAuthority = isIgnored("discovery.index.authority.ignore");
+            ignorePrefered = isIgnored("discovery.index.authority.ignore-prefered");
+            ignoreVariants = isIgnored("discovery.index.authority.ignore-variants");
+        }
+
+        private boolean isIgnored(String property)
+        {
+            return config.getPropertyAsType(property + "." + field,
+                    config.getPropertyAsType(property, Boolean.FALSE), true);
+        }
+
+        /**
+         * @return the name of the field: schema.element(.qualifier)
+         */
+        public String getField()
+        {
+            return field;
+        }
+
+        /**
+         * @return whether the values of the field are not indexed at all
+         */
+        public boolean isIgnored()
+        {
+            return ignored;
+        }
+
+        /**
+         * @return the search filters the values of the field are indexed for
+         */
+        public List<DiscoverySearchFilter> getSearchFilters()
+        {
+            return searchFilters;
+        }
+
+        /**
+         * @return the type of the sort field of the field, or null if it is not sorted on
+         */
+        public String getSortType()
+        {
+            return sortType;
+        }
+
+        public boolean isHitHighlighting()
+        {
+            return hitHighlighting;
+        }
+
+        public boolean isMoreLikeThis()
+        {
+            return moreLikeThis;
+        }
+
+        /**
+         * @return whether the values of the field are stored, to be returned with the search results
+         */
+        public boolean isProjection()
+        {
+            return projection;
+        }
+
+        /**
+         * @return whether authorities of the given confidence are indexed
+         */
+        public boolean isAuthorityIndexed(int confidence)
+        {
+            return authorityControlled && confidence >= minConfidence && !ignoreAuthority;
+        }
+
+        public boolean isIgnorePrefered()
+        {
+            return ignorePrefered;
+        }
+
+        public boolean isIgnoreVariants()
+        {
+            return ignoreVariants;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.log4j.Logger;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+
+/**
+ * Cache of the Solr responses to Discovery searches, shared by all the
+ * requests of this JVM. The responses are cached by the Solr query they
+ * answer, which includes the authorization filter of the user, so users with
+ * the same groups share their results.
+ * <p>
+ * Cached responses are discarded when the index changes: when a commit is
+ * done through this JVM, or when the version of the Solr index is found to
+ * have changed (it is checked at most every
+ * discovery.search.cache.version-check seconds, to notice commits done by
+ * other JVMs and by the Solr autoCommit). Whatever happens, responses are not
+ * kept longer than discovery.search.cache.max-age seconds.
+ */
+public class SearchResultCache
+{
+    private static final Logger log = Logger.getLogger(SearchResultCache.class);
+
+    /** Number of lookups between two log lines with the hit ratio */
+    private static final long STATS_LOG_INTERVAL = 1000;
+
+    /** The cached responses, or null if caching is disabled */
+    private final Cache<String, QueryResponse> cache;
+
+    /** The longest time the version of the index is trusted, in milliseconds */
+    private final long versionCheckInterval;
+
+    /** Changes on every commit done through this JVM */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** When the version of the index was last checked */
+    private final AtomicLong lastVersionCheck = new AtomicLong();
+
+    /** The version of the index when it was last checked */
+    private volatile long indexVersion = -1;
+
+    private final AtomicLong lookups = new AtomicLong();
+
+    /**
+     * @param maxSize the largest number of responses to cache, 0 to disable caching
+     * @param maxAge the longest time to cache a response, in seconds
+     * @param versionCheckInterval the longest time the version of the index is trusted, in seconds
+     */
+    public SearchResultCache(long maxSize, long maxAge, long versionCheckInterval)
+    {
+        if (maxSize > 0)
+        {
+            cache = CacheBuilder.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(maxAge, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build();
+        }
+        else
+        {
+            cache = null;
+        }
+        this.versionCheckInterval = TimeUnit.SECONDS.toMillis(versionCheckInterval);
+    }
+
+    /**
+     * Answer a query from the cache, or from Solr if it is not cached yet.
+     * The response returned must not be modified.
+     *
+     * @param solr the Solr server
+     * @param solrQuery the query
+     * @return the response of Solr
+     */
+    public QueryResponse query(SolrServer solr, SolrQuery solrQuery) throws SolrServerException
+    {
+        if (cache == null)
+        {
+            return solr.query(solrQuery);
+        }
+
+        checkIndexVersion(solr);
+        String key = generation.get() + "-" + indexVersion + ":" + getKey(solrQuery);
+        QueryResponse response = cache.getIfPresent(key);
+        if (response == null)
+        {
+            response = solr.query(solrQuery);
+            cache.put(key, response);
+        }
+
+        if (lookups.incrementAndGet() % STATS_LOG_INTERVAL == 0)
+        {
+            log.info("Discovery search cache: " + getStats());
+        }
+        return response;
+    }
+
+    /**
+     * Discard all the cached responses, after the index has changed.
+     */
+    public void invalidate()
+    {
+        if (cache != null)
+        {
+            generation.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return the hits, misses and evictions of the cache, or null if caching is disabled
+     */
+    public CacheStats getStats()
+    {
+        return cache == null ? null : cache.stats();
+    }
+
+    /**
+     * Check whether the index has changed since its version was last checked,
+     * if that was long enough ago. Only one thread checks at a time.
+     */
+    private void checkIndexVersion(SolrServer solr)
+    {
+        long now = System.currentTimeMillis();
+        long lastCheck = lastVersionCheck.get();
+        if (now - lastCheck < versionCheckInterval || !lastVersionCheck.compareAndSet(lastCheck, now))
+        {
+            return;
+        }
+
+        long version;
+        try
+        {
+            ModifiableSolrParams params = new ModifiableSolrParams();
+            params.set("show", "index");
+            params.set("numTerms", 0);
+            QueryRequest request = new QueryRequest(params);
+            request.setPath("/admin/luke");
+            NamedList<?> index = (NamedList<?>) request.process(solr).getResponse().get("index");
+            version = ((Number) index.get("version")).longValue();
+        }
+        catch (Exception e)
+        {
+            // Without a version, no cached response can be trusted
+            log.warn("Unable to read the version of the Discovery index, discarding the cached searches", e);
+            invalidate();
+            return;
+        }
+
+        if (version != indexVersion)
+        {
+            indexVersion = version;
+            if (cache != null)
+            {
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Build the key of a query: its parameters, sorted by name. The order of
+     * the filter queries does not matter, so those are sorted as well.
+     */
+    static String getKey(SolrQuery solrQuery)
+    {
+        List<String> names = new ArrayList<String>(solrQuery.getParameterNames());
+        Collections.sort(names);
+
+        StringBuilder key = new StringBuilder();
+        for (String name : names)
+        {
+            String[] values = solrQuery.getParams(name);
+            if (CommonParams.FQ.equals(name))
+            {
+                values = values.clone();
+                Arrays.sort(values);
+            }
+            key.append(name).append('=');
+            for (String value : values)
+            {
+                // prefix the values with their length, so that no value can be mistaken for several
+                key.append(value.length()).append(':').append(value);
+            }
+            key.append('&');
+        }
+        return key.toString();
+    }
+}
@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
@@ -60,6 +61,8 @@ import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.*;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.handler.extraction.ExtractingParams;
+import org.dspace.authorize.AuthorizeManager;
+import org.dspace.authorize.ResourcePolicy;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.Collection;
@@ -69,8 +72,6 @@ import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.content.ItemIterator;
 import org.dspace.content.authority.ChoiceAuthorityManager;
-import org.dspace.content.authority.Choices;
-import org.dspace.content.authority.MetadataAuthorityManager;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.Context;
@@ -82,13 +83,12 @@ import org.dspace.discovery.configuration.DiscoveryConfigurationParameters;
 import org.dspace.discovery.configuration.DiscoveryHitHighlightFieldConfiguration;
 import org.dspace.discovery.configuration.DiscoveryHitHighlightingConfiguration;
 import org.dspace.discovery.configuration.DiscoveryMoreLikeThisConfiguration;
-import org.dspace.discovery.configuration.DiscoveryRecentSubmissionsConfiguration;
 import org.dspace.discovery.configuration.DiscoverySearchFilter;
 import org.dspace.discovery.configuration.DiscoverySearchFilterFacet;
-import org.dspace.discovery.configuration.DiscoverySortConfiguration;
-import org.dspace.discovery.configuration.DiscoverySortFieldConfiguration;
 import org.dspace.discovery.configuration.HierarchicalSidebarFacetConfiguration;
+import org.dspace.eperson.Group;
 import org.dspace.handle.HandleManager;
+import org.dspace.services.ConfigurationService;
 import org.dspace.storage.rdbms.DatabaseUtils;
 import org.dspace.utils.DSpace;
 import org.springframework.stereotype.Service;
@@ -128,11 +128,30 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
     public static final String VARIANTS_STORE_SEPARATOR = "###";
 
+    /** Stored field holding the ID of a thumbnail of an item anyone may read */
+    public static final String PROJECTION_THUMBNAIL_FIELD = "projection.thumbnail_stored";
+
+    /** Stored field holding whether anyone may read some bitstreams of an item */
+    public static final String PROJECTION_OPEN_ACCESS_FIELD = "projection.openaccess_stored";
+
     /**
      * Non-Static CommonsHttpSolrServer for processing indexing events.
      */
     private HttpSolrServer solr = null;
 
+    /**
+     * Cache of the responses to searches, shared by all requests.
+     */
+    private SearchResultCache searchCache = null;
+
+    /**
+     * The indexing plans of items, by the Discovery configurations applying
+     * to them. The configurations are compared by identity, so reloaded
+     * configurations get new plans.
+     */
+    private final Map<List<DiscoveryConfiguration>, DiscoveryIndexingPlan> indexingPlans =
+            new ConcurrentHashMap<List<DiscoveryConfiguration>, DiscoveryIndexingPlan>();
+
 
     protected HttpSolrServer getSolr()
     {
@@ -170,6 +189,55 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return solr;
     }
 
+    protected synchronized SearchResultCache getSearchCache()
+    {
+        if (searchCache == null)
+        {
+            ConfigurationService config = new DSpace().getConfigurationService();
+            searchCache = new SearchResultCache(
+                    config.getPropertyAsType("discovery.search.cache.size", 1000L),
+                    config.getPropertyAsType("discovery.search.cache.max-age", 300L),
+                    config.getPropertyAsType("discovery.search.cache.version-check", 5L));
+        }
+        return searchCache;
+    }
+
+    /**
+     * Get the indexing plan of items in the scope of the given Discovery
+     * configurations, compiling it the first time it is needed.
+     * @param discoveryConfigurations the configurations applying to an item
+     * @return the indexing plan
+     */
+    protected DiscoveryIndexingPlan getIndexingPlan(List<DiscoveryConfiguration> discoveryConfigurations)
+    {
+        DiscoveryIndexingPlan indexingPlan = indexingPlans.get(discoveryConfigurations);
+        if (indexingPlan == null)
+        {
+            indexingPlan = new DiscoveryIndexingPlan(discoveryConfigurations, getProjectionFields(),
+                    SearchUtils.getIgnoredMetadataFields(Constants.ITEM), new DSpace().getConfigurationService());
+            indexingPlans.put(discoveryConfigurations, indexingPlan);
+        }
+        return indexingPlan;
+    }
+
+    /**
+     * Forget the compiled indexing plans, so that changes to the
+     * configuration are picked up.
+     */
+    public void clearIndexingPlans()
+    {
+        indexingPlans.clear();
+    }
+
+    /**
+     * Commit the changes to the index, making them visible to searches.
+     */
+    protected void commitSolr() throws SolrServerException, IOException
+    {
+        getSolr().commit();
+        getSearchCache().invalidate();
+    }
+
     /**
      * If the handle for the "dso" already exists in the index, and the "dso"
      * has a lastModified timestamp that is newer than the document in the index
@@ -290,7 +358,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             getSolr().deleteById(uniqueID);
             if(commit)
             {
-                getSolr().commit();
+                commitSolr();
             }
         } catch (Exception exception) {
             log.error(exception.getMessage(), exception);
@@ -326,7 +394,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 getSolr().deleteByQuery("handle:\"" + handle + "\"");
                 if(commit)
                 {
-                    getSolr().commit();
+                    commitSolr();
                 }
             }
         } catch (SolrServerException e)
@@ -396,6 +464,8 @@ public class SolrServiceImpl implements SearchService, IndexingService {
     @Override
     public void updateIndex(Context context, boolean force)
     {
+        // pick up any changes to the configuration
+        clearIndexingPlans();
         try {
             ItemIterator items = null;
             try {
@@ -429,7 +499,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
             if(getSolr() != null)
             {
-                getSolr().commit();
+                commitSolr();
             }
 
         } catch (Exception e)
@@ -780,11 +850,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         String title = community.getMetadata("name");
 
         List<String> toIgnoreMetadataFields = SearchUtils.getIgnoredMetadataFields(community.getType());
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.description", description);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.description.abstract", description_abstract);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.description.tableofcontents", description_table);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.rights", rights);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.title", title);
+        List<String> toProjectionFields = getProjectionFields();
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.description", description);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.description.abstract", description_abstract);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.description.tableofcontents", description_table);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.rights", rights);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.title", title);
 
         //Do any additional indexing, depends on the plugins
         List<SolrServiceIndexPlugin> solrServiceIndexPlugins = new DSpace().getServiceManager().getServicesByType(SolrServiceIndexPlugin.class);
@@ -833,13 +904,14 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         String title = collection.getMetadata("name");
 
         List<String> toIgnoreMetadataFields = SearchUtils.getIgnoredMetadataFields(collection.getType());
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.description", description);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.description.abstract", description_abstract);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.description.tableofcontents", description_table);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.provenance", provenance);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.rights", rights);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.rights.license", rights_license);
-        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, "dc.title", title);
+        List<String> toProjectionFields = getProjectionFields();
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.description", description);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.description.abstract", description_abstract);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.description.tableofcontents", description_table);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.provenance", provenance);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.rights", rights);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.rights.license", rights_license);
+        addContainerMetadataField(doc, highlightedMetadataFields, toIgnoreMetadataFields, toProjectionFields, "dc.title", title);
 
 
         //Do any additional indexing, depends on the plugins
@@ -857,10 +929,12 @@ public class SolrServiceImpl implements SearchService, IndexingService {
      * IF needed highlighting is added !
      * @param doc the solr document
      * @param highlightedMetadataFields the list of metadata fields that CAN be highlighted
+     * @param toIgnoreMetadataFields the list of metadata fields that are not indexed
+     * @param toProjectionFields the list of metadata fields whose values are stored
      * @param metadataField the metadata field added
      * @param value the value (can be NULL !)
      */
-    protected void addContainerMetadataField(SolrInputDocument doc, List<String> highlightedMetadataFields, List<String> toIgnoreMetadataFields, String metadataField, String value)
+    protected void addContainerMetadataField(SolrInputDocument doc, List<String> highlightedMetadataFields, List<String> toIgnoreMetadataFields, List<String> toProjectionFields, String metadataField, String value)
     {
         if(toIgnoreMetadataFields == null || !toIgnoreMetadataFields.contains(metadataField))
         {
@@ -871,8 +945,138 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 {
                     doc.addField(metadataField + "_hl", value);
                 }
+                if(toProjectionFields.contains(metadataField))
+                {
+                    doc.addField(metadataField + "_stored", toStoredValue(value, null, null, null, null));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the metadata fields whose values are stored in the index, so that
+     * search results can be displayed from the index alone: those listed in
+     * discovery.index.projection and, if search results are projections, the
+     * title, author and date fields of the views returned for them.
+     * @return the metadata fields, which may end with .* for any qualifier
+     */
+    protected List<String> getProjectionFields()
+    {
+        List<String> toProjectionFields = new ArrayList<String>();
+        String projectionFieldsString = new DSpace().getConfigurationService().getProperty("discovery.index.projection");
+        if(projectionFieldsString != null){
+            for (String projectionField : projectionFieldsString.split(",")) {
+                toProjectionFields.add(projectionField.trim());
+            }
+        }
+        if (isProjectionResults())
+        {
+            for (String viewField : new String[]{getProjectionTitleField(), getProjectionAuthorField(), getProjectionDateField()})
+            {
+                if (!toProjectionFields.contains(viewField))
+                {
+                    toProjectionFields.add(viewField);
+                }
             }
         }
+        return toProjectionFields;
+    }
+
+    /**
+     * @return whether search results are displayed from projections
+     *         (discovery.projection.results), so the index must hold what
+     *         they are built from
+     */
+    protected boolean isProjectionResults()
+    {
+        return new DSpace().getConfigurationService().getPropertyAsType("discovery.projection.results", false);
+    }
+
+    protected String getProjectionTitleField()
+    {
+        return new DSpace().getConfigurationService().getPropertyAsType("discovery.projection.title", "dc.title");
+    }
+
+    protected String getProjectionAuthorField()
+    {
+        return new DSpace().getConfigurationService().getPropertyAsType("discovery.projection.author", "dc.contributor.author");
+    }
+
+    protected String getProjectionDateField()
+    {
+        return new DSpace().getConfigurationService().getPropertyAsType("discovery.projection.date", "dc.date.issued");
+    }
+
+    /**
+     * Build the value of a stored (projected) metadata field: the value, the
+     * prefered label, the variants, the authority and the language.
+     */
+    protected String toStoredValue(String value, String preferedLabel, List<String> variants, String authority, String language)
+    {
+        StringBuffer variantsToStore = new StringBuffer();
+        if (variants != null)
+        {
+            for (String var : variants)
+            {
+                variantsToStore.append(VARIANTS_STORE_SEPARATOR);
+                variantsToStore.append(var);
+            }
+        }
+        return value + STORE_SEPARATOR + preferedLabel
+                + STORE_SEPARATOR
+                + (variantsToStore.length() > VARIANTS_STORE_SEPARATOR
+                        .length() ? variantsToStore
+                        .substring(VARIANTS_STORE_SEPARATOR
+                                .length()) : "null")
+                + STORE_SEPARATOR + authority
+                + STORE_SEPARATOR + language;
+    }
+
+    /**
+     * Store the thumbnail and the access to the content of an item, so that
+     * it can be displayed in search results without checking its policies.
+     * Only a thumbnail anyone may read is stored.
+     * @param context the DSpace context
+     * @param item the item
+     * @param doc the solr document
+     */
+    protected void addProjectionAccess(Context context, Item item, SolrInputDocument doc) throws SQLException
+    {
+        for (Bundle bundle : item.getBundles("THUMBNAIL"))
+        {
+            Bitstream[] thumbnails = bundle.getBitstreams();
+            if (thumbnails.length > 0 && isReadableByAnonymous(context, thumbnails[0]))
+            {
+                doc.addField(PROJECTION_THUMBNAIL_FIELD, Integer.toString(thumbnails[0].getID()));
+                break;
+            }
+        }
+
+        boolean openAccess = false;
+        for (Bundle bundle : item.getBundles("ORIGINAL"))
+        {
+            for (Bitstream bitstream : bundle.getBitstreams())
+            {
+                if (isReadableByAnonymous(context, bitstream))
+                {
+                    openAccess = true;
+                    break;
+                }
+            }
+        }
+        doc.addField(PROJECTION_OPEN_ACCESS_FIELD, Boolean.toString(openAccess));
+    }
+
+    private boolean isReadableByAnonymous(Context context, DSpaceObject dso) throws SQLException
+    {
+        for (ResourcePolicy resourcePolicy : AuthorizeManager.getPoliciesActionFilter(context, dso, Constants.READ))
+        {
+            if (resourcePolicy.getGroupID() == Group.ANONYMOUS_ID && resourcePolicy.isDateValid())
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -902,94 +1106,20 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 
         doc.addField("withdrawn", item.isWithdrawn());
         doc.addField("discoverable", item.isDiscoverable());
+        if (isProjectionResults())
+        {
+            addProjectionAccess(context, item, doc);
+        }
 
         //Keep a list of our sort values which we added, sort values can only be added once
-        List<String> sortFieldsAdded = new ArrayList<String>();
-        Set<String> hitHighlightingFields = new HashSet<String>();
+        Set<String> sortFieldsAdded = new HashSet<String>();
         try {
-            List<DiscoveryConfiguration> discoveryConfigurations = SearchUtils.getAllDiscoveryConfigurations(item);
-
-            //A map used to save each sidebarFacet config by the metadata fields
-            Map<String, List<DiscoverySearchFilter>> searchFilters = new HashMap<String, List<DiscoverySearchFilter>>();
-            Map<String, DiscoverySortFieldConfiguration> sortFields = new HashMap<String, DiscoverySortFieldConfiguration>();
-            Map<String, DiscoveryRecentSubmissionsConfiguration> recentSubmissionsConfigurationMap = new HashMap<String, DiscoveryRecentSubmissionsConfiguration>();
-            Set<String> moreLikeThisFields = new HashSet<String>();
-            for (DiscoveryConfiguration discoveryConfiguration : discoveryConfigurations)
-            {
-                for (int i = 0; i < discoveryConfiguration.getSearchFilters().size(); i++)
-                {
-                    DiscoverySearchFilter discoverySearchFilter = discoveryConfiguration.getSearchFilters().get(i);
-                    for (int j = 0; j < discoverySearchFilter.getMetadataFields().size(); j++)
-                    {
-                        String metadataField = discoverySearchFilter.getMetadataFields().get(j);
-                        List<DiscoverySearchFilter> resultingList;
-                        if(searchFilters.get(metadataField) != null)
-                        {
-                            resultingList = searchFilters.get(metadataField);
-                        }else{
-                            //New metadata field, create a new list for it
-                            resultingList = new ArrayList<DiscoverySearchFilter>();
-                        }
-                        resultingList.add(discoverySearchFilter);
-
-                        searchFilters.put(metadataField, resultingList);
-                    }
-                }
-
-                DiscoverySortConfiguration sortConfiguration = discoveryConfiguration.getSearchSortConfiguration();
-                if(sortConfiguration != null)
-                {
-                    for (DiscoverySortFieldConfiguration discoverySortConfiguration : sortConfiguration.getSortFields())
-                    {
-                        sortFields.put(discoverySortConfiguration.getMetadataField(), discoverySortConfiguration);
-                    }
-                }
-
-                DiscoveryRecentSubmissionsConfiguration recentSubmissionConfiguration = discoveryConfiguration.getRecentSubmissionConfiguration();
-                if(recentSubmissionConfiguration != null)
-                {
-                    recentSubmissionsConfigurationMap.put(recentSubmissionConfiguration.getMetadataSortField(), recentSubmissionConfiguration);
-                }
+            DiscoveryIndexingPlan indexingPlan = getIndexingPlan(SearchUtils.getAllDiscoveryConfigurations(item));
+            String separator = indexingPlan.getSeparator();
 
-                DiscoveryHitHighlightingConfiguration hitHighlightingConfiguration = discoveryConfiguration.getHitHighlightingConfiguration();
-                if(hitHighlightingConfiguration != null)
-                {
-                    List<DiscoveryHitHighlightFieldConfiguration> fieldConfigurations = hitHighlightingConfiguration.getMetadataFields();
-                    for (DiscoveryHitHighlightFieldConfiguration fieldConfiguration : fieldConfigurations)
-                    {
-                        hitHighlightingFields.add(fieldConfiguration.getField());
-                    }
-            	}
-                DiscoveryMoreLikeThisConfiguration moreLikeThisConfiguration = discoveryConfiguration.getMoreLikeThisConfiguration();
-                if(moreLikeThisConfiguration != null)
-                {
-                    for(String metadataField : moreLikeThisConfiguration.getSimilarityMetadataFields())
-                    {
-                        moreLikeThisFields.add(metadataField);
-                    }
-                }
-            }
-
-
-            List<String> toProjectionFields = new ArrayList<String>();
-            String projectionFieldsString = new DSpace().getConfigurationService().getProperty("discovery.index.projection");
-            if(projectionFieldsString != null){
-                if(projectionFieldsString.indexOf(",") != -1){
-                    for (int i = 0; i < projectionFieldsString.split(",").length; i++) {
-                        toProjectionFields.add(projectionFieldsString.split(",")[i].trim());
-                    }
-                } else {
-                    toProjectionFields.add(projectionFieldsString);
-                }
-            }
-
-            List<String> toIgnoreMetadataFields = SearchUtils.getIgnoredMetadataFields(item.getType());
             Metadatum[] mydc = item.getMetadata(Item.ANY, Item.ANY, Item.ANY, Item.ANY);
             for (Metadatum meta : mydc)
             {
-                String field = meta.schema + "." + meta.element;
-                String unqualifiedField = field;
-
                 String value = meta.value;
 
                 if (value == null)
@@ -997,13 +1127,11 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     continue;
                 }
 
-                if (meta.qualifier != null && !meta.qualifier.trim().equals(""))
-                {
-                    field += "." + meta.qualifier;
-                }
+                DiscoveryIndexingPlan.FieldPlan fieldPlan = indexingPlan.getFieldPlan(meta.schema, meta.element, meta.qualifier);
+                String field = fieldPlan.getField();
 
                 //We are not indexing provenance, this is useless
-                if (toIgnoreMetadataFields != null && (toIgnoreMetadataFields.contains(field) || toIgnoreMetadataFields.contains(unqualifiedField + "." + Item.ANY)))
+                if (fieldPlan.isIgnored())
                 {
                     continue;
                 }
@@ -1011,91 +1139,34 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                 String authority = null;
                 String preferedLabel = null;
                 List<String> variants = null;
-                boolean isAuthorityControlled = MetadataAuthorityManager
-                        .getManager().isAuthorityControlled(meta.schema,
-                                meta.element,
-                                meta.qualifier);
-
-                int minConfidence = isAuthorityControlled?MetadataAuthorityManager
-                        .getManager().getMinConfidence(
-                                meta.schema,
-                                meta.element,
-                                meta.qualifier):Choices.CF_ACCEPTED;
-
-                if (isAuthorityControlled && meta.authority != null
-                        && meta.confidence >= minConfidence)
-                {
-                    boolean ignoreAuthority = new DSpace()
-                            .getConfigurationService()
-                            .getPropertyAsType(
-                                    "discovery.index.authority.ignore." + field,
-                                    new DSpace()
-                                            .getConfigurationService()
-                                            .getPropertyAsType(
-                                                    "discovery.index.authority.ignore",
-                                                    new Boolean(false)), true);
-                    if (!ignoreAuthority)
-                    {
-                        authority = meta.authority;
-
-                        boolean ignorePrefered = new DSpace()
-                                .getConfigurationService()
-                                .getPropertyAsType(
-                                        "discovery.index.authority.ignore-prefered."
-                                                + field,
-                                        new DSpace()
-                                                .getConfigurationService()
-                                                .getPropertyAsType(
-                                                        "discovery.index.authority.ignore-prefered",
-                                                        new Boolean(false)),
-                                        true);
-                        if (!ignorePrefered)
-                        {
 
-                            preferedLabel = ChoiceAuthorityManager.getManager()
-                                    .getLabel(meta.schema, meta.element,
-                                            meta.qualifier, meta.authority,
-                                            meta.language);
-                        }
+                if (meta.authority != null && fieldPlan.isAuthorityIndexed(meta.confidence))
+                {
+                    authority = meta.authority;
 
-                        boolean ignoreVariants = new DSpace()
-                                .getConfigurationService()
-                                .getPropertyAsType(
-                                        "discovery.index.authority.ignore-variants."
-                                                + field,
-                                        new DSpace()
-                                                .getConfigurationService()
-                                                .getPropertyAsType(
-                                                        "discovery.index.authority.ignore-variants",
-                                                        new Boolean(false)),
-                                        true);
-                        if (!ignoreVariants)
-                        {
-                            variants = ChoiceAuthorityManager.getManager()
-                                    .getVariants(meta.schema, meta.element,
-                                            meta.qualifier, meta.authority,
-                                            meta.language);
-                        }
+                    if (!fieldPlan.isIgnorePrefered())
+                    {
 
+                        preferedLabel = ChoiceAuthorityManager.getManager()
+                                .getLabel(meta.schema, meta.element,
+                                        meta.qualifier, meta.authority,
+                                        meta.language);
                     }
-                }
 
-                if ((searchFilters.get(field) != null || searchFilters.get(unqualifiedField + "." + Item.ANY) != null))
-                {
-                    List<DiscoverySearchFilter> searchFilterConfigs = searchFilters.get(field);
-                    if(searchFilterConfigs == null)
+                    if (!fieldPlan.isIgnoreVariants())
                     {
-                        searchFilterConfigs = searchFilters.get(unqualifiedField + "." + Item.ANY);
+                        variants = ChoiceAuthorityManager.getManager()
+                                .getVariants(meta.schema, meta.element,
+                                        meta.qualifier, meta.authority,
+                                        meta.language);
                     }
+                }
 
-                    for (DiscoverySearchFilter searchFilter : searchFilterConfigs)
+                if (!fieldPlan.getSearchFilters().isEmpty())
+                {
+                    for (DiscoverySearchFilter searchFilter : fieldPlan.getSearchFilters())
                     {
                         Date date = null;
-                        String separator = new DSpace().getConfigurationService().getProperty("discovery.solr.facets.split.char");
-                        if(separator == null)
-                        {
-                            separator = FILTER_SEPARATOR;
-                        }
                         if(searchFilter.getType().equals(DiscoveryConfigurationParameters.TYPE_DATE))
                         {
                             //For our search filters that are dates we format them properly
@@ -1261,16 +1332,10 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     }
                 }
 
-                if ((sortFields.get(field) != null || recentSubmissionsConfigurationMap.get(field) != null) && !sortFieldsAdded.contains(field))
+                if (fieldPlan.getSortType() != null && !sortFieldsAdded.contains(field))
                 {
                     //Only add sort value once
-                    String type;
-                    if(sortFields.get(field) != null)
-                    {
-                        type = sortFields.get(field).getType();
-                    }else{
-                        type = recentSubmissionsConfigurationMap.get(field).getType();
-                    }
+                    String type = fieldPlan.getSortType();
 
                     if(type.equals(DiscoveryConfigurationParameters.TYPE_DATE))
                     {
@@ -1287,38 +1352,20 @@ public class SolrServiceImpl implements SearchService, IndexingService {
                     sortFieldsAdded.add(field);
                 }
 
-                if(hitHighlightingFields.contains(field) || hitHighlightingFields.contains("*") || hitHighlightingFields.contains(unqualifiedField + "." + Item.ANY))
+                if(fieldPlan.isHitHighlighting())
                 {
                     doc.addField(field + "_hl", value);
                 }
 
-                if(moreLikeThisFields.contains(field) || moreLikeThisFields.contains(unqualifiedField + "." + Item.ANY))
+                if(fieldPlan.isMoreLikeThis())
                 {
                     doc.addField(field + "_mlt", value);
                 }
 
                 doc.addField(field, value);
-                if (toProjectionFields.contains(field) || toProjectionFields.contains(unqualifiedField + "." + Item.ANY))
+                if (fieldPlan.isProjection())
                 {
-                    StringBuffer variantsToStore = new StringBuffer();
-                    if (variants != null)
-                    {
-                        for (String var : variants)
-                        {
-                            variantsToStore.append(VARIANTS_STORE_SEPARATOR);
-                            variantsToStore.append(var);
-                        }
-                    }
-                    doc.addField(
-                            field + "_stored",
-                            value + STORE_SEPARATOR + preferedLabel
-                                    + STORE_SEPARATOR
-                                    + (variantsToStore.length() > VARIANTS_STORE_SEPARATOR
-                                            .length() ? variantsToStore
-                                            .substring(VARIANTS_STORE_SEPARATOR
-                                                    .length()) : "null")
-                                    + STORE_SEPARATOR + authority
-                                    + STORE_SEPARATOR + meta.language);
+                    doc.addField(field + "_stored", toStoredValue(value, preferedLabel, variants, authority, meta.language));
                 }
 
                 if (meta.language != null && !meta.language.trim().equals(""))
@@ -1600,7 +1647,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             SolrQuery solrQuery = resolveToSolrQuery(context, discoveryQuery, includeUnDiscoverable);
 
 
-            QueryResponse queryResponse = getSolr().query(solrQuery);
+            QueryResponse queryResponse = getSearchCache().query(getSolr(), solrQuery);
             return retrieveResult(context, discoveryQuery, queryResponse);
 
         } catch (Exception e)
@@ -1798,47 +1845,13 @@ public class SolrServiceImpl implements SearchService, IndexingService {
             result.setMaxResults(query.getMaxResults());
             result.setTotalSearchResults(solrQueryResponse.getResults().getNumFound());
 
-            List<String> searchFields = query.getSearchFields();
-            for (SolrDocument doc : solrQueryResponse.getResults())
+            if (query.isProjection())
             {
-                DSpaceObject dso = findDSpaceObject(context, doc);
-
-                if(dso != null)
-                {
-                    result.addDSpaceObject(dso);
-                } else {
-                    log.error(LogManager.getHeader(context, "Error while retrieving DSpace object from discovery index", "Handle: " + doc.getFirstValue("handle")));
-                    continue;
-                }
-
-                DiscoverResult.SearchDocument resultDoc = new DiscoverResult.SearchDocument();
-                //Add information about our search fields
-                for (String field : searchFields)
-                {
-                    List<String> valuesAsString = new ArrayList<String>();
-                    for (Object o : doc.getFieldValues(field))
-                    {
-                        valuesAsString.add(String.valueOf(o));
-                    }
-                    resultDoc.addSearchField(field, valuesAsString.toArray(new String[valuesAsString.size()]));
-                }
-                result.addSearchDocument(dso, resultDoc);
-
-                if(solrQueryResponse.getHighlighting() != null)
-                {
-                    Map<String, List<String>> highlightedFields = solrQueryResponse.getHighlighting().get(dso.getType() + "-" + dso.getID());
-                    if(MapUtils.isNotEmpty(highlightedFields))
-                    {
-                        //We need to remove all the "_hl" appendix strings from our keys
-                        Map<String, List<String>> resultMap = new HashMap<String, List<String>>();
-                        for(String key : highlightedFields.keySet())
-                        {
-                            resultMap.put(key.substring(0, key.lastIndexOf("_hl")), highlightedFields.get(key));
-                        }
-
-                        result.addHighlightedResult(dso, new DiscoverResult.DSpaceObjectHighlightResult(dso, resultMap));
-                    }
-                }
+                retrieveViews(context, query, solrQueryResponse, result);
+            }
+            else
+            {
+                retrieveDSpaceObjects(context, query, solrQueryResponse, result);
             }
 
             //Resolve our facet field values
@@ -1924,6 +1937,133 @@ public class SolrServiceImpl implements SearchService, IndexingService {
         return result;
     }
 
+    /**
+     * Add the DSpace objects of the hits to the result
+     */
+    protected void retrieveDSpaceObjects(Context context, DiscoverQuery query, QueryResponse solrQueryResponse, DiscoverResult result) throws SQLException
+    {
+        List<String> searchFields = query.getSearchFields();
+        for (SolrDocument doc : solrQueryResponse.getResults())
+        {
+            DSpaceObject dso = findDSpaceObject(context, doc);
+
+            if(dso != null)
+            {
+                result.addDSpaceObject(dso);
+            } else {
+                log.error(LogManager.getHeader(context, "Error while retrieving DSpace object from discovery index", "Handle: " + doc.getFirstValue("handle")));
+                continue;
+            }
+
+            DiscoverResult.SearchDocument resultDoc = new DiscoverResult.SearchDocument();
+            //Add information about our search fields
+            for (String field : searchFields)
+            {
+                List<String> valuesAsString = new ArrayList<String>();
+                for (Object o : doc.getFieldValues(field))
+                {
+                    valuesAsString.add(String.valueOf(o));
+                }
+                resultDoc.addSearchField(field, valuesAsString.toArray(new String[valuesAsString.size()]));
+            }
+            result.addSearchDocument(dso, resultDoc);
+
+            if(solrQueryResponse.getHighlighting() != null)
+            {
+                Map<String, List<String>> highlightedFields = solrQueryResponse.getHighlighting().get(dso.getType() + "-" + dso.getID());
+                if(MapUtils.isNotEmpty(highlightedFields))
+                {
+                    //We need to remove all the "_hl" appendix strings from our keys
+                    Map<String, List<String>> resultMap = new HashMap<String, List<String>>();
+                    for(String key : highlightedFields.keySet())
+                    {
+                        resultMap.put(key.substring(0, key.lastIndexOf("_hl")), highlightedFields.get(key));
+                    }
+
+                    result.addHighlightedResult(dso, new DiscoverResult.DSpaceObjectHighlightResult(dso, resultMap));
+                }
+            }
+        }
+    }
+
+    /**
+     * Add read-only views of the hits, built from their stored fields, to
+     * the result instead of the DSpace objects themselves, so that no
+     * database queries are needed
+     */
+    protected void retrieveViews(Context context, DiscoverQuery query, QueryResponse solrQueryResponse, DiscoverResult result)
+    {
+        String titleField = getProjectionTitleField();
+        String authorField = getProjectionAuthorField();
+        String dateField = getProjectionDateField();
+        for (SolrDocument doc : solrQueryResponse.getResults())
+        {
+            Integer type = (Integer) doc.getFirstValue("search.resourcetype");
+            Integer id = (Integer) doc.getFirstValue("search.resourceid");
+            String handle = (String) doc.getFirstValue("handle");
+            if (type == null || id == null || handle == null)
+            {
+                log.error(LogManager.getHeader(context, "Error while building a view from the discovery index", "Handle: " + handle));
+                continue;
+            }
+
+            Map<String, List<String>> metadata = new HashMap<String, List<String>>();
+            for (String fieldName : doc.getFieldNames())
+            {
+                if (fieldName.endsWith("_stored") && !fieldName.startsWith("projection."))
+                {
+                    List<String> values = new ArrayList<String>();
+                    for (Object value : doc.getFieldValues(fieldName))
+                    {
+                        values.add(StringUtils.substringBefore(String.valueOf(value), STORE_SEPARATOR));
+                    }
+                    metadata.put(fieldName.substring(0, fieldName.length() - "_stored".length()), values);
+                }
+            }
+
+            List<String> titles = metadata.get(titleField);
+            List<String> authors = metadata.get(authorField);
+            List<String> dates = metadata.get(dateField);
+            String thumbnail = (String) doc.getFirstValue(PROJECTION_THUMBNAIL_FIELD);
+            DiscoverResult.DSpaceObjectView view = new DiscoverResult.DSpaceObjectView(type, id, handle,
+                    CollectionUtils.isEmpty(titles) ? null : titles.get(0),
+                    authors == null ? new ArrayList<String>() : authors,
+                    CollectionUtils.isEmpty(dates) ? null : dates.get(0),
+                    thumbnail == null ? -1 : Integer.parseInt(thumbnail),
+                    Boolean.parseBoolean((String) doc.getFirstValue(PROJECTION_OPEN_ACCESS_FIELD)),
+                    metadata);
+            result.addDSpaceObjectView(view);
+
+            DiscoverResult.SearchDocument resultDoc = new DiscoverResult.SearchDocument();
+            for (String field : query.getSearchFields())
+            {
+                List<String> valuesAsString = new ArrayList<String>();
+                for (Object o : doc.getFieldValues(field))
+                {
+                    valuesAsString.add(String.valueOf(o));
+                }
+                resultDoc.addSearchField(field, valuesAsString.toArray(new String[valuesAsString.size()]));
+            }
+            result.addSearchDocument(view, resultDoc);
+
+            if(solrQueryResponse.getHighlighting() != null)
+            {
+                Map<String, List<String>> highlightedFields = solrQueryResponse.getHighlighting().get(type + "-" + id);
+                if(MapUtils.isNotEmpty(highlightedFields))
+                {
+                    //We need to remove all the "_hl" appendix strings from our keys
+                    Map<String, List<String>> resultMap = new HashMap<String, List<String>>();
+                    for(String key : highlightedFields.keySet())
+                    {
+                        resultMap.put(key.substring(0, key.lastIndexOf("_hl")), highlightedFields.get(key));
+                    }
+
+                    result.addHighlightedResult(view, new DiscoverResult.DSpaceObjectHighlightResult(null, resultMap));
+                }
+            }
+        }
+    }
+
     protected static DSpaceObject findDSpaceObject(Context context, SolrDocument doc) throws SQLException {
 
         Integer type = (Integer) doc.getFirstValue("search.resourcetype");
@@ -2314,7 +2454,7 @@ public class SolrServiceImpl implements SearchService, IndexingService {
 		try {
             if(getSolr() != null)
             {
-                getSolr().commit();
+                commitSolr();
             }
 		} catch (Exception e) {
 			throw new SearchServiceException(e.getMessage(), e);
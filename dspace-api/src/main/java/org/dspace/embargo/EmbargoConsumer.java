@@ -0,0 +1,80 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.embargo;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.event.Consumer;
+import org.dspace.event.Event;
+
+/**
+ * Keeps the index of embargo lift dates up to date when the metadata of an
+ * Item changes or an Item is deleted, so that the embargo lifter finds Items
+ * whose lift date was edited by hand.
+ */
+public class EmbargoConsumer implements Consumer
+{
+    /** log4j logger */
+    private static Logger log = Logger.getLogger(EmbargoConsumer.class);
+
+    /** IDs of the Items changed since the last call to end() */
+    private Set<Integer> itemIDs = null;
+
+    public void initialize() throws Exception
+    {
+    }
+
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        if (event.getSubjectType() != Constants.ITEM)
+        {
+            log.warn("EmbargoConsumer should not have been given this kind of "
+                    + "subject in an event, skipping: " + event.toString());
+            return;
+        }
+        if (itemIDs == null)
+        {
+            itemIDs = new HashSet<Integer>();
+        }
+        itemIDs.add(event.getSubjectID());
+    }
+
+    public void end(Context ctx) throws Exception
+    {
+        if (itemIDs != null)
+        {
+            for (int itemID : itemIDs)
+            {
+                Item item = Item.find(ctx, itemID);
+                if (item == null)
+                {
+                    EmbargoLiftIndex.remove(ctx, itemID);
+                }
+                else
+                {
+                    EmbargoManager.updateLiftIndex(ctx, item);
+                    item.decache();
+                }
+            }
+
+            // the index was updated after the changes were committed, so we
+            // have to commit again
+            ctx.getDBConnection().commit();
+        }
+        itemIDs = null;
+    }
+
+    public void finish(Context ctx) throws Exception
+    {
+    }
+}
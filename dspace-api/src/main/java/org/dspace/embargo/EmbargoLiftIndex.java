@@ -0,0 +1,121 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.embargo;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.core.Context;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.TableRowIterator;
+
+/**
+ * Index of the embargo lift dates of Items, kept in the embargo_lift table
+ * so that the embargo lifter can find the Items which are due without
+ * looking at every embargoed Item.
+ * <p>
+ * An Item with a NULL lift date has not been checked yet, and is always
+ * treated as due.
+ */
+class EmbargoLiftIndex
+{
+    /** The latest lift date stored; later dates (such as FOREVER) are stored as this one */
+    private static final Timestamp LATEST = Timestamp.valueOf("9999-12-31 00:00:00");
+
+    /**
+     * Record the lift date of an Item, replacing any previous one.
+     *
+     * @param context the DSpace context
+     * @param itemID the ID of the Item
+     * @param liftDate the lift date, or null if it can not be interpreted
+     */
+    static void set(Context context, int itemID, Date liftDate)
+        throws SQLException
+    {
+        Timestamp lift = null;
+        if (liftDate != null)
+        {
+            lift = liftDate.after(LATEST) ? LATEST : new Timestamp(liftDate.getTime());
+        }
+
+        int updated = (lift == null)
+                ? DatabaseManager.updateQuery(context,
+                        "UPDATE embargo_lift SET lift_date = NULL WHERE item_id = ?", itemID)
+                : DatabaseManager.updateQuery(context,
+                        "UPDATE embargo_lift SET lift_date = ? WHERE item_id = ?", lift, itemID);
+        if (updated == 0)
+        {
+            if (lift == null)
+            {
+                DatabaseManager.updateQuery(context,
+                        "INSERT INTO embargo_lift (item_id) VALUES (?)", itemID);
+            }
+            else
+            {
+                DatabaseManager.updateQuery(context,
+                        "INSERT INTO embargo_lift (item_id, lift_date) VALUES (?, ?)", itemID, lift);
+            }
+        }
+    }
+
+    /**
+     * Forget the lift date of an Item, which is no longer under embargo.
+     *
+     * @param context the DSpace context
+     * @param itemID the ID of the Item
+     */
+    static void remove(Context context, int itemID)
+        throws SQLException
+    {
+        DatabaseManager.updateQuery(context, "DELETE FROM embargo_lift WHERE item_id = ?", itemID);
+    }
+
+    /**
+     * Find the Items with a lift date before the given date, or with a lift
+     * date that has not been checked yet.
+     *
+     * @param context the DSpace context
+     * @param date the date, or null to find every Item under embargo
+     * @return the IDs of the Items, in ascending order
+     */
+    static List<Integer> findDue(Context context, Date date)
+        throws SQLException
+    {
+        List<Integer> itemIDs = new ArrayList<Integer>();
+        TableRowIterator tri = null;
+        try
+        {
+            if (date == null)
+            {
+                tri = DatabaseManager.query(context,
+                        "SELECT item_id FROM embargo_lift ORDER BY item_id");
+            }
+            else
+            {
+                tri = DatabaseManager.query(context,
+                        "SELECT item_id FROM embargo_lift WHERE lift_date IS NULL OR lift_date < ? ORDER BY item_id",
+                        new Timestamp(date.getTime()));
+            }
+            while (tri.hasNext())
+            {
+                itemIDs.add(tri.next().getIntColumn("item_id"));
+            }
+        }
+        finally
+        {
+            if (tri != null)
+            {
+                tri.close();
+            }
+        }
+        return itemIDs;
+    }
+}
@@ -9,7 +9,14 @@ package org.dspace.embargo;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.HelpFormatter;
@@ -39,6 +46,11 @@ import org.dspace.handle.HandleManager;
  *   <br/>plugin.single.org.dspace.embargo.EmbargoSetter = edu.my.Setter
  *   <br/># implementation of embargo lifter plugin
  *   <br/>plugin.single.org.dspace.embargo.EmbargoLifter = edu.my.Lifter
+ * <p>
+ * The lift dates of embargoed Items are also kept in the embargo_lift table,
+ * so that the lifter only has to look at the Items which are due.  It is
+ * updated when an embargo is set or lifted, and by the EmbargoConsumer when
+ * the metadata of an Item changes.
  *
  * @author Larry Stone
  * @author Richard Rodgers
@@ -102,6 +114,7 @@ public class EmbargoManager
             setter.setEmbargo(context, item);
 
             item.update();
+            EmbargoLiftIndex.set(context, item.getID(), myLift.toDate());
         }
         finally
         {
@@ -185,6 +198,29 @@ public class EmbargoManager
 
         log.info("Lifting embargo on Item "+item.getHandle());
         item.update();
+        EmbargoLiftIndex.remove(context, item.getID());
+    }
+
+    /**
+     * Bring the embargo lift date index up to date with the lift date
+     * metadata of an Item.  Only Items in the archive are indexed.
+     *
+     * @param context the DSpace context
+     * @param item the item whose lift date may have changed
+     */
+    static void updateLiftIndex(Context context, Item item)
+        throws SQLException
+    {
+        init();
+        Metadatum lift[] = item.getMetadata(lift_schema, lift_element, lift_qualifier, Item.ANY);
+        if (lift.length > 0 && item.isArchived())
+        {
+            EmbargoLiftIndex.set(context, item.getID(), new DCDate(lift[0].value).toDate());
+        }
+        else
+        {
+            EmbargoLiftIndex.remove(context, item.getID());
+        }
     }
 
     /**
@@ -212,6 +248,12 @@ public class EmbargoManager
      *                      embargoed Item found.</dd>
      *   <dt>-q,--quiet</dt>
      *   <dd>         No output except upon error.</dd>
+     *   <dt>-t,--threads</dt>
+     *   <dd>         Number of threads processing embargoed Items in
+     *                      parallel (default 1).</dd>
+     *   <dt>-b,--batch</dt>
+     *   <dd>         Number of Items each thread processes and commits
+     *                      at a time (default 100).</dd>
      * </dl>
      */
     public static void main(String argv[])
@@ -237,6 +279,11 @@ public class EmbargoManager
         options.addOption("a", "adjust", false,
                 "Function: Adjust bitstreams policies");
 
+        options.addOption("t", "threads", true,
+                "Number of threads processing embargoed Items in parallel (default 1).");
+        options.addOption("b", "batch", true,
+                "Number of Items each thread processes and commits at a time (default 100).");
+
         options.addOption("h", "help", false, "help");
         CommandLine line = null;
         try
@@ -263,6 +310,15 @@ public class EmbargoManager
             System.exit(1);
         }
 
+        int threads = getNumericOption(line, 't', 1);
+        int batchSize = getNumericOption(line, 'b', 100);
+        if (threads < 1 || batchSize < 1)
+        {
+            System.err.println("Command error: --threads and --batch must be positive numbers.");
+            new HelpFormatter().printHelp(EmbargoManager.class.getName(), options);
+            System.exit(1);
+        }
+
         Context context = null;
         try
         {
@@ -297,13 +353,9 @@ public class EmbargoManager
             }
             else
             {
-                ItemIterator ii = Item.findByMetadataField(context, lift_schema, lift_element, lift_qualifier, Item.ANY);
-                while (ii.hasNext())
+                if (processIndexedItems(line, now, threads, batchSize))
                 {
-                    if (processOneItem(context, ii.next(), line, now))
-                    {
-                        status = 1;
-                    }
+                    status = 1;
                 }
             }
             log.debug("Cache size at end = "+context.getCacheSize());
@@ -332,6 +384,129 @@ public class EmbargoManager
         System.exit(status);
     }
 
+    // value of a numeric option, its default if it is not given, or 0 if it
+    // is not a number
+    private static int getNumericOption(CommandLine line, char opt, int defaultValue)
+    {
+        if (!line.hasOption(opt))
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Integer.parseInt(line.getOptionValue(opt));
+        }
+        catch (NumberFormatException e)
+        {
+            return 0;
+        }
+    }
+
+    // lift or check embargo on the Items in the lift date index, only those
+    // which are due when just lifting embargoes.  The Items are processed in
+    // batches by several threads, each batch with a context of its own.
+    // return false on success, true if there was a fatal exception.
+    private static boolean processIndexedItems(final CommandLine line, final Date now, int threads, int batchSize)
+        throws Exception
+    {
+        List<Integer> itemIDs;
+        Context context = new Context();
+        try
+        {
+            boolean dueOnly = line.hasOption('l') && !line.hasOption('a');
+            itemIDs = EmbargoLiftIndex.findDue(context, dueOnly ? now : null);
+        }
+        finally
+        {
+            context.abort();
+        }
+
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<Integer>> batches = new ArrayList<Future<Integer>>();
+        try
+        {
+            for (int i = 0; i < itemIDs.size(); i += Math.max(1, batchSize))
+            {
+                final List<Integer> batch = itemIDs.subList(i, Math.min(i + Math.max(1, batchSize), itemIDs.size()));
+                batches.add(executor.submit(new Callable<Integer>()
+                {
+                    @Override
+                    public Integer call() throws Exception
+                    {
+                        return processBatch(batch, line, now);
+                    }
+                }));
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        boolean status = false;
+        int failed = 0;
+        for (Future<Integer> batch : batches)
+        {
+            try
+            {
+                failed += batch.get();
+            }
+            catch (ExecutionException e)
+            {
+                log.error("Failed processing a batch of embargoed Items: ", e.getCause());
+                System.err.println("ERROR, got exception: " + e.getCause());
+                status = true;
+            }
+        }
+
+        if (!line.hasOption('q'))
+        {
+            double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+            System.out.println("Processed " + itemIDs.size() + " embargoed Items (" + failed + " failed) in "
+                    + seconds + " seconds, " + Math.round(itemIDs.size() / seconds) + " Items per second");
+        }
+        return status || failed > 0;
+    }
+
+    // lift or check embargo on a batch of Items, and commit the changes.
+    // return the number of Items that failed.
+    private static int processBatch(List<Integer> itemIDs, CommandLine line, Date now)
+        throws Exception
+    {
+        Context context = new Context();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            int failed = 0;
+            for (int itemID : itemIDs)
+            {
+                Item item = Item.find(context, itemID);
+                if (item != null && item.isArchived())
+                {
+                    if (processOneItem(context, item, line, now))
+                    {
+                        failed++;
+                    }
+                }
+                else if (!line.hasOption('n'))
+                {
+                    // deleted or withdrawn since it was indexed
+                    EmbargoLiftIndex.remove(context, itemID);
+                }
+            }
+            context.complete();
+            return failed;
+        }
+        finally
+        {
+            if (context.isValid())
+            {
+                context.abort();
+            }
+        }
+    }
+
     // lift or check embargo on one Item, handle exceptions
     // return false on success, true if there was fatal exception.
     private static boolean processOneItem(Context context, Item item, CommandLine line, Date now)
@@ -386,6 +561,10 @@ public class EmbargoManager
                 status = true;
             }
         }
+        if (!line.hasOption('n'))
+        {
+            updateLiftIndex(context, item);
+        }
         context.removeCached(item, item.getID());
         return status;
     }
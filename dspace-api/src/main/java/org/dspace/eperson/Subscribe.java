@@ -14,8 +14,10 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.TimeZone;
 
@@ -41,6 +43,7 @@ import org.dspace.core.Context;
 import org.dspace.core.Email;
 import org.dspace.core.I18nUtil;
 import org.dspace.core.LogManager;
+import org.dspace.core.QueuedEmailSender;
 import org.dspace.handle.HandleManager;
 import org.dspace.search.Harvest;
 import org.dspace.search.HarvestedItemInfo;
@@ -304,6 +307,11 @@ public class Subscribe
         EPerson currentEPerson = null;
         List<Collection> collections = null; // List of Collections
 
+        // The new items of every collection are harvested once per run and
+        // shared by all its subscribers
+        Digests digests = new Digests();
+        QueuedEmailSender sender = test ? null : new QueuedEmailSender();
+
         try
         {
             // Go through the list collating subscriptions for each e-person
@@ -322,7 +330,7 @@ public class Subscribe
 
                         try
                         {
-                            sendEmail(context, currentEPerson, collections, test);
+                            sendEmail(context, currentEPerson, collections, test, digests, sender);
                         }
                         catch (MessagingException me)
                         {
@@ -330,6 +338,7 @@ public class Subscribe
                                     + currentEPerson.getID());
                             log.error(me);
                         }
+                        context.removeCached(currentEPerson, currentEPerson.getID());
                     }
 
                     currentEPerson = EPerson.find(context, row
@@ -340,6 +349,21 @@ public class Subscribe
                 collections.add(Collection.find(context, row
                         .getIntColumn("collection_id")));
             }
+
+            // Process the last person
+            if (currentEPerson != null)
+            {
+                try
+                {
+                    sendEmail(context, currentEPerson, collections, test, digests, sender);
+                }
+                catch (MessagingException me)
+                {
+                    log.error("Failed to send subscription to eperson_id="
+                            + currentEPerson.getID());
+                    log.error(me);
+                }
+            }
         }
         finally
         {
@@ -348,20 +372,11 @@ public class Subscribe
             {
                 tri.close();
             }
-        }
 
-        // Process the last person
-        if (currentEPerson != null)
-        {
-            try
+            // wait until all queued emails are delivered
+            if (sender != null)
             {
-                sendEmail(context, currentEPerson, collections, test);
-            }
-            catch (MessagingException me)
-            {
-                log.error("Failed to send subscription to eperson_id="
-                        + currentEPerson.getID());
-                log.error(me);
+                sender.close();
             }
         }
     }
@@ -382,29 +397,26 @@ public class Subscribe
     public static void sendEmail(Context context, EPerson eperson,
             List<Collection> collections, boolean test) throws IOException, MessagingException,
             SQLException
+    {
+        sendEmail(context, eperson, collections, test, new Digests(), null);
+    }
+
+    /**
+     * Sends an email to the given e-person with details of new items in the
+     * given collections, using and filling the given digests.
+     *
+     * @param digests
+     *            new items and formatted digests of the collections processed so far
+     * @param sender
+     *            sender to queue the e-mail with, or null to send it directly
+     */
+    private static void sendEmail(Context context, EPerson eperson,
+            List<Collection> collections, boolean test, Digests digests,
+            QueuedEmailSender sender) throws IOException, MessagingException,
+            SQLException
     {
         // Get a resource bundle according to the eperson language preferences
         Locale supportedLocale = I18nUtil.getEPersonLocale(eperson);
-        ResourceBundle labels =  ResourceBundle.getBundle("Messages", supportedLocale);
-
-        // Get the start and end dates for yesterday
-
-        // The date should reflect the timezone as well. Otherwise we stand to lose that information
-        // in truncation and roll to an earlier date than intended.
-        Calendar cal = Calendar.getInstance(TimeZone.getDefault());
-        cal.setTime(new Date());
-
-        // What we actually want to pass to Harvest is "Midnight of yesterday in my current timezone"
-        // Truncation will actually pass in "Midnight of yesterday in UTC", which will be,
-        // at least in CDT, "7pm, the day before yesterday, in my current timezone".
-        cal.add(Calendar.HOUR, -24);
-        Date thisTimeYesterday = cal.getTime();
-
-        cal.set(Calendar.HOUR_OF_DAY, 0);
-        cal.set(Calendar.MINUTE, 0);
-        cal.set(Calendar.SECOND, 0);
-        Date midnightYesterday = cal.getTime();
-
 
         // FIXME: text of email should be more configurable from an
         // i18n viewpoint
@@ -414,92 +426,22 @@ public class Subscribe
         for (int i = 0; i < collections.size(); i++)
         {
             Collection c = collections.get(i);
+            String digest = digests.getDigest(context, c, supportedLocale);
 
-            try {
-                boolean includeAll = ConfigurationManager.getBooleanProperty("harvest.includerestricted.subscription", true);
-
-                // we harvest all the changed item from yesterday until now
-                List<HarvestedItemInfo> itemInfos = Harvest.harvest(context, c, new DCDate(midnightYesterday).toString(), null, 0, // Limit
-                                                                                    // and
-                                                                                    // offset
-                                                                                    // zero,
-                                                                                    // get
-                                                                                    // everything
-                        0, true, // Need item objects
-                        false, // But not containers
-                        false, // Or withdrawals
-                        includeAll);
-
-                if (ConfigurationManager.getBooleanProperty("eperson.subscription.onlynew", false))
+            // Only add to buffer if there are new items
+            if (digest.length() > 0)
+            {
+                if (!isFirst)
                 {
-                    // get only the items archived yesterday
-                    itemInfos = filterOutModified(itemInfos);
+                    emailText
+                            .append("\n---------------------------------------\n");
                 }
                 else
                 {
-                    // strip out the item archived today or
-                    // not archived yesterday and modified today
-                    itemInfos = filterOutToday(itemInfos);
+                    isFirst = false;
                 }
 
-                // Only add to buffer if there are new items
-                if (itemInfos.size() > 0)
-                {
-                    if (!isFirst)
-                    {
-                        emailText
-                                .append("\n---------------------------------------\n");
-                    }
-                    else
-                    {
-                        isFirst = false;
-                    }
-
-                    emailText.append(labels.getString("org.dspace.eperson.Subscribe.new-items")).append(" ").append(
-                            c.getMetadata("name")).append(": ").append(
-                            itemInfos.size()).append("\n\n");
-
-                    for (int j = 0; j < itemInfos.size(); j++)
-                    {
-                        HarvestedItemInfo hii = (HarvestedItemInfo) itemInfos
-                                .get(j);
-
-                        Metadatum[] titles = hii.item.getDC("title", null, Item.ANY);
-                        emailText.append("      ").append(labels.getString("org.dspace.eperson.Subscribe.title")).append(" ");
-
-                        if (titles.length > 0)
-                        {
-                            emailText.append(titles[0].value);
-                        }
-                        else
-                        {
-                            emailText.append(labels.getString("org.dspace.eperson.Subscribe.untitled"));
-                        }
-
-                        Metadatum[] authors = hii.item.getDC("contributor", Item.ANY,
-                                Item.ANY);
-
-                        if (authors.length > 0)
-                        {
-                            emailText.append("\n    ").append(labels.getString("org.dspace.eperson.Subscribe.authors")).append(" ").append(
-                                    authors[0].value);
-
-                            for (int k = 1; k < authors.length; k++)
-                            {
-                                emailText.append("\n             ").append(
-                                        authors[k].value);
-                            }
-                        }
-
-                        emailText.append("\n         ").append(labels.getString("org.dspace.eperson.Subscribe.id")).append(" ").append(
-                                HandleManager.getCanonicalForm(hii.handle)).append(
-                                "\n\n");
-                    }
-                }
-            }
-            catch (ParseException pe)
-            {
-                // This should never get thrown as the Dates are auto-generated
+                emailText.append(digest);
             }
         }
 
@@ -517,7 +459,7 @@ public class Subscribe
                 Email email = Email.getEmail(I18nUtil.getEmailFilename(supportedLocale, "subscription"));
                 email.addRecipient(eperson.getEmail());
                 email.addArgument(emailText.toString());
-                email.send();
+                email.send(sender);
 
                 log.info(LogManager.getHeader(context, "sent_subscription", "eperson_id=" + eperson.getID() ));
 
@@ -527,6 +469,152 @@ public class Subscribe
         }
     }
 
+    /**
+     * Harvests the new items of a collection
+     */
+    private static List<HarvestedItemInfo> harvestNewItems(Context context, Collection c,
+            Date midnightYesterday) throws SQLException
+    {
+        try {
+            boolean includeAll = ConfigurationManager.getBooleanProperty("harvest.includerestricted.subscription", true);
+
+            // we harvest all the changed item from yesterday until now
+            List<HarvestedItemInfo> itemInfos = Harvest.harvest(context, c, new DCDate(midnightYesterday).toString(), null, 0, // Limit
+                                                                                // and
+                                                                                // offset
+                                                                                // zero,
+                                                                                // get
+                                                                                // everything
+                    0, true, // Need item objects
+                    false, // But not containers
+                    false, // Or withdrawals
+                    includeAll);
+
+            if (ConfigurationManager.getBooleanProperty("eperson.subscription.onlynew", false))
+            {
+                // get only the items archived yesterday
+                itemInfos = filterOutModified(itemInfos);
+            }
+            else
+            {
+                // strip out the item archived today or
+                // not archived yesterday and modified today
+                itemInfos = filterOutToday(itemInfos);
+            }
+            return itemInfos;
+        }
+        catch (ParseException pe)
+        {
+            // This should never get thrown as the Dates are auto-generated
+            return new ArrayList<HarvestedItemInfo>();
+        }
+    }
+
+    /**
+     * Formats the new items of a collection for the e-mail
+     */
+    private static String formatDigest(Collection c, List<HarvestedItemInfo> itemInfos,
+            ResourceBundle labels)
+    {
+        StringBuffer emailText = new StringBuffer();
+        if (itemInfos.size() > 0)
+        {
+            emailText.append(labels.getString("org.dspace.eperson.Subscribe.new-items")).append(" ").append(
+                    c.getMetadata("name")).append(": ").append(
+                    itemInfos.size()).append("\n\n");
+
+            for (int j = 0; j < itemInfos.size(); j++)
+            {
+                HarvestedItemInfo hii = (HarvestedItemInfo) itemInfos
+                        .get(j);
+
+                Metadatum[] titles = hii.item.getDC("title", null, Item.ANY);
+                emailText.append("      ").append(labels.getString("org.dspace.eperson.Subscribe.title")).append(" ");
+
+                if (titles.length > 0)
+                {
+                    emailText.append(titles[0].value);
+                }
+                else
+                {
+                    emailText.append(labels.getString("org.dspace.eperson.Subscribe.untitled"));
+                }
+
+                Metadatum[] authors = hii.item.getDC("contributor", Item.ANY,
+                        Item.ANY);
+
+                if (authors.length > 0)
+                {
+                    emailText.append("\n    ").append(labels.getString("org.dspace.eperson.Subscribe.authors")).append(" ").append(
+                            authors[0].value);
+
+                    for (int k = 1; k < authors.length; k++)
+                    {
+                        emailText.append("\n             ").append(
+                                authors[k].value);
+                    }
+                }
+
+                emailText.append("\n         ").append(labels.getString("org.dspace.eperson.Subscribe.id")).append(" ").append(
+                        HandleManager.getCanonicalForm(hii.handle)).append(
+                        "\n\n");
+            }
+        }
+        return emailText.toString();
+    }
+
+    /**
+     * The digests of the collections of one run. The new items of a
+     * collection are harvested once, and formatted once per language.
+     */
+    private static class Digests
+    {
+        private final Date midnightYesterday;
+        private final Map<Integer, List<HarvestedItemInfo>> newItems = new HashMap<Integer, List<HarvestedItemInfo>>();
+        private final Map<String, String> formatted = new HashMap<String, String>();
+
+        Digests()
+        {
+            // Get the start and end dates for yesterday
+
+            // The date should reflect the timezone as well. Otherwise we stand to lose that information
+            // in truncation and roll to an earlier date than intended.
+            Calendar cal = Calendar.getInstance(TimeZone.getDefault());
+            cal.setTime(new Date());
+
+            // What we actually want to pass to Harvest is "Midnight of yesterday in my current timezone"
+            // Truncation will actually pass in "Midnight of yesterday in UTC", which will be,
+            // at least in CDT, "7pm, the day before yesterday, in my current timezone".
+            cal.add(Calendar.HOUR, -24);
+            cal.set(Calendar.HOUR_OF_DAY, 0);
+            cal.set(Calendar.MINUTE, 0);
+            cal.set(Calendar.SECOND, 0);
+            midnightYesterday = cal.getTime();
+        }
+
+        /**
+         * @return the new items of the collection formatted for the given
+         *         locale, or an empty string if there are no new items
+         */
+        String getDigest(Context context, Collection c, Locale locale) throws SQLException
+        {
+            String key = c.getID() + "/" + locale;
+            String digest = formatted.get(key);
+            if (digest == null)
+            {
+                List<HarvestedItemInfo> itemInfos = newItems.get(c.getID());
+                if (itemInfos == null)
+                {
+                    itemInfos = harvestNewItems(context, c, midnightYesterday);
+                    newItems.put(c.getID(), itemInfos);
+                }
+                digest = formatDigest(c, itemInfos, ResourceBundle.getBundle("Messages", locale));
+                formatted.put(key, digest);
+            }
+            return digest;
+        }
+    }
+
     /**
      * Method for invoking subscriptions via the command line
      *
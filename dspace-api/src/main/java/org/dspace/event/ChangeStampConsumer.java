@@ -0,0 +1,120 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.dspace.content.Bitstream;
+import org.dspace.content.Bundle;
+import org.dspace.content.Item;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+
+/**
+ * Changes the {@link ChangeStamps} of the objects an event is about. As the
+ * bundles and bitstreams of an Item are part of what is shown of the Item,
+ * a change to them also changes the stamp of the Items they belong to.
+ */
+public class ChangeStampConsumer implements Consumer
+{
+    /** log4j logger */
+    private static Logger log = Logger.getLogger(ChangeStampConsumer.class);
+
+    /** The bundles changed since the last call to end() */
+    private Set<Integer> bundleIDs = null;
+
+    /** The bitstreams changed since the last call to end() */
+    private Set<Integer> bitstreamIDs = null;
+
+    public void initialize() throws Exception
+    {
+    }
+
+    public void consume(Context ctx, Event event) throws Exception
+    {
+        touch(event.getSubjectType(), event.getSubjectID());
+        if (event.getObjectType() >= 0)
+        {
+            touch(event.getObjectType(), event.getObjectID());
+        }
+    }
+
+    private void touch(int type, int id)
+    {
+        ChangeStamps.touch(type, id);
+        if (type == Constants.BUNDLE)
+        {
+            if (bundleIDs == null)
+            {
+                bundleIDs = new HashSet<Integer>();
+            }
+            bundleIDs.add(id);
+        }
+        else if (type == Constants.BITSTREAM)
+        {
+            if (bitstreamIDs == null)
+            {
+                bitstreamIDs = new HashSet<Integer>();
+            }
+            bitstreamIDs.add(id);
+        }
+    }
+
+    public void end(Context ctx) throws Exception
+    {
+        // Find the items of the bundles and bitstreams changed, if they
+        // still exist
+        if (bitstreamIDs != null)
+        {
+            for (int bitstreamID : bitstreamIDs)
+            {
+                Bitstream bitstream = Bitstream.find(ctx, bitstreamID);
+                if (bitstream != null)
+                {
+                    for (Bundle bundle : bitstream.getBundles())
+                    {
+                        touchItems(bundle);
+                    }
+                }
+            }
+        }
+        if (bundleIDs != null)
+        {
+            for (int bundleID : bundleIDs)
+            {
+                Bundle bundle = Bundle.find(ctx, bundleID);
+                if (bundle != null)
+                {
+                    touchItems(bundle);
+                }
+            }
+        }
+
+        if (log.isDebugEnabled() && (bundleIDs != null || bitstreamIDs != null))
+        {
+            log.debug("Changed the stamps of the items of bundles " + bundleIDs
+                    + " and bitstreams " + bitstreamIDs);
+        }
+        bundleIDs = null;
+        bitstreamIDs = null;
+    }
+
+    private void touchItems(Bundle bundle) throws Exception
+    {
+        for (Item item : bundle.getItems())
+        {
+            ChangeStamps.touch(Constants.ITEM, item.getID());
+        }
+    }
+
+    public void finish(Context ctx) throws Exception
+    {
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.event;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Change stamps of DSpace objects, which change whenever an object is changed
+ * through this JVM, so that what is derived from an object can be cached
+ * until its stamp changes. The stamps are kept up to date by
+ * {@link ChangeStampConsumer}.
+ * <p>
+ * The objects share a fixed number of stamps, so the stamp of an object may
+ * also change when another object changes, but the memory used does not grow
+ * with the number of objects. Stamps start from the time the class is
+ * loaded, so that the stamps of a new JVM do not repeat the old ones.
+ */
+public class ChangeStamps
+{
+    /** Number of stamps, a power of two */
+    private static final int SIZE = 1 << 14;
+
+    private static final long START = System.currentTimeMillis();
+
+    private static final AtomicLongArray stamps = new AtomicLongArray(SIZE);
+
+    /** Default constructor */
+    private ChangeStamps() { }
+
+    /**
+     * Get the change stamp of an object.
+     *
+     * @param type the type of the object, as in {@link org.dspace.core.Constants}
+     * @param id the ID of the object
+     * @return the change stamp
+     */
+    public static String get(int type, int id)
+    {
+        return START + "." + stamps.get(slot(type, id));
+    }
+
+    /**
+     * Change the stamp of an object, after it has changed.
+     *
+     * @param type the type of the object, as in {@link org.dspace.core.Constants}
+     * @param id the ID of the object
+     */
+    public static void touch(int type, int id)
+    {
+        stamps.incrementAndGet(slot(type, id));
+    }
+
+    private static int slot(int type, int id)
+    {
+        int hash = 31 * type + id;
+        hash ^= (hash >>> 16);
+        return (hash * 0x9E3779B1) >>> 18;
+    }
+}
@@ -9,7 +9,9 @@ package org.dspace.handle;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.log4j.Logger;
 import org.dspace.content.Collection;
@@ -45,6 +47,9 @@ public class HandleManager
     /** Prefix registered to no one */
     static final String EXAMPLE_PREFIX = "123456789";
 
+    /** The largest number of IDs findHandles queries for at once */
+    private static final int HANDLE_BATCH_SIZE = 500;
+
     /** Private Constructor */
     private HandleManager()
     {
@@ -433,6 +438,62 @@ public class HandleManager
         }
     }
 
+    /**
+     * Return the handles of several objects of one type, with a query per
+     * batch of IDs rather than one per object. The handle of each object is
+     * chosen as {@link #findHandle(Context, DSpaceObject)} does.
+     *
+     * @param context
+     *            DSpace context
+     * @param type
+     *            The type of the objects
+     * @param ids
+     *            The IDs of the objects
+     * @return The handle of each object which has one, by ID
+     * @exception SQLException
+     *                If a database error occurs
+     */
+    public static Map<Integer, String> findHandles(Context context, int type, java.util.Collection<Integer> ids)
+            throws SQLException
+    {
+        Map<Integer, String> handles = new HashMap<Integer, String>();
+        List<Integer> idList = new ArrayList<Integer>(ids);
+        for (int start = 0; start < idList.size(); start += HANDLE_BATCH_SIZE)
+        {
+            List<Integer> batch = idList.subList(start, Math.min(start + HANDLE_BATCH_SIZE, idList.size()));
+            StringBuilder sql = new StringBuilder("SELECT * FROM Handle WHERE resource_type_id = ? AND resource_id IN (");
+            Object[] parameters = new Object[batch.size() + 1];
+            parameters[0] = type;
+            for (int i = 0; i < batch.size(); i++)
+            {
+                sql.append(i == 0 ? "?" : ", ?");
+                parameters[i + 1] = batch.get(i);
+            }
+            sql.append(") ORDER BY resource_id, handle_id");
+
+            TableRowIterator rows = DatabaseManager.queryTable(context, "Handle", sql.toString(), parameters);
+            try
+            {
+                while (rows.hasNext())
+                {
+                    TableRow row = rows.next();
+                    Integer id = row.getIntColumn("resource_id");
+                    //Prefer a handle that does NOT look like {handle.part}/{handle.part}.{version}
+                    if (!handles.containsKey(id)
+                            || !row.getStringColumn("handle").matches(".*/.*\\.\\d+"))
+                    {
+                        handles.put(id, row.getStringColumn("handle"));
+                    }
+                }
+            }
+            finally
+            {
+                rows.close();
+            }
+        }
+        return handles;
+    }
+
     /**
      * Return all the handles which start with prefix.
      *
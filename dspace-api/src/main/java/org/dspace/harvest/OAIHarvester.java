@@ -25,6 +25,11 @@ import java.util.Locale;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -112,6 +117,10 @@ public class OAIHarvester {
     // DOMbuilder class for the DOM -> JDOM conversions
     private static DOMBuilder db = new DOMBuilder();
 
+    // Minimal interval between two requests to the OAI server, in milliseconds
+    private long minRequestInterval;
+    private long lastRequest = 0;
+
     // The point at which this thread should terminate itself
 
     /* Initialize the harvester with a collection object */
@@ -146,6 +155,9 @@ public class OAIHarvester {
         	log.error("No matching metadata namespace found for \"" + metadataKey + "\", see oai.cfg option \"harvester.oai.metadataformats.{MetadataKey} = {MetadataNS},{Display Name}\"");
         	throw new HarvestingException("Metadata declaration not found");
         }
+
+        int maxRequestRate = ConfigurationManager.getIntProperty("oai", "harvester.maxRequestRate", 0);
+        minRequestInterval = maxRequestRate > 0 ? 1000 / maxRequestRate : 0;
 	}
 
 
@@ -220,7 +232,7 @@ public class OAIHarvester {
 	public void runHarvest() throws SQLException, IOException, AuthorizeException
 	{
 		// figure out the relevant parameters
-		String oaiSource = harvestRow.getOaiSource();
+		final String oaiSource = harvestRow.getOaiSource();
 		String oaiSetId = harvestRow.getOaiSetId();
         //If we have all selected then make sure that we do not include a set filter
         if("all".equals(oaiSetId))
@@ -239,6 +251,7 @@ public class OAIHarvester {
 		String toDate = processDate(startTime,0);
 
 		String dateGranularity;
+		ExecutorService fetcher = null;
 
 		try
 		{
@@ -300,12 +313,19 @@ public class OAIHarvester {
 			List<Element> records;
 			Set<String> errorSet = new HashSet<String>();
 
+			// The next page of records and the ORE documents of the current
+			// page are fetched in the background while records are ingested
+			int batchSize = Math.max(1, ConfigurationManager.getIntProperty("oai", "harvester.batchSize", 100));
+			int fetchThreads = Math.max(1, ConfigurationManager.getIntProperty("oai", "harvester.fetchThreads", 4));
+			fetcher = Executors.newFixedThreadPool(fetchThreads + 1);
+			throttle();
 			ListRecords listRecords = new ListRecords(oaiSource, fromDate, toDate, oaiSetId, descMDPrefix);
 			log.debug("Harvesting request parameters: listRecords " + oaiSource + " " + fromDate + " " + toDate + " " + oaiSetId + " " + descMDPrefix);
 			if (listRecords != null)
             {
                 log.info("HTTP Request: " + listRecords.getRequestURL());
             }
+			int processed = 0;
 			while (listRecords != null)
 			{
 				records = new ArrayList<Element>();
@@ -335,11 +355,27 @@ public class OAIHarvester {
 					records.addAll(root.getChild("ListRecords", OAI_NS).getChildren("record", OAI_NS));
 				}
 
+				// start fetching the next page of records
+				Future<ListRecords> nextPage = null;
+				resumptionToken = listRecords.getResumptionToken();
+				if (resumptionToken != null && resumptionToken.length() > 0)
+				{
+					final String token = resumptionToken;
+					nextPage = fetcher.submit(new Callable<ListRecords>() {
+						public ListRecords call() throws Exception
+						{
+							throttle();
+							return new ListRecords(oaiSource, token);
+						}
+					});
+				}
+
 				// Process the obtained records
 				if (records != null && records.size()>0)
 				{
 					log.info("Found " + records.size() + " records to process");
-					for (Element record : records) {
+					List<Future<Element>> oreRecords = prefetchORE(fetcher, records, OREPrefix);
+					for (int i = 0; i < records.size(); i++) {
 						// check for STOP interrupt from the scheduler
 						if (HarvestScheduler.interrupt == HarvestScheduler.HARVESTER_INTERRUPT_STOP)
                         {
@@ -351,18 +387,21 @@ public class OAIHarvester {
                             throw new HarvestingException("runHarvest method timed out for collection " + targetCollection.getID());
                         }
 
-						processRecord(record,OREPrefix);
-						ourContext.commit();
+						processRecord(records.get(i), OREPrefix, oreRecords.get(i));
+						if (++processed % batchSize == 0)
+						{
+							ourContext.commit();
+							ourContext.clearCache();
+						}
 					}
 				}
 
 				// keep going if there are more records to process
-				resumptionToken = listRecords.getResumptionToken();
-				if (resumptionToken == null || resumptionToken.length() == 0) {
+				if (nextPage == null) {
 					listRecords = null;
 				}
 				else {
-					listRecords = new ListRecords(oaiSource, resumptionToken);
+					listRecords = getResult(nextPage);
 				}
                 ourContext.turnOffAuthorisationSystem();
                 try {
@@ -394,6 +433,10 @@ public class OAIHarvester {
 			return;
 		}
 		finally {
+			if (fetcher != null)
+			{
+				fetcher.shutdownNow();
+			}
 			harvestRow.update();
             ourContext.turnOffAuthorisationSystem();
 			targetCollection.update();
@@ -417,6 +460,17 @@ public class OAIHarvester {
      * @param OREPrefix the metadataprefix value used by the remote PMH server to disseminate ORE. Only used for collections set up to harvest content.
      */
     private void processRecord(Element record, String OREPrefix) throws SQLException, AuthorizeException, IOException, CrosswalkException, HarvestingException, ParserConfigurationException, SAXException, TransformerException
+    {
+        processRecord(record, OREPrefix, null);
+    }
+
+    /**
+     * Process an individual PMH record, making (or updating) a corresponding DSpace Item.
+     * @param record a JDOM Element containing the actual PMH record with descriptive metadata.
+     * @param OREPrefix the metadataprefix value used by the remote PMH server to disseminate ORE. Only used for collections set up to harvest content.
+     * @param oreRecord the ORE ReM of the record fetched in the background, or null to fetch it now.
+     */
+    private void processRecord(Element record, String OREPrefix, Future<Element> oreRecord) throws SQLException, AuthorizeException, IOException, CrosswalkException, HarvestingException, ParserConfigurationException, SAXException, TransformerException
     {
     	WorkspaceItem wi = null;
     	Date timeStart = new Date();
@@ -448,7 +502,15 @@ public class OAIHarvester {
     	IngestionCrosswalk ORExwalk = null;
     	Element oreREM = null;
     	if (harvestRow.getHarvestType() > 1) {
-    		oreREM = getMDrecord(harvestRow.getOaiSource(), itemOaiID, OREPrefix).get(0);
+    		if (oreRecord != null)
+            {
+                oreREM = getResult(oreRecord);
+            }
+            else
+            {
+                throttle();
+                oreREM = getMDrecord(harvestRow.getOaiSource(), itemOaiID, OREPrefix).get(0);
+            }
     		ORExwalk = (IngestionCrosswalk)PluginManager.getNamedPlugin(IngestionCrosswalk.class, this.ORESerialKey);
     	}
 
@@ -606,6 +668,97 @@ public class OAIHarvester {
 
 
 
+    /**
+     * Start fetching the ORE ReMs of all records that are not deleted, if the
+     * collection harvests ORE at all.
+     * @return one Future per record, null for records without ORE.
+     */
+    private List<Future<Element>> prefetchORE(ExecutorService fetcher, List<Element> records, final String OREPrefix)
+    {
+        List<Future<Element>> result = new ArrayList<Future<Element>>(records.size());
+        for (Element record : records)
+        {
+            Element header = record.getChild("header", OAI_NS);
+            if (harvestRow.getHarvestType() <= 1
+                    || (header.getAttribute("status") != null && header.getAttribute("status").getValue().equals("deleted")))
+            {
+                result.add(null);
+                continue;
+            }
+
+            final String itemOaiID = header.getChild("identifier", OAI_NS).getText();
+            result.add(fetcher.submit(new Callable<Element>() {
+                public Element call() throws Exception
+                {
+                    throttle();
+                    return getMDrecord(harvestRow.getOaiSource(), itemOaiID, OREPrefix).get(0);
+                }
+            }));
+        }
+        return result;
+    }
+
+    /**
+     * Wait for a background fetch and unwrap its exceptions.
+     */
+    private static <T> T getResult(Future<T> future) throws IOException, HarvestingException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new HarvestingException("Interrupted while waiting for the OAI server", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof HarvestingException)
+            {
+                throw (HarvestingException) cause;
+            }
+            throw new HarvestingException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Wait until the next request to the OAI server is allowed by
+     * harvester.maxRequestRate.
+     */
+    private void throttle() throws HarvestingException
+    {
+        if (minRequestInterval <= 0)
+        {
+            return;
+        }
+        long wait;
+        synchronized (this)
+        {
+            long now = System.currentTimeMillis();
+            long next = Math.max(now, lastRequest + minRequestInterval);
+            lastRequest = next;
+            wait = next - now;
+        }
+        if (wait > 0)
+        {
+            try
+            {
+                Thread.sleep(wait);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new HarvestingException("Interrupted while waiting for the OAI server", e);
+            }
+        }
+    }
+
     /**
      * Scan an item's metadata, looking for the value "identifier.*". If it meets the parameters that identify it as valid handle
      * as set in dspace.cfg (harvester.acceptedHandleServer and harvester.rejectedHandlePrefix), use that handle instead of
@@ -887,7 +1040,8 @@ public class OAIHarvester {
 			throw new HarvestingException("OAI server returned the following errors during getDescMD execution: " + errorSet.toString());
 		}
 
-		Document record = db.build(getRecord.getDocument());
+		// may be called from several fetching threads, so don't share the DOMBuilder
+		Document record = new DOMBuilder().build(getRecord.getDocument());
 		Element root = record.getRootElement();
 
 		return root.getChild("GetRecord",OAI_NS).getChild("record", OAI_NS).getChild("metadata",OAI_NS).getChildren();
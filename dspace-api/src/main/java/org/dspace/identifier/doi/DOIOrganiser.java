@@ -11,8 +11,14 @@ package org.dspace.identifier.doi;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.HelpFormatter;
@@ -48,10 +54,21 @@ public class DOIOrganiser {
 
     private static final Logger LOG = Logger.getLogger(DOIOrganiser.class);
 
+    // actions that can be run for a whole queue of DOIs
+    public static final String RESERVE = "reserve";
+    public static final String REGISTER = "register";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
     private DOIIdentifierProvider provider;
     private Context context;
     private boolean quiet;
 
+    // settings used to process a queue of DOIs in parallel
+    private int threads = 1;
+    private double rate = 0;
+    private int batchSize = 100;
+
     public DOIOrganiser(Context context, DOIIdentifierProvider provider)
     {
         this.context = context;
@@ -112,6 +129,16 @@ public class DOIOrganiser {
         
         options.addOption("q", "quiet", false,
                 "Turn the command line output off.");
+
+        options.addOption("t", "threads", true,
+                "Number of DOIs to process in parallel when reserving, registering, "
+                + "updating or deleting all queued DOIs (default 1).");
+        options.addOption("m", "max-rate", true,
+                "Maximum number of DOIs to send to the registration agency per "
+                + "second, over all threads (default: no limit).");
+        options.addOption("b", "batch-size", true,
+                "Number of processed DOIs after which the database changes "
+                + "are committed when using more than one thread (default 100).");
         
         Option registerDoi = OptionBuilder.withArgName("DOI|ItemID|handle")
                 .withLongOpt("register-doi")
@@ -176,6 +203,28 @@ public class DOIOrganiser {
         {
             organiser.setQuiet();
         }
+
+        try
+        {
+            if (line.hasOption('t'))
+            {
+                organiser.setThreads(Integer.parseInt(line.getOptionValue('t')));
+            }
+            if (line.hasOption('m'))
+            {
+                organiser.setRate(Double.parseDouble(line.getOptionValue('m')));
+            }
+            if (line.hasOption('b'))
+            {
+                organiser.setBatchSize(Integer.parseInt(line.getOptionValue('b')));
+            }
+        }
+        catch (NumberFormatException ex)
+        {
+            System.err.println("The options threads, max-rate and batch-size need a number: "
+                    + ex.getMessage());
+            System.exit(1);
+        }
         
         if (line.hasOption('l'))
         {
@@ -188,7 +237,11 @@ public class DOIOrganiser {
             organiser.list("deletion", null, null, DOIIdentifierProvider.TO_BE_DELETED);
         }
 
-        if (line.hasOption('s'))
+        if (line.hasOption('s') && organiser.threads > 1)
+        {
+            organiser.processAll(RESERVE, DOIIdentifierProvider.TO_BE_RESERVERED);
+        }
+        else if (line.hasOption('s'))
         {
             TableRowIterator it = organiser
                                     .getDOIsByStatus(DOIIdentifierProvider.TO_BE_RESERVERED);
@@ -215,7 +268,11 @@ public class DOIOrganiser {
             }
         }
 
-        if (line.hasOption('r'))
+        if (line.hasOption('r') && organiser.threads > 1)
+        {
+            organiser.processAll(REGISTER, DOIIdentifierProvider.TO_BE_REGISTERED);
+        }
+        else if (line.hasOption('r'))
         {
             TableRowIterator it = organiser
                                     .getDOIsByStatus(DOIIdentifierProvider.TO_BE_REGISTERED);
@@ -241,7 +298,13 @@ public class DOIOrganiser {
             }
         }
         
-        if (line.hasOption('u'))
+        if (line.hasOption('u') && organiser.threads > 1)
+        {
+            organiser.processAll(UPDATE, DOIIdentifierProvider.UPDATE_BEFORE_REGISTERATION,
+                    DOIIdentifierProvider.UPDATE_RESERVERED,
+                    DOIIdentifierProvider.UPDATE_REGISTERED);
+        }
+        else if (line.hasOption('u'))
         {
             TableRowIterator it = organiser.getDOIsByStatus(
                     DOIIdentifierProvider.UPDATE_BEFORE_REGISTERATION,
@@ -270,7 +333,11 @@ public class DOIOrganiser {
             }
         }
 
-        if (line.hasOption('d'))
+        if (line.hasOption('d') && organiser.threads > 1)
+        {
+            organiser.processAll(DELETE, DOIIdentifierProvider.TO_BE_DELETED);
+        }
+        else if (line.hasOption('d'))
         {
             TableRowIterator it = organiser
                                     .getDOIsByStatus(DOIIdentifierProvider.TO_BE_DELETED);
@@ -409,6 +476,191 @@ public class DOIOrganiser {
     }
     
 
+    /**
+     * Process all DOIs with one of the given status using several threads,
+     * each with its own Context. The database changes of each thread are
+     * committed every batchSize DOIs, so an interrupted run keeps most of its
+     * work. If a maximum rate is set, the threads together will not start more
+     * than that many DOIs per second.
+     *
+     * @param action one of RESERVE, REGISTER, UPDATE or DELETE.
+     * @param status the status of the DOIs to process.
+     */
+    public void processAll(final String action, Integer ... status)
+    {
+        // Load the IDs of the rows up front, so that no result set is kept
+        // open while the status of the DOIs is changed by the threads.
+        final List<Integer> doiIDs = new ArrayList<Integer>();
+        TableRowIterator it = this.getDOIsByStatus(status);
+        try
+        {
+            while (it.hasNext())
+            {
+                doiIDs.add(it.next().getIntColumn("doi_id"));
+            }
+        }
+        catch (SQLException ex)
+        {
+            LOG.error("Error while trying to get data from database", ex);
+            throw new RuntimeException("Error while trying to get data from database", ex);
+        }
+        finally
+        {
+            it.close();
+        }
+
+        if (doiIDs.isEmpty())
+        {
+            System.err.println("There are no DOIs in the database to " + action + ".");
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger(0);
+        final AtomicInteger processed = new AtomicInteger(0);
+        final RateLimiter limiter = new RateLimiter(rate);
+        int nThreads = Math.min(threads, doiIDs.size());
+        long start = System.currentTimeMillis();
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        for (int i = 0; i < nThreads; i++)
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    processQueue(action, doiIDs, next, processed, limiter);
+                }
+            });
+        }
+        executor.shutdown();
+
+        try
+        {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+            {
+                LOG.info("Processed " + processed.get() + " of " + doiIDs.size()
+                        + " DOIs to " + action + ".");
+            }
+        }
+        catch (InterruptedException ex)
+        {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+        String summary = "Processed " + processed.get() + " DOIs to " + action
+                + " with " + nThreads + " threads in " + seconds + " seconds ("
+                + (processed.get() / seconds) + " DOIs per second).";
+        LOG.info(summary);
+        if (!quiet)
+        {
+            System.out.println(summary);
+        }
+    }
+
+    /**
+     * Work done by each of the threads of processAll: take the next DOI of
+     * the shared list until it is exhausted.
+     */
+    private void processQueue(String action, List<Integer> doiIDs,
+            AtomicInteger next, AtomicInteger processed, RateLimiter limiter)
+    {
+        Context workerContext = null;
+        try
+        {
+            workerContext = new Context();
+            workerContext.turnOffAuthorisationSystem();
+            DOIOrganiser worker = new DOIOrganiser(workerContext, provider);
+            worker.quiet = this.quiet;
+
+            int uncommitted = 0;
+            int idx;
+            while ((idx = next.getAndIncrement()) < doiIDs.size())
+            {
+                limiter.acquire();
+                TableRow doiRow = DatabaseManager.find(workerContext, "Doi", doiIDs.get(idx));
+                if (null == doiRow)
+                {
+                    // removed since we loaded the list
+                    continue;
+                }
+                try
+                {
+                    worker.process(action, doiRow);
+                }
+                catch (RuntimeException ex)
+                {
+                    // don't let a single DOI stop the whole thread
+                    LOG.error("Unable to " + action + " DOI " + DOI.SCHEME
+                            + doiRow.getStringColumn("doi") + ".", ex);
+                }
+                processed.incrementAndGet();
+
+                if (++uncommitted >= batchSize)
+                {
+                    workerContext.commit();
+                    workerContext.clearCache();
+                    uncommitted = 0;
+                }
+            }
+
+            workerContext.complete();
+        }
+        catch (SQLException ex)
+        {
+            LOG.error("Error in database connection, stopping this thread.", ex);
+        }
+        catch (InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            if (workerContext != null && workerContext.isValid())
+            {
+                workerContext.abort();
+            }
+        }
+    }
+
+    private void process(String action, TableRow doiRow) throws SQLException
+    {
+        if (DELETE.equals(action))
+        {
+            this.delete(doiRow.getStringColumn("doi"));
+            return;
+        }
+
+        DSpaceObject dso = DSpaceObject.find(context,
+                doiRow.getIntColumn("resource_type_id"),
+                doiRow.getIntColumn("resource_id"));
+        if (null == dso)
+        {
+            LOG.warn("Cannot find the object of DOI " + DOI.SCHEME
+                    + doiRow.getStringColumn("doi") + ", skipping it.");
+            return;
+        }
+
+        if (RESERVE.equals(action))
+        {
+            this.reserve(doiRow, dso);
+        }
+        else if (REGISTER.equals(action))
+        {
+            this.register(doiRow, dso);
+        }
+        else if (UPDATE.equals(action))
+        {
+            this.update(doiRow, dso);
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown action " + action + ".");
+        }
+    }
+
     public TableRowIterator getDOIsByStatus(Integer ... status)
     {
         try 
@@ -932,5 +1184,71 @@ public class DOIOrganiser {
     {
         this.quiet = true;
     }
+
+    /**
+     * @param threads number of threads used by processAll.
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param rate maximum number of DOIs per second processed by processAll,
+     *             0 or less for no limit.
+     */
+    public void setRate(double rate)
+    {
+        this.rate = rate;
+    }
+
+    /**
+     * @param batchSize number of DOIs after which processAll commits.
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Spaces out the calls to acquire() so that no more than the given number
+     * of calls per second return, however many threads are calling it.
+     */
+    private static class RateLimiter
+    {
+        private final long interval;
+        private long nextSlot;
+
+        RateLimiter(double perSecond)
+        {
+            this.interval = perSecond > 0 ? (long) (1000000000L / perSecond) : 0;
+            this.nextSlot = System.nanoTime();
+        }
+
+        void acquire() throws InterruptedException
+        {
+            if (interval == 0)
+            {
+                return;
+            }
+
+            long wait;
+            synchronized (this)
+            {
+                long now = System.nanoTime();
+                if (nextSlot < now)
+                {
+                    nextSlot = now;
+                }
+                wait = nextSlot - now;
+                nextSlot += interval;
+            }
+
+            if (wait > 0)
+            {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+    }
     
 }
@@ -13,18 +13,27 @@ import java.net.URISyntaxException;
 import java.sql.SQLException;
 import java.util.Iterator;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.DSpaceObject;
@@ -99,12 +108,33 @@ implements DOIConnector
     
     protected String USERNAME;
     protected String PASSWORD;
+
+    /**
+     * Port of the DataCite server, -1 to use the default port of the scheme.
+     * Can be set by spring dependency injection.
+     */
+    protected int PORT;
+
+    /**
+     * Maximum number of pooled connections to the DataCite server. Can be set
+     * by spring dependency injection.
+     */
+    protected int maxConnections;
+
+    /**
+     * HTTP client shared by all requests, so that connections to the DataCite
+     * server are kept alive and reused instead of being opened per API call.
+     * Created on first use, as it needs the credentials.
+     */
+    private volatile CloseableHttpClient httpclient;
     
     public DataCiteConnector()
     {
         this.xwalk = null;
         this.USERNAME = null;
         this.PASSWORD = null;
+        this.PORT = -1;
+        this.maxConnections = 20;
     }
     
     /**
@@ -170,6 +200,28 @@ implements DOIConnector
     }
     
     
+    /**
+     * Set the port of the DataCite server. Only needed if it is not the
+     * default port of the scheme. Used by spring dependency injection.
+     * @param DATACITE_PORT Port to connect to.
+     */
+    public void setDATACITE_PORT(int DATACITE_PORT)
+    {
+        this.PORT = DATACITE_PORT;
+    }
+
+    /**
+     * Set the maximum number of connections kept open to the DataCite server.
+     * This limits how many requests can be sent in parallel, e.g. by the
+     * DOIOrganiser running with several threads. Used by spring dependency
+     * injection.
+     * @param maxConnections maximum number of pooled connections (default 20).
+     */
+    public void setMaxConnections(int maxConnections)
+    {
+        this.maxConnections = maxConnections;
+    }
+
     @Autowired
     @Required
     public void setConfigurationService(ConfigurationService configurationService)
@@ -687,7 +739,7 @@ implements DOIConnector
         // post mds/doi/
         // body must contaion "doi=<doi>\nurl=<url>}n"
         URIBuilder uribuilder = new URIBuilder();
-        uribuilder.setScheme(SCHEME).setHost(HOST).setPath(DOI_PATH);
+        uribuilder.setScheme(SCHEME).setHost(HOST).setPort(PORT).setPath(DOI_PATH);
         
         HttpPost httppost = null;
         try
@@ -736,7 +788,7 @@ implements DOIConnector
     {
         // delete mds/metadata/<doi>
         URIBuilder uribuilder = new URIBuilder();
-        uribuilder.setScheme(SCHEME).setHost(HOST).setPath(METADATA_PATH
+        uribuilder.setScheme(SCHEME).setHost(HOST).setPort(PORT).setPath(METADATA_PATH
                 + doi.substring(DOI.SCHEME.length()));
         
         HttpDelete httpdelete = null;
@@ -772,7 +824,7 @@ implements DOIConnector
             throws DOIIdentifierException
     {
         URIBuilder uribuilder = new URIBuilder();
-        uribuilder.setScheme(SCHEME).setHost(HOST).setPath(path
+        uribuilder.setScheme(SCHEME).setHost(HOST).setPort(PORT).setPath(path
                 + doi.substring(DOI.SCHEME.length()));
         
         HttpGet httpget = null;
@@ -807,7 +859,7 @@ implements DOIConnector
         // post mds/metadata/
         // body must contain metadata in DataCite-XML.
         URIBuilder uribuilder = new URIBuilder();
-        uribuilder.setScheme(SCHEME).setHost(HOST).setPath(METADATA_PATH);
+        uribuilder.setScheme(SCHEME).setHost(HOST).setPort(PORT).setPath(METADATA_PATH);
         
         HttpPost httppost = null;
         try
@@ -849,6 +901,43 @@ implements DOIConnector
         }
     }
     
+    /**
+     * Returns the HTTP client shared by all requests to the DataCite server.
+     * It uses a pool of keep-alive connections, so it is safe to use from
+     * several threads at once.
+     * @return the shared HTTP client.
+     */
+    protected CloseableHttpClient getHttpClient()
+    {
+        CloseableHttpClient client = this.httpclient;
+        if (null == client)
+        {
+            synchronized (this)
+            {
+                client = this.httpclient;
+                if (null == client)
+                {
+                    PoolingHttpClientConnectionManager connManager = new PoolingHttpClientConnectionManager();
+                    connManager.setMaxTotal(maxConnections);
+                    // all our requests go to the same route
+                    connManager.setDefaultMaxPerRoute(maxConnections);
+
+                    CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+                    credentialsProvider.setCredentials(
+                            new AuthScope(HOST, PORT < 0 ? 443 : PORT),
+                            new UsernamePasswordCredentials(this.getUsername(), this.getPassword()));
+
+                    client = HttpClients.custom()
+                            .setConnectionManager(connManager)
+                            .setDefaultCredentialsProvider(credentialsProvider)
+                            .build();
+                    this.httpclient = client;
+                }
+            }
+        }
+        return client;
+    }
+
     /**
      * 
      * @param req
@@ -859,15 +948,17 @@ implements DOIConnector
     protected DataCiteResponse sendHttpRequest(HttpUriRequest req, String doi)
             throws DOIIdentifierException
     {
-        DefaultHttpClient httpclient = new DefaultHttpClient();
-        httpclient.getCredentialsProvider().setCredentials(
-                new AuthScope(HOST, 443),
-                new UsernamePasswordCredentials(this.getUsername(), this.getPassword()));
-        
         HttpEntity entity = null;
         try
         {
-            HttpResponse response = httpclient.execute(req);
+            // Send the credentials with the first request instead of waiting
+            // for the server to ask for them, saving a round trip per call.
+            AuthCache authCache = new BasicAuthCache();
+            authCache.put(new HttpHost(HOST, PORT, SCHEME), new BasicScheme());
+            HttpClientContext httpContext = HttpClientContext.create();
+            httpContext.setAuthCache(authCache);
+
+            HttpResponse response = getHttpClient().execute(req, httpContext);
             
             StatusLine status = response.getStatusLine();
             int statusCode = status.getStatusCode();
@@ -0,0 +1,505 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.authorize.AuthorizeException;
+import org.dspace.content.DSpaceObject;
+import org.dspace.content.Item;
+import org.dspace.content.Site;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.rdf.storage.BatchRDFStorage;
+import org.dspace.rdf.storage.RDFStorage;
+
+/**
+ * Converts DSpaceObjects on a pool of worker threads and stores the converted
+ * data in batches. Each worker uses its own anonymous Context, so only data
+ * readable by anonymous users gets converted. The Contexts are read-only
+ * unless told otherwise, so they read from the read-only database if one is
+ * configured. Each DSpaceObject is
+ * converted once only, however often it is submitted. If the configured
+ * {@link RDFStorage} is a {@link BatchRDFStorage}, every batch is written at
+ * once (g.e. in one transaction), otherwise the graphs of a batch are stored
+ * one after another.
+ * <p>
+ * Call {@link #finish()} to wait until all submitted DSpaceObjects are
+ * converted and stored. A converter is used once only, but it may run on a
+ * pool of threads which outlives it (see
+ * {@link #RDFBatchConverter(ExecutorService, int, boolean, boolean, boolean)}).
+ * </p>
+ */
+public class RDFBatchConverter
+{
+    private static final Logger log = Logger.getLogger(RDFBatchConverter.class);
+
+    protected final int batchSize;
+    protected final boolean dryrun;
+    protected final boolean deleteIfNotPublic;
+    protected final boolean readOnly;
+    protected final ExecutorService executor;
+    /** Whether the executor was created by this converter and is shut down by finish(). */
+    protected final boolean ownExecutor;
+    /** The tasks submitted to a shared executor, which finish() waits for. */
+    protected final List<Future<?>> tasks;
+
+    /** Every DSpaceObject submitted already, as "type/id". */
+    protected final Set<String> submitted;
+    /** The Contexts of the workers, to be closed by finish(). */
+    protected final List<Context> contexts;
+    protected final ThreadLocal<Context> workerContext;
+
+    /** Converted data not stored yet. */
+    protected Map<String, Model> toStore;
+    /** URIs to delete from the triple store. */
+    protected Set<String> toDelete;
+    /** DSpaceObjects that could not be found anymore. */
+    protected final List<int[]> missing;
+
+    protected final AtomicInteger converted;
+    protected final AtomicInteger skipped;
+    protected final long start;
+
+    /**
+     * @param threads Number of worker threads.
+     * @param batchSize Number of graphs to store together.
+     * @param dryrun If true, the converted data is not stored and nothing is
+     *               deleted from the triple store.
+     * @param deleteIfNotPublic If true, data of DSpaceObjects that are not
+     *               readable by anonymous users (or items that are not
+     *               archived, discoverable or that are withdrawn) will be
+     *               deleted from the triple store, otherwise those DSpaceObjects
+     *               are skipped only.
+     */
+    public RDFBatchConverter(int threads, int batchSize, boolean dryrun, boolean deleteIfNotPublic)
+    {
+        this(threads, batchSize, dryrun, deleteIfNotPublic, true);
+    }
+
+    /**
+     * @param threads Number of worker threads.
+     * @param batchSize Number of graphs to store together.
+     * @param dryrun If true, the converted data is not stored and nothing is
+     *               deleted from the triple store.
+     * @param deleteIfNotPublic If true, data of DSpaceObjects that are not
+     *               readable by anonymous users (or items that are not
+     *               archived, discoverable or that are withdrawn) will be
+     *               deleted from the triple store, otherwise those DSpaceObjects
+     *               are skipped only.
+     * @param readOnly If false, the workers use Contexts which are not
+     *               read-only and so read from the main database, g.e. to
+     *               see changes just committed which a replica may not have
+     *               yet.
+     */
+    public RDFBatchConverter(int threads, int batchSize, boolean dryrun,
+            boolean deleteIfNotPublic, boolean readOnly)
+    {
+        this(Executors.newFixedThreadPool(Math.max(1, threads)), true,
+                batchSize, dryrun, deleteIfNotPublic, readOnly);
+    }
+
+    /**
+     * Creates a converter which runs on a shared pool of threads. The pool is
+     * not shut down by {@link #finish()}, which waits for the DSpaceObjects
+     * submitted to this converter only.
+     * @param executor The pool of worker threads.
+     * @param batchSize Number of graphs to store together.
+     * @param dryrun If true, the converted data is not stored and nothing is
+     *               deleted from the triple store.
+     * @param deleteIfNotPublic If true, data of DSpaceObjects that are not
+     *               readable by anonymous users will be deleted from the
+     *               triple store, otherwise those DSpaceObjects are skipped
+     *               only.
+     * @param readOnly If false, the workers use Contexts which are not
+     *               read-only.
+     */
+    public RDFBatchConverter(ExecutorService executor, int batchSize,
+            boolean dryrun, boolean deleteIfNotPublic, boolean readOnly)
+    {
+        this(executor, false, batchSize, dryrun, deleteIfNotPublic, readOnly);
+    }
+
+    private RDFBatchConverter(ExecutorService executor, boolean ownExecutor,
+            int batchSize, boolean dryrun, boolean deleteIfNotPublic,
+            boolean readOnly)
+    {
+        this.batchSize = Math.max(1, batchSize);
+        this.dryrun = dryrun;
+        this.deleteIfNotPublic = deleteIfNotPublic;
+        this.readOnly = readOnly;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.tasks = Collections.synchronizedList(new ArrayList<Future<?>>());
+        this.submitted = Collections.synchronizedSet(new HashSet<String>());
+        this.contexts = Collections.synchronizedList(new ArrayList<Context>());
+        this.workerContext = new ThreadLocal<>();
+        this.toStore = new LinkedHashMap<>();
+        this.toDelete = new LinkedHashSet<>();
+        this.missing = Collections.synchronizedList(new ArrayList<int[]>());
+        this.converted = new AtomicInteger(0);
+        this.skipped = new AtomicInteger(0);
+        this.start = System.currentTimeMillis();
+    }
+
+    /**
+     * Queue a DSpaceObject for conversion. The DSpaceObject is loaded again
+     * by a worker using its own Context.
+     * @param type Type of the DSpaceObject (SITE, COMMUNITY, COLLECTION or ITEM).
+     * @param id ID of the DSpaceObject.
+     * @return false if the DSpaceObject was submitted before.
+     */
+    public boolean submit(final int type, final int id)
+    {
+        if (!submitted.add(Integer.toString(type) + "/" + Integer.toString(id)))
+        {
+            return false;
+        }
+        Runnable task = new Runnable() {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    convert(getContext(), type, id);
+                }
+                catch (SQLException | RuntimeException ex)
+                {
+                    log.error("Error while converting " + Constants.typeText[type]
+                            + " " + id + ".", ex);
+                }
+            }
+        };
+        if (ownExecutor)
+        {
+            executor.execute(task);
+        } else {
+            tasks.add(executor.submit(task));
+        }
+        return true;
+    }
+
+    /**
+     * Waits until all submitted DSpaceObjects are converted, stores all
+     * remaining data and shuts the worker threads down, unless they are
+     * shared.
+     * @return Type and ID of all submitted DSpaceObjects that could not be
+     *         found anymore.
+     */
+    public List<int[]> finish()
+    {
+        if (ownExecutor)
+        {
+            executor.shutdown();
+            try
+            {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES))
+                {
+                    log.info("Converted " + converted.get() + " of "
+                            + submitted.size() + " DSpaceObjects so far.");
+                }
+            }
+            catch (InterruptedException ex)
+            {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        } else {
+            awaitTasks();
+        }
+        flush();
+
+        synchronized (contexts)
+        {
+            for (Context context : contexts)
+            {
+                context.abort();
+            }
+            contexts.clear();
+        }
+
+        long seconds = Math.max(1, (System.currentTimeMillis() - start) / 1000);
+        log.info("Converted " + converted.get() + " DSpaceObjects (skipped "
+                + skipped.get() + ") in " + seconds + " seconds ("
+                + (converted.get() / seconds) + " per second).");
+        return new ArrayList<>(missing);
+    }
+
+    /**
+     * Waits for the tasks submitted to a shared executor. If interrupted, the
+     * tasks not started yet are cancelled.
+     */
+    protected void awaitTasks()
+    {
+        synchronized (tasks)
+        {
+            for (Future<?> task : tasks)
+            {
+                try
+                {
+                    task.get();
+                }
+                catch (ExecutionException ex)
+                {
+                    log.error("Error while converting.", ex.getCause());
+                }
+                catch (InterruptedException ex)
+                {
+                    for (Future<?> pending : tasks)
+                    {
+                        pending.cancel(false);
+                    }
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            tasks.clear();
+        }
+    }
+
+    public int getConvertedCount()
+    {
+        return converted.get();
+    }
+
+    public int getSkippedCount()
+    {
+        return skipped.get();
+    }
+
+    protected Context getContext() throws SQLException
+    {
+        Context context = workerContext.get();
+        if (context == null)
+        {
+            // anonymous user, we don't want to store private data in a
+            // triplestore with public SPARQL endpoint. The context is never
+            // committed, it is aborted by finish().
+            context = readOnly ? new Context(Context.READ_ONLY) : new Context();
+            workerContext.set(context);
+            contexts.add(context);
+        }
+        return context;
+    }
+
+    protected void convert(Context context, int type, int id)
+            throws SQLException
+    {
+        DSpaceObject dso;
+        if (type == Constants.SITE)
+        {
+            dso = Site.find(context, Site.SITE_ID);
+        } else {
+            dso = DSpaceObject.find(context, type, id);
+        }
+        if (dso == null)
+        {
+            log.warn("Cannot find " + Constants.typeText[type] + " " + id
+                    + ", it was probably deleted.");
+            missing.add(new int[] {type, id});
+            return;
+        }
+
+        try
+        {
+            String identifier = RDFUtil.generateIdentifier(context, dso);
+            if (StringUtils.isEmpty(identifier))
+            {
+                log.error("Cannot generate identifier for dso from type "
+                        + dso.getTypeText() + " (id: " + dso.getID() + ").");
+                skipped.incrementAndGet();
+                return;
+            }
+
+            Model model = null;
+            try
+            {
+                model = RDFUtil.convert(context, dso);
+            }
+            catch (AuthorizeException | ItemNotArchivedException
+                    | ItemNotDiscoverableException | ItemWithdrawnException ex)
+            {
+                log.debug("Not converting " + dso.getTypeText() + " "
+                        + dso.getID() + ": " + ex.getClass().getSimpleName());
+                skipped.incrementAndGet();
+                if (deleteIfNotPublic)
+                {
+                    queueDelete(identifier);
+                }
+                return;
+            }
+            catch (RDFMissingIdentifierException ex)
+            {
+                log.error("Cannot generate identifier for " + dso.getTypeText()
+                        + " " + dso.getID() + ".", ex);
+                skipped.incrementAndGet();
+                return;
+            }
+
+            converted.incrementAndGet();
+            if (model == null)
+            {
+                // a conversion resulting in no data should remove stored data
+                queueDelete(identifier);
+            } else {
+                queueStore(identifier, model);
+            }
+        }
+        finally
+        {
+            // keep the cache of the long living worker contexts small
+            if (dso instanceof Item)
+            {
+                ((Item) dso).decache();
+            }
+        }
+    }
+
+    protected void queueStore(String identifier, Model model)
+    {
+        if (dryrun)
+        {
+            model.close();
+            return;
+        }
+        Map<String, Model> batch = null;
+        synchronized (this)
+        {
+            Model old = toStore.put(identifier, model);
+            if (old != null)
+            {
+                old.close();
+            }
+            if (toStore.size() >= batchSize)
+            {
+                batch = toStore;
+                toStore = new LinkedHashMap<>();
+            }
+        }
+        if (batch != null)
+        {
+            store(batch);
+        }
+    }
+
+    protected void queueDelete(String identifier)
+    {
+        if (dryrun)
+        {
+            return;
+        }
+        Set<String> batch = null;
+        synchronized (this)
+        {
+            Model old = toStore.remove(identifier);
+            if (old != null)
+            {
+                old.close();
+            }
+            toDelete.add(identifier);
+            if (toDelete.size() >= batchSize)
+            {
+                batch = toDelete;
+                toDelete = new LinkedHashSet<>();
+            }
+        }
+        if (batch != null)
+        {
+            delete(batch);
+        }
+    }
+
+    /**
+     * Store and delete everything queued so far.
+     */
+    public void flush()
+    {
+        Map<String, Model> storeBatch;
+        Set<String> deleteBatch;
+        synchronized (this)
+        {
+            storeBatch = toStore;
+            deleteBatch = toDelete;
+            toStore = new LinkedHashMap<>();
+            toDelete = new LinkedHashSet<>();
+        }
+        store(storeBatch);
+        delete(deleteBatch);
+    }
+
+    protected void store(Map<String, Model> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        RDFStorage storage = RDFConfiguration.getRDFStorage();
+        try
+        {
+            // writes are serialized, most triple stores allow one writer only
+            synchronized (storage)
+            {
+                if (storage instanceof BatchRDFStorage)
+                {
+                    ((BatchRDFStorage) storage).store(batch);
+                } else {
+                    for (Map.Entry<String, Model> entry : batch.entrySet())
+                    {
+                        storage.store(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            log.debug("Stored a batch of " + batch.size() + " graphs.");
+        }
+        finally
+        {
+            for (Model model : batch.values())
+            {
+                model.close();
+            }
+        }
+    }
+
+    protected void delete(Set<String> batch)
+    {
+        if (batch.isEmpty())
+        {
+            return;
+        }
+        RDFStorage storage = RDFConfiguration.getRDFStorage();
+        synchronized (storage)
+        {
+            if (storage instanceof BatchRDFStorage)
+            {
+                ((BatchRDFStorage) storage).delete(batch);
+            } else {
+                for (String uri : batch)
+                {
+                    storage.delete(uri);
+                }
+            }
+        }
+    }
+}
@@ -50,6 +50,24 @@ public class RDFConfiguration {
      * Property key to load the class to use as RDFStorage.
      */
     public static final String RDFSTORAGE_KEY = "rdf.storage";
+    /**
+     * Property key to load the directory used by the embedded triple store
+     * ({@link org.dspace.rdf.storage.TDBRDFStorage TDBRDFStorage}).
+     */
+    public static final String STORAGE_TDB_DIRECTORY_KEY = "rdf.storage.tdb.directory";
+    
+    /**
+     * Property key to load the number of converted DSpaceObjects that are
+     * stored together, g.e. in one transaction.
+     */
+    public static final String STORAGE_BATCHSIZE_KEY = "rdf.storage.batchsize";
+    
+    /**
+     * Property key to load the number of threads used to convert
+     * DSpaceObjects in parallel.
+     */
+    public static final String CONVERTER_THREADS_KEY = "rdf.converter.threads";
+    
     /**
      * Property key to load the address of the SPARQL 1.1 GRAPH STORE HTTP 
      * PROTOCOL endpoint.
@@ -144,6 +162,18 @@ public class RDFConfiguration {
         return false;
     }
     
+    public static int getConverterThreads()
+    {
+        return Math.max(1, new DSpace().getConfigurationService()
+                .getPropertyAsType(CONVERTER_THREADS_KEY, 1));
+    }
+    
+    public static int getStorageBatchSize()
+    {
+        return Math.max(1, new DSpace().getConfigurationService()
+                .getPropertyAsType(STORAGE_BATCHSIZE_KEY, 100));
+    }
+    
     public static boolean isContentNegotiationEnabled()
     {
         ConfigurationService configurationService = 
@@ -179,7 +209,7 @@ public class RDFConfiguration {
         return configurationService.getProperty(CONTEXT_PATH_KEY);
     }
         
-    protected static RDFConverter getRDFConverter()
+    protected static synchronized RDFConverter getRDFConverter()
     {
         if (converter == null)
         {
@@ -199,7 +229,7 @@ public class RDFConfiguration {
      * initialize the configured URIGenerator. It is static so that the
      * RDFizer must not be initialized to generate the identifier for a DSO.
      */
-    protected static URIGenerator getURIGenerator()
+    protected static synchronized URIGenerator getURIGenerator()
     {
         if (generator == null)
         {
@@ -219,7 +249,7 @@ public class RDFConfiguration {
      * initialize the configured RDFStorage class. It is static so that the
      * RDFizer must not be initialized to load RDF data.
      */
-    protected static RDFStorage getRDFStorage()
+    protected static synchronized RDFStorage getRDFStorage()
     {
         if (storage == null)
         {
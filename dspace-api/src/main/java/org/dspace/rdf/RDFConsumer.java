@@ -8,13 +8,19 @@
 
 package org.dspace.rdf;
 
-import com.hp.hpl.jena.rdf.model.Model;
 import java.sql.SQLException;
-import java.util.Deque;
-import java.util.LinkedList;
-import java.util.NoSuchElementException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.log4j.Logger;
-import org.dspace.authorize.AuthorizeException;
 import org.dspace.content.Bitstream;
 import org.dspace.content.Bundle;
 import org.dspace.content.DSpaceObject;
@@ -33,8 +39,14 @@ public class RDFConsumer implements Consumer
 {
     private static final Logger log = Logger.getLogger(RDFConsumer.class);
     
-    protected Deque<DSOIdentifier> toConvert;
-    protected Deque<DSOIdentifier> toDelete;
+    // Sets keep the order of the events, but make sure every DSpaceObject is
+    // converted or deleted once only, however many events it got.
+    protected Set<DSOIdentifier> toConvert;
+    protected Set<DSOIdentifier> toDelete;
+    
+    // The threads converting DSpaceObjects, shared by all calls of end(). They
+    // are created in initialize() and shut down in finish().
+    protected ExecutorService converterPool;
 
     @Override
     public void consume(Context ctx, Event event)
@@ -43,12 +55,12 @@ public class RDFConsumer implements Consumer
         if (this.toConvert == null)
         {
             log.debug("Initalized first queue.");
-            this.toConvert = new LinkedList<>();
+            this.toConvert = new LinkedHashSet<>();
         }
         if (this.toDelete == null)
         {
             log.debug("Initalized second queue.");
-            this.toDelete = new LinkedList<>();
+            this.toDelete = new LinkedHashSet<>();
         }
         
         int sType = event.getSubjectType();
@@ -114,7 +126,7 @@ public class RDFConsumer implements Consumer
                     DSOIdentifier id = new DSOIdentifier(i, ctx);
                     if (!this.toDelete.contains(id) && !this.toConvert.contains(id))
                     {
-                        this.toConvert.addLast(id);
+                        this.toConvert.add(id);
                     }
                 }
                 
@@ -159,7 +171,7 @@ public class RDFConsumer implements Consumer
                 DSOIdentifier id = new DSOIdentifier(i, ctx);
                 if (!this.toDelete.contains(id) && !this.toConvert.contains(id))
                 {
-                    this.toConvert.addLast(id);
+                    this.toConvert.add(id);
                 }
             }
         }
@@ -200,7 +212,7 @@ public class RDFConsumer implements Consumer
             
             if (!this.toDelete.contains(id))
             {
-                this.toDelete.addLast(id);
+                this.toDelete.add(id);
             }
             return;
         }
@@ -246,7 +258,7 @@ public class RDFConsumer implements Consumer
             if (!this.toDelete.contains(id) 
                     && !this.toConvert.contains(id))
             {
-                this.toConvert.addLast(id);
+                this.toConvert.add(id);
             }
         }
     }
@@ -273,21 +285,26 @@ public class RDFConsumer implements Consumer
         log.debug("Started processing of queued events.");
         // create a new context, to be sure to work as anonymous user
         // we don't want to store private data in a triplestore with public
-        // SPARQL endpoint.
-        ctx = new Context(Context.READ_ONLY);
+        // SPARQL endpoint. It is not read-only: the events were dispatched
+        // on commit, and a read-only context could read from a replica which
+        // has not caught up with that commit yet. It is aborted at the end.
+        ctx = new Context();
         if (toDelete == null) 
         {
             log.debug("Deletion queue does not exists, creating empty queue.");
-            this.toDelete = new LinkedList<>();
+            this.toDelete = new LinkedHashSet<>();
         }
         if (toConvert != null)
         {
             log.debug("Starting conversion of DSpaceObjects.");
-            while (true)
+            // convert on a pool of workers and store the results in batches
+            RDFBatchConverter converter = new RDFBatchConverter(converterPool,
+                    RDFConfiguration.getStorageBatchSize(), false, true, false);
+            Map<String, DSOIdentifier> submitted = new HashMap<>();
+            for (Iterator<DSOIdentifier> it = toConvert.iterator(); it.hasNext(); )
             {
-                DSOIdentifier id;
-                try { id = toConvert.removeFirst(); }
-                catch (NoSuchElementException ex) { break; }
+                DSOIdentifier id = it.next();
+                it.remove();
 
                 if (toDelete.contains(id))
                 {
@@ -298,16 +315,23 @@ public class RDFConsumer implements Consumer
                 }
                 log.debug("Converting " + Constants.typeText[id.type] + " " 
                             + Integer.toString(id.id) + ".");
-                convert(ctx, id);
+                submitted.put(id.type + "/" + id.id, id);
+                converter.submit(id.type, id.id);
+            }
+            for (int[] missing : converter.finish())
+            {
+                log.error("Cannot find " + Constants.typeText[missing[0]] 
+                        + " " + missing[1] + " unexpectedly! Will delete all "
+                        + "information about it in the triple store.");
+                toDelete.add(submitted.get(missing[0] + "/" + missing[1]));
             }
             log.debug("Conversion ended.");
         }
         log.debug("Starting to delete data from the triple store...");
-        while (true)
+        for (Iterator<DSOIdentifier> it = toDelete.iterator(); it.hasNext(); )
         {
-            DSOIdentifier id;
-            try { id = toDelete.removeFirst(); }
-            catch (NoSuchElementException ex) { break; }
+            DSOIdentifier id = it.next();
+            it.remove();
             
             log.debug("Going to delete data from " +
                     Constants.typeText[id.type] + " " 
@@ -318,77 +342,6 @@ public class RDFConsumer implements Consumer
         log.debug("Deletion finished.");
     }
 
-    void convert(Context ctx, DSOIdentifier id) throws SQLException
-    {
-        Model m = null;
-        try
-        {
-            if (id.type == Constants.SITE)
-            {
-                m = RDFUtil.convertAndStore(ctx, Site.find(ctx, 0));
-                return;
-            }
-
-            DSpaceObject dso = DSpaceObject.find(ctx, id.type, id.id);
-            if (dso == null)
-            {
-                log.error("Cannot find " + Constants.typeText[id.type] 
-                        + " " + id.id + " unexpectedly! Will delete all "
-                        + "information about it in the triple store.");
-                toDelete.add(id);
-                return;
-            }
-            m = RDFUtil.convertAndStore(ctx, dso);
-        }
-        catch(AuthorizeException ex)
-        {
-            log.debug(Constants.typeText[id.type] + " " + 
-                    Integer.toString(id.id) + " couldn't be converted: "
-                    + "anonymous user doesn't have read permsission. " 
-                    + ex.getMessage());
-            toDelete.add(id);
-        }
-        catch (IllegalArgumentException ex)
-        {
-            log.error("Ignoring an unexpected IllegalArgumentException: " 
-                    + ex.getMessage(), ex);
-        }
-        catch (ItemNotArchivedException ex)
-        {
-            log.info("Anonymous user cannot read " 
-                    + Constants.typeText[id.type] + " " 
-                    + Integer.toString(id.id) 
-                    + ": deleting it from the triplestore.");
-            toDelete.add(id);
-        }
-        catch (ItemNotDiscoverableException ex)
-        {
-            log.info("Item " + Integer.toString(id.id) + " is not "
-                    + "discoverable: deleting it from the triplestore.");
-            toDelete.add(id);
-        }
-        catch (ItemWithdrawnException ex)
-        {
-            log.info("Item " + Integer.toString(id.id) + " is withdrawn: "
-                    + "deleting it from the triplestore.");
-            toDelete.add(id);
-        }
-        catch (RDFMissingIdentifierException ex)
-        {
-            log.warn("Cannot convert " + Constants.typeText[id.type] 
-                    + " " + Integer.toString(id.id) + ", as no RDF "
-                    + "identifier could be generated: "
-                    + ex.getMessage(), ex);
-        }
-        finally
-        {
-            if (m != null)
-            {
-                m.close();
-            }
-        }
-    }
-    
     void delete(Context context, DSOIdentifier id)
             throws SQLException {
         try
@@ -405,10 +358,34 @@ public class RDFConsumer implements Consumer
     
     @Override
     public void finish(Context ctx) throws Exception {
+        if (converterPool != null)
+        {
+            converterPool.shutdown();
+            converterPool = null;
+        }
     }
 
     @Override
     public void initialize() throws Exception {
+        final int threads = RDFConfiguration.getConverterThreads();
+        final AtomicInteger count = new AtomicInteger(0);
+        // Idle threads time out, as the consumer may wait long for events.
+        // They are daemons, so that a consumer which is never finished does
+        // not keep the JVM running; end() waits until its work is done.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread thread = new Thread(r, "RDFConsumer-"
+                                + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        pool.allowCoreThreadTimeOut(true);
+        converterPool = pool;
     }
     
     class DSOIdentifier
@@ -52,6 +52,7 @@ public class RDFizer {
     protected boolean stdout;
     protected boolean verbose;
     protected boolean dryrun;
+    protected int threads;
     protected String lang;
     protected Context context;
 
@@ -69,6 +70,7 @@ public class RDFizer {
         this.stdout = false;
         this.verbose = false;
         this.dryrun = false;
+        this.threads = RDFConfiguration.getConverterThreads();
         this.lang = "TURTLE";
         this.processed = new CopyOnWriteArraySet<String>();
         this.context = new Context(Context.READ_ONLY);
@@ -148,6 +150,23 @@ public class RDFizer {
     public void setDryrun(boolean dryrun) {
         this.dryrun = dryrun;
     }
+
+    /**
+     * Returns the number of threads used to convert DSpaceObjects.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Set the number of threads used to convert DSpaceObjects. If more than
+     * one thread is used, the converted data is stored in batches. The
+     * conversion is done single threaded if {@code stdout} is set true.
+     * @param threads 
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
     
     /**
      * Deletes all data stored in the triplestore (drops all named graphs and
@@ -235,6 +254,12 @@ public class RDFizer {
                     + " is currently not supported as independent entity.");
         }
         
+        if (threads > 1 && !stdout)
+        {
+            convertParallel(dso, reset);
+            return;
+        }
+        
         Callback callback = new Callback() {
             @Override
             protected void callback(DSpaceObject dso)
@@ -299,6 +324,38 @@ public class RDFizer {
         this.dspaceDFS(dso, callback, true, reset);
     }
     
+    /**
+     * Walks through the DSpaceObjects as {@link #convert(DSpaceObject, boolean)}
+     * does, but hands them over to a {@link RDFBatchConverter} that converts
+     * them on several threads and stores the converted data in batches.
+     */
+    protected void convertParallel(DSpaceObject dso, boolean reset)
+            throws SQLException
+    {
+        final RDFBatchConverter converter = new RDFBatchConverter(threads,
+                RDFConfiguration.getStorageBatchSize(), dryrun, false);
+        Callback callback = new Callback() {
+            @Override
+            protected void callback(DSpaceObject dso)
+                    throws SQLException
+            {
+                converter.submit(dso.getType(), dso.getID());
+            }
+        };
+        
+        try
+        {
+            this.dspaceDFS(dso, callback, true, reset);
+        }
+        finally
+        {
+            converter.finish();
+            report("Converted " + converter.getConvertedCount() 
+                    + " DSpaceObjects using " + threads + " threads, skipped "
+                    + converter.getSkippedCount() + ".");
+        }
+    }
+    
     protected void dspaceDFS(DSpaceObject dso, Callback callback, boolean check, boolean reset)
             throws SQLException
     {
@@ -498,6 +555,19 @@ public class RDFizer {
             setDryrun(true);
         }
 
+        if (line.hasOption("threads"))
+        {
+            try
+            {
+                this.setThreads(Integer.parseInt(line.getOptionValue("threads")));
+            }
+            catch (NumberFormatException ex)
+            {
+                System.err.println("The number of threads must be an integer.");
+                System.exit(1);
+            }
+        }
+        
         if (line.hasOption("stdout"))
         {
             setStdout(true);
@@ -748,6 +818,16 @@ public class RDFizer {
                 .create();
         options.addOption(optDelete);
         
+        Option optThreads = OptionBuilder.withLongOpt("threads")
+                .hasArg()
+                .withArgName("number")
+                .withDescription("Number of threads used to convert DSpace "
+                        + "Objects. Converted data is stored in batches if more "
+                        + "than one thread is used. Ignored in conjunction with "
+                        + "--stdout. Defaults to rdf.converter.threads.")
+                .create('t');
+        options.addOption(optThreads);
+        
         Option optDeleteAll = OptionBuilder.withLongOpt("delete-all")
                 .withDescription("Delete all converted data from the triplestore.")
                 .create();
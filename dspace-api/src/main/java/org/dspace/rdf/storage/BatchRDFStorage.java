@@ -0,0 +1,35 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf.storage;
+
+import com.hp.hpl.jena.rdf.model.Model;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * An RDFStorage that can store and delete several graphs at once, g.e. in a
+ * single transaction. Used by the {@link org.dspace.rdf.RDFBatchConverter
+ * RDFBatchConverter} to write converted data in batches.
+ */
+public interface BatchRDFStorage extends RDFStorage {
+    /**
+     * Stores all models, replacing any data stored under the same URIs.
+     * @param models Map of URIs (as generated by
+     * {@link org.dspace.rdf.RDFUtil#generateIdentifier(org.dspace.core.Context,
+     * org.dspace.content.DSpaceObject) RDFUtil.generateIdentifier(...)}) to
+     * the models to store.
+     */
+    public void store(Map<String, Model> models);
+    
+    /**
+     * Deletes the data of all given URIs.
+     * @param uris URIs of the graphs to delete.
+     */
+    public void delete(Collection<String> uris);
+}
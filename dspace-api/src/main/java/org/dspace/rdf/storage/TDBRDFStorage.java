@@ -0,0 +1,198 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+
+package org.dspace.rdf.storage;
+
+import com.hp.hpl.jena.query.Dataset;
+import com.hp.hpl.jena.query.ReadWrite;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.tdb.TDBFactory;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.dspace.rdf.RDFConfiguration;
+import org.dspace.services.ConfigurationService;
+import org.dspace.utils.DSpace;
+
+/**
+ * Stores the converted data in an embedded, file-backed Jena TDB triple store,
+ * so no external triple store (g.e. Fuseki) is needed. Every DSpaceObject is
+ * stored as a named graph, as done by {@link RDFStorageImpl}. All changes are
+ * done within TDB write transactions, batched changes within a single one.
+ * <p>
+ * TDB does not allow more than one JVM to access the same directory at a
+ * time. If the converted data should be accessible by SPARQL, let a triple
+ * store like Fuseki serve a copy of the directory or use
+ * {@link RDFStorageImpl} instead.
+ * </p>
+ */
+public class TDBRDFStorage
+implements BatchRDFStorage
+{
+    private static final Logger log = Logger.getLogger(TDBRDFStorage.class);
+    
+    private final Dataset dataset;
+    
+    public TDBRDFStorage()
+    {
+        ConfigurationService configurationService =
+                new DSpace().getConfigurationService();
+        String directory = configurationService.getProperty(
+                RDFConfiguration.STORAGE_TDB_DIRECTORY_KEY);
+        if (StringUtils.isEmpty(directory))
+        {
+            directory = configurationService.getProperty("dspace.dir")
+                    + File.separator + "triplestore";
+            log.info("Property " + RDFConfiguration.STORAGE_TDB_DIRECTORY_KEY
+                    + " is not set, using " + directory + ".");
+        }
+        
+        File dir = new File(directory);
+        if (!dir.exists() && !dir.mkdirs())
+        {
+            throw new RuntimeException("Cannot create the directory of the "
+                    + "triple store: " + directory + ".");
+        }
+        // TDB keeps one dataset per directory, so all instances share it.
+        this.dataset = TDBFactory.createDataset(dir.getAbsolutePath());
+    }
+    
+    @Override
+    public void store(String uri, Model model)
+    {
+        this.store(Collections.singletonMap(uri, model));
+    }
+    
+    @Override
+    public void store(Map<String, Model> models)
+    {
+        if (models.isEmpty())
+        {
+            return;
+        }
+        dataset.begin(ReadWrite.WRITE);
+        try
+        {
+            for (Map.Entry<String, Model> entry : models.entrySet())
+            {
+                dataset.replaceNamedModel(entry.getKey(), entry.getValue());
+            }
+            dataset.commit();
+        }
+        finally
+        {
+            dataset.end();
+        }
+    }
+
+    @Override
+    public Model load(String uri)
+    {
+        dataset.begin(ReadWrite.READ);
+        try
+        {
+            if (!dataset.containsNamedModel(uri))
+            {
+                return null;
+            }
+            // The model of the dataset is only valid within the transaction,
+            // so we have to copy it.
+            Model m = ModelFactory.createDefaultModel();
+            m.add(dataset.getNamedModel(uri));
+            if (m.isEmpty())
+            {
+                m.close();
+                return null;
+            }
+            return m;
+        }
+        finally
+        {
+            dataset.end();
+        }
+    }
+
+    @Override
+    public void delete(String uri)
+    {
+        this.delete(Collections.singletonList(uri));
+    }
+    
+    @Override
+    public void delete(Collection<String> uris)
+    {
+        if (uris.isEmpty())
+        {
+            return;
+        }
+        dataset.begin(ReadWrite.WRITE);
+        try
+        {
+            for (String uri : uris)
+            {
+                dataset.removeNamedModel(uri);
+            }
+            dataset.commit();
+        }
+        finally
+        {
+            dataset.end();
+        }
+    }
+
+    @Override
+    public void deleteAll()
+    {
+        dataset.begin(ReadWrite.WRITE);
+        try
+        {
+            List<String> graphs = new ArrayList<>();
+            for (Iterator<String> it = dataset.listNames(); it.hasNext(); )
+            {
+                graphs.add(it.next());
+            }
+            for (String graph : graphs)
+            {
+                dataset.removeNamedModel(graph);
+            }
+            // clean default graph:
+            dataset.getDefaultModel().removeAll();
+            dataset.commit();
+        }
+        finally
+        {
+            dataset.end();
+        }
+    }
+
+    @Override
+    public List<String> getAllStoredGraphs()
+    {
+        dataset.begin(ReadWrite.READ);
+        try
+        {
+            List<String> graphs = new ArrayList<>();
+            for (Iterator<String> it = dataset.listNames(); it.hasNext(); )
+            {
+                graphs.add(it.next());
+            }
+            return graphs;
+        }
+        finally
+        {
+            dataset.end();
+        }
+    }
+}
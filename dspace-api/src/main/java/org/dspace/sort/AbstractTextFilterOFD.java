@@ -7,8 +7,13 @@
  */
 package org.dspace.sort;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.apache.log4j.Logger;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.text.filter.TextFilter;
+import org.dspace.text.filter.TextFilterChain;
 import org.dspace.sort.OrderFormatDelegate;
 
 /**
@@ -37,6 +42,11 @@ import org.dspace.sort.OrderFormatDelegate;
  * { new LowerCaseTrim(), new LocaleOrderingFilter() }
  *    - Lowercase the string, then make a locale dependent sort text
  *      (note that the sort text is not human readable)
+ *
+ * The filters are applied through a TextFilterChain, which fuses the standard
+ * character filters into a single pass. As the same values (e.g. author names)
+ * are sorted over and over during indexing, results are memoized in a bounded
+ * cache, sized by webui.browse.sort_cache.max (0 disables the cache).
  * 
  * @author Graham Triggs
  */
@@ -44,9 +54,18 @@ public abstract class AbstractTextFilterOFD implements OrderFormatDelegate
 {
 	private static final Logger log = Logger.getLogger(AbstractTextFilterOFD.class);
 	
+	// Maximum number of memoized sort strings per delegate
+	private static final int cacheMax = ConfigurationManager.getIntProperty("webui.browse.sort_cache.max", 10000);
+
 	// Initialised in subclass in an object initializer
 	protected TextFilter[] filters;
 
+	// Compiled from filters on first use (subclass initializers run after ours)
+	private volatile TextFilterChain chain;
+
+	// Memoized sort strings, keyed by language and value
+	private final ConcurrentMap<CacheKey, String> cache = new ConcurrentHashMap<CacheKey, String>();
+
 	/**
 	 * Prepare the appropriate sort string for the given value in the
 	 * given language.  Language should be supplied with the ISO-6390-1
@@ -78,20 +97,77 @@ public abstract class AbstractTextFilterOFD implements OrderFormatDelegate
                 }
 	        }
 
-	        // Iterate through filters, applying each in turn
-	        for (int idx = 0; idx < filters.length; idx++)
+	        if (cacheMax <= 0)
 	        {
-	            if (language != null)
-                {
-                    value = filters[idx].filter(value, language);
-                }
-	            else
-                {
-                    value = filters[idx].filter(value);
-                }
+	            return getChain().filter(value, language);
 	        }
+
+	        CacheKey key = new CacheKey(value, language);
+	        String sortString = cache.get(key);
+	        if (sortString == null)
+	        {
+	            sortString = getChain().filter(value, language);
+
+	            // Crude bound - much cheaper than LRU bookkeeping, and the
+	            // frequently repeated values are quickly cached again
+	            if (cache.size() >= cacheMax)
+	            {
+	                cache.clear();
+	            }
+	            cache.put(key, sortString);
+	        }
+
+	        value = sortString;
 		}
 		
         return value;
     }
+
+	private TextFilterChain getChain()
+	{
+		TextFilterChain current = chain;
+		if (current == null)
+		{
+			current = new TextFilterChain(filters);
+			chain = current;
+		}
+
+		return current;
+	}
+
+	/**
+	 * Key for the memo cache - avoids concatenating language and value
+	 */
+	private static final class CacheKey
+	{
+		private final String value;
+		private final String language;
+		private final int hash;
+
+		CacheKey(String value, String language)
+		{
+			this.value = value;
+			this.language = language;
+			this.hash = 31 * value.hashCode() + (language != null ? language.hashCode() : 0);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof CacheKey))
+			{
+				return false;
+			}
+
+			CacheKey other = (CacheKey) obj;
+			return hash == other.hash && value.equals(other.value)
+					&& (language == null ? other.language == null : language.equals(other.language));
+		}
+	}
 }
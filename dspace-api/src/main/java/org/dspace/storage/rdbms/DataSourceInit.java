@@ -35,6 +35,43 @@ public class DataSourceInit {
             return dataSource;
         }
 
+        dataSource = createDatasource(ConfigurationManager.getProperty("db.url"),
+                ConfigurationManager.getProperty("db.username"),
+                ConfigurationManager.getProperty("db.password"));
+        return dataSource;
+    }
+
+    /**
+     * Create a pool of connections to the read-only database configured with
+     * <code>db.readonly.url</code>, <code>db.readonly.username</code> and
+     * <code>db.readonly.password</code> (which default to the username and
+     * password of the main database). The pool has the same settings as
+     * the pool of the main database.
+     *
+     * @return the pool, or null if no read-only database is configured
+     * @throws SQLException if the pool cannot be created
+     */
+    public static DataSource getReadOnlyDatasource() throws SQLException
+    {
+        String url = ConfigurationManager.getProperty("db.readonly.url");
+        if (StringUtils.isBlank(url))
+        {
+            return null;
+        }
+
+        String username = ConfigurationManager.getProperty("db.readonly.username");
+        String password = ConfigurationManager.getProperty("db.readonly.password");
+        if (StringUtils.isBlank(username))
+        {
+            username = ConfigurationManager.getProperty("db.username");
+            password = ConfigurationManager.getProperty("db.password");
+        }
+        return createDatasource(url, username, password);
+    }
+
+    private static DataSource createDatasource(String url, String username, String password)
+            throws SQLException
+    {
         try
         {
             // Register basic JDBC driver
@@ -86,9 +123,7 @@ public class DataSourceInit {
 
             // ConnectionFactory the pool will use to create connections.
             ConnectionFactory connectionFactory = new DriverManagerConnectionFactory(
-                    ConfigurationManager.getProperty("db.url"),
-                    ConfigurationManager.getProperty("db.username"),
-                    ConfigurationManager.getProperty("db.password"));
+                    url, username, password);
 
             //
             // Now we'll create the PoolableConnectionFactory, which wraps
@@ -133,11 +168,9 @@ public class DataSourceInit {
             //
             poolingDataSource.setPool(connectionPool);
 
-            dataSource = poolingDataSource;
-
             // Set the proper validation query by DBMS brand.
             // For reference see: http://stackoverflow.com/a/10684260/3750035
-            Connection connection = dataSource.getConnection();
+            Connection connection = poolingDataSource.getConnection();
             String productNameLC = connection.getMetaData().getDatabaseProductName()
                     .toLowerCase();
             if (productNameLC.contains("oracle"))
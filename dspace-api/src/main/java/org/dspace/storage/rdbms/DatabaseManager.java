@@ -60,6 +60,12 @@ public class DatabaseManager
     /** DataSource (retrieved from jndi */
     private static DataSource dataSource = null;
 
+    /** DataSource for read-only connections, or null to use dataSource */
+    private static DataSource readOnlyDataSource = null;
+
+    /** True if the read-only DataSource has been looked for */
+    private static boolean readOnlyInitialized = false;
+
     /** Name of the DBMS, as returned by its driver. */
     private static String dbms;
 
@@ -641,6 +647,56 @@ public class DatabaseManager
         }
     }
 
+    /**
+     * Obtain an RDBMS connection which will only be read from, e.g. for a
+     * read-only Context. If a read-only database (such as a replica of the
+     * main database) is configured with <code>db.readonly.url</code>, the
+     * connection is to that database, otherwise it is to the main database.
+     *
+     * @return A new database connection.
+     * @exception SQLException
+     *                If a database error occurs, or a connection cannot be
+     *                obtained.
+     */
+    public static Connection getReadOnlyConnection() throws SQLException
+    {
+        DataSource dsource = getReadOnlyDataSource();
+        if (dsource == null)
+        {
+            return getConnection();
+        }
+
+        try
+        {
+            return dsource.getConnection();
+        } catch (SQLException e) {
+            log.error("SQL read-only connection Error - ", e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return the DataSource of the read-only database, or null if none is
+     *         configured
+     */
+    private static synchronized DataSource getReadOnlyDataSource() throws SQLException
+    {
+        if (!readOnlyInitialized)
+        {
+            // Make sure the main database is initialized (and up to date) first
+            getDataSource();
+
+            readOnlyDataSource = DataSourceInit.getReadOnlyDatasource();
+            if (readOnlyDataSource != null)
+            {
+                log.info("Using read-only database at {}",
+                        ConfigurationManager.getProperty("db.readonly.url"));
+            }
+            readOnlyInitialized = true;
+        }
+        return readOnlyDataSource;
+    }
+
     public static DataSource getDataSource()
     {
         if(dataSource==null)
@@ -1315,6 +1371,8 @@ public class DatabaseManager
             dataSource = null;
             initialized = false;
         }
+        readOnlyDataSource = null;
+        readOnlyInitialized = false;
     }
 
     /**
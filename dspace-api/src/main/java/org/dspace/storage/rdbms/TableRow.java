@@ -8,6 +8,7 @@
 package org.dspace.storage.rdbms;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -593,6 +594,21 @@ public class TableRow
     // Utility methods
     ////////////////////////////////////////
 
+    /**
+     * Copy this row, e.g. to hand out a row read once to several users which
+     * may change their copies. The values are shared, so the copy must not
+     * be used for rows with Date columns which are changed in place.
+     * 
+     * @return a new row with the same table, values and changed flags
+     */
+    public TableRow copy()
+    {
+        TableRow copy = new TableRow(table, Collections.<String>emptyList());
+        copy.data.putAll(data);
+        copy.changed.putAll(changed);
+        return copy;
+    }
+
     /**
      * Return a String representation of this object.
      * 
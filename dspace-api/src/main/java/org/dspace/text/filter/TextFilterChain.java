@@ -0,0 +1,269 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.text.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Applies an ordered array of TextFilters to a string, producing exactly the
+ * same result as calling each filter in turn.
+ *
+ * Consecutive runs of the standard character filters (DecomposeDiactritics,
+ * StripDiacritics, LowerCaseAndTrim and StripLeadingNonAlphaNum) are fused into
+ * a single step. When the string being filtered is pure ASCII, a fused step is
+ * performed as one pass over a reusable per-thread char buffer: decomposition
+ * and diacritic stripping are no-ops for ASCII, so ICU is never invoked, and
+ * lowercasing, trimming and stripping only move the bounds of the result.
+ * Non-ASCII strings, and any other filters (e.g. the InitialArticleWord
+ * implementations), are passed through the original filter implementations.
+ *
+ * Instances are immutable and may be shared between threads.
+ */
+public final class TextFilterChain
+{
+    /** Operations that can take part in a fused ASCII pass */
+    private static final int OP_NONE = 0;
+    private static final int OP_IDENTITY = 1;
+    private static final int OP_LOWERCASE_TRIM = 2;
+    private static final int OP_STRIP_LEADING = 3;
+
+    /** Buffer used for lowercasing, grown as necessary */
+    private static final ThreadLocal<char[]> buffer = new ThreadLocal<char[]>()
+    {
+        @Override
+        protected char[] initialValue()
+        {
+            return new char[256];
+        }
+    };
+
+    /** The steps of the chain - either a single filter, or a fused run */
+    private final Step[] steps;
+
+    public TextFilterChain(TextFilter[] filters)
+    {
+        // String.toLowerCase() is locale sensitive; only these locales alter ASCII
+        String defaultLanguage = Locale.getDefault().getLanguage();
+        boolean asciiLowerCaseSafe = !"tr".equals(defaultLanguage) && !"az".equals(defaultLanguage);
+
+        List<Step> stepList = new ArrayList<Step>();
+        List<TextFilter> run = new ArrayList<TextFilter>();
+        for (TextFilter filter : filters)
+        {
+            if (asciiLowerCaseSafe && getOp(filter) != OP_NONE)
+            {
+                run.add(filter);
+            }
+            else
+            {
+                if (!run.isEmpty())
+                {
+                    stepList.add(new FusedStep(run.toArray(new TextFilter[run.size()])));
+                    run.clear();
+                }
+                stepList.add(new FilterStep(filter));
+            }
+        }
+
+        if (!run.isEmpty())
+        {
+            stepList.add(new FusedStep(run.toArray(new TextFilter[run.size()])));
+        }
+
+        steps = stepList.toArray(new Step[stepList.size()]);
+    }
+
+    /**
+     * Apply the chain to the string. A null language will call
+     * TextFilter.filter(String) on each filter, otherwise TextFilter.filter(String, String)
+     *
+     * @param str  the string to filter
+     * @param lang the (already normalized) language code, may be null
+     * @return the filtered string
+     */
+    public String filter(String str, String lang)
+    {
+        for (int idx = 0; idx < steps.length; idx++)
+        {
+            str = steps[idx].apply(str, lang);
+        }
+
+        return str;
+    }
+
+    /**
+     * Identify whether a filter is one of the standard filters that can be
+     * fused. Subclasses are not fused, as they may change the behaviour.
+     */
+    private static int getOp(TextFilter filter)
+    {
+        Class<?> clazz = filter.getClass();
+        if (clazz == DecomposeDiactritics.class || clazz == StripDiacritics.class)
+        {
+            return OP_IDENTITY;
+        }
+        else if (clazz == LowerCaseAndTrim.class)
+        {
+            return OP_LOWERCASE_TRIM;
+        }
+        else if (clazz == StripLeadingNonAlphaNum.class)
+        {
+            return OP_STRIP_LEADING;
+        }
+
+        return OP_NONE;
+    }
+
+    private static boolean isAscii(String str)
+    {
+        for (int idx = 0; idx < str.length(); idx++)
+        {
+            if (str.charAt(idx) >= 0x80)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static char[] getBuffer(int length)
+    {
+        char[] buf = buffer.get();
+        if (buf.length < length)
+        {
+            buf = new char[Math.max(length, buf.length * 2)];
+            buffer.set(buf);
+        }
+
+        return buf;
+    }
+
+    private abstract static class Step
+    {
+        abstract String apply(String str, String lang);
+    }
+
+    /**
+     * A filter that is applied as is
+     */
+    private static final class FilterStep extends Step
+    {
+        private final TextFilter filter;
+
+        FilterStep(TextFilter filter)
+        {
+            this.filter = filter;
+        }
+
+        String apply(String str, String lang)
+        {
+            return lang != null ? filter.filter(str, lang) : filter.filter(str);
+        }
+    }
+
+    /**
+     * A run of standard filters, performed in a single pass for ASCII strings
+     */
+    private static final class FusedStep extends Step
+    {
+        private final TextFilter[] filters;
+        private final int[] ops;
+        private final boolean lowerCase;
+
+        FusedStep(TextFilter[] filters)
+        {
+            this.filters = filters;
+            this.ops = new int[filters.length];
+
+            boolean lower = false;
+            for (int idx = 0; idx < filters.length; idx++)
+            {
+                ops[idx] = getOp(filters[idx]);
+                lower |= ops[idx] == OP_LOWERCASE_TRIM;
+            }
+
+            this.lowerCase = lower;
+        }
+
+        String apply(String str, String lang)
+        {
+            if (!isAscii(str))
+            {
+                for (int idx = 0; idx < filters.length; idx++)
+                {
+                    str = lang != null ? filters[idx].filter(str, lang) : filters[idx].filter(str);
+                }
+
+                return str;
+            }
+
+            // For ASCII, none of the operations change whether a character is
+            // whitespace or alphanumeric, so each one only narrows the bounds
+            int start = 0;
+            int end = str.length();
+            for (int idx = 0; idx < ops.length; idx++)
+            {
+                if (ops[idx] == OP_LOWERCASE_TRIM)
+                {
+                    // Same definition of whitespace as String.trim()
+                    while (start < end && str.charAt(start) <= ' ')
+                    {
+                        start++;
+                    }
+
+                    while (end > start && str.charAt(end - 1) <= ' ')
+                    {
+                        end--;
+                    }
+                }
+                else if (ops[idx] == OP_STRIP_LEADING)
+                {
+                    while (start < end && !Character.isLetterOrDigit(str.charAt(start)))
+                    {
+                        start++;
+                    }
+                }
+            }
+
+            if (lowerCase)
+            {
+                int firstUpper = start;
+                while (firstUpper < end && (str.charAt(firstUpper) < 'A' || str.charAt(firstUpper) > 'Z'))
+                {
+                    firstUpper++;
+                }
+
+                if (firstUpper < end)
+                {
+                    char[] buf = getBuffer(end - start);
+                    str.getChars(start, end, buf, 0);
+                    for (int idx = firstUpper - start; idx < end - start; idx++)
+                    {
+                        char c = buf[idx];
+                        if (c >= 'A' && c <= 'Z')
+                        {
+                            buf[idx] = (char) (c + ('a' - 'A'));
+                        }
+                    }
+
+                    return new String(buf, 0, end - start);
+                }
+            }
+
+            if (start == 0 && end == str.length())
+            {
+                return str;
+            }
+
+            return str.substring(start, end);
+        }
+    }
+}
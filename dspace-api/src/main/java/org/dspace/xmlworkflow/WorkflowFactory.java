@@ -25,11 +25,15 @@ import javax.xml.transform.TransformerException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The workflowfactory is responsible for parsing the
  * workflow xml file and is used to retrieve the workflow for
- * a certain collection
+ * a certain collection.
+ * The file is parsed once into immutable definitions of the workflows and
+ * their steps, which are parsed again only when the file is modified.
  *
  * @author Bram De Schouwer (bram.deschouwer at dot com)
  * @author Kevin Van de Velde (kevin at atmire dot com)
@@ -40,77 +44,122 @@ public class WorkflowFactory {
 
     private static Logger log = Logger.getLogger(WorkflowFactory.class);
 
-    private static HashMap<String, Workflow> workflowCache;
     private static String path = ConfigurationManager.getProperty("dspace.dir")+"/config/workflow.xml";
 //    private static String pathActions = ConfigurationManager.getProperty("dspace.dir")+"/config/workflow-actions.xml";
 
+    /**
+     * The parsed workflow.xml. It is never modified, but replaced as a whole
+     * when the file changes, so readers need no locking.
+     */
+    private static volatile WorkflowDefinitions definitions;
+
     public static Workflow getWorkflow(Collection collection) throws IOException, WorkflowConfigurationException {
-        //Initialize our cache if we have none
-        if(workflowCache == null)
-            workflowCache = new HashMap<String, Workflow>();
+        WorkflowDefinitions defs = getDefinitions();
+        String workflowID = defs.collectionMap.get(collection.getHandle());
+        if(workflowID == null){
+            //No workflowId found for this collection, so use the default workflow
+            workflowID = defs.collectionMap.get("default");
+            if(workflowID == null){
+                throw new WorkflowConfigurationException("No mapping is present for collection with handle:" + collection.getHandle());
+            }
+        }
 
-        // Attempt to retrieve our workflow object
-        if(workflowCache.get(collection.getHandle())==null){
+        Workflow wf = defs.workflowCache.get(workflowID);
+        if(wf == null){
             try{
-                // No workflow cache found for the collection, check if we have a workflowId for this collection
-                File xmlFile = new File(path);
-                Document input = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xmlFile);
-                Node mainNode = input.getFirstChild();
-                Node workflowMap = XPathAPI.selectSingleNode(mainNode, "//workflow-map/name-map[@collection='"+collection.getHandle()+"']");
-                if(workflowMap==null){
-                    //No workflowId found for this collection, so retrieve & use the default workflow
-                    if(workflowCache.get("default")==null){
-                        String workflowID = XPathAPI.selectSingleNode(mainNode, "//workflow-map/name-map[@collection='default']").getAttributes().getNamedItem("workflow").getTextContent();
-                        if(workflowID==null){
-                            throw new WorkflowConfigurationException("No mapping is present for collection with handle:" + collection.getHandle());
-                        }
-                        Node workflowNode = XPathAPI.selectSingleNode(mainNode, "//workflow[@id='"+workflowID+"']");
-                        Workflow wf = new Workflow(workflowID, getRoles(workflowNode));
-                        Step step = createFirstStep(wf, workflowNode);
-                        wf.setFirstStep(step);
-                        workflowCache.put("default", wf);
-                        workflowCache.put(collection.getHandle(), wf);
-                        return wf;
-                    }else{
-                        return workflowCache.get("default");
-                    }
-
-                }else{
-                    //We have a workflowID so retrieve it & resolve it to a workflow, also store it in our cache
-                    String workflowID = workflowMap.getAttributes().getNamedItem("workflow").getTextContent();
-
-                    Node workflowNode = XPathAPI.selectSingleNode(mainNode, "//workflow[@id='"+workflowID+"']");
-                    Workflow wf = new Workflow(workflowID, getRoles(workflowNode));
-                    Step step = createFirstStep(wf, workflowNode);
-                    wf.setFirstStep(step);
-                    workflowCache.put(collection.getHandle(), wf);
-                    return wf;
-                }
+                WorkflowDefinition workflowDef = defs.getWorkflow(workflowID);
+                wf = new Workflow(workflowID, new LinkedHashMap<String, Role>(workflowDef.roles));
+                Step step = createStep(wf, defs.getStep(workflowID, workflowDef.start));
+                wf.setFirstStep(step);
             } catch (Exception e){
                 log.error("Error while retrieving workflow for collection: " + collection.getHandle(), e);
                 throw new WorkflowConfigurationException("Error while retrieving workflow for the following collection: " + collection.getHandle());
             }
-        }else{
-            return workflowCache.get(collection.getHandle());
+            // Steps are bound to their workflow object, so keep the first one created
+            Workflow existing = defs.workflowCache.putIfAbsent(workflowID, wf);
+            if(existing != null){
+                wf = existing;
+            }
         }
+        return wf;
     }
 
-    private static Step createFirstStep(Workflow workflow, Node workflowNode) throws TransformerException, WorkflowConfigurationException {
-        String firstStepID = workflowNode.getAttributes().getNamedItem("start").getTextContent();
-        Node stepNode = XPathAPI.selectSingleNode(workflowNode, "//step[@id='"+firstStepID+"']");
-        if(stepNode == null){
-            throw new WorkflowConfigurationException("First step does not exist for workflow: "+workflowNode.getAttributes().getNamedItem("id").getTextContent());
+    public static Step createStep(Workflow workflow, String stepID) throws WorkflowConfigurationException, IOException {
+        try{
+            return createStep(workflow, getDefinitions().getStep(workflow.getID(), stepID));
+        }catch (Exception e){
+            log.error("Error while creating step with :" + stepID, e);
+            throw new WorkflowConfigurationException("Step: " + stepID + " does not exist for workflow: "+workflow.getID());
         }
-        Node roleNode = stepNode.getAttributes().getNamedItem("role");
+    }
+
+    private static Step createStep(Workflow workflow, StepDefinition stepDef) {
         Role role = null;
-        if(roleNode != null)
-            role = workflow.getRoles().get(roleNode.getTextContent());
-        String userSelectionActionID = stepNode.getAttributes().getNamedItem("userSelectionMethod").getTextContent();
-        UserSelectionActionConfig userSelection = createUserAssignmentActionConfig(userSelectionActionID);
-        return new Step(firstStepID, workflow, role, userSelection, getStepActionConfigs(stepNode), getStepOutcomes(stepNode), getNbRequiredUser(stepNode));
+        if(stepDef.roleID != null)
+            role = workflow.getRoles().get(stepDef.roleID);
+        UserSelectionActionConfig userSelection = createUserAssignmentActionConfig(stepDef.userSelectionMethod);
+        return new Step(stepDef.id, workflow, role, userSelection, stepDef.actionConfigIDs, stepDef.outcomes, stepDef.requiredUsers);
     }
 
+    /**
+     * Returns the parsed workflow.xml, parsing it again if the file has been
+     * modified since it was last read. Should a modified file fail to parse,
+     * the previous definitions stay in use.
+     */
+    private static WorkflowDefinitions getDefinitions() throws WorkflowConfigurationException {
+        File xmlFile = new File(path);
+        WorkflowDefinitions defs = definitions;
+        if(defs != null && defs.lastModified == xmlFile.lastModified()){
+            return defs;
+        }
+        synchronized (WorkflowFactory.class){
+            defs = definitions;
+            long lastModified = xmlFile.lastModified();
+            if(defs != null && defs.lastModified == lastModified){
+                return defs;
+            }
+            try{
+                definitions = parseDefinitions(xmlFile, lastModified);
+                if(defs != null){
+                    log.info("Reloaded the workflow configuration from " + path);
+                }
+                return definitions;
+            }catch (Exception e){
+                log.error("Error while parsing the workflow configuration: " + path, e);
+                if(defs == null){
+                    throw new WorkflowConfigurationException("Error while parsing the workflow configuration: " + path);
+                }
+                return defs;
+            }
+        }
+    }
 
+    private static WorkflowDefinitions parseDefinitions(File xmlFile, long lastModified) throws Exception {
+        Document input = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xmlFile);
+        Node mainNode = input.getFirstChild();
+
+        Map<String, String> collectionMap = new HashMap<String, String>();
+        NodeList nameMapNodes = XPathAPI.selectNodeList(mainNode, "//workflow-map/name-map");
+        for(int i = 0; i < nameMapNodes.getLength(); i++){
+            Node collectionNode = nameMapNodes.item(i).getAttributes().getNamedItem("collection");
+            Node workflowNode = nameMapNodes.item(i).getAttributes().getNamedItem("workflow");
+            // The first mapping for a collection wins, as it did for the XPath lookup
+            if(collectionNode != null && workflowNode != null && !collectionMap.containsKey(collectionNode.getTextContent())){
+                collectionMap.put(collectionNode.getTextContent(), workflowNode.getTextContent());
+            }
+        }
+
+        Map<String, WorkflowDefinition> workflows = new HashMap<String, WorkflowDefinition>();
+        NodeList workflowNodes = XPathAPI.selectNodeList(mainNode, "//workflow");
+        for(int i = 0; i < workflowNodes.getLength(); i++){
+            Node workflowNode = workflowNodes.item(i);
+            String workflowID = workflowNode.getAttributes().getNamedItem("id").getTextContent();
+            if(!workflows.containsKey(workflowID)){
+                workflows.put(workflowID, new WorkflowDefinition(workflowNode));
+            }
+        }
+        return new WorkflowDefinitions(lastModified, collectionMap, workflows);
+    }
 
     private static Map<Integer, String> getStepOutcomes(Node stepNode) throws TransformerException, WorkflowConfigurationException {
         try{
@@ -146,31 +195,6 @@ public class WorkflowFactory {
         return actionConfigIDs;
     }
 
-    public static Step createStep(Workflow workflow, String stepID) throws WorkflowConfigurationException, IOException {
-        try{
-            File xmlFile = new File(path);
-            Document input = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xmlFile);
-            Node mainNode = input.getFirstChild();
-            Node stepNode = XPathAPI.selectSingleNode(mainNode, "//workflow[@id='"+workflow.getID()+"']/step[@id='"+stepID+"']");
-
-            if(stepNode == null){
-                throw new WorkflowConfigurationException("Step does not exist for workflow: "+workflow.getID());
-            }
-            Node roleNode = stepNode.getAttributes().getNamedItem("role");
-            Role role = null;
-            if(roleNode != null)
-                role = workflow.getRoles().get(roleNode.getTextContent());
-            String userSelectionActionID = stepNode.getAttributes().getNamedItem("userSelectionMethod").getTextContent();
-            UserSelectionActionConfig userSelection = createUserAssignmentActionConfig(userSelectionActionID);
-            return new Step(stepID, workflow, role, userSelection, getStepActionConfigs(stepNode), getStepOutcomes(stepNode), getNbRequiredUser(stepNode));
-
-        }catch (Exception e){
-            log.error("Error while creating step with :" + stepID, e);
-            throw new WorkflowConfigurationException("Step: " + stepID + " does not exist for workflow: "+workflow.getID());
-        }
-
-
-    }
      private static UserSelectionActionConfig createUserAssignmentActionConfig(String userSelectionActionID) {
         return new DSpace().getServiceManager().getServiceByName(userSelectionActionID, UserSelectionActionConfig.class);
     }
@@ -228,4 +252,85 @@ public class WorkflowFactory {
         return roles;
     }
 
+    /**
+     * All workflows and collection mappings of one version of workflow.xml,
+     * together with the workflow objects created from them.
+     */
+    private static final class WorkflowDefinitions {
+        private final long lastModified;
+        private final Map<String, String> collectionMap;
+        private final Map<String, WorkflowDefinition> workflows;
+        private final ConcurrentMap<String, Workflow> workflowCache = new ConcurrentHashMap<String, Workflow>();
+
+        private WorkflowDefinitions(long lastModified, Map<String, String> collectionMap, Map<String, WorkflowDefinition> workflows) {
+            this.lastModified = lastModified;
+            this.collectionMap = Collections.unmodifiableMap(collectionMap);
+            this.workflows = Collections.unmodifiableMap(workflows);
+        }
+
+        private WorkflowDefinition getWorkflow(String workflowID) throws WorkflowConfigurationException {
+            WorkflowDefinition workflowDef = workflows.get(workflowID);
+            if(workflowDef == null){
+                throw new WorkflowConfigurationException("Workflow does not exist: " + workflowID);
+            }
+            return workflowDef;
+        }
+
+        private StepDefinition getStep(String workflowID, String stepID) throws WorkflowConfigurationException {
+            StepDefinition stepDef = getWorkflow(workflowID).steps.get(stepID);
+            if(stepDef == null){
+                throw new WorkflowConfigurationException("Step does not exist for workflow: "+workflowID);
+            }
+            return stepDef;
+        }
+    }
+
+    /**
+     * The roles and steps of a workflow element.
+     */
+    private static final class WorkflowDefinition {
+        private final String start;
+        private final Map<String, Role> roles;
+        private final Map<String, StepDefinition> steps;
+
+        private WorkflowDefinition(Node workflowNode) throws TransformerException, WorkflowConfigurationException {
+            this.start = workflowNode.getAttributes().getNamedItem("start").getTextContent();
+            this.roles = Collections.unmodifiableMap(getRoles(workflowNode));
+
+            Map<String, StepDefinition> steps = new HashMap<String, StepDefinition>();
+            NodeList stepNodes = XPathAPI.selectNodeList(workflowNode, "step");
+            for(int i = 0; i < stepNodes.getLength(); i++){
+                StepDefinition stepDef = new StepDefinition(stepNodes.item(i));
+                if(!steps.containsKey(stepDef.id)){
+                    steps.put(stepDef.id, stepDef);
+                }
+            }
+            if(!steps.containsKey(start)){
+                throw new WorkflowConfigurationException("First step does not exist for workflow: "+workflowNode.getAttributes().getNamedItem("id").getTextContent());
+            }
+            this.steps = Collections.unmodifiableMap(steps);
+        }
+    }
+
+    /**
+     * A step element, from which new Step objects are created.
+     */
+    private static final class StepDefinition {
+        private final String id;
+        private final String roleID;
+        private final String userSelectionMethod;
+        private final List<String> actionConfigIDs;
+        private final Map<Integer, String> outcomes;
+        private final int requiredUsers;
+
+        private StepDefinition(Node stepNode) throws TransformerException, WorkflowConfigurationException {
+            this.id = stepNode.getAttributes().getNamedItem("id").getTextContent();
+            Node roleNode = stepNode.getAttributes().getNamedItem("role");
+            this.roleID = roleNode == null ? null : roleNode.getTextContent();
+            this.userSelectionMethod = stepNode.getAttributes().getNamedItem("userSelectionMethod").getTextContent();
+            this.actionConfigIDs = Collections.unmodifiableList(getStepActionConfigs(stepNode));
+            this.outcomes = Collections.unmodifiableMap(getStepOutcomes(stepNode));
+            this.requiredUsers = getNbRequiredUser(stepNode);
+        }
+    }
 }
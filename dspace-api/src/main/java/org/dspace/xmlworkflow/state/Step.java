@@ -16,9 +16,9 @@ import org.dspace.xmlworkflow.*;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class that contains all the data of an xlworkflow step
@@ -33,7 +33,7 @@ public class Step {
 
 
     private UserSelectionActionConfig userSelectionMethod;
-    private HashMap<String, WorkflowActionConfig> actionConfigsMap;
+    private ConcurrentHashMap<String, WorkflowActionConfig> actionConfigsMap;
     private List<String> actionConfigsList;
     private Map<Integer, String> outcomes;
     private String id;
@@ -42,7 +42,7 @@ public class Step {
     private int requiredUsers;
 
     public Step(String id, Workflow workflow, Role role, UserSelectionActionConfig userSelectionMethod, List<String> actionConfigsList, Map<Integer, String> outcomes, int requiredUsers){
-        this.actionConfigsMap = new HashMap<String, WorkflowActionConfig>();
+        this.actionConfigsMap = new ConcurrentHashMap<String, WorkflowActionConfig>();
         this.outcomes = outcomes;
         this.userSelectionMethod = userSelectionMethod;
         this.role = role;
@@ -55,13 +55,14 @@ public class Step {
     }
 
     public WorkflowActionConfig getActionConfig(String actionID) {
-        if(actionConfigsMap.get(actionID)!=null){
-            return actionConfigsMap.get(actionID);
+        WorkflowActionConfig action = actionConfigsMap.get(actionID);
+        if(action != null){
+            return action;
         }else{
-            WorkflowActionConfig action = WorkflowFactory.createWorkflowActionConfig(actionID);
+            action = WorkflowFactory.createWorkflowActionConfig(actionID);
             action.setStep(this);
-            actionConfigsMap.put(actionID, action);
-            return action;
+            WorkflowActionConfig existing = actionConfigsMap.putIfAbsent(actionID, action);
+            return existing != null ? existing : action;
         }
     }
 
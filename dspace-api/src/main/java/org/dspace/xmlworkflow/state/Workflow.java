@@ -18,6 +18,7 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Class that contains all the steps & roles involved in a certain
@@ -32,14 +33,14 @@ public class Workflow {
 
     private String id;
     private Step firstStep;
-    private HashMap<String, Step> steps;
+    private ConcurrentHashMap<String, Step> steps;
     private LinkedHashMap<String, Role> roles;
 
 
     public Workflow(String workflowID, LinkedHashMap<String, Role> roles) {
         this.id = workflowID;
         this.roles = roles;
-        this.steps = new HashMap<String, Step>();
+        this.steps = new ConcurrentHashMap<String, Step>();
     }
 
     public Step getFirstStep() {
@@ -54,15 +55,16 @@ public class Workflow {
      * Return a step with a given id
      */
     public Step getStep(String stepID) throws WorkflowConfigurationException, IOException {
-        if(steps.get(id)!=null){
-            return steps.get(id);
+        Step step = steps.get(stepID);
+        if(step != null){
+            return step;
         }else{
-            Step step = WorkflowFactory.createStep(this, stepID);
+            step = WorkflowFactory.createStep(this, stepID);
             if(step== null){
                 throw new WorkflowConfigurationException("Step definition not found for: "+stepID);
             }
-            steps.put(stepID, step);
-            return step;
+            Step existing = steps.putIfAbsent(stepID, step);
+            return existing != null ? existing : step;
         }
     }
 
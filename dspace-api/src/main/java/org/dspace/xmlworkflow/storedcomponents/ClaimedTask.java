@@ -14,7 +14,9 @@ import org.dspace.storage.rdbms.TableRowIterator;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Claimed task representing the database representation of an action claimed by an eperson
@@ -80,16 +82,67 @@ public class ClaimedTask {
     }
 
     public static List<ClaimedTask> findByEperson(Context context, int epersonID) throws SQLException {
-        TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_claimtask",
-                "SELECT * FROM cwf_claimtask WHERE owner_id= "+epersonID);
+        return findByEperson(context, epersonID, 0, -1);
+    }
+
+    /**
+     * Find a page of the tasks claimed by an eperson, ordered by workflow item. The workflow items of the
+     * tasks are loaded into the cache of the context, so XmlWorkflowItem.find will not query them again.
+     *
+     * @param context the context
+     * @param epersonID the id of the eperson
+     * @param offset the number of tasks to skip
+     * @param limit the maximum number of tasks, if not positive all tasks are returned
+     * @return a list of claimed tasks
+     */
+    public static List<ClaimedTask> findByEperson(Context context, int epersonID, int offset, int limit) throws SQLException {
+        StringBuffer query = new StringBuffer("SELECT * FROM cwf_claimtask WHERE owner_id= ?");
+        List<Object> params = new ArrayList<Object>();
+        params.add(epersonID);
+        if(offset > 0 || limit > 0){
+            //Select the page by ID, as the paging query has extra columns on Oracle
+            StringBuffer pageQuery = new StringBuffer("SELECT claimtask_id FROM cwf_claimtask WHERE owner_id= ?")
+                    .append(" ORDER BY workflowitem_id, claimtask_id");
+            List<Object> pageParams = new ArrayList<Object>();
+            pageParams.add(epersonID);
+            XmlWorkflowItem.appendPaging(pageQuery, pageParams, offset, limit);
+            query.append(" AND claimtask_id IN (SELECT claimtask_id FROM (").append(pageQuery).append(") task_page)");
+            params.addAll(pageParams);
+        }
+        query.append(" ORDER BY workflowitem_id, claimtask_id");
+        TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_claimtask", query.toString(), params.toArray());
         List<ClaimedTask> list = new ArrayList<ClaimedTask>();
-        while(tri.hasNext()) {
-            TableRow row = tri.next();
-            list.add(new ClaimedTask(context, row));
+        Set<Integer> workflowItemIDs = new HashSet<Integer>();
+        try {
+            while(tri.hasNext()) {
+                ClaimedTask task = new ClaimedTask(context, tri.next());
+                list.add(task);
+                workflowItemIDs.add(task.getWorkflowItemID());
+            }
+        } finally {
+            tri.close();
         }
+        XmlWorkflowItem.cache(context, workflowItemIDs);
         return list;
     }
 
+    /**
+     * Count the tasks claimed by an eperson, as returned by findByEperson.
+     *
+     * @param context the context
+     * @param epersonID the id of the eperson
+     * @return the number of claimed tasks
+     */
+    public static int countByEperson(Context context, int epersonID) throws SQLException {
+        TableRow row = DatabaseManager.querySingle(context,
+                "SELECT COUNT(*) AS num FROM cwf_claimtask WHERE owner_id= ?", epersonID);
+        // use getIntColumn for Oracle count data, getLongColumn works for postgres
+        if(DatabaseManager.isOracle()){
+            return row.getIntColumn("num");
+        }
+        return (int) row.getLongColumn("num");
+    }
+
     public static List<ClaimedTask> find(Context c, int wfiID, String stepID) throws SQLException {
         TableRowIterator tri = DatabaseManager.queryTable(c,"cwf_claimtask",
                 "SELECT * FROM cwf_claimtask WHERE workflowitem_id="+wfiID+" AND step_id= ?", stepID);
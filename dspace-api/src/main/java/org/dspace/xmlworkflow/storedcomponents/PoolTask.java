@@ -19,8 +19,10 @@ import org.dspace.xmlworkflow.WorkflowRequirementsManager;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Pool task representing the database representation of a pool task for a step and an eperson
@@ -66,34 +68,94 @@ public class PoolTask {
     }
 
     public static List<PoolTask> findByEperson(Context context, int eperson_id) throws SQLException, AuthorizeException, IOException {
-        TableRowIterator tri = DatabaseManager.queryTable(context,"cwf_pooltask",
-                "SELECT * FROM cwf_pooltask WHERE eperson_id= "+eperson_id);
+        return findByEperson(context, eperson_id, 0, -1);
+    }
+
+    /**
+     * Find a page of the pool tasks an eperson may claim, either assigned to the eperson or to one of its
+     * (direct or indirect) groups. Group tasks for workflow items the eperson is already working on are left out.
+     * There is at most one task per workflow item, the tasks are ordered by workflow item. The workflow items
+     * of the tasks are loaded into the cache of the context, so XmlWorkflowItem.find will not query them again.
+     *
+     * @param context the context
+     * @param eperson_id the id of the eperson
+     * @param offset the number of workflow items to skip
+     * @param limit the maximum number of tasks, if not positive all tasks are returned
+     * @return a list of pool tasks
+     */
+    public static List<PoolTask> findByEperson(Context context, int eperson_id, int offset, int limit) throws SQLException, AuthorizeException, IOException {
+        List<Object> params = new ArrayList<Object>();
+        String condition = getEpersonCondition(context, eperson_id, params);
+
+        StringBuffer query = new StringBuffer("SELECT * FROM cwf_pooltask WHERE ").append(condition);
+        if(offset > 0 || limit > 0){
+            //Page over the workflow items rather than the tasks, as several tasks may exist for one workflow item
+            StringBuffer pageQuery = new StringBuffer("SELECT DISTINCT workflowitem_id FROM cwf_pooltask WHERE ")
+                    .append(condition).append(" ORDER BY workflowitem_id");
+            List<Object> pageParams = new ArrayList<Object>(params);
+            XmlWorkflowItem.appendPaging(pageQuery, pageParams, offset, limit);
+            query.append(" AND workflowitem_id IN (SELECT workflowitem_id FROM (").append(pageQuery).append(") task_page)");
+            params.addAll(pageParams);
+        }
+        query.append(" ORDER BY workflowitem_id, pooltask_id");
+
         //Hashmap to map workflow item id's to pooltasks. This will allow to have a list of unique workflowitems for which
         //the user will see PoolTasks
-        HashMap<Integer, PoolTask> tasks = new HashMap<Integer, PoolTask>();
-        //Get all PoolTasks for a specific eperson
-        while(tri.hasNext()){
-            TableRow row = tri.next();
-            PoolTask task = new PoolTask(context, row);
-            tasks.put(task.getWorkflowItemID(), task);
-        }
-        tri.close();
-        //Get all PoolTasks for groups of which this eperson is a member
-        for(Group group: Group.allMemberGroups(context, EPerson.find(context, eperson_id))){
-            tri = DatabaseManager.queryTable(context,"cwf_pooltask",
-                    "SELECT * FROM cwf_pooltask WHERE group_id= "+group.getID());
+        Map<Integer, PoolTask> tasks = new LinkedHashMap<Integer, PoolTask>();
+        TableRowIterator tri = DatabaseManager.queryTable(context, "cwf_pooltask", query.toString(), params.toArray());
+        try {
             while(tri.hasNext()){
-                TableRow row = tri.next();
-                PoolTask task = new PoolTask(context, row);
-                XmlWorkflowItem wfi = XmlWorkflowItem.find(context, task.getWorkflowItemID());
-                //If the user has not claimed and not finished the step, return a pooltask for the user
-                if(!(InProgressUser.findByWorkflowItemAndEPerson(context, wfi.getID(), eperson_id)!=null)){
-                    tasks.put(task.getWorkflowItemID(), task);
-                }
+                PoolTask task = new PoolTask(context, tri.next());
+                tasks.put(task.getWorkflowItemID(), task);
             }
+        } finally {
             tri.close();
         }
-        return new ArrayList(tasks.values());
+        XmlWorkflowItem.cache(context, tasks.keySet());
+        return new ArrayList<PoolTask>(tasks.values());
+    }
+
+    /**
+     * Count the workflow items for which an eperson has a pool task, as returned by findByEperson.
+     *
+     * @param context the context
+     * @param eperson_id the id of the eperson
+     * @return the number of workflow items
+     */
+    public static int countByEperson(Context context, int eperson_id) throws SQLException {
+        List<Object> params = new ArrayList<Object>();
+        String condition = getEpersonCondition(context, eperson_id, params);
+        TableRow row = DatabaseManager.querySingle(context,
+                "SELECT COUNT(DISTINCT workflowitem_id) AS num FROM cwf_pooltask WHERE " + condition, params.toArray());
+        // use getIntColumn for Oracle count data, getLongColumn works for postgres
+        if(DatabaseManager.isOracle()){
+            return row.getIntColumn("num");
+        }
+        return (int) row.getLongColumn("num");
+    }
+
+    /**
+     * The condition selecting the pool tasks of an eperson: its own tasks, and the tasks of its groups
+     * for workflow items it has not claimed or finished yet.
+     */
+    private static String getEpersonCondition(Context context, int eperson_id, List<Object> params) throws SQLException {
+        Set<Integer> groupIDs = Group.allMemberGroupIDs(context, EPerson.find(context, eperson_id));
+        StringBuilder condition = new StringBuilder("(eperson_id = ?");
+        params.add(eperson_id);
+        if(!groupIDs.isEmpty()){
+            condition.append(" OR (group_id IN (");
+            boolean first = true;
+            for(Integer groupID : groupIDs){
+                condition.append(first ? "?" : ", ?");
+                params.add(groupID);
+                first = false;
+            }
+            condition.append(") AND NOT EXISTS (SELECT 1 FROM cwf_in_progress_user ipu")
+                    .append(" WHERE ipu.workflowitem_id = cwf_pooltask.workflowitem_id AND ipu.user_id = ?))");
+            params.add(eperson_id);
+        }
+        condition.append(")");
+        return condition.toString();
     }
 
     public static List<PoolTask> find(Context context, XmlWorkflowItem workflowItem) throws SQLException {
@@ -109,30 +171,17 @@ public class PoolTask {
     }
 
     public static PoolTask findByWorkflowIdAndEPerson(Context context, int workflowID, int epersonID) throws SQLException, AuthorizeException, IOException {
+        //A pooltask for this eperson comes first (group tasks have no eperson). If the user is processing or has
+        //finished the step for the workflowitem, the pooltasks of his groups are left out because the user already
+        //has the task claimed
+        List<Object> params = new ArrayList<Object>();
+        params.add(workflowID);
+        String condition = getEpersonCondition(context, epersonID, params);
         TableRow row = DatabaseManager.querySingleTable(context,"cwf_pooltask",
-                "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ? AND eperson_id = ?", workflowID, epersonID);
-        //If there is a pooltask for this eperson, return it
+                "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ? AND " + condition
+                + " ORDER BY CASE WHEN eperson_id IS NULL THEN 1 ELSE 0 END", params.toArray());
         if(row != null)
             return new PoolTask(context, row);
-        else{
-            //If the user has a is processing or has finished the step for a workflowitem, there is no need to look for pooltasks for one of his
-            //groups because the user already has the task claimed
-            XmlWorkflowItem wfi = XmlWorkflowItem.find(context, workflowID);
-            if(InProgressUser.findByWorkflowItemAndEPerson(context, workflowID, epersonID)!=null){
-                return null;
-            }
-            else{
-                //If the user does not have a claimedtask yet, see whether one of the groups of the user has pooltasks
-                //for this workflow item
-                for(Group group: Group.allMemberGroups(context, EPerson.find(context, epersonID))){
-                    row = DatabaseManager.querySingleTable(context,"cwf_pooltask",
-                        "SELECT * FROM cwf_pooltask WHERE workflowitem_id= ? AND group_id = ?", workflowID, group.getID());
-                    if(row != null){
-                        return new PoolTask(context, row);
-                    }
-                }
-            }
-        }
         return null;
     }
     public static PoolTask create(Context context) throws SQLException {
@@ -9,6 +9,7 @@ package org.dspace.xmlworkflow.storedcomponents;
 
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
+import org.dspace.content.ItemContentLoader;
 import org.dspace.content.InProgressSubmission;
 import org.dspace.core.Context;
 import org.dspace.core.LogManager;
@@ -41,6 +42,9 @@ public class XmlWorkflowItem implements InProgressSubmission {
      */
     private static final Logger log = Logger.getLogger(XmlWorkflowItem.class);
 
+    /** The largest number of IDs cache() queries for at once */
+    private static final int CACHE_BATCH_SIZE = 500;
+
     private Collection collection;
 
     private Item item;
@@ -180,18 +184,48 @@ public class XmlWorkflowItem implements InProgressSubmission {
             query.append("WHERE collection_id=").append(collectionId);
         }
         int offset = (page - 1) * pagesize;
+        List<Object> params = new ArrayList<Object>();
+        appendPaging(query, params, offset, pagesize);
+        String queryString = query.toString();
+        Object[] paramArr = params.toArray();
+        // Get all the epeople that match the query
+        List<TableRow> rows = DatabaseManager.query(c, queryString, paramArr).toList();
+        preload(c, rows);
+        // make a list of workflow items
+        for (TableRow row : rows)
+        {
+            XmlWorkflowItem wi = new XmlWorkflowItem(c, row);
+            wfItems.add(wi);
+        }
+
+        XmlWorkflowItem[] wfArray = new XmlWorkflowItem[wfItems.size()];
+        wfArray = (XmlWorkflowItem[]) wfItems.toArray(wfArray);
+
+        return wfArray;
+    }
+
+
+    /**
+     * Restrict a query to a page of its results. Oracle requires special code.
+     *
+     * @param query  the query to restrict, including its ORDER BY clause
+     * @param params the parameters of the query, the paging parameters are added to it
+     * @param offset number of results to skip, ignored if not positive
+     * @param limit  maximum number of results, ignored if not positive
+     */
+    static void appendPaging(StringBuffer query, List<Object> params, int offset, int limit) {
         if (DatabaseManager.isOracle()) {
             // First prepare the query to generate row numbers
-            if (pagesize > 0 || offset > 0) {
+            if (limit > 0 || offset > 0) {
                 query.insert(0, "SELECT /*+ FIRST_ROWS(n) */ rec.*, ROWNUM rnum  FROM (");
                 query.append(") ");
             }
             // Restrict the number of rows returned based on the limit
-            if (pagesize > 0) {
+            if (limit > 0) {
                 query.append("rec WHERE rownum<=? ");
                 // If we also have an offset, then convert the limit into the maximum row number
                 if (offset > 0) {
-                    pagesize += offset;
+                    limit += offset;
                 }
             }
             // Return only the records after the specified offset (row number)
@@ -200,46 +234,72 @@ public class XmlWorkflowItem implements InProgressSubmission {
                 query.append(") WHERE rnum>?");
             }
         } else {
-            if (pagesize > 0) {
+            if (limit > 0) {
                 query.append(" LIMIT ? ");
             }
             if (offset > 0) {
                 query.append(" OFFSET ? ");
             }
         }
-        String queryString = query.toString();
-        Object[] paramArr = new Object[]{};
-        if (pagesize > 0 && offset > 0) {
-            paramArr = new Object[]{pagesize, offset};
-        } else if (pagesize > 0) {
-            paramArr = new Object[]{pagesize};
-        } else if (offset > 0) {
-            paramArr = new Object[]{offset};
+        if (limit > 0) {
+            params.add(limit);
         }
-        // Get all the epeople that match the query
-        TableRowIterator tri = DatabaseManager.query(c, queryString, paramArr);
-        try
-        {
-            // make a list of workflow items
-            while (tri.hasNext())
-            {
-                TableRow row = tri.next();
-                XmlWorkflowItem wi = new XmlWorkflowItem(c, row);
-                wfItems.add(wi);
-            }
-        }
-        finally
-        {
-            if (tri != null)
-                tri.close();
+        if (offset > 0) {
+            params.add(offset);
         }
+    }
 
-        XmlWorkflowItem[] wfArray = new XmlWorkflowItem[wfItems.size()];
-        wfArray = (XmlWorkflowItem[]) wfItems.toArray(wfArray);
+    /**
+     * Load the workflow items with the given IDs that are not cached yet with
+     * a query per batch of IDs, so later calls to find() are answered from
+     * the cache of the context. Their items and collections are loaded in
+     * bulk as well.
+     *
+     * @param c   active context
+     * @param ids IDs of the workflow items
+     */
+    static void cache(Context c, java.util.Collection<Integer> ids) throws SQLException {
+        List<Integer> toLoad = new ArrayList<Integer>();
+        for (Integer id : ids) {
+            if (c.fromCache(XmlWorkflowItem.class, id) == null) {
+                toLoad.add(id);
+            }
+        }
 
-        return wfArray;
+        for (int start = 0; start < toLoad.size(); start += CACHE_BATCH_SIZE) {
+            List<Integer> batch = toLoad.subList(start, Math.min(start + CACHE_BATCH_SIZE, toLoad.size()));
+            StringBuilder in = new StringBuilder();
+            for (int i = 0; i < batch.size(); i++) {
+                in.append(i == 0 ? "?" : ", ?");
+            }
+            List<TableRow> rows = DatabaseManager.queryTable(c, "cwf_workflowitem",
+                    "SELECT * FROM cwf_workflowitem WHERE workflowitem_id IN (" + in + ")",
+                    batch.toArray()).toList();
+            preload(c, rows);
+            for (TableRow row : rows) {
+                // The constructor adds the workflow item to the cache
+                new XmlWorkflowItem(c, row);
+            }
+        }
     }
 
+    /**
+     * Load the items and collections of workflow items into the cache of the
+     * context with a query per batch, so the constructor finds them there.
+     *
+     * @param c    active context
+     * @param rows rows of the workflow items
+     */
+    private static void preload(Context c, List<TableRow> rows) throws SQLException {
+        List<Integer> itemIDs = new ArrayList<Integer>();
+        List<Integer> collectionIDs = new ArrayList<Integer>();
+        for (TableRow row : rows) {
+            itemIDs.add(row.getIntColumn("item_id"));
+            collectionIDs.add(row.getIntColumn("collection_id"));
+        }
+        ItemContentLoader.loadItems(c, itemIDs);
+        ItemContentLoader.loadCollections(c, collectionIDs);
+    }
 
     /**
          * return all workflowitems
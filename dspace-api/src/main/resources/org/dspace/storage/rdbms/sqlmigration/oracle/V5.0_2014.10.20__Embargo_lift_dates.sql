@@ -0,0 +1,32 @@
+--
+-- The contents of this file are subject to the license and copyright
+-- detailed in the LICENSE and NOTICE files at the root of the source
+-- tree and available online at
+--
+-- http://www.dspace.org/license/
+--
+
+-- ===============================================================
+-- WARNING WARNING WARNING WARNING WARNING WARNING WARNING WARNING
+--
+-- DO NOT MANUALLY RUN THIS DATABASE MIGRATION. IT WILL BE EXECUTED
+-- AUTOMATICALLY (IF NEEDED) BY "FLYWAY" WHEN YOU STARTUP DSPACE.
+-- http://flywaydb.org/
+-- ===============================================================
+
+------------------------------------------------------
+-- Index of embargo lift dates, so that the embargo
+-- lifter only has to look at the Items that are due.
+-- A NULL lift date means the Item has not been checked
+-- yet, so every Item in the archive is checked by the
+-- first run of the lifter.
+------------------------------------------------------
+CREATE TABLE embargo_lift
+(
+  item_id    INTEGER PRIMARY KEY,
+  lift_date  TIMESTAMP
+);
+
+CREATE INDEX embargo_lift_date_idx ON embargo_lift(lift_date);
+
+INSERT INTO embargo_lift (item_id) SELECT item_id FROM item WHERE in_archive = '1';
@@ -143,4 +143,43 @@ public class DSpaceCSVTest extends AbstractUnitTest
             fail("IO Error while creating test CSV file");
         }
     }
+
+    /**
+     * Test reading a CSV file one line at a time
+     */
+    @Test
+    public void testDSpaceCSVReader() throws Exception
+    {
+        String[] csv = {"id,collection,\"dc.title[en]\",dc.contributor.author,dc.description.abstract",
+                        "1,2,Easy line,\"Lewis, Stuart\",A nice short abstract",
+                        "2,2,Two authors,\"Lewis, Stuart||Bloggs, Joe\",Two people wrote this item",
+                        "3,2,\"Two line\ntitle\",\"Lewis, Stuart\",\"Abstract with\ntwo\nnew lines\""};
+        File file = File.createTempFile("test", ".csv");
+        BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        for (String csvLine : csv) {
+            out.write(csvLine + "\n");
+        }
+        out.close();
+
+        DSpaceCSVReader reader = new DSpaceCSVReader(file, context);
+        try
+        {
+            assertThat("testDSpaceCSVReader No lines in memory", reader.getCSV().getCSVLines().size(), equalTo(0));
+
+            DSpaceCSVLine line = reader.next();
+            assertThat("testDSpaceCSVReader First line", line.getID(), equalTo(1));
+            line = reader.next();
+            assertThat("testDSpaceCSVReader Two authors", line.get("dc.contributor.author").size(), equalTo(2));
+            line = reader.next();
+            assertThat("testDSpaceCSVReader New lines", line.get("dc.description.abstract").get(0),
+                                                        equalTo("Abstract with\ntwo\nnew lines"));
+            assertThat("testDSpaceCSVReader End of file", reader.next(), nullValue());
+            assertThat("testDSpaceCSVReader Line count", reader.getLineCount(), equalTo(3));
+        }
+        finally
+        {
+            reader.close();
+            file.delete();
+        }
+    }
 }
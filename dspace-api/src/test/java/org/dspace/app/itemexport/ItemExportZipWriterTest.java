@@ -0,0 +1,198 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.itemexport;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Bitstream;
+import org.dspace.content.BitstreamFormat;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.InstallItem;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.Utils;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ItemExportZipWriter
+ */
+public class ItemExportZipWriterTest extends AbstractUnitTest
+{
+    /** The item exported */
+    private Item item;
+
+    /** Content of a bitstream small enough to be read ahead */
+    private byte[] small;
+
+    /** Content of a bitstream read when it is written */
+    private byte[] large;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            small = "A small bitstream".getBytes("UTF-8");
+            large = new byte[5000];
+            for (int i = 0; i < large.length; i++)
+            {
+                large[i] = (byte) (i % 7);
+            }
+
+            context.turnOffAuthorisationSystem();
+            Community community = Community.create(null, context);
+            Collection collection = community.createCollection();
+            WorkspaceItem workspaceItem = WorkspaceItem.create(context, collection, false);
+            item = InstallItem.installItem(context, workspaceItem);
+            item.addMetadata("dc", "title", null, null, "Exported item");
+            item.update();
+            addBitstream("small.txt", small, "text/plain");
+            addBitstream("large.txt", large, "text/plain");
+            context.restoreAuthSystemState();
+            context.commit();
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    private void addBitstream(String name, byte[] content, String mimeType) throws Exception
+    {
+        Bitstream b = item.createSingleBitstream(new ByteArrayInputStream(content), "ORIGINAL");
+        b.setName(name);
+        b.setFormat(BitstreamFormat.findByMIMEType(context, mimeType));
+        b.update();
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        item = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of addItem and close methods, of class ItemExportZipWriter.
+     */
+    @Test
+    public void testAddItem() throws Exception
+    {
+        Map<String, byte[]> entries = export(2, Collections.<String>emptySet(), ZipEntry.DEFLATED);
+        assertThat("testAddItem 0", entries.keySet(), equalTo(
+                (Object) new HashSet<String>(Arrays.asList("1/dublin_core.xml",
+                        "1/small.txt", "1/large.txt", "1/contents", "1/handle"))));
+        assertThat("testAddItem 1", Arrays.equals(entries.get("1/small.txt"), small), equalTo(true));
+        assertThat("testAddItem 2", Arrays.equals(entries.get("1/large.txt"), large), equalTo(true));
+        assertThat("testAddItem 3", new String(entries.get("1/handle"), "UTF-8").trim(),
+                equalTo(item.getHandle()));
+        assertThat("testAddItem 4", new String(entries.get("1/dublin_core.xml"), "UTF-8"),
+                containsString("qualifier=\"none\">Exported&#x20;item</dcvalue>"));
+    }
+
+    /**
+     * Test of addItem and close methods, of class ItemExportZipWriter, when
+     * the bitstreams are stored without compressing them.
+     */
+    @Test
+    public void testAddItemStored() throws Exception
+    {
+        Map<String, byte[]> entries = export(2, Collections.singleton("text/plain"), ZipEntry.STORED);
+        assertThat("testAddItemStored 0", Arrays.equals(entries.get("1/small.txt"), small), equalTo(true));
+        assertThat("testAddItemStored 1", Arrays.equals(entries.get("1/large.txt"), large), equalTo(true));
+    }
+
+    /**
+     * Test of addItem and close methods, of class ItemExportZipWriter, when
+     * no bitstream is read ahead.
+     */
+    @Test
+    public void testAddItemWithoutPrefetch() throws Exception
+    {
+        Map<String, byte[]> entries = export(0, Collections.<String>emptySet(), ZipEntry.DEFLATED);
+        assertThat("testAddItemWithoutPrefetch 0", Arrays.equals(entries.get("1/small.txt"), small), equalTo(true));
+        assertThat("testAddItemWithoutPrefetch 1", Arrays.equals(entries.get("1/large.txt"), large), equalTo(true));
+    }
+
+    /**
+     * Test of abort method, of class ItemExportZipWriter, while bitstreams
+     * are still waiting to be read ahead.
+     */
+    @Test
+    public void testAbort() throws Exception
+    {
+        ItemExportZipWriter zip = new ItemExportZipWriter(new ByteArrayOutputStream(),
+                false, 1, 1024, 32, Collections.<String>emptySet());
+        zip.addItem(item, "1/");
+        zip.addItem(item, "2/");
+        zip.abort();
+    }
+
+    /**
+     * Export the item and read the zip file back, checking the checksum of
+     * every entry and the compression method of the bitstream read ahead.
+     * A stored bitstream which is not read ahead is deflated without
+     * compressing it, as its checksum is not known before it is written.
+     *
+     * @return the content of the entries, by name
+     */
+    private Map<String, byte[]> export(int threads, Set<String> storedFormats,
+            int smallMethod) throws Exception
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // only the small bitstream is read ahead
+        ItemExportZipWriter zip = new ItemExportZipWriter(out, false, threads, 1024, 32, storedFormats);
+        zip.addItem(item, "1/");
+        zip.close();
+
+        Map<String, byte[]> entries = new HashMap<String, byte[]>();
+        ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+        try
+        {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null)
+            {
+                ByteArrayOutputStream content = new ByteArrayOutputStream();
+                Utils.copy(in, content);
+                byte[] data = content.toByteArray();
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                // the checksum is known once the entry has been read
+                assertThat(entry.getName() + " crc", entry.getCrc(), equalTo(crc.getValue()));
+                assertThat(entry.getName() + " size", entry.getSize(), equalTo((long) data.length));
+                if (entry.getName().endsWith("small.txt"))
+                {
+                    assertThat(entry.getName() + " method", entry.getMethod(), equalTo(smallMethod));
+                }
+                entries.put(entry.getName(), data);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.statistics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class LogAnalyser
+ */
+public class LogAnalyserTest extends AbstractUnitTest
+{
+    @Rule
+    public final TemporaryFolder testFolder = new TemporaryFolder();
+
+    /** The directory of the log files */
+    private File logDir;
+
+    /** The configuration of the analyser */
+    private File configFile;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            logDir = testFolder.newFolder("log");
+            writeLog(new File(logDir, "dspace.log.2014-10-20"), "2014-10-20", 400);
+            writeLog(new File(logDir, "dspace.log.2014-10-21"), "2014-10-21", 300);
+
+            configFile = testFolder.newFile("dstat.cfg");
+            Writer config = new FileWriter(configFile);
+            try
+            {
+                config.write("general.summary=view_item\n"
+                        + "general.summary=search\n"
+                        + "general.summary=login\n"
+                        + "exclude.word=the\n"
+                        + "exclude.character=\"\n"
+                        + "item.floor=0\n"
+                        + "search.floor=0\n"
+                        + "item.lookup=10\n"
+                        + "user.email=on\n");
+            }
+            finally
+            {
+                config.close();
+            }
+        }
+        catch (IOException ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        logDir = null;
+        configFile = null;
+        super.destroy();
+    }
+
+    /**
+     * Write a log file with item views, searches, logins and warnings, and
+     * lines which are not log lines, such as stack traces
+     */
+    private static void writeLog(File file, String date, int lines) throws IOException
+    {
+        Writer log = new FileWriter(file);
+        try
+        {
+            for (int i = 0; i < lines; i++)
+            {
+                String time = date + String.format(" %02d:%02d:%02d,%03d ", i / 3600 % 24, i / 60 % 60, i % 60, i % 1000);
+                String user = "user" + (i % 7) + "@example.com";
+                switch (i % 5)
+                {
+                    case 0:
+                        log.write(time + "INFO  org.dspace.app.webui.servlet.DisplayItemServlet @ " + user
+                                + ":session_id=S" + i + ":ip_addr=127.0.0.1:view_item:handle=123456789/" + (i % 13) + "\n");
+                        break;
+                    case 1:
+                        log.write(time + "INFO  org.dspace.app.webui.servlet.SimpleSearchServlet @ anonymous"
+                                + ":session_id=S" + i + ":ip_addr=127.0.0.1:search:scope=/,query=the word" + (i % 11)
+                                + " \"other\",results=(1,2,3)\n");
+                        break;
+                    case 2:
+                        log.write(time + "INFO  org.dspace.app.webui.servlet.LoginServlet @ " + user
+                                + ":session_id=S" + i + ":ip_addr=127.0.0.1:login:type=explicit\r\n");
+                        break;
+                    case 3:
+                        log.write(time + "WARN  org.dspace.app.webui.servlet.DSpaceServlet @ anonymous"
+                                + ":session_id=S" + i + ":ip_addr=127.0.0.1:invalid_id:path=/item/" + i + "\n");
+                        log.write("java.lang.IllegalArgumentException: " + i + "\n");
+                        log.write("\tat org.dspace.app.webui.servlet.DSpaceServlet.processRequest(DSpaceServlet.java:1)\n");
+                        break;
+                    default:
+                        log.write(time + "INFO  org.dspace.content.Item @ " + user
+                                + ":session_id=S" + i + ":ip_addr=127.0.0.1:update_item:item_id=" + i + "\n");
+                        break;
+                }
+            }
+        }
+        finally
+        {
+            log.close();
+        }
+    }
+
+    /**
+     * Test of processLogs method, of class LogAnalyser: analysing the log
+     * files in many small chunks on several threads gives the same counts
+     * as reading them line by line.
+     */
+    @Test
+    public void testProcessLogsInParallel() throws Exception
+    {
+        File serial = new File(testFolder.getRoot(), "serial.dat");
+        LogAnalyser.processLogs(context, logDir.getPath(), "dspace\\.log.*", configFile.getPath(),
+                serial.getPath(), null, null, false, 1);
+
+        File parallel = new File(testFolder.getRoot(), "parallel.dat");
+        // chunks of a few lines each, so lines are split across chunks
+        LogAnalyser.processLogs(context, logDir.getPath(), "dspace\\.log.*", configFile.getPath(),
+                parallel.getPath(), null, null, false, 3, 1000);
+
+        Set<String> expected = counts(serial);
+        assertThat("testProcessLogsInParallel 0", expected, hasItem("log_lines=700"));
+        assertThat("testProcessLogsInParallel 1", expected, hasItem("warnings=140"));
+        assertThat("testProcessLogsInParallel 2", expected, hasItem("action.view_item=140"));
+        assertThat("testProcessLogsInParallel 3", counts(parallel), equalTo(expected));
+    }
+
+    /**
+     * @return the lines of an aggregation file, but the processing time
+     */
+    private static Set<String> counts(File file) throws IOException
+    {
+        List<String> lines = FileUtils.readLines(file, "UTF-8");
+        Set<String> counts = new TreeSet<String>();
+        for (String line : lines)
+        {
+            if (!line.startsWith("analysis_process_time="))
+            {
+                counts.add(line);
+            }
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.authenticate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Tests of the lookup of addresses in {@link IPRangeIndex}, against
+ * the matching of {@link IPMatcher}.
+ */
+public class IPRangeIndexTest
+{
+    private List<IPMatcher> matchers;
+    private List<Integer> groups;
+    private List<Boolean> negative;
+
+    @Before
+    public void setUp()
+    {
+        matchers = new ArrayList<IPMatcher>();
+        groups = new ArrayList<Integer>();
+        negative = new ArrayList<Boolean>();
+    }
+
+    private void add(String range, int group) throws IPMatcherException
+    {
+        boolean isNegative = range.startsWith("-");
+        matchers.add(new IPMatcher(isNegative ? range.substring(1) : range));
+        groups.add(group);
+        negative.add(isNegative);
+    }
+
+    /**
+     * Test method for {@link org.dspace.authenticate.IPRangeIndex#getGroups(java.lang.String)}.
+     */
+    @Test
+    public void testGetGroupsIp4() throws IPMatcherException
+    {
+        add("111.222", 0);
+        add("-111.222.33.", 0);
+        add("111.222.33.44", 1);
+        add("10.0.0.0/8", 2);
+        add("10.1.0.0/255.255.0.0", 1);
+        IPRangeIndex index = new IPRangeIndex(matchers, groups, negative);
+
+        assertArrayEquals(new int[] { 0 }, index.getGroups("111.222.0.1"));
+        assertArrayEquals(new int[] { 0 }, index.getGroups("111.222.255.255"));
+        assertArrayEquals(new int[] { 1 }, index.getGroups("111.222.33.44"));
+        assertArrayEquals(new int[] { }, index.getGroups("111.222.33.45"));
+        assertArrayEquals(new int[] { 0 }, index.getGroups("111.222.34.0"));
+        assertArrayEquals(new int[] { 2 }, index.getGroups("10.0.0.0"));
+        assertArrayEquals(new int[] { 1, 2 }, index.getGroups("10.1.2.3"));
+        assertArrayEquals(new int[] { 2 }, index.getGroups("10.255.255.255"));
+        assertArrayEquals(new int[] { }, index.getGroups("11.0.0.0"));
+        assertArrayEquals(new int[] { }, index.getGroups("0.0.0.0"));
+    }
+
+    /**
+     * Test method for {@link org.dspace.authenticate.IPRangeIndex#getGroups(java.lang.String)}.
+     */
+    @Test
+    public void testGetGroupsIp6() throws IPMatcherException
+    {
+        add("2001:18e8:3::/48", 0);
+        add("2001:18e8:3:171:218:8bff:fe2a:56a4", 1);
+        add("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ff00/120", 2);
+        IPRangeIndex index = new IPRangeIndex(matchers, groups, negative);
+
+        assertArrayEquals(new int[] { 0, 1 }, index.getGroups("2001:18e8:3:171:218:8bff:fe2a:56a4"));
+        assertArrayEquals(new int[] { 0 }, index.getGroups("2001:18e8:3:171:218:8bff:fe2a:56a3"));
+        assertArrayEquals(new int[] { }, index.getGroups("2001:18e8:4::"));
+        assertArrayEquals(new int[] { 2 }, index.getGroups("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertArrayEquals(new int[] { }, index.getGroups("::1"));
+    }
+
+    /**
+     * Test method for {@link org.dspace.authenticate.IPRangeIndex#getGroups(java.lang.String)}.
+     */
+    @Test
+    public void testGetGroupsNetmaskWithHoles() throws IPMatcherException
+    {
+        add("12.0.8.0/255.0.255.0", 0);
+        add("12.0.0.0/8", 1);
+        add("-12.5.0.0/16", 1);
+        IPRangeIndex index = new IPRangeIndex(matchers, groups, negative);
+
+        assertArrayEquals(new int[] { 0, 1 }, index.getGroups("12.1.8.1"));
+        assertArrayEquals(new int[] { 0 }, index.getGroups("12.5.8.1"));
+        assertArrayEquals(new int[] { 1 }, index.getGroups("12.1.9.1"));
+    }
+
+    /**
+     * Test method for {@link org.dspace.authenticate.IPRangeIndex#getGroups(java.lang.String)}.
+     */
+    @Test(expected=IPMatcherException.class)
+    public void testGetGroupsMalformed() throws IPMatcherException
+    {
+        add("10.0.0.0/8", 0);
+        new IPRangeIndex(matchers, groups, negative).getGroups("10.0.0");
+    }
+}
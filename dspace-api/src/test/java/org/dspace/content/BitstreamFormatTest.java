@@ -477,6 +477,93 @@ public class BitstreamFormatTest extends AbstractUnitTest
         assertThat("testUpdateAdmin 0", b.getDescription(), equalTo(desc));
     }
 
+    /**
+     * Test of update method, of class BitstreamFormat, as seen from other contexts.
+     */
+    @Test
+    public void testUpdateAdminOtherContext() throws SQLException, AuthorizeException
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow full Admin perms
+            AuthorizeManager.isAdmin((Context)any); result = true;
+        }};
+
+        String oldMIMEType = bf.getMIMEType();
+        bf.setMIMEType("application/x-test");
+        bf.update();
+
+        // The context which changed the format sees the change
+        BitstreamFormat b = BitstreamFormat.findByMIMEType(context, "application/x-test");
+        assertThat("testUpdateAdminOtherContext 0", b, notNullValue());
+        assertThat("testUpdateAdminOtherContext 1", b.getID(), equalTo(5));
+
+        // Other contexts do not, until it is committed
+        Context other = new Context();
+        b = BitstreamFormat.findByMIMEType(other, "application/x-test");
+        assertThat("testUpdateAdminOtherContext 2", b, nullValue());
+        b = BitstreamFormat.findByMIMEType(other, oldMIMEType);
+        assertThat("testUpdateAdminOtherContext 3", b, notNullValue());
+        assertThat("testUpdateAdminOtherContext 4", b.getID(), equalTo(5));
+        assertThat("testUpdateAdminOtherContext 5", b, not(sameInstance(bf)));
+
+        // Once the change is rolled back, all contexts see the registry as it was
+        context.abort();
+        b = BitstreamFormat.findByMIMEType(other, oldMIMEType);
+        assertThat("testUpdateAdminOtherContext 6", b, notNullValue());
+        b = BitstreamFormat.findByMIMEType(other, "application/x-test");
+        assertThat("testUpdateAdminOtherContext 7", b, nullValue());
+        other.abort();
+    }
+
+    /**
+     * Test of create method, of class BitstreamFormat, as seen from other
+     * contexts once the context which created the format has been completed
+     * and garbage collected.
+     */
+    @Test
+    public void testCreateAdminCompletedCollected() throws SQLException, AuthorizeException
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow full Admin perms
+            AuthorizeManager.isAdmin((Context)any); result = true;
+        }};
+
+        String desc = "Test collected format";
+        BitstreamFormat b = BitstreamFormat.findByShortDescription(context, desc);
+        assertThat("testCreateAdminCompletedCollected 0", b, nullValue());
+
+        Context editor = new Context();
+        b = BitstreamFormat.create(editor);
+        b.setShortDescription(desc);
+        b.update();
+        int id = b.getID();
+        editor.complete();
+
+        // Drop the context which created the format before the next lookup
+        editor = null;
+        b = null;
+        System.gc();
+
+        Context other = new Context();
+        try
+        {
+            b = BitstreamFormat.findByShortDescription(other, desc);
+            assertThat("testCreateAdminCompletedCollected 1", b, notNullValue());
+            assertThat("testCreateAdminCompletedCollected 2", b.getID(), equalTo(id));
+            b.delete();
+            other.complete();
+        }
+        finally
+        {
+            if (other.isValid())
+            {
+                other.abort();
+            }
+        }
+    }
+
     /**
      * Test of delete method, of class BitstreamFormat.
      */
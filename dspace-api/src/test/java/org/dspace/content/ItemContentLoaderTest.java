@@ -0,0 +1,158 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.content;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.service.ItemService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ItemContentLoader
+ */
+public class ItemContentLoaderTest extends AbstractUnitTest
+{
+    /** log4j category */
+    private static final Logger log = Logger.getLogger(ItemContentLoaderTest.class);
+
+    /**
+     * Item with an ORIGINAL bundle, with a primary bitstream, and a THUMBNAIL bundle
+     */
+    private Item withThumbnail;
+
+    /**
+     * Item without bundles
+     */
+    private Item empty;
+
+    /**
+     * This method will be run before every test as per @Before. It will
+     * initialize resources required for the tests.
+     *
+     * Other methods can be annotated with @Before here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            context.turnOffAuthorisationSystem();
+            File f = new File(testProps.get("test.bitstream").toString());
+
+            withThumbnail = Item.create(context);
+            Bundle original = withThumbnail.createBundle("ORIGINAL");
+            Bitstream primary = original.createBitstream(new FileInputStream(f));
+            primary.setName("file.pdf");
+            primary.update();
+            original.createBitstream(new FileInputStream(f));
+            original.setPrimaryBitstreamID(primary.getID());
+            original.update();
+            Bundle thumbnails = withThumbnail.createBundle("THUMBNAIL");
+            Bitstream thumb = thumbnails.createBitstream(new FileInputStream(f));
+            thumb.setName("file.pdf.jpg");
+            thumb.update();
+            withThumbnail.update();
+
+            empty = Item.create(context);
+            empty.update();
+
+            context.restoreAuthSystemState();
+            context.commit();
+            context.clearCache();
+        }
+        catch (Exception ex)
+        {
+            log.error("Error in init", ex);
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This method will be run after every test as per @After. It will
+     * clean resources initialized by the @Before methods.
+     *
+     * Other methods can be annotated with @After here or in subclasses
+     * but no execution order is guaranteed
+     */
+    @After
+    @Override
+    public void destroy()
+    {
+        withThumbnail = null;
+        empty = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of loadBundles method, of class ItemContentLoader.
+     */
+    @Test
+    public void testLoadBundles() throws Exception
+    {
+        Map<Integer, List<Bundle>> bundles = ItemContentLoader.loadBundles(context,
+                Arrays.asList(withThumbnail.getID(), empty.getID()));
+
+        assertThat("testLoadBundles 0", bundles.get(empty.getID()).size(), equalTo(0));
+        List<Bundle> loaded = bundles.get(withThumbnail.getID());
+        assertThat("testLoadBundles 1", loaded.size(), equalTo(2));
+        Bundle original = loaded.get(0).getName().equals("ORIGINAL") ? loaded.get(0) : loaded.get(1);
+        assertThat("testLoadBundles 2", original.getBitstreams().length, equalTo(2));
+        assertThat("testLoadBundles 3", original.getBitstreams()[0].getName(), equalTo("file.pdf"));
+        assertThat("testLoadBundles 4", original.getBitstreams()[0].getFormat(), notNullValue());
+
+        // the objects loaded are the ones found afterwards
+        assertThat("testLoadBundles 5", Bundle.find(context, original.getID()), sameInstance(original));
+        assertThat("testLoadBundles 6", Item.find(context, withThumbnail.getID()).getBundles("ORIGINAL")[0],
+                sameInstance(original));
+    }
+
+    /**
+     * Test of getThumbnails method, of class ItemService.
+     */
+    @Test
+    public void testGetThumbnails() throws Exception
+    {
+        Map<Integer, Thumbnail> thumbnails = ItemService.getThumbnails(context,
+                Arrays.asList(withThumbnail.getID(), empty.getID()), true);
+
+        assertFalse("testGetThumbnails 0", thumbnails.containsKey(empty.getID()));
+        Thumbnail thumbnail = thumbnails.get(withThumbnail.getID());
+        assertThat("testGetThumbnails 1", thumbnail.getThumb().getName(), equalTo("file.pdf.jpg"));
+        assertThat("testGetThumbnails 2", thumbnail.getOriginal().getName(), equalTo("file.pdf"));
+    }
+
+    /**
+     * Test of loadLastModified method, of class ItemContentLoader.
+     */
+    @Test
+    public void testLoadLastModified() throws Exception
+    {
+        Map<Integer, Date> lastModified = ItemContentLoader.loadLastModified(context,
+                Arrays.asList(withThumbnail.getID(), empty.getID(), -1));
+
+        assertThat("testLoadLastModified 0", lastModified.size(), equalTo(2));
+        assertThat("testLoadLastModified 1", lastModified.get(withThumbnail.getID()),
+                equalTo(Item.find(context, withThumbnail.getID()).getLastModified()));
+        assertThat("testLoadLastModified 2", lastModified.get(empty.getID()),
+                equalTo(Item.find(context, empty.getID()).getLastModified()));
+    }
+}
@@ -11,6 +11,7 @@ import org.dspace.authorize.AuthorizeManager;
 import mockit.NonStrictExpectations;
 import java.sql.SQLException;
 import org.dspace.AbstractUnitTest;
+import org.dspace.core.Context;
 import org.apache.log4j.Logger;
 import org.dspace.authorize.AuthorizeException;
 import org.junit.*;
@@ -325,6 +326,91 @@ public class MetadataFieldTest extends AbstractUnitTest
         assertThat("testUpdateAuth 0",found.getFieldID(), equalTo(m.getFieldID()));
     }
 
+    /**
+     * Test of update method, of class MetadataField, when the update is rolled back.
+     */
+    @Test
+    public void testUpdateAuthAborted() throws Exception
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow full admin permissions
+            AuthorizeManager.isAdmin(context); result = true;
+        }};
+
+        String elem = "elem4";
+        String qual = "qual4";
+        MetadataField m = new MetadataField();
+        m.setSchemaID(MetadataSchema.DC_SCHEMA_ID);
+        m.setElement(elem);
+        m.setQualifier(qual);
+        m.create(context);
+        context.commit();
+        Context other = new Context();
+        MetadataField.find(other, m.getFieldID());
+
+        m.setElement("elem5");
+        m.update(context);
+
+        MetadataField found = MetadataField.findByElement(context, MetadataSchema.DC_SCHEMA_ID, "elem5", qual);
+        assertThat("testUpdateAuthAborted 0", found.getFieldID(), equalTo(m.getFieldID()));
+        found = MetadataField.findByElement(context, MetadataSchema.DC_SCHEMA_ID, elem, qual);
+        assertThat("testUpdateAuthAborted 1", found, nullValue());
+
+        // Other contexts do not see the update until it is committed
+        found = MetadataField.findByElement(other, MetadataSchema.DC_SCHEMA_ID, "elem5", qual);
+        assertThat("testUpdateAuthAborted 2", found, nullValue());
+        found = MetadataField.findByElement(other, MetadataSchema.DC_SCHEMA_ID, elem, qual);
+        assertThat("testUpdateAuthAborted 3", found.getFieldID(), equalTo(m.getFieldID()));
+        other.abort();
+
+        // Once the update is rolled back, the field is found as it was
+        context.abort();
+        context = new Context();
+        found = MetadataField.findByElement(context, MetadataSchema.DC_SCHEMA_ID, elem, qual);
+        assertThat("testUpdateAuthAborted 4", found.getFieldID(), equalTo(m.getFieldID()));
+        found = MetadataField.findByElement(context, MetadataSchema.DC_SCHEMA_ID, "elem5", qual);
+        assertThat("testUpdateAuthAborted 5", found, nullValue());
+        assertThat("testUpdateAuthAborted 6", MetadataField.find(context, m.getFieldID()).getElement(), equalTo(elem));
+    }
+
+    /**
+     * Test of update method, of class MetadataField, when the update is
+     * committed while another context uses the cache.
+     */
+    @Test
+    public void testUpdateAuthCommitted() throws Exception
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow full admin permissions
+            AuthorizeManager.isAdmin(context); result = true;
+        }};
+
+        String elem = "elem6";
+        String qual = "qual6";
+        MetadataField m = new MetadataField();
+        m.setSchemaID(MetadataSchema.DC_SCHEMA_ID);
+        m.setElement(elem);
+        m.setQualifier(qual);
+        m.create(context);
+        context.commit();
+        Context other = new Context();
+        MetadataField.find(other, m.getFieldID());
+
+        m.setElement("elem7");
+        m.update(context);
+        context.commit();
+
+        MetadataField found = MetadataField.findByElement(other, MetadataSchema.DC_SCHEMA_ID, "elem7", qual);
+        assertThat("testUpdateAuthCommitted 0", found.getFieldID(), equalTo(m.getFieldID()));
+        found = MetadataField.findByElement(other, MetadataSchema.DC_SCHEMA_ID, elem, qual);
+        assertThat("testUpdateAuthCommitted 1", found, nullValue());
+        found = MetadataField.findByElement(other, MetadataSchema.DC_SCHEMA_ID, element, qualifier);
+        assertThat("testUpdateAuthCommitted 2", found.getQualifier(), equalTo(qualifier));
+        other.abort();
+    }
+
     /**
      * Test of update method, of class MetadataField.
      */
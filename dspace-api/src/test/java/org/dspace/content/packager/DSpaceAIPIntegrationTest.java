@@ -489,7 +489,54 @@ public class DSpaceAIPIntegrationTest extends AbstractUnitTest
         
         log.info("testRestoreCollectionHierarchy() - END");
     }
-    
+
+    /**
+     * Test restoration from AIP of entire Collection Hierarchy, restoring
+     * its Items in parallel
+     */
+    @Test
+    public void testRestoreCollectionHierarchyInParallel() throws Exception
+    {
+        new NonStrictExpectations(AuthorizeManager.class)
+        {{
+            // Allow Full Admin permissions. Since we are working with an object
+            // hierarchy you really need full admin rights
+            AuthorizeManager.isAdmin((Context) any); result = true;
+        }};
+
+        log.info("testRestoreCollectionHierarchyInParallel() - BEGIN");
+
+        // Locate the collection (from our test data)
+        Collection testCollection = (Collection) HandleManager.resolveToObject(context, testCollectionHandle);
+
+        // Get parent object, so that we can restore to same parent later
+        Community parent = (Community) testCollection.getParentObject();
+
+        // Save basic info about collection (and children) to an infoMap
+        HashMap<String,String> infoMap = new HashMap<String,String>();
+        saveObjectInfo(testCollection, infoMap);
+
+        // Ensure collection & child AIPs are exported (but don't overwrite)
+        File aipFile = createAIP(testCollection, null, true, false);
+
+        // Delete everything from collection on down
+        parent.removeCollection(testCollection);
+        context.commit();
+        assertObjectsNotExist(infoMap);
+
+        // Restore this Collection (recursively) from AIPs, two Items at a time
+        log.info("testRestoreCollectionHierarchyInParallel() - RESTORE Collection Hierarchy");
+        PackageParameters pkgParams = new PackageParameters();
+        pkgParams.setIngestThreads(2);
+        restoreFromAIP(parent, aipFile, pkgParams, true);
+        context.commit();
+
+        // Assert all objects in infoMap now exist again!
+        assertObjectsExist(infoMap);
+
+        log.info("testRestoreCollectionHierarchyInParallel() - END");
+    }
+
     /**
      * Test replacement from AIP of entire Collection (with Items)
      */
@@ -38,6 +38,37 @@ public class ContextTest extends AbstractUnitTest
         assertThat("testGetDBConnection 1", connection.isClosed(), equalTo(false));
     }
 
+    /**
+     * Test that the connection is only borrowed when first used, of class Context.
+     */
+    @Test
+    public void testGetDBConnectionLazily() throws SQLException
+    {
+        Context instance = new Context();
+
+        // A new context does not hold a connection until it is used
+        assertThat("testGetDBConnectionLazily 0", instance.hasDBConnection(), equalTo(false));
+        assertThat("testGetDBConnectionLazily 1", instance.isValid(), equalTo(true));
+        assertThat("testGetDBConnectionLazily 2", instance.getConnectionHoldTime(), equalTo(0L));
+
+        Connection connection = instance.getDBConnection();
+        assertThat("testGetDBConnectionLazily 3", instance.hasDBConnection(), equalTo(true));
+        assertThat("testGetDBConnectionLazily 4", instance.getDBConnection(), sameInstance(connection));
+
+        instance.complete();
+        assertThat("testGetDBConnectionLazily 5", instance.hasDBConnection(), equalTo(false));
+        assertThat("testGetDBConnectionLazily 6", instance.getDBConnection(), nullValue());
+
+        // Completing a context which never used its connection does nothing
+        Context unused = new Context();
+        unused.complete();
+        assertThat("testGetDBConnectionLazily 7", unused.isValid(), equalTo(false));
+        assertThat("testGetDBConnectionLazily 8", unused.getDBConnection(), nullValue());
+
+        cleanupContext(instance);
+        cleanupContext(unused);
+    }
+
     /**
      * Test of setCurrentUser method, of class Context.
      */
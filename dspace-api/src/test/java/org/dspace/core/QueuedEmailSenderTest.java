@@ -0,0 +1,209 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the QueuedEmailSender against a local SMTP sink.
+ */
+public class QueuedEmailSenderTest
+{
+    private ServerSocket server;
+    private Thread acceptor;
+    private Session session;
+
+    private final AtomicInteger connections = new AtomicInteger(0);
+    /** Number of connections to drop right after accepting them */
+    private final AtomicInteger connectionsToDrop = new AtomicInteger(0);
+    private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = new ServerSocket(0, 50, InetAddress.getByName("localhost"));
+        acceptor = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                while (!server.isClosed())
+                {
+                    try
+                    {
+                        final Socket socket = server.accept();
+                        new Thread(new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                handle(socket);
+                            }
+                        }).start();
+                    }
+                    catch (IOException e)
+                    {
+                        // closed
+                    }
+                }
+            }
+        });
+        acceptor.start();
+
+        Properties props = new Properties();
+        props.put("mail.transport.protocol", "smtp");
+        props.put("mail.smtp.host", "localhost");
+        props.put("mail.smtp.port", Integer.toString(server.getLocalPort()));
+        session = Session.getInstance(props);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        server.close();
+        acceptor.join();
+    }
+
+    /**
+     * A minimal SMTP server, storing the subject of every message received.
+     */
+    private void handle(Socket socket)
+    {
+        connections.incrementAndGet();
+        try
+        {
+            if (connectionsToDrop.getAndDecrement() > 0)
+            {
+                socket.close();
+                return;
+            }
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), "US-ASCII");
+            reply(out, "220 localhost SMTP sink");
+            String line;
+            while ((line = in.readLine()) != null)
+            {
+                String command = line.toUpperCase();
+                if (command.startsWith("DATA"))
+                {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    String subject = null;
+                    while ((line = in.readLine()) != null && !line.equals("."))
+                    {
+                        if (subject == null && line.startsWith("Subject: "))
+                        {
+                            subject = line.substring("Subject: ".length());
+                        }
+                    }
+                    received.add(subject);
+                    reply(out, "250 OK");
+                }
+                else if (command.startsWith("QUIT"))
+                {
+                    reply(out, "221 Bye");
+                    break;
+                }
+                else
+                {
+                    reply(out, "250 OK");
+                }
+            }
+            socket.close();
+        }
+        catch (IOException e)
+        {
+            // client went away
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException
+    {
+        out.write(line + "\r\n");
+        out.flush();
+    }
+
+    private MimeMessage createMessage(String subject) throws Exception
+    {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress("dspace@localhost"));
+        message.addRecipient(Message.RecipientType.TO, new InternetAddress("user@localhost"));
+        message.setSubject(subject);
+        message.setText("Some new items");
+        return message;
+    }
+
+    @Test
+    public void testConnectionsAreReused() throws Exception
+    {
+        int total = 50;
+        QueuedEmailSender sender = new QueuedEmailSender(session, 2, 10, 0, 0);
+        for (int i = 0; i < total; i++)
+        {
+            sender.send(createMessage("Digest " + i));
+        }
+        sender.close();
+
+        assertEquals(total, sender.getSentCount());
+        assertEquals(0, sender.getFailedCount());
+        assertEquals(total, received.size());
+        for (int i = 0; i < total; i++)
+        {
+            assertTrue("Digest " + i, received.contains("Digest " + i));
+        }
+        assertTrue("Expected at most 2 connections, but got " + connections.get(), connections.get() <= 2);
+    }
+
+    @Test
+    public void testFailedDeliveryIsRetried() throws Exception
+    {
+        connectionsToDrop.set(2);
+        QueuedEmailSender sender = new QueuedEmailSender(session, 1, 10, 3, 10);
+        sender.send(createMessage("Retried"));
+        sender.close();
+
+        assertEquals(1, sender.getSentCount());
+        assertEquals(0, sender.getFailedCount());
+        assertEquals(Collections.singletonList("Retried"), received);
+        assertEquals(3, connections.get());
+    }
+
+    @Test
+    public void testDeliveryIsGivenUp() throws Exception
+    {
+        connectionsToDrop.set(Integer.MAX_VALUE);
+        QueuedEmailSender sender = new QueuedEmailSender(session, 1, 10, 2, 10);
+        sender.send(createMessage("Lost"));
+        sender.close();
+
+        assertEquals(0, sender.getSentCount());
+        assertEquals(1, sender.getFailedCount());
+        assertTrue(received.isEmpty());
+        assertEquals(3, connections.get());
+    }
+}
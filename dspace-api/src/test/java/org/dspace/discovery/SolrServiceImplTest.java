@@ -0,0 +1,151 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.discovery;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.impl.HttpSolrServer;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.UpdateParams;
+import org.apache.solr.common.util.NamedList;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.InstallItem;
+import org.dspace.content.Item;
+import org.dspace.content.WorkspaceItem;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Tests of the indexing of items through {@link SolrServiceImpl}, against
+ * a Solr server which records the requests sent to it, as Solr is not
+ * running during unit testing.
+ */
+public class SolrServiceImplTest extends AbstractUnitTest
+{
+    /** The requests sent to Solr */
+    private List<SolrRequest> requests;
+
+    /** The service under test */
+    private SolrServiceImpl service;
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        requests = new ArrayList<SolrRequest>();
+        final HttpSolrServer solr = new HttpSolrServer("http://localhost/solr/search")
+        {
+            @Override
+            public NamedList<Object> request(SolrRequest request)
+            {
+                requests.add(request);
+                NamedList<Object> response = new NamedList<Object>();
+                if (request instanceof QueryRequest)
+                {
+                    response.add("response", new SolrDocumentList());
+                }
+                return response;
+            }
+        };
+        service = new SolrServiceImpl()
+        {
+            @Override
+            protected HttpSolrServer getSolr()
+            {
+                return solr;
+            }
+        };
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        service = null;
+        requests = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of indexContent and unIndexContent methods, of class SolrServiceImpl.
+     */
+    @Test
+    public void testIndexAndUnIndexItem() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        Community community = Community.create(null, context);
+        Collection collection = community.createCollection();
+        WorkspaceItem workspaceItem = WorkspaceItem.create(context, collection, false);
+        Item item = InstallItem.installItem(context, workspaceItem);
+        item.addMetadata("dc", "title", null, null, "Indexed item");
+        item.update();
+        context.restoreAuthSystemState();
+        String uniqueID = item.getType() + "-" + item.getID();
+
+        service.indexContent(context, item, true, true);
+
+        SolrInputDocument added = null;
+        for (UpdateRequest update : updates())
+        {
+            if (update.getDocuments() != null)
+            {
+                for (SolrInputDocument document : update.getDocuments())
+                {
+                    if (uniqueID.equals(document.getFieldValue("search.uniqueid")))
+                    {
+                        added = document;
+                    }
+                }
+            }
+        }
+        assertThat("testIndexAndUnIndexItem 0", added, notNullValue());
+        assertThat("testIndexAndUnIndexItem 1", added.getFieldValue("handle"), equalTo((Object) item.getHandle()));
+        assertThat("testIndexAndUnIndexItem 2", isCommit(lastUpdate()), equalTo(true));
+
+        requests.clear();
+        service.unIndexContent(context, item, true);
+
+        List<UpdateRequest> updates = updates();
+        assertThat("testIndexAndUnIndexItem 3", updates.size(), equalTo(2));
+        assertThat("testIndexAndUnIndexItem 4", updates.get(0).getDeleteById(), equalTo(java.util.Arrays.asList(uniqueID)));
+        assertThat("testIndexAndUnIndexItem 5", isCommit(updates.get(1)), equalTo(true));
+    }
+
+    private List<UpdateRequest> updates()
+    {
+        List<UpdateRequest> updates = new ArrayList<UpdateRequest>();
+        for (SolrRequest request : requests)
+        {
+            if (request instanceof UpdateRequest)
+            {
+                updates.add((UpdateRequest) request);
+            }
+        }
+        return updates;
+    }
+
+    private UpdateRequest lastUpdate()
+    {
+        List<UpdateRequest> updates = updates();
+        return updates.get(updates.size() - 1);
+    }
+
+    private boolean isCommit(UpdateRequest update)
+    {
+        return update.getParams() != null && update.getParams().getBool(UpdateParams.COMMIT, false);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.embargo;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class EmbargoLiftIndex
+ */
+public class EmbargoLiftIndexTest extends AbstractUnitTest
+{
+    /** IDs of Items, out of the range of the Items of the other tests */
+    private static final int PAST = 900001;
+    private static final int FUTURE = 900002;
+    private static final int UNCHECKED = 900003;
+    private static final int FOREVER = 900004;
+
+    /** A day, in milliseconds */
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    /**
+     * Test of set, remove and findDue methods, of class EmbargoLiftIndex.
+     */
+    @Test
+    public void testFindDue() throws Exception
+    {
+        Date now = new Date();
+        EmbargoLiftIndex.set(context, PAST, new Date(now.getTime() - DAY));
+        EmbargoLiftIndex.set(context, FUTURE, new Date(now.getTime() + DAY));
+        EmbargoLiftIndex.set(context, UNCHECKED, null);
+        // later than any date the table can store
+        EmbargoLiftIndex.set(context, FOREVER, new Date(Long.MAX_VALUE));
+
+        assertThat("testFindDue 0", ours(EmbargoLiftIndex.findDue(context, now)),
+                equalTo(ids(PAST, UNCHECKED)));
+        assertThat("testFindDue 1", ours(EmbargoLiftIndex.findDue(context, new Date(now.getTime() + 2 * DAY))),
+                equalTo(ids(PAST, FUTURE, UNCHECKED)));
+        assertThat("testFindDue 2", ours(EmbargoLiftIndex.findDue(context, null)),
+                equalTo(ids(PAST, FUTURE, UNCHECKED, FOREVER)));
+
+        EmbargoLiftIndex.remove(context, PAST);
+        assertThat("testFindDue 3", ours(EmbargoLiftIndex.findDue(context, now)),
+                equalTo(ids(UNCHECKED)));
+    }
+
+    /**
+     * Test of set method, of class EmbargoLiftIndex, when the Item already
+     * has a lift date.
+     */
+    @Test
+    public void testSetReplaces() throws Exception
+    {
+        Date now = new Date();
+        EmbargoLiftIndex.set(context, FUTURE, new Date(now.getTime() + DAY));
+        assertThat("testSetReplaces 0", ours(EmbargoLiftIndex.findDue(context, now)),
+                equalTo(ids()));
+
+        EmbargoLiftIndex.set(context, FUTURE, new Date(now.getTime() - DAY));
+        assertThat("testSetReplaces 1", ours(EmbargoLiftIndex.findDue(context, now)),
+                equalTo(ids(FUTURE)));
+
+        EmbargoLiftIndex.set(context, FUTURE, null);
+        assertThat("testSetReplaces 2", ours(EmbargoLiftIndex.findDue(context, now)),
+                equalTo(ids(FUTURE)));
+        assertThat("testSetReplaces 3", ours(EmbargoLiftIndex.findDue(context, null)),
+                equalTo(ids(FUTURE)));
+    }
+
+    private static List<Integer> ids(Integer... ids)
+    {
+        List<Integer> list = new ArrayList<Integer>();
+        for (Integer id : ids)
+        {
+            list.add(id);
+        }
+        return list;
+    }
+
+    // the IDs of the Items of this test, as the archived Items of the other
+    // tests are indexed too
+    private static List<Integer> ours(List<Integer> itemIDs)
+    {
+        List<Integer> list = new ArrayList<Integer>();
+        for (Integer id : itemIDs)
+        {
+            if (id >= PAST && id <= FOREVER)
+            {
+                list.add(id);
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.identifier.doi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.dspace.identifier.DOI;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the DataCiteConnector against a local stub of the DataCite MDS API.
+ */
+public class DataCiteConnectorTest
+{
+    private static final String PREFIX = "10.5072";
+    private static final int MAX_CONNECTIONS = 4;
+
+    private HttpServer server;
+    private DataCiteConnector connector;
+
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/mds/doi/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                exchange.getRequestBody().close();
+                if (null == exchange.getRequestHeaders().getFirst("Authorization"))
+                {
+                    exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"mds\"");
+                    exchange.sendResponseHeaders(401, -1);
+                    exchange.close();
+                    return;
+                }
+
+                requests.incrementAndGet();
+                String doi = exchange.getRequestURI().getPath().substring("/mds/doi/".length());
+                // odd numbers are registered
+                if (Integer.parseInt(doi.substring(doi.lastIndexOf('-') + 1)) % 2 == 1)
+                {
+                    byte[] body = ("http://localhost/handle/123456789/" + doi).getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    OutputStream out = exchange.getResponseBody();
+                    out.write(body);
+                    out.close();
+                }
+                else
+                {
+                    exchange.sendResponseHeaders(404, -1);
+                }
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newFixedThreadPool(MAX_CONNECTIONS * 2));
+        server.start();
+
+        connector = new DataCiteConnector();
+        connector.setDATACITE_SCHEME("http");
+        connector.setDATACITE_HOST("localhost");
+        connector.setDATACITE_PORT(server.getAddress().getPort());
+        connector.setDATACITE_DOI_PATH("/mds/doi/");
+        connector.setDATACITE_METADATA_PATH("/mds/metadata/");
+        connector.setMaxConnections(MAX_CONNECTIONS);
+        connector.USERNAME = "user";
+        connector.PASSWORD = "password";
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    @Test
+    public void testIsDOIRegistered() throws Exception
+    {
+        assertTrue(connector.isDOIRegistered(null, DOI.SCHEME + PREFIX + "/dspace-1"));
+        assertFalse(connector.isDOIRegistered(null, DOI.SCHEME + PREFIX + "/dspace-2"));
+        assertEquals(2, requests.get());
+    }
+
+    /**
+     * Many requests from several threads should be answered correctly over a
+     * few kept-alive connections, not one connection per request.
+     */
+    @Test
+    public void testConcurrentRequestsReuseConnections() throws Exception
+    {
+        int total = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONNECTIONS * 2);
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (int i = 0; i < total; i++)
+        {
+            final String doi = DOI.SCHEME + PREFIX + "/dspace-" + i;
+            results.add(executor.submit(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call() throws Exception
+                {
+                    return connector.isDOIRegistered(null, doi);
+                }
+            }));
+        }
+
+        for (int i = 0; i < total; i++)
+        {
+            assertEquals("DOI " + i, i % 2 == 1, results.get(i).get());
+        }
+        executor.shutdown();
+
+        assertEquals(total, requests.get());
+        assertTrue("Expected at most " + MAX_CONNECTIONS + " connections, but got " + clientPorts.size(),
+                clientPorts.size() <= MAX_CONNECTIONS);
+    }
+}
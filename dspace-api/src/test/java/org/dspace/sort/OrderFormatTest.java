@@ -0,0 +1,154 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.sort;
+
+import org.apache.log4j.Logger;
+import org.dspace.AbstractUnitTest;
+import org.dspace.text.filter.DecomposeDiactritics;
+import org.dspace.text.filter.LowerCaseAndTrim;
+import org.dspace.text.filter.MARC21InitialArticleWord;
+import org.dspace.text.filter.StandardInitialArticleWord;
+import org.dspace.text.filter.StripDiacritics;
+import org.dspace.text.filter.StripLeadingNonAlphaNum;
+import org.dspace.text.filter.TextFilter;
+import org.dspace.text.filter.TextFilterChain;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the fused TextFilterChain gives exactly the same sort strings as
+ * applying the filters one at a time, and compares their speed.
+ */
+public class OrderFormatTest extends AbstractUnitTest
+{
+    private static final Logger log = Logger.getLogger(OrderFormatTest.class);
+
+    private static final String[] values = {
+        "", " ", "  \t ", "Smith, John", "  SMITH, JOHN  ", "smith, john",
+        "The Lord of the Rings", "the  lord", "A", "A ", "An apple", "Theory",
+        "...And Justice For All", "\"Quoted\" title", "¡Hola!", "Émile Zola",
+        "Müller, Hans", "Ǆemal", "  Ångström  ", "Œuvres complètes", "İstanbul",
+        "Les Misérables", "Der Zauberberg", "L'Étranger", "1984", "  -- 42 --  ",
+        "日本語のタイトル", "Ελληνικά", "abćdef", "X Y "
+    };
+
+    private static final String[] languages = { null, "en", "en_US", "eng", "fr", "de", "ger" };
+
+    private static final TextFilter[][] chains = {
+        new OrderFormatAuthor().filters,
+        new OrderFormatTitle().filters,
+        new OrderFormatTitleMarc21().filters,
+        new OrderFormatText().filters,
+        { new DecomposeDiactritics(), new StripDiacritics(), new LowerCaseAndTrim() },
+        { new StripLeadingNonAlphaNum(), new LowerCaseAndTrim() },
+        { new LowerCaseAndTrim(), new StripLeadingNonAlphaNum() },
+        { new StandardInitialArticleWord(), new LowerCaseAndTrim(), new MARC21InitialArticleWord() }
+    };
+
+    /**
+     * Apply the filters the way AbstractTextFilterOFD did before the chain was fused
+     */
+    private static String applyEach(TextFilter[] filters, String value, String language)
+    {
+        for (TextFilter filter : filters)
+        {
+            value = language != null ? filter.filter(value, language) : filter.filter(value);
+        }
+
+        return value;
+    }
+
+    @Test
+    public void testChainMatchesIndividualFilters()
+    {
+        for (TextFilter[] filters : chains)
+        {
+            TextFilterChain chain = new TextFilterChain(filters);
+            for (String value : values)
+            {
+                for (String language : languages)
+                {
+                    assertEquals("chain of " + filters.length + " filters for '" + value + "' (" + language + ")",
+                            applyEach(filters, value, language), chain.filter(value, language));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMakeSortString()
+    {
+        OrderFormatDelegate title = new OrderFormatTitle();
+        for (int pass = 0; pass < 2; pass++)
+        {
+            // Second pass is answered from the memo cache
+            assertEquals("lord of the rings, the", title.makeSortString("The Lord of the Rings", "en"));
+            assertEquals("the lord of the rings", title.makeSortString("The Lord of the Rings", null));
+            assertEquals("lord of the rings, the", title.makeSortString("The Lord of the Rings", "en_GB"));
+            assertEquals("emile", title.makeSortString("  ÉMILE ", "fr").replaceAll("\\p{InCombiningDiacriticalMarks}", ""));
+        }
+
+        assertEquals("smith, john", OrderFormat.makeSortString("  Smith, John", null, OrderFormat.AUTHOR));
+        assertEquals("müller, hans", OrderFormat.makeSortString("Müller, Hans", null, OrderFormat.AUTHOR));
+        assertNull(OrderFormat.makeSortString(null, null, OrderFormat.TITLE));
+    }
+
+    /**
+     * Not a strict performance assertion (timings on shared build machines are
+     * too noisy for that), but logs the relative speed of the fused chain.
+     */
+    @Test
+    public void testChainBenchmark()
+    {
+        TextFilter[] filters = new OrderFormatTitleMarc21().filters;
+        TextFilterChain chain = new TextFilterChain(filters);
+        String[] sample = new String[1000];
+        for (int i = 0; i < sample.length; i++)
+        {
+            sample[i] = (i % 10 == 0 ? "Émile " : "The Author ") + i + ", Name Of Some Length";
+        }
+
+        int rounds = 200;
+        long chars = 0;
+        for (int warm = 0; warm < 2; warm++)
+        {
+            for (int r = 0; r < rounds; r++)
+            {
+                for (String value : sample)
+                {
+                    chars += applyEach(filters, value, "en").length() + chain.filter(value, "en").length();
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++)
+        {
+            for (String value : sample)
+            {
+                chars += applyEach(filters, value, "en").length();
+            }
+        }
+        long individual = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int r = 0; r < rounds; r++)
+        {
+            for (String value : sample)
+            {
+                chars += chain.filter(value, "en").length();
+            }
+        }
+        long fused = System.nanoTime() - start;
+
+        log.info("Sort string benchmark (" + rounds * sample.length + " values, " + chars + " chars): individual filters "
+                + individual / 1000000 + "ms, fused chain " + fused / 1000000 + "ms");
+        assertTrue(chars > 0);
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xmlworkflow.storedcomponents;
+
+import java.util.List;
+
+import org.dspace.AbstractUnitTest;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class ClaimedTask
+ */
+public class ClaimedTaskTest extends AbstractUnitTest
+{
+    /** The workflow items, in the order of their IDs */
+    private List<XmlWorkflowItem> workflowItems;
+
+    @BeforeClass
+    public static void initWorkflowTables() throws Exception
+    {
+        PoolTaskTest.initWorkflowTables();
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            workflowItems = PoolTaskTest.createWorkflowItems(context, 3);
+            // Two claimed tasks (of different steps) for each workflow item
+            for (XmlWorkflowItem workflowItem : workflowItems)
+            {
+                for (String step : new String[] {"reviewstep", "editstep"})
+                {
+                    ClaimedTask task = ClaimedTask.create(context);
+                    task.setWorkflowItemID(workflowItem.getID());
+                    task.setWorkflowID("default");
+                    task.setStepID(step);
+                    task.setActionID("reviewaction");
+                    task.setOwnerID(eperson.getID());
+                    task.update();
+                }
+            }
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        workflowItems = null;
+        super.destroy();
+    }
+
+    /**
+     * Test of findByEperson and countByEperson methods, of class ClaimedTask.
+     */
+    @Test
+    public void testFindByEpersonPaged() throws Exception
+    {
+        assertThat("testFindByEpersonPaged 0", ClaimedTask.countByEperson(context, eperson.getID()), equalTo(6));
+        assertThat("testFindByEpersonPaged 1", ClaimedTask.findByEperson(context, eperson.getID()).size(), equalTo(6));
+
+        List<ClaimedTask> page = ClaimedTask.findByEperson(context, eperson.getID(), 2, 3);
+        assertThat("testFindByEpersonPaged 2", page.size(), equalTo(3));
+        assertThat("testFindByEpersonPaged 3", page.get(0).getWorkflowItemID(), equalTo(workflowItems.get(1).getID()));
+        assertThat("testFindByEpersonPaged 4", page.get(1).getWorkflowItemID(), equalTo(workflowItems.get(1).getID()));
+        assertThat("testFindByEpersonPaged 5", page.get(2).getWorkflowItemID(), equalTo(workflowItems.get(2).getID()));
+
+        List<ClaimedTask> last = ClaimedTask.findByEperson(context, eperson.getID(), 5, 3);
+        assertThat("testFindByEpersonPaged 6", last.size(), equalTo(1));
+        assertThat("testFindByEpersonPaged 7", last.get(0).getWorkflowItemID(), equalTo(workflowItems.get(2).getID()));
+    }
+}
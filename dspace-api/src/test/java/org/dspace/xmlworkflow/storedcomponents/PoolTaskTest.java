@@ -0,0 +1,179 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.xmlworkflow.storedcomponents;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.dspace.AbstractUnitTest;
+import org.dspace.content.Collection;
+import org.dspace.content.Community;
+import org.dspace.content.WorkspaceItem;
+import org.dspace.core.Constants;
+import org.dspace.core.Context;
+import org.dspace.eperson.EPerson;
+import org.dspace.eperson.Group;
+import org.dspace.storage.rdbms.DatabaseManager;
+import org.dspace.storage.rdbms.DatabaseUtils;
+import org.junit.*;
+import static org.junit.Assert.* ;
+import static org.hamcrest.CoreMatchers.*;
+
+/**
+ * Unit Tests for class PoolTask
+ */
+public class PoolTaskTest extends AbstractUnitTest
+{
+    /** The workflow items, in the order of their IDs */
+    private List<XmlWorkflowItem> workflowItems;
+
+    /**
+     * The test database runs the classic workflow, so the tables of the XML
+     * workflow are created here, if an earlier test class has not done so.
+     */
+    @BeforeClass
+    public static void initWorkflowTables() throws Exception
+    {
+        Context c = new Context();
+        try
+        {
+            Connection connection = c.getDBConnection();
+            if (!DatabaseUtils.tableExists(connection, "cwf_workflowitem"))
+            {
+                InputStream script = PoolTaskTest.class.getResourceAsStream(
+                        "/org/dspace/storage/rdbms/xmlworkflow/" + DatabaseManager.getDbKeyword()
+                        + "/xml_workflow_migration.sql");
+                try
+                {
+                    DatabaseUtils.executeSql(connection, IOUtils.toString(script, Constants.DEFAULT_ENCODING));
+                }
+                finally
+                {
+                    script.close();
+                }
+            }
+            c.complete();
+        }
+        finally
+        {
+            if (c.isValid())
+            {
+                c.abort();
+            }
+        }
+    }
+
+    @Before
+    @Override
+    public void init()
+    {
+        super.init();
+        try
+        {
+            workflowItems = createWorkflowItems(context, 5);
+        }
+        catch (Exception ex)
+        {
+            fail("Error in init: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Create workflow items, each with its own item, in one collection
+     */
+    static List<XmlWorkflowItem> createWorkflowItems(Context context, int count) throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        Collection collection = Community.create(null, context).createCollection();
+        List<XmlWorkflowItem> workflowItems = new ArrayList<XmlWorkflowItem>();
+        for (int i = 0; i < count; i++)
+        {
+            XmlWorkflowItem workflowItem = XmlWorkflowItem.create(context);
+            workflowItem.setItem(WorkspaceItem.create(context, collection, false).getItem());
+            workflowItem.setCollection(collection);
+            workflowItem.update();
+            workflowItems.add(workflowItem);
+        }
+        context.restoreAuthSystemState();
+        return workflowItems;
+    }
+
+    @After
+    @Override
+    public void destroy()
+    {
+        workflowItems = null;
+        super.destroy();
+    }
+
+    private PoolTask createTask(XmlWorkflowItem workflowItem, EPerson owner, Group group) throws Exception
+    {
+        PoolTask task = PoolTask.create(context);
+        task.setWorkflowItemID(workflowItem.getID());
+        task.setWorkflowID("default");
+        task.setStepID("reviewstep");
+        task.setActionID("claimaction");
+        if (owner != null)
+        {
+            task.setEpersonID(owner.getID());
+        }
+        if (group != null)
+        {
+            task.setGroupID(group.getID());
+        }
+        task.update();
+        return task;
+    }
+
+    /**
+     * Test of findByEperson and countByEperson methods, of class PoolTask.
+     */
+    @Test
+    public void testFindByEpersonPaged() throws Exception
+    {
+        context.turnOffAuthorisationSystem();
+        Group group = Group.create(context);
+        group.addMember(eperson);
+        group.update();
+        EPerson other = EPerson.create(context);
+        other.setEmail("pooltask-other@email.com");
+        other.update();
+        context.restoreAuthSystemState();
+
+        // Own tasks for every workflow item, a group task besides for the
+        // second, and a task of another eperson for the third
+        for (XmlWorkflowItem workflowItem : workflowItems)
+        {
+            createTask(workflowItem, eperson, null);
+        }
+        createTask(workflowItems.get(1), null, group);
+        createTask(workflowItems.get(2), other, null);
+        context.removeCached(workflowItems.get(2), workflowItems.get(2).getID());
+
+        assertThat("testFindByEpersonPaged 0", PoolTask.countByEperson(context, eperson.getID()), equalTo(5));
+        assertThat("testFindByEpersonPaged 1", PoolTask.findByEperson(context, eperson.getID()).size(), equalTo(5));
+
+        List<PoolTask> page = PoolTask.findByEperson(context, eperson.getID(), 1, 2);
+        assertThat("testFindByEpersonPaged 2", page.size(), equalTo(2));
+        assertThat("testFindByEpersonPaged 3", page.get(0).getWorkflowItemID(), equalTo(workflowItems.get(1).getID()));
+        assertThat("testFindByEpersonPaged 4", page.get(1).getWorkflowItemID(), equalTo(workflowItems.get(2).getID()));
+
+        List<PoolTask> last = PoolTask.findByEperson(context, eperson.getID(), 4, 2);
+        assertThat("testFindByEpersonPaged 5", last.size(), equalTo(1));
+        assertThat("testFindByEpersonPaged 6", last.get(0).getWorkflowItemID(), equalTo(workflowItems.get(4).getID()));
+
+        // The workflow items of the page, and their items, are cached
+        XmlWorkflowItem cached = XmlWorkflowItem.find(context, workflowItems.get(2).getID());
+        assertThat("testFindByEpersonPaged 7", cached, not(sameInstance(workflowItems.get(2))));
+        assertThat("testFindByEpersonPaged 8", cached.getItem().getID(), equalTo(workflowItems.get(2).getItem().getID()));
+        assertThat("testFindByEpersonPaged 9", cached.getCollection().getID(), equalTo(workflowItems.get(2).getCollection().getID()));
+    }
+}
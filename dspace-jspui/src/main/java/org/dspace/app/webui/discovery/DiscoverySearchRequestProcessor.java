@@ -252,6 +252,10 @@ public class DiscoverySearchRequestProcessor implements SearchRequestProcessor
                 request, scope, true);
 
         queryArgs.setSpellCheck(discoveryConfiguration.isSpellCheckEnabled()); 
+
+        // Render the results from the index alone, without loading them
+        queryArgs.setProjection(ConfigurationManager.getBooleanProperty(
+                "discovery", "projection.results", false));
         
         List<DiscoverySearchFilterFacet> availableFacet = discoveryConfiguration
                 .getSidebarFacets();
@@ -377,7 +381,8 @@ public class DiscoverySearchRequestProcessor implements SearchRequestProcessor
                     + ",query=\"" + query + "\",results=("
                     + resultsCommunities.length + ","
                     + resultsCollections.length + "," + resultsItems.length
-                    + ")"));
+                    + ")" + (queryArgs.isProjection() ? ",views="
+                    + qResults.getDSpaceObjectViews().size() : "")));
 
             // Pass in some page qualities
             // total number of pages
@@ -399,6 +404,7 @@ public class DiscoverySearchRequestProcessor implements SearchRequestProcessor
             request.setAttribute("items", resultsItems);
             request.setAttribute("communities", resultsCommunities);
             request.setAttribute("collections", resultsCollections);
+            request.setAttribute("views", qResults.getDSpaceObjectViews());
 
             request.setAttribute("pagetotal", new Long(pageTotal));
             request.setAttribute("pagecurrent", new Long(pageCurrent));
@@ -12,12 +12,14 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.app.itemmarking.ItemMarkingExtractor;
 import org.dspace.app.itemmarking.ItemMarkingInfo;
+import org.dspace.app.webui.util.FragmentCache;
 import org.dspace.app.webui.util.UIUtil;
 import org.dspace.browse.*;
 import org.dspace.content.Bitstream;
 import org.dspace.content.DCDate;
 import org.dspace.content.Metadatum;
 import org.dspace.content.Item;
+import org.dspace.content.ItemContentLoader;
 import org.dspace.content.Thumbnail;
 import org.dspace.content.service.ItemService;
 import org.dspace.core.ConfigurationManager;
@@ -40,6 +42,10 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 import org.dspace.content.authority.MetadataAuthorityManager;
 
@@ -57,6 +63,12 @@ public class BrowseListTag extends TagSupport
     /** Items to display */
     private transient BrowseItem[] items;
 
+    /** Thumbnails of the items, by item ID, loaded when the first one is needed */
+    private transient Map<Integer, Thumbnail> thumbnails;
+
+    /** When the items were last modified, by item ID, loaded when the first one is needed */
+    private transient Map<Integer, Date> lastModified;
+
     /** Row to highlight, -1 for no row */
     private int highlightRow = -1;
 
@@ -433,172 +445,190 @@ public class BrowseListTag extends TagSupport
                     rOddOrEven = ((i & 1) == 1 ? "odd" : "even");
                 }
 
+                // the cells of the item, but the markings which depend on the user
+                String cellsKey = FragmentCache.getKey(hrq, items[i], getLastModified(hrq, items[i]),
+                        "browselist", browseListLine, String.valueOf(authorLimit), String.valueOf(disableCrossLinks));
+                String[] cachedCells = FragmentCache.get(cellsKey);
+                String[] cells = new String[fieldArr.length];
+
                 for (int colIdx = 0; colIdx < fieldArr.length; colIdx++)
                 {
                     String field = fieldArr[colIdx];
 
-                    // get the schema and the element qualifier pair
-                    // (Note, the schema is not used for anything yet)
-                    // (second note, I hate this bit of code.  There must be
-                    // a much more elegant way of doing this.  Tomcat has
-                    // some weird problems with variations on this code that
-                    // I tried, which is why it has ended up the way it is)
-                    StringTokenizer eq = new StringTokenizer(field, ".");
-
-                    String[] tokens = { "", "", "" };
-                    int k = 0;
-                    while(eq.hasMoreTokens())
-                    {
-                        tokens[k] = eq.nextToken().toLowerCase().trim();
-                        k++;
-                    }
-                    String schema = tokens[0];
-                    String element = tokens[1];
-                    String qualifier = tokens[2];
-
-                    // first get hold of the relevant metadata for this column
-                    Metadatum[] metadataArray;
-                    if (qualifier.equals("*"))
-                    {
-                        metadataArray = items[i].getMetadata(schema, element, Item.ANY, Item.ANY);
-                    }
-                    else if (qualifier.equals(""))
+                    String metadata = null;
+                    if (cachedCells != null && !field.startsWith("mark_"))
                     {
-                        metadataArray = items[i].getMetadata(schema, element, null, Item.ANY);
+                        metadata = cachedCells[colIdx];
                     }
                     else
                     {
-                        metadataArray = items[i].getMetadata(schema, element, qualifier, Item.ANY);
-                    }
+                        // get the schema and the element qualifier pair
+                        // (Note, the schema is not used for anything yet)
+                        // (second note, I hate this bit of code.  There must be
+                        // a much more elegant way of doing this.  Tomcat has
+                        // some weird problems with variations on this code that
+                        // I tried, which is why it has ended up the way it is)
+                        StringTokenizer eq = new StringTokenizer(field, ".");
+
+                        String[] tokens = { "", "", "" };
+                        int k = 0;
+                        while(eq.hasMoreTokens())
+                        {
+                            tokens[k] = eq.nextToken().toLowerCase().trim();
+                            k++;
+                        }
+                        String schema = tokens[0];
+                        String element = tokens[1];
+                        String qualifier = tokens[2];
 
-                    // save on a null check which would make the code untidy
-                    if (metadataArray == null)
-                    {
-                    	metadataArray = new Metadatum[0];
-                    }
+                        // first get hold of the relevant metadata for this column
+                        Metadatum[] metadataArray;
+                        if (qualifier.equals("*"))
+                        {
+                            metadataArray = items[i].getMetadata(schema, element, Item.ANY, Item.ANY);
+                        }
+                        else if (qualifier.equals(""))
+                        {
+                            metadataArray = items[i].getMetadata(schema, element, null, Item.ANY);
+                        }
+                        else
+                        {
+                            metadataArray = items[i].getMetadata(schema, element, qualifier, Item.ANY);
+                        }
 
-                    // now prepare the content of the table division
-                    String metadata = "-";
-                    if (field.equals("thumbnail"))
-                    {
-                        metadata = getThumbMarkup(hrq, items[i]);
-                    }
-                    else  if (field.startsWith("mark_"))
-                    {
-                        metadata = UIUtil.getMarkingMarkup(hrq, items[i], field);
-                    }
-                    else if (metadataArray.length > 0)
-                    {
-                        // format the date field correctly
-                        if (isDate[colIdx])
+                        // save on a null check which would make the code untidy
+                        if (metadataArray == null)
                         {
-                            DCDate dd = new DCDate(metadataArray[0].value);
-                            metadata = UIUtil.displayDate(dd, false, false, hrq);
+                        	metadataArray = new Metadatum[0];
                         }
-                        // format the title field correctly for withdrawn and private items (ie. don't link)
-                        else if (field.equals(titleField) && items[i].isWithdrawn())
+
+                        // now prepare the content of the table division
+                        metadata = "-";
+                        if (field.equals("thumbnail"))
                         {
-                            metadata = Utils.addEntities(metadataArray[0].value);
+                            metadata = getThumbMarkup(hrq, items[i]);
                         }
-                        // format the title field correctly (as long as the item isn't withdrawn, link to it)
-                        else if (field.equals(titleField))
+                        else  if (field.startsWith("mark_"))
                         {
-                            metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
-                            + items[i].getHandle() + "\">"
-                            + Utils.addEntities(metadataArray[0].value)
-                            + "</a>";
+                            metadata = UIUtil.getMarkingMarkup(hrq, items[i], field);
                         }
-                        // format all other fields
-                        else
+                        else if (metadataArray.length > 0)
                         {
-                        	// limit the number of records if this is the author field (if
-                        	// -1, then the limit is the full list)
-                        	boolean truncated = false;
-                        	int loopLimit = metadataArray.length;
-                        	if (isAuthor[colIdx])
-                        	{
-                        		int fieldMax = (authorLimit == -1 ? metadataArray.length : authorLimit);
-                        		loopLimit = (fieldMax > metadataArray.length ? metadataArray.length : fieldMax);
-                        		truncated = (fieldMax < metadataArray.length);
-                        		log.debug("Limiting output of field " + field + " to " + Integer.toString(loopLimit) + " from an original " + Integer.toString(metadataArray.length));
-                        	}
-
-                            StringBuffer sb = new StringBuffer();
-                            for (int j = 0; j < loopLimit; j++)
+                            // format the date field correctly
+                            if (isDate[colIdx])
+                            {
+                                DCDate dd = new DCDate(metadataArray[0].value);
+                                metadata = UIUtil.displayDate(dd, false, false, hrq);
+                            }
+                            // format the title field correctly for withdrawn and private items (ie. don't link)
+                            else if (field.equals(titleField) && items[i].isWithdrawn())
                             {
-                            	String startLink = "";
-                            	String endLink = "";
-                            	if (!StringUtils.isEmpty(browseType[colIdx]) && !disableCrossLinks)
+                                metadata = Utils.addEntities(metadataArray[0].value);
+                            }
+                            // format the title field correctly (as long as the item isn't withdrawn, link to it)
+                            else if (field.equals(titleField))
+                            {
+                                metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
+                                + items[i].getHandle() + "\">"
+                                + Utils.addEntities(metadataArray[0].value)
+                                + "</a>";
+                            }
+                            // format all other fields
+                            else
+                            {
+                            	// limit the number of records if this is the author field (if
+                            	// -1, then the limit is the full list)
+                            	boolean truncated = false;
+                            	int loopLimit = metadataArray.length;
+                            	if (isAuthor[colIdx])
                             	{
-                                    String argument;
-                                    String value;
-                                    if (metadataArray[j].authority != null &&
-                                            metadataArray[j].confidence >= MetadataAuthorityManager.getManager()
-                                                .getMinConfidence(metadataArray[j].schema, metadataArray[j].element, metadataArray[j].qualifier))
-                                    {
-                                        argument = "authority";
-                                        value = metadataArray[j].authority;
-                                    }
-                                    else
-                                    {
-                                        argument = "value";
-                                        value = metadataArray[j].value;
-                                    }
-                            		if (viewFull[colIdx])
-                            		{
-                            			argument = "vfocus";
-                            		}
-                            		startLink = "<a href=\"" + hrq.getContextPath() + "/browse?type=" + browseType[colIdx] + "&amp;" +
-                                        argument + "=" + URLEncoder.encode(value,"UTF-8");
-
-                                    if (metadataArray[j].language != null)
-                                    {
-                                        startLink = startLink + "&amp;" +
-                                            argument + "_lang=" + URLEncoder.encode(metadataArray[j].language, "UTF-8");
-									}
+                            		int fieldMax = (authorLimit == -1 ? metadataArray.length : authorLimit);
+                            		loopLimit = (fieldMax > metadataArray.length ? metadataArray.length : fieldMax);
+                            		truncated = (fieldMax < metadataArray.length);
+                            		log.debug("Limiting output of field " + field + " to " + Integer.toString(loopLimit) + " from an original " + Integer.toString(metadataArray.length));
+                            	}
 
-                                    if ("authority".equals(argument))
-                                    {
-                                        startLink += "\" class=\"authority " +browseType[colIdx] + "\">";
-                                    }
-                                    else
+                                StringBuffer sb = new StringBuffer();
+                                for (int j = 0; j < loopLimit; j++)
+                                {
+                                	String startLink = "";
+                                	String endLink = "";
+                                	if (!StringUtils.isEmpty(browseType[colIdx]) && !disableCrossLinks)
+                                	{
+                                        String argument;
+                                        String value;
+                                        if (metadataArray[j].authority != null &&
+                                                metadataArray[j].confidence >= MetadataAuthorityManager.getManager()
+                                                    .getMinConfidence(metadataArray[j].schema, metadataArray[j].element, metadataArray[j].qualifier))
+                                        {
+                                            argument = "authority";
+                                            value = metadataArray[j].authority;
+                                        }
+                                        else
+                                        {
+                                            argument = "value";
+                                            value = metadataArray[j].value;
+                                        }
+                                		if (viewFull[colIdx])
+                                		{
+                                			argument = "vfocus";
+                                		}
+                                		startLink = "<a href=\"" + hrq.getContextPath() + "/browse?type=" + browseType[colIdx] + "&amp;" +
+                                            argument + "=" + URLEncoder.encode(value,"UTF-8");
+
+                                        if (metadataArray[j].language != null)
+                                        {
+                                            startLink = startLink + "&amp;" +
+                                                argument + "_lang=" + URLEncoder.encode(metadataArray[j].language, "UTF-8");
+    									}
+
+                                        if ("authority".equals(argument))
+                                        {
+                                            startLink += "\" class=\"authority " +browseType[colIdx] + "\">";
+                                        }
+                                        else
+                                        {
+                                            startLink = startLink + "\">";
+                                        }
+                                		endLink = "</a>";
+                                	}
+                                	sb.append(startLink);
+                                    sb.append(Utils.addEntities(metadataArray[j].value));
+                                    sb.append(endLink);
+                                    if (j < (loopLimit - 1))
                                     {
-                                        startLink = startLink + "\">";
+                                        sb.append("; ");
                                     }
-                            		endLink = "</a>";
-                            	}
-                            	sb.append(startLink);
-                                sb.append(Utils.addEntities(metadataArray[j].value));
-                                sb.append(endLink);
-                                if (j < (loopLimit - 1))
+                                }
+                                if (truncated)
                                 {
-                                    sb.append("; ");
+                                	String etal = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.et-al");
+                                    sb.append(", ").append(etal);
                                 }
+                                metadata = "<em>" + sb.toString() + "</em>";
                             }
-                            if (truncated)
+                        }
+                        //In case title has no value, replace it with "undefined" so as the user has something to
+                    	//click in order to access the item page
+                        else if (field.equals(titleField)){
+                        	String undefined = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.title.undefined");
+                        	if (items[i].isWithdrawn())
                             {
-                            	String etal = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.et-al");
-                                sb.append(", ").append(etal);
+                                metadata = "<span style=\"font-style:italic\">("+undefined+")</span>";
+                            }
+                            // format the title field correctly (as long as the item isn't withdrawn, link to it)
+                            else
+                            {
+                                metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
+                                + items[i].getHandle() + "\">"
+                                + "<span style=\"font-style:italic\">("+undefined+")</span>"
+                                + "</a>";
                             }
-                            metadata = "<em>" + sb.toString() + "</em>";
                         }
                     }
-                    //In case title has no value, replace it with "undefined" so as the user has something to
-                	//click in order to access the item page
-                    else if (field.equals(titleField)){
-                    	String undefined = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.title.undefined");
-                    	if (items[i].isWithdrawn())
-                        {
-                            metadata = "<span style=\"font-style:italic\">("+undefined+")</span>";
-                        }
-                        // format the title field correctly (as long as the item isn't withdrawn, link to it)
-                        else
-                        {
-                            metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
-                            + items[i].getHandle() + "\">"
-                            + "<span style=\"font-style:italic\">("+undefined+")</span>"
-                            + "</a>";
-                        }
+                    if (!field.startsWith("mark_"))
+                    {
+                        cells[colIdx] = metadata;
                     }
                     
                     // prepare extra special layout requirements for dates
@@ -621,6 +651,11 @@ public class BrowseListTag extends TagSupport
                     	+ "</td>");
                 }
 
+                if (cachedCells == null)
+                {
+                    FragmentCache.put(cellsKey, cells);
+                }
+
                 // Add column for 'edit item' links
                 if (linkToEdit)
                 {
@@ -702,6 +737,8 @@ public class BrowseListTag extends TagSupport
     public void setItems(BrowseItem[] itemsIn)
     {
         items = (BrowseItem[]) ArrayUtils.clone(itemsIn);
+        thumbnails = null;
+        lastModified = null;
     }
 
     /**
@@ -765,6 +802,8 @@ public class BrowseListTag extends TagSupport
         highlightRow = -1;
         emphColumn = null;
         items = null;
+        thumbnails = null;
+        lastModified = null;
     }
 
     /* get the required thumbnail config items */
@@ -868,6 +907,36 @@ public class BrowseListTag extends TagSupport
         return sb.toString();
     }
 
+    /* the IDs of the items listed */
+    private List<Integer> getItemIDs()
+    {
+        List<Integer> itemIDs = new ArrayList<Integer>();
+        for (BrowseItem listItem : items)
+        {
+            itemIDs.add(listItem.getID());
+        }
+        return itemIDs;
+    }
+
+    /* get when an item was last modified, as browse items do not know */
+    private Date getLastModified(HttpServletRequest hrq, BrowseItem item)
+            throws JspException
+    {
+        try
+        {
+            if (lastModified == null)
+            {
+                // load the dates of the whole list at once
+                lastModified = ItemContentLoader.loadLastModified(UIUtil.obtainContext(hrq), getItemIDs());
+            }
+            return lastModified.get(item.getID());
+        }
+        catch (SQLException sqle)
+        {
+            throw new JspException(sqle.getMessage(), sqle);
+        }
+    }
+
     /* generate the (X)HTML required to show the thumbnail */
     private String getThumbMarkup(HttpServletRequest hrq, BrowseItem item)
             throws JspException
@@ -875,7 +944,12 @@ public class BrowseListTag extends TagSupport
     	try
     	{
             Context c = UIUtil.obtainContext(hrq);
-            Thumbnail thumbnail = ItemService.getThumbnail(c, item.getID(), linkToBitstream);
+            if (thumbnails == null)
+            {
+                // load the thumbnails of the whole list at once
+                thumbnails = ItemService.getThumbnails(c, getItemIDs(), linkToBitstream);
+            }
+            Thumbnail thumbnail = thumbnails.get(item.getID());
 
             if (thumbnail == null)
     		{
@@ -12,6 +12,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 import org.dspace.app.itemmarking.ItemMarkingExtractor;
 import org.dspace.app.itemmarking.ItemMarkingInfo;
+import org.dspace.app.webui.util.FragmentCache;
 import org.dspace.app.webui.util.UIUtil;
 
 import org.dspace.browse.BrowseException;
@@ -42,6 +43,9 @@ import java.io.UnsupportedEncodingException;
 
 import java.net.URLEncoder;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.StringTokenizer;
 
 import javax.imageio.ImageIO;
@@ -66,6 +70,9 @@ public class ItemListTag extends TagSupport
     /** Items to display */
     private transient Item[] items;
 
+    /** Thumbnails of the items, by item ID, loaded when the first one is needed */
+    private transient Map<Integer, Thumbnail> thumbnails;
+
     /** Row to highlight, -1 for no row */
     private int highlightRow = -1;
 
@@ -398,172 +405,190 @@ public class ItemListTag extends TagSupport
                     rOddOrEven = ((i & 1) == 1 ? "odd" : "even");
                 }
 
+                // the cells of the item, but the markings which depend on the user
+                String cellsKey = FragmentCache.getKey(hrq, items[i], items[i].getLastModified(),
+                        "itemlist", configLine, String.valueOf(authorLimit), String.valueOf(disableCrossLinks));
+                String[] cachedCells = FragmentCache.get(cellsKey);
+                String[] cells = new String[fieldArr.length];
+
                 for (int colIdx = 0; colIdx < fieldArr.length; colIdx++)
                 {
                     String field = fieldArr[colIdx];
 
-                    // get the schema and the element qualifier pair
-                    // (Note, the schema is not used for anything yet)
-                    // (second note, I hate this bit of code.  There must be
-                    // a much more elegant way of doing this.  Tomcat has
-                    // some weird problems with variations on this code that
-                    // I tried, which is why it has ended up the way it is)
-                    StringTokenizer eq = new StringTokenizer(field, ".");
-
-                    String[] tokens = { "", "", "" };
-                    int k = 0;
-                    while(eq.hasMoreTokens())
-                    {
-                        tokens[k] = eq.nextToken().toLowerCase().trim();
-                        k++;
-                    }
-                    String schema = tokens[0];
-                    String element = tokens[1];
-                    String qualifier = tokens[2];
-
-                    // first get hold of the relevant metadata for this column
-                    Metadatum[] metadataArray;
-                    if (qualifier.equals("*"))
-                    {
-                        metadataArray = items[i].getMetadata(schema, element, Item.ANY, Item.ANY);
-                    }
-                    else if (qualifier.equals(""))
+                    String metadata = null;
+                    if (cachedCells != null && !field.startsWith("mark_"))
                     {
-                        metadataArray = items[i].getMetadata(schema, element, null, Item.ANY);
+                        metadata = cachedCells[colIdx];
                     }
                     else
                     {
-                        metadataArray = items[i].getMetadata(schema, element, qualifier, Item.ANY);
-                    }
+                        // get the schema and the element qualifier pair
+                        // (Note, the schema is not used for anything yet)
+                        // (second note, I hate this bit of code.  There must be
+                        // a much more elegant way of doing this.  Tomcat has
+                        // some weird problems with variations on this code that
+                        // I tried, which is why it has ended up the way it is)
+                        StringTokenizer eq = new StringTokenizer(field, ".");
+
+                        String[] tokens = { "", "", "" };
+                        int k = 0;
+                        while(eq.hasMoreTokens())
+                        {
+                            tokens[k] = eq.nextToken().toLowerCase().trim();
+                            k++;
+                        }
+                        String schema = tokens[0];
+                        String element = tokens[1];
+                        String qualifier = tokens[2];
 
-                    // save on a null check which would make the code untidy
-                    if (metadataArray == null)
-                    {
-                        metadataArray = new Metadatum[0];
-                    }
+                        // first get hold of the relevant metadata for this column
+                        Metadatum[] metadataArray;
+                        if (qualifier.equals("*"))
+                        {
+                            metadataArray = items[i].getMetadata(schema, element, Item.ANY, Item.ANY);
+                        }
+                        else if (qualifier.equals(""))
+                        {
+                            metadataArray = items[i].getMetadata(schema, element, null, Item.ANY);
+                        }
+                        else
+                        {
+                            metadataArray = items[i].getMetadata(schema, element, qualifier, Item.ANY);
+                        }
 
-                    // now prepare the content of the table division
-                    String metadata = "-";
-                    if (field.equals("thumbnail"))
-                    {
-                        metadata = getThumbMarkup(hrq, items[i]);
-                    }
-                    else  if (field.startsWith("mark_"))
-                    {
-                        metadata = UIUtil.getMarkingMarkup(hrq, items[i], field);
-                    }
-                    if (metadataArray.length > 0)
-                    {
-                        // format the date field correctly
-                        if (isDate[colIdx])
+                        // save on a null check which would make the code untidy
+                        if (metadataArray == null)
                         {
-                            DCDate dd = new DCDate(metadataArray[0].value);
-                            metadata = UIUtil.displayDate(dd, false, false, hrq);
+                            metadataArray = new Metadatum[0];
                         }
-                        // format the title field correctly for withdrawn items (ie. don't link)
-                        else if (field.equals(titleField) && items[i].isWithdrawn())
+
+                        // now prepare the content of the table division
+                        metadata = "-";
+                        if (field.equals("thumbnail"))
                         {
-                            metadata = Utils.addEntities(metadataArray[0].value);
+                            metadata = getThumbMarkup(hrq, items[i]);
                         }
-                        // format the title field correctly
-                        else if (field.equals(titleField))
+                        else  if (field.startsWith("mark_"))
                         {
-                            metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
-                            + items[i].getHandle() + "\">"
-                            + Utils.addEntities(metadataArray[0].value)
-                            + "</a>";
+                            metadata = UIUtil.getMarkingMarkup(hrq, items[i], field);
                         }
-                        // format all other fields
-                        else
+                        if (metadataArray.length > 0)
                         {
-                            // limit the number of records if this is the author field (if
-                            // -1, then the limit is the full list)
-                            boolean truncated = false;
-                            int loopLimit = metadataArray.length;
-                            if (isAuthor[colIdx])
+                            // format the date field correctly
+                            if (isDate[colIdx])
                             {
-                                int fieldMax = (authorLimit > 0 ? authorLimit : metadataArray.length);
-                                loopLimit = (fieldMax > metadataArray.length ? metadataArray.length : fieldMax);
-                                truncated = (fieldMax < metadataArray.length);
-                                log.debug("Limiting output of field " + field + " to " + Integer.toString(loopLimit) + " from an original " + Integer.toString(metadataArray.length));
+                                DCDate dd = new DCDate(metadataArray[0].value);
+                                metadata = UIUtil.displayDate(dd, false, false, hrq);
                             }
-
-                            StringBuffer sb = new StringBuffer();
-                            for (int j = 0; j < loopLimit; j++)
+                            // format the title field correctly for withdrawn items (ie. don't link)
+                            else if (field.equals(titleField) && items[i].isWithdrawn())
+                            {
+                                metadata = Utils.addEntities(metadataArray[0].value);
+                            }
+                            // format the title field correctly
+                            else if (field.equals(titleField))
                             {
-                                String startLink = "";
-                                String endLink = "";
-                                if (!StringUtils.isEmpty(browseType[colIdx]) && !disableCrossLinks)
+                                metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
+                                + items[i].getHandle() + "\">"
+                                + Utils.addEntities(metadataArray[0].value)
+                                + "</a>";
+                            }
+                            // format all other fields
+                            else
+                            {
+                                // limit the number of records if this is the author field (if
+                                // -1, then the limit is the full list)
+                                boolean truncated = false;
+                                int loopLimit = metadataArray.length;
+                                if (isAuthor[colIdx])
                                 {
-                                    String argument;
-                                    String value;
-                                    if (metadataArray[j].authority != null &&
-                                            metadataArray[j].confidence >= MetadataAuthorityManager.getManager()
-                                                .getMinConfidence(metadataArray[j].schema, metadataArray[j].element, metadataArray[j].qualifier))
-                                    {
-                                        argument = "authority";
-                                        value = metadataArray[j].authority;
-                                    }
-                                    else
-                                    {
-                                        argument = "value";
-                                        value = metadataArray[j].value;
-                                    }
-                                    if (viewFull[colIdx])
-                                    {
-                                        argument = "vfocus";
-                                    }
-                                    startLink = "<a href=\"" + hrq.getContextPath() + "/browse?type=" + browseType[colIdx] + "&amp;" +
-                                        argument + "=" + URLEncoder.encode(value,"UTF-8");
-
-                                    if (metadataArray[j].language != null)
-                                    {
-                                        startLink = startLink + "&amp;" +
-                                            argument + "_lang=" + URLEncoder.encode(metadataArray[j].language, "UTF-8");
-                                    }
+                                    int fieldMax = (authorLimit > 0 ? authorLimit : metadataArray.length);
+                                    loopLimit = (fieldMax > metadataArray.length ? metadataArray.length : fieldMax);
+                                    truncated = (fieldMax < metadataArray.length);
+                                    log.debug("Limiting output of field " + field + " to " + Integer.toString(loopLimit) + " from an original " + Integer.toString(metadataArray.length));
+                                }
 
-                                    if ("authority".equals(argument))
+                                StringBuffer sb = new StringBuffer();
+                                for (int j = 0; j < loopLimit; j++)
+                                {
+                                    String startLink = "";
+                                    String endLink = "";
+                                    if (!StringUtils.isEmpty(browseType[colIdx]) && !disableCrossLinks)
                                     {
-                                        startLink += "\" class=\"authority " +browseType[colIdx] + "\">";
+                                        String argument;
+                                        String value;
+                                        if (metadataArray[j].authority != null &&
+                                                metadataArray[j].confidence >= MetadataAuthorityManager.getManager()
+                                                    .getMinConfidence(metadataArray[j].schema, metadataArray[j].element, metadataArray[j].qualifier))
+                                        {
+                                            argument = "authority";
+                                            value = metadataArray[j].authority;
+                                        }
+                                        else
+                                        {
+                                            argument = "value";
+                                            value = metadataArray[j].value;
+                                        }
+                                        if (viewFull[colIdx])
+                                        {
+                                            argument = "vfocus";
+                                        }
+                                        startLink = "<a href=\"" + hrq.getContextPath() + "/browse?type=" + browseType[colIdx] + "&amp;" +
+                                            argument + "=" + URLEncoder.encode(value,"UTF-8");
+
+                                        if (metadataArray[j].language != null)
+                                        {
+                                            startLink = startLink + "&amp;" +
+                                                argument + "_lang=" + URLEncoder.encode(metadataArray[j].language, "UTF-8");
+                                        }
+
+                                        if ("authority".equals(argument))
+                                        {
+                                            startLink += "\" class=\"authority " +browseType[colIdx] + "\">";
+                                        }
+                                        else
+                                        {
+                                            startLink = startLink + "\">";
+                                        }
+                                        endLink = "</a>";
                                     }
-                                    else
+                                    sb.append(startLink);
+                                    sb.append(Utils.addEntities(metadataArray[j].value));
+                                    sb.append(endLink);
+                                    if (j < (loopLimit - 1))
                                     {
-                                        startLink = startLink + "\">";
+                                        sb.append("; ");
                                     }
-                                    endLink = "</a>";
                                 }
-                                sb.append(startLink);
-                                sb.append(Utils.addEntities(metadataArray[j].value));
-                                sb.append(endLink);
-                                if (j < (loopLimit - 1))
+                                if (truncated)
                                 {
-                                    sb.append("; ");
+                                    String etal = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.et-al");
+                                    sb.append(", ").append(etal);
                                 }
+                                metadata = "<em>" + sb.toString() + "</em>";
                             }
-                            if (truncated)
+                        }
+                        //In case title has no value, replace it with "undefined" so as the user has something to
+                    	//click in order to access the item page
+                        else if (field.equals(titleField)){
+                        	String undefined = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.title.undefined");
+                        	if (items[i].isWithdrawn())
                             {
-                                String etal = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.et-al");
-                                sb.append(", ").append(etal);
+                                metadata = "<span style=\"font-style:italic\">("+undefined+")</span>";
+                            }
+                            // format the title field correctly (as long as the item isn't withdrawn, link to it)
+                            else
+                            {
+                                metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
+                                + items[i].getHandle() + "\">"
+                                + "<span style=\"font-style:italic\">("+undefined+")</span>"
+                                + "</a>";
                             }
-                            metadata = "<em>" + sb.toString() + "</em>";
                         }
                     }
-                    //In case title has no value, replace it with "undefined" so as the user has something to
-                	//click in order to access the item page
-                    else if (field.equals(titleField)){
-                    	String undefined = LocaleSupport.getLocalizedMessage(pageContext, "itemlist.title.undefined");
-                    	if (items[i].isWithdrawn())
-                        {
-                            metadata = "<span style=\"font-style:italic\">("+undefined+")</span>";
-                        }
-                        // format the title field correctly (as long as the item isn't withdrawn, link to it)
-                        else
-                        {
-                            metadata = "<a href=\"" + hrq.getContextPath() + "/handle/"
-                            + items[i].getHandle() + "\">"
-                            + "<span style=\"font-style:italic\">("+undefined+")</span>"
-                            + "</a>";
-                        }
+                    if (!field.startsWith("mark_"))
+                    {
+                        cells[colIdx] = metadata;
                     }
 
                     // prepare extra special layout requirements for dates
@@ -587,6 +612,11 @@ public class ItemListTag extends TagSupport
                         + "</td>");
                 }
 
+                if (cachedCells == null)
+                {
+                    FragmentCache.put(cellsKey, cells);
+                }
+
                 // Add column for 'edit item' links
                 if (linkToEdit)
                 {
@@ -677,6 +707,7 @@ public class ItemListTag extends TagSupport
     public void setItems(Item[] itemsIn)
     {
         items = (Item[]) ArrayUtils.clone(itemsIn);
+        thumbnails = null;
     }
 
     /**
@@ -740,6 +771,7 @@ public class ItemListTag extends TagSupport
         highlightRow = -1;
         emphColumn = null;
         items = null;
+        thumbnails = null;
     }
 
     /* get the required thumbnail config items */
@@ -850,7 +882,17 @@ public class ItemListTag extends TagSupport
         try
         {
             Context c = UIUtil.obtainContext(hrq);
-            Thumbnail thumbnail = ItemService.getThumbnail(c, item.getID(), linkToBitstream);
+            if (thumbnails == null)
+            {
+                // load the thumbnails of the whole list at once
+                List<Integer> itemIDs = new ArrayList<Integer>();
+                for (Item listItem : items)
+                {
+                    itemIDs.add(listItem.getID());
+                }
+                thumbnails = ItemService.getThumbnails(c, itemIDs, linkToBitstream);
+            }
+            Thumbnail thumbnail = thumbnails.get(item.getID());
 
             if (thumbnail == null)
             {
@@ -8,6 +8,8 @@
 package org.dspace.app.webui.jsptag;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.sql.SQLException;
@@ -32,6 +34,7 @@ import org.apache.log4j.Logger;
 import org.dspace.app.util.DCInputsReaderException;
 import org.dspace.app.util.MetadataExposure;
 import org.dspace.app.util.Util;
+import org.dspace.app.webui.util.FragmentCache;
 import org.dspace.app.webui.util.StyleSelection;
 import org.dspace.app.webui.util.UIUtil;
 import org.dspace.authorize.AuthorizeManager;
@@ -394,6 +397,41 @@ public class ItemTag extends TagSupport
 
         out.println("<table class=\"table itemDisplayTable\">");
 
+        // the metadata rows are the same for all users but administrators,
+        // who also see the hidden fields
+        String rowsKey = FragmentCache.getKey(request, item, item.getLastModified(), "item", style, configLine,
+                String.valueOf(AuthorizeManager.isAdmin(context)));
+        String[] rows = FragmentCache.get(rowsKey);
+        if (rows == null)
+        {
+            StringWriter rowsWriter = new StringWriter();
+            renderMetadata(new PrintWriter(rowsWriter), request, context, sessionLocale, configLine);
+            rows = new String[] { rowsWriter.toString() };
+            FragmentCache.put(rowsKey, rows);
+        }
+        out.print(rows[0]);
+
+        listCollections();
+
+        out.println("</table><br/>");
+
+        listBitstreams();
+
+        if (ConfigurationManager
+                .getBooleanProperty("webui.licence_bundle.show"))
+
+        {
+            out.println("<br/><br/>");
+            showLicence();
+        }
+    }
+
+    /**
+     * Render the rows of the metadata fields of the configuration line
+     */
+    private void renderMetadata(PrintWriter out, HttpServletRequest request, Context context,
+            Locale sessionLocale, String configLine) throws IOException, SQLException, DCInputsReaderException
+    {
         /*
          * Break down the configuration into fields and display them
          * 
@@ -621,20 +659,7 @@ public class ItemTag extends TagSupport
                 out.println("</td></tr>");
             }
         }
-
-        listCollections();
-
-        out.println("</table><br/>");
-
-        listBitstreams();
-
-        if (ConfigurationManager
-                .getBooleanProperty("webui.licence_bundle.show"))
-
-        {
-            out.println("<br/><br/>");
-            showLicence();
-        }
+        out.flush();
     }
 
     /**
@@ -61,6 +61,12 @@ public class DSpaceServlet extends HttpServlet
     /** log4j category */
     private static Logger log = Logger.getLogger(DSpaceServlet.class);
 
+    /**
+     * The request attribute holding the time the context of the request held
+     * its database connection for, in milliseconds, once it has ended
+     */
+    public static final String CONNECTION_HOLD_TIME = "dspace.connection.held_ms";
+
     protected void doGet(HttpServletRequest request,
             HttpServletResponse response) throws ServletException, IOException
     {
@@ -158,6 +164,34 @@ public class DSpaceServlet extends HttpServlet
             {
                 context.abort();
             }
+            reportConnectionHoldTime(request, context);
+        }
+    }
+
+    /**
+     * Store the time the context of the request held its database connection
+     * for on the request, and log it, so that requests which keep a
+     * connection from the pool for long can be found. The context has been
+     * completed or aborted by then.
+     * 
+     * @param request
+     *            the request object
+     * @param context
+     *            the context of the request, or null if none was obtained
+     */
+    private void reportConnectionHoldTime(HttpServletRequest request, Context context)
+    {
+        if (context == null || context.isValid())
+        {
+            return;
+        }
+
+        long held = context.getConnectionHoldTime();
+        request.setAttribute(CONNECTION_HOLD_TIME, Long.valueOf(held));
+        if (held > 0)
+        {
+            log.info(LogManager.getHeader(context, "connection_held",
+                    "held_ms=" + held + ",uri=" + request.getRequestURI()));
         }
     }
 
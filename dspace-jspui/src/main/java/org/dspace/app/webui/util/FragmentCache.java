@@ -0,0 +1,126 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE and NOTICE files at the root of the source
+ * tree and available online at
+ *
+ * http://www.dspace.org/license/
+ */
+package org.dspace.app.webui.util;
+
+import java.util.Date;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.dspace.content.DSpaceObject;
+import org.dspace.core.ConfigurationManager;
+import org.dspace.event.ChangeStamps;
+
+/**
+ * Cache of the HTML fragments rendered for DSpace objects by the JSP tags,
+ * such as the cells of an item in an item list, shared by all the requests.
+ * <P>
+ * A fragment is cached under the object, its change stamp (see
+ * {@link ChangeStamps}) and last modification date, the locale and context
+ * path of the request, and whatever else the tag renders it from, so a
+ * fragment is rendered again once the object changes. Change stamps only
+ * follow the changes made in this JVM, the last modification date the
+ * changes made elsewhere, e.g. by another webapp or the command line. The
+ * cache holds up to
+ * <code>webui.fragment.cache.size</code> characters (4M by default, 0
+ * disables the cache), the least recently used fragments being evicted first.
+ */
+public class FragmentCache
+{
+    /** The fragments, or null if caching is disabled */
+    private static final Cache<String, String[]> fragments;
+
+    static
+    {
+        long size = ConfigurationManager.getLongProperty("webui.fragment.cache.size", 4 * 1024 * 1024);
+        if (size > 0)
+        {
+            fragments = CacheBuilder.newBuilder()
+                    .maximumWeight(size)
+                    .weigher(new Weigher<String, String[]>()
+                    {
+                        public int weigh(String key, String[] value)
+                        {
+                            int weight = key.length();
+                            for (String fragment : value)
+                            {
+                                weight += (fragment == null) ? 0 : fragment.length();
+                            }
+                            return weight;
+                        }
+                    })
+                    .build();
+        }
+        else
+        {
+            fragments = null;
+        }
+    }
+
+    /** Default constructor */
+    private FragmentCache() { }
+
+    /**
+     * Build the key of the fragments of an object.
+     *
+     * @param request
+     *            the current request
+     * @param dso
+     *            the object rendered
+     * @param lastModified
+     *            when the object was last modified, as stored in the
+     *            database, or null if unknown
+     * @param parts
+     *            everything else the fragments are rendered from
+     * @return the key
+     */
+    public static String getKey(HttpServletRequest request, DSpaceObject dso, Date lastModified, String... parts)
+    {
+        StringBuilder key = new StringBuilder();
+        key.append(dso.getType()).append(':').append(dso.getID());
+        key.append(':').append(ChangeStamps.get(dso.getType(), dso.getID()));
+        key.append(':').append(lastModified == null ? "" : String.valueOf(lastModified.getTime()));
+        key.append(':').append(UIUtil.getSessionLocale(request));
+        key.append(':').append(request.getContextPath());
+        for (String part : parts)
+        {
+            // prefix the parts with their length, so that no part can be mistaken for several
+            String value = String.valueOf(part);
+            key.append(':').append(value.length()).append(':').append(value);
+        }
+        return key.toString();
+    }
+
+    /**
+     * @param key
+     *            the key of the fragments
+     * @return the fragments, or null if they are not cached
+     */
+    public static String[] get(String key)
+    {
+        return (fragments == null) ? null : fragments.getIfPresent(key);
+    }
+
+    /**
+     * Cache fragments, which must not be changed afterwards.
+     *
+     * @param key
+     *            the key of the fragments
+     * @param fragment
+     *            the fragments
+     */
+    public static void put(String key, String... fragment)
+    {
+        if (fragments != null)
+        {
+            fragments.put(key, fragment);
+        }
+    }
+}
@@ -29,6 +29,8 @@
   -   items            - the results.  An array of Items, most relevant first
   -   communities      - results, Community[]
   -   collections      - results, Collection[]
+  -   views            - results rendered from the search index alone,
+  -                      List<DiscoverResult.DSpaceObjectView>
   -
   -   admin_button     - If the user is an admin
   --%>
@@ -60,6 +62,7 @@
 <%@ page import="org.dspace.content.Community"   %>
 <%@ page import="org.dspace.content.Collection"  %>
 <%@ page import="org.dspace.content.Item"        %>
+<%@ page import="org.dspace.core.Constants"      %>
 <%@ page import="org.dspace.search.QueryResults" %>
 <%@ page import="org.dspace.sort.SortOption" %>
 <%@ page import="java.util.Enumeration" %>
@@ -410,6 +413,30 @@ DiscoverResult qResults = (DiscoverResult)request.getAttribute("queryresults");
 Item      [] items       = (Item[]      )request.getAttribute("items");
 Community [] communities = (Community[] )request.getAttribute("communities");
 Collection[] collections = (Collection[])request.getAttribute("collections");
+List<DiscoverResult.DSpaceObjectView> views = (List<DiscoverResult.DSpaceObjectView>)request.getAttribute("views");
+
+// the views of the communities and collections are listed apart from those of the items
+List<DiscoverResult.DSpaceObjectView> communityViews = new ArrayList<DiscoverResult.DSpaceObjectView>();
+List<DiscoverResult.DSpaceObjectView> collectionViews = new ArrayList<DiscoverResult.DSpaceObjectView>();
+List<DiscoverResult.DSpaceObjectView> itemViews = new ArrayList<DiscoverResult.DSpaceObjectView>();
+if (views != null)
+{
+    for (DiscoverResult.DSpaceObjectView view : views)
+    {
+        if (view.getType() == Constants.COMMUNITY)
+        {
+            communityViews.add(view);
+        }
+        else if (view.getType() == Constants.COLLECTION)
+        {
+            collectionViews.add(view);
+        }
+        else if (view.getType() == Constants.ITEM)
+        {
+            itemViews.add(view);
+        }
+    }
+}
 
 if( error )
 {
@@ -551,9 +578,70 @@ else if( qResults != null)
     <dspace:itemlist items="<%= items %>" authorLimit="<%= etAl %>" />
     </div>
 <% } %>
+
+<%
+for (int v = 0; v < 2; v++)
+{
+    List<DiscoverResult.DSpaceObjectView> containerViews = (v == 0) ? communityViews : collectionViews;
+    String hitsKey = (v == 0) ? "jsp.search.results.comhits" : "jsp.search.results.colhits";
+    if (containerViews.size() > 0)
+    {
+%>
+    <div class="panel panel-info">
+    <div class="panel-heading"><fmt:message key="<%= hitsKey %>"/></div>
+    <ul class="list-group">
+<%
+        for (DiscoverResult.DSpaceObjectView view : containerViews)
+        {
+%>
+        <li class="list-group-item"><a href="<%= request.getContextPath() %>/handle/<%= view.getHandle() %>"><%= view.getTitle() != null ? Utils.addEntities(view.getTitle()) : view.getHandle() %></a></li>
+<%
+        }
+%>
+    </ul>
+    </div>
+<%
+    }
+}
+%>
+
+<% if (itemViews.size() > 0) { %>
+    <div class="panel panel-info">
+    <div class="panel-heading"><fmt:message key="jsp.search.results.itemhits"/></div>
+    <table align="center" class="table" summary="This table browses all dspace content">
+<%
+    for (DiscoverResult.DSpaceObjectView view : itemViews)
+    {
+        List<String> authors = view.getAuthors();
+        StringBuilder authorList = new StringBuilder();
+        for (int a = 0; a < authors.size() && (etAl <= 0 || a < etAl); a++)
+        {
+            if (a > 0)
+            {
+                authorList.append("; ");
+            }
+            authorList.append(Utils.addEntities(authors.get(a)));
+        }
+        if (etAl > 0 && authors.size() > etAl)
+        {
+            authorList.append("; ...");
+        }
+%>
+    <tr>
+        <td headers="t1"><% if (view.getThumbnailID() != -1) { %><a href="<%= request.getContextPath() %>/handle/<%= view.getHandle() %>"><img src="<%= request.getContextPath() %>/retrieve/<%= view.getThumbnailID() %>" alt="Thumbnail" width="80" /></a><% } %></td>
+        <td headers="t2"><%= view.getDate() != null ? Utils.addEntities(StringUtils.substring(view.getDate(), 0, 10)) : "" %></td>
+        <td headers="t3"><a href="<%= request.getContextPath() %>/handle/<%= view.getHandle() %>"><%= view.getTitle() != null ? Utils.addEntities(view.getTitle()) : view.getHandle() %></a></td>
+        <td headers="t4"><em><%= authorList %></em></td>
+    </tr>
+<%
+    }
+%>
+    </table>
+    </div>
+<% } %>
 </div>
 <%-- if the result page is enought long... --%>
-<% if ((communities.length + collections.length + items.length) > 10) {%>
+<% if ((communities.length + collections.length + items.length + (views != null ? views.size() : 0)) > 10) {%>
 <%-- show again the navigation info/links --%>
 <div class="discovery-result-pagination row container">
     <%-- <p align="center">Results <//%=qResults.getStart()+1%>-<//%=qResults.getStart()+qResults.getHitHandles().size()%> of --%>
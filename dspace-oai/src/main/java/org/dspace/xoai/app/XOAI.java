@@ -55,7 +55,16 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.lyncode.xoai.dataprovider.core.Granularity.Second;
 import static org.dspace.content.Item.find;
@@ -72,6 +81,15 @@ public class XOAI {
     private boolean optimize;
     private boolean verbose;
     private boolean clean;
+    private int threads = ConfigurationManager.getIntProperty("oai", "solr.index.threads", 1);
+    private int batchSize = ConfigurationManager.getIntProperty("oai", "solr.index.batchsize", 100);
+
+    /**
+     * Solr field values of the collection and all its parent communities,
+     * keyed by collection id. Shared by all indexing threads, as the
+     * hierarchy is the same for all items of a collection.
+     */
+    private final Map<Integer, List<String>> collectionHierarchy = new ConcurrentHashMap<Integer, List<String>>();
 
     @Autowired
     private SolrServerResolver solrServerResolver;
@@ -117,6 +135,14 @@ public class XOAI {
         verbose = hasOption;
     }
 
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
     private void println(String line) {
         System.out.println(line);
     }
@@ -203,13 +229,94 @@ public class XOAI {
 
     private int index(TableRowIterator iterator)
             throws DSpaceSolrIndexerException {
+        final List<Integer> ids = new ArrayList<Integer>();
         try {
-            int i = 0;
-            SolrServer server = solrServerResolver.getServer();
             while (iterator.hasNext()) {
+                ids.add(iterator.next().getIntColumn("item_id"));
+            }
+        } catch (SQLException ex) {
+            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+        } finally {
+            iterator.close();
+        }
+
+        final SolrServer server;
+        try {
+            server = solrServerResolver.getServer();
+        } catch (SolrServerException ex) {
+            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+        }
+
+        final AtomicInteger cursor = new AtomicInteger(0);
+        final AtomicInteger processed = new AtomicInteger(0);
+        final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+        if (threads <= 1) {
+            indexItems(context, ids, cursor, processed, server);
+        } else {
+            System.out.println("Indexing " + ids.size() + " items using " + threads + " threads");
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Context workerContext = null;
+                        try {
+                            workerContext = new Context();
+                            indexItems(workerContext, ids, cursor, processed, server);
+                        } catch (Exception ex) {
+                            log.error(ex.getMessage(), ex);
+                            failure.compareAndSet(null, ex);
+                            // stop the other workers as well
+                            cursor.set(ids.size());
+                        } finally {
+                            if (workerContext != null) {
+                                workerContext.abort();
+                            }
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.debug(processed.get() + " items imported so far");
+                }
+            } catch (InterruptedException ex) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+            }
+            if (failure.get() != null) {
+                throw new DSpaceSolrIndexerException(failure.get().getMessage(), failure.get());
+            }
+        }
+
+        try {
+            System.out.println("Total: " + processed.get() + " items");
+            server.commit();
+            return processed.get();
+        } catch (SolrServerException ex) {
+            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+        } catch (IOException ex) {
+            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Takes batches of item ids from the shared cursor until all ids are
+     * taken, and sends the documents of each batch to Solr at once.
+     */
+    private void indexItems(Context ctx, List<Integer> ids, AtomicInteger cursor,
+            AtomicInteger processed, SolrServer server) throws DSpaceSolrIndexerException {
+        int start;
+        while ((start = cursor.getAndAdd(batchSize)) < ids.size()) {
+            List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>(batchSize);
+            for (Integer id : ids.subList(start, Math.min(start + batchSize, ids.size()))) {
                 try {
-                    server.add(this.index(find(context, iterator.next().getIntColumn("item_id"))));
-                    context.clearCache();
+                    Item item = find(ctx, id);
+                    if (item != null) {
+                        docs.add(this.index(ctx, item));
+                    }
                 } catch (SQLException ex) {
                     log.error(ex.getMessage(), ex);
                 } catch (MetadataBindException e) {
@@ -221,37 +328,60 @@ public class XOAI {
                 } catch (WritingXmlException e) {
                     log.error(e.getMessage(), e);
                 }
-                i++;
-                if (i % 100 == 0) System.out.println(i + " items imported so far...");
             }
-            System.out.println("Total: " + i + " items");
-            server.commit();
-            return i;
-        } catch (SQLException ex) {
-            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
-        } catch (SolrServerException ex) {
-            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
-        } catch (IOException ex) {
-            throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+
+            try {
+                if (!docs.isEmpty()) {
+                    server.add(docs);
+                }
+            } catch (SolrServerException ex) {
+                throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+            } catch (IOException ex) {
+                throw new DSpaceSolrIndexerException(ex.getMessage(), ex);
+            }
+            ctx.clearCache();
+
+            int before = processed.get();
+            int after = processed.addAndGet(Math.min(batchSize, ids.size() - start));
+            if (after / 100 != before / 100) System.out.println(after + " items imported so far...");
+        }
+    }
+
+    /**
+     * Returns the Solr field values of the collection and all its parent
+     * communities, calculated once per collection.
+     */
+    private List<String> getHierarchy(Collection col) throws SQLException {
+        List<String> hierarchy = collectionHierarchy.get(col.getID());
+        if (hierarchy == null) {
+            hierarchy = new ArrayList<String>();
+            hierarchy.add("col_" + col.getHandle().replace("/", "_"));
+            for (Community com : collectionsService.flatParentCommunities(col))
+                hierarchy.add("com_" + com.getHandle().replace("/", "_"));
+            collectionHierarchy.put(col.getID(), hierarchy);
         }
+        return hierarchy;
     }
 
-    private SolrInputDocument index(Item item) throws SQLException, MetadataBindException, ParseException, XMLStreamException, WritingXmlException {
+    private SolrInputDocument index(Context ctx, Item item) throws SQLException, MetadataBindException, ParseException, XMLStreamException, WritingXmlException {
         SolrInputDocument doc = new SolrInputDocument();
         doc.addField("item.id", item.getID());
-        boolean pub = this.isPublic(item);
+        boolean pub = this.isPublic(ctx, item);
         doc.addField("item.public", pub);
         String handle = item.getHandle();
         doc.addField("item.handle", handle);
         doc.addField("item.lastmodified", item.getLastModified());
         doc.addField("item.submitter", item.getSubmitter().getEmail());
         doc.addField("item.deleted", item.isWithdrawn() ? "true" : "false");
-        for (Collection col : item.getCollections())
-            doc.addField("item.collections",
-                    "col_" + col.getHandle().replace("/", "_"));
-        for (Community com : collectionsService.flatParentCommunities(item))
-            doc.addField("item.communities",
-                    "com_" + com.getHandle().replace("/", "_"));
+        // the parent communities of an item are those of its collections
+        Set<String> communities = new LinkedHashSet<String>();
+        for (Collection col : item.getCollections()) {
+            List<String> hierarchy = getHierarchy(col);
+            doc.addField("item.collections", hierarchy.get(0));
+            communities.addAll(hierarchy.subList(1, hierarchy.size()));
+        }
+        for (String com : communities)
+            doc.addField("item.communities", com);
 
         Metadatum[] allData = item.getMetadata(Item.ANY, Item.ANY, Item.ANY,
                 Item.ANY);
@@ -286,11 +416,11 @@ public class XOAI {
         return doc;
     }
 
-    private boolean isPublic(Item item) {
+    private boolean isPublic(Context ctx, Item item) {
         try {
-            AuthorizeManager.authorizeAction(context, item, Constants.READ);
+            AuthorizeManager.authorizeAction(ctx, item, Constants.READ);
             for (Bundle b : item.getBundles())
-                AuthorizeManager.authorizeAction(context, b, Constants.READ);
+                AuthorizeManager.authorizeAction(ctx, b, Constants.READ);
             return true;
         } catch (AuthorizeException ex) {
             log.debug(ex.getMessage());
@@ -363,6 +493,8 @@ public class XOAI {
                     "Optimize index at the end");
             options.addOption("v", "verbose", false, "Verbose output");
             options.addOption("h", "help", false, "Shows some help");
+            options.addOption("t", "threads", true, "Number of indexing threads");
+            options.addOption("b", "batch-size", true, "Number of documents sent to Solr at once");
             options.addOption("n", "number", true, "FOR DEVELOPMENT MUST DELETE");
             CommandLine line = parser.parse(options, argv);
 
@@ -401,6 +533,10 @@ public class XOAI {
                             line.hasOption('v'));
 
                     applicationContext.getAutowireCapableBeanFactory().autowireBean(indexer);
+                    if (line.hasOption('t'))
+                        indexer.setThreads(Integer.parseInt(line.getOptionValue('t')));
+                    if (line.hasOption('b'))
+                        indexer.setBatchSize(Integer.parseInt(line.getOptionValue('b')));
 
                     int imported = indexer.index();
                     if (imported > 0) cleanCache(itemCacheService, cacheService);
@@ -486,6 +622,8 @@ public class XOAI {
             System.out.println("> Parameters:");
             System.out.println("     -o Optimize index after indexing (" + COMMAND_IMPORT + " only)");
             System.out.println("     -c Clear index (" + COMMAND_IMPORT + " only)");
+            System.out.println("     -t <n> Number of indexing threads (" + COMMAND_IMPORT + " only)");
+            System.out.println("     -b <n> Number of documents sent to Solr at once (" + COMMAND_IMPORT + " only)");
             System.out.println("     -v Verbose output");
             System.out.println("     -h Shows this text");
         } else {
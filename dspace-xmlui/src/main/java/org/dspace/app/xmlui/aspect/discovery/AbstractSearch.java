@@ -25,9 +25,11 @@ import org.dspace.app.xmlui.wing.Message;
 import org.dspace.app.xmlui.wing.WingException;
 import org.dspace.app.xmlui.wing.element.*;
 import org.dspace.authorize.AuthorizeException;
+import org.dspace.authorize.AuthorizeManager;
 import org.dspace.content.*;
 import org.dspace.content.Collection;
 import org.dspace.content.Item;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Constants;
 import org.dspace.core.LogManager;
 import org.dspace.discovery.*;
@@ -159,15 +161,21 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
                 performSearch(scope);
 
                 List<DSpaceObject> results = this.queryResults.getDspaceObjects();
+                List<DiscoverResult.DSpaceObjectView> views = this.queryResults.getDSpaceObjectViews();
 
                 if (results != null) {
                     validity.add("total:"+this.queryResults.getTotalSearchResults());
                     validity.add("start:"+this.queryResults.getStart());
-                    validity.add("size:" + results.size());
+                    validity.add("size:" + (results.size() + views.size()));
 
                     for (DSpaceObject dso : results) {
                         validity.add(dso);
                     }
+                    // Views are only as recent as the index, so what is shown of them identifies them
+                    for (DiscoverResult.DSpaceObjectView view : views) {
+                        validity.add(view.getHandle() + ":" + view.getTitle() + ":" + view.getDate() + ":"
+                                + view.getAuthors() + ":" + view.getThumbnailID() + ":" + view.isOpenAccess());
+                    }
                 }
 
                 Map<String, List<DiscoverResult.FacetResult>> facetResults = this.queryResults.getFacetResults();
@@ -298,7 +306,7 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
 
         if(queryResults != null && 0 < queryResults.getTotalSearchResults())
         {
-            displayedResults = queryResults.getDspaceObjects().size();
+            displayedResults = queryResults.getDspaceObjects().size() + queryResults.getDSpaceObjectViews().size();
             totalResults = queryResults.getTotalSearchResults();
             searchTime = ((float) queryResults.getSearchTime() / 1000) % 60;
 
@@ -316,13 +324,13 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
             }
         }
 
-        if (queryResults != null && 0 < queryResults.getDspaceObjects().size())
+        if (queryResults != null && 0 < queryResults.getDspaceObjects().size() + queryResults.getDSpaceObjectViews().size())
         {
 
             // Pagination variables.
             int itemsTotal = (int) queryResults.getTotalSearchResults();
             int firstItemIndex = (int) this.queryResults.getStart() + 1;
-            int lastItemIndex = (int) this.queryResults.getStart() + queryResults.getDspaceObjects().size();
+            int lastItemIndex = (int) this.queryResults.getStart() + queryResults.getDspaceObjects().size() + queryResults.getDSpaceObjectViews().size();
 
             //if (itemsTotal < lastItemIndex)
             //    lastItemIndex = itemsTotal;
@@ -357,7 +365,22 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
                 }
             }
 
-            if(CollectionUtils.isNotEmpty(commCollList))
+            // The views of the results, if the search returned those instead of the objects
+            List<DiscoverResult.DSpaceObjectView> commCollViews = new ArrayList<DiscoverResult.DSpaceObjectView>();
+            List<DiscoverResult.DSpaceObjectView> itemViews = new ArrayList<DiscoverResult.DSpaceObjectView>();
+            for (DiscoverResult.DSpaceObjectView view : queryResults.getDSpaceObjectViews())
+            {
+                if(view.getType() == Constants.COMMUNITY || view.getType() == Constants.COLLECTION)
+                {
+                    commCollViews.add(view);
+                }else
+                if(view.getType() == Constants.ITEM)
+                {
+                    itemViews.add(view);
+                }
+            }
+
+            if(CollectionUtils.isNotEmpty(commCollList) || CollectionUtils.isNotEmpty(commCollViews))
             {
                 org.dspace.app.xmlui.wing.element.List commCollWingList = dspaceObjectsList.addList("comm-coll-result-list");
                 commCollWingList.setHead(T_result_head_2);
@@ -379,12 +402,16 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
                         renderCollection((Collection) dso, highlightedResults, collectionMetadata);
                     }
                 }
+                for (DiscoverResult.DSpaceObjectView view : commCollViews)
+                {
+                    renderView(commCollWingList, view, queryResults.getHighlightedResults(view));
+                }
             }
 
-            if(CollectionUtils.isNotEmpty(itemList))
+            if(CollectionUtils.isNotEmpty(itemList) || CollectionUtils.isNotEmpty(itemViews))
             {
                 org.dspace.app.xmlui.wing.element.List itemWingList = dspaceObjectsList.addList("item-result-list");
-                if(CollectionUtils.isNotEmpty(commCollList))
+                if(CollectionUtils.isNotEmpty(commCollList) || CollectionUtils.isNotEmpty(commCollViews))
                 {
                     itemWingList.setHead(T_result_head_3);
 
@@ -394,6 +421,10 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
                     DiscoverResult.DSpaceObjectHighlightResult highlightedResults = queryResults.getHighlightedResults(resultDso);
                     renderItem(itemWingList, resultDso, highlightedResults);
                 }
+                for (DiscoverResult.DSpaceObjectView view : itemViews)
+                {
+                    renderView(itemWingList, view, queryResults.getHighlightedResults(view));
+                }
             }
 
         } else {
@@ -488,6 +519,82 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
         }
     }
 
+    /**
+     * Render a view of a search result, which was built from the search index
+     * instead of the database. All metadata stored in the index is added to
+     * the given list as by renderItem, followed by a "{handle}:projection"
+     * list holding the URL of the thumbnail (if any), the access to the
+     * content ("open" or "restricted") and the metadata fields shown as the
+     * title, author and date, so that the theme does not need the METS
+     * document of the object either.
+     * @param dspaceObjectsList a list of DSpace objects
+     * @param view the view to be rendered
+     * @param highlightedResults the highlighted results
+     * @throws WingException
+     * @throws SQLException Database failure in services this calls
+     */
+    protected void renderView(org.dspace.app.xmlui.wing.element.List dspaceObjectsList, DiscoverResult.DSpaceObjectView view, DiscoverResult.DSpaceObjectHighlightResult highlightedResults) throws WingException, SQLException {
+        String type = "item";
+        if (view.getType() == Constants.COMMUNITY)
+        {
+            type = "community";
+        } else if (view.getType() == Constants.COLLECTION)
+        {
+            type = "collection";
+        }
+        org.dspace.app.xmlui.wing.element.List viewList = dspaceObjectsList.addList(view.getHandle() + ":" + type);
+
+        // Hidden fields are shown to administrators only
+        boolean admin = AuthorizeManager.isAdmin(context);
+        for (Map.Entry<String, List<String>> field : view.getMetadata().entrySet())
+        {
+            String[] parts = field.getKey().split("\\.", 3);
+            if (parts.length < 2 || (!admin && MetadataExposure.isHidden(null, parts[0], parts[1], parts.length > 2 ? parts[2] : null)))
+            {
+                continue;
+            }
+            org.dspace.app.xmlui.wing.element.List metadataFieldList = viewList.addList(view.getHandle() + ":" + field.getKey());
+            for (String value : field.getValue())
+            {
+                addMetadataField(highlightedResults, field.getKey(), metadataFieldList, value);
+            }
+        }
+
+        if(highlightedResults != null)
+        {
+            //Also add the full text snippet (if available !)
+            List<String> fullSnippets = highlightedResults.getHighlightResults("fulltext");
+            if(CollectionUtils.isNotEmpty(fullSnippets))
+            {
+                org.dspace.app.xmlui.wing.element.List fullTextFieldList = viewList.addList(view.getHandle() + ":fulltext");
+                for (String snippet : fullSnippets)
+                {
+                    addMetadataField(fullTextFieldList, snippet);
+                }
+            }
+        }
+
+        org.dspace.app.xmlui.wing.element.List projectionList = viewList.addList(view.getHandle() + ":projection");
+        if (view.getThumbnailID() != -1)
+        {
+            projectionList.addItem("thumbnail", null).addContent(contextPath + "/bitstream/id/" + view.getThumbnailID() + "/");
+        }
+        projectionList.addItem("access", null).addContent(view.isOpenAccess() ? "open" : "restricted");
+        projectionList.addItem("title-field", null).addContent(getProjectionField("title", "dc.title"));
+        projectionList.addItem("author-field", null).addContent(getProjectionField("author", "dc.contributor.author"));
+        projectionList.addItem("date-field", null).addContent(getProjectionField("date", "dc.date.issued"));
+    }
+
+    /**
+     * @return the metadata field shown as the title, author or date of a view
+     *         (discovery.projection.title, author or date)
+     */
+    private String getProjectionField(String name, String defaultField)
+    {
+        String field = ConfigurationManager.getProperty("discovery", "projection." + name);
+        return StringUtils.isBlank(field) ? defaultField : field.trim();
+    }
+
     /**
      * Render the given collection, all collection metadata is added to the list
      * @param collection the collection to be rendered
@@ -826,6 +933,9 @@ public abstract class AbstractSearch extends AbstractDSpaceTransformer implement
 
         queryArgs.setSpellCheck(discoveryConfiguration.isSpellCheckEnabled());
 
+        // Render the results from the index alone, if the themes can do so
+        queryArgs.setProjection(ConfigurationManager.getBooleanProperty("discovery", "projection.results", false));
+
         this.queryResults = SearchUtils.getSearchService().search(context, scope, queryArgs);
     }
 
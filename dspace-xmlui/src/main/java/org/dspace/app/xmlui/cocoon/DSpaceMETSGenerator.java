@@ -8,25 +8,39 @@
 package org.dspace.app.xmlui.cocoon;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import org.apache.cocoon.ProcessingException;
 import org.apache.cocoon.ResourceNotFoundException;
+import org.apache.cocoon.caching.CacheableProcessingComponent;
 import org.apache.cocoon.environment.ObjectModelHelper;
 import org.apache.cocoon.environment.Request;
 import org.apache.cocoon.generation.AbstractGenerator;
+import org.apache.cocoon.util.HashUtil;
+import org.apache.excalibur.source.SourceValidity;
+import org.apache.log4j.Logger;
 import org.dspace.app.xmlui.objectmanager.AbstractAdapter;
 import org.dspace.app.xmlui.objectmanager.ContainerAdapter;
 import org.dspace.app.xmlui.objectmanager.ItemAdapter;
 import org.dspace.app.xmlui.objectmanager.RepositoryAdapter;
 import org.dspace.app.xmlui.utils.ContextUtil;
+import org.dspace.app.xmlui.utils.DSpaceValidity;
 import org.dspace.app.xmlui.wing.WingException;
+import org.dspace.authorize.AuthorizeManager;
+import org.dspace.authorize.ResourcePolicy;
+import org.dspace.browse.ItemCountException;
+import org.dspace.browse.ItemCounter;
 import org.dspace.content.Collection;
 import org.dspace.content.Community;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.Item;
 import org.dspace.content.crosswalk.CrosswalkException;
+import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
+import org.dspace.eperson.Group;
+import org.dspace.event.ChangeStamps;
 import org.dspace.handle.HandleManager;
 import org.xml.sax.SAXException;
 
@@ -73,10 +87,138 @@ import org.xml.sax.SAXException;
  * is provided then the logical structType will be rendered, otherwise none will. The default operation is to
  * render all structure types.
  * 
+ * 
+ * The documents of items, collections and communities are cached, for each user, until the object
+ * changes: the validity is the change stamp of the object (see {@link ChangeStamps}) and what is read
+ * from the database: for items, their last modification date and their policies, for collections and
+ * communities, their metadata, logo and item count. Set xmlui.mets.cache to false to disable caching.
+ * 
  * @author Scott Phillips
  */
-public class DSpaceMETSGenerator extends AbstractGenerator
+public class DSpaceMETSGenerator extends AbstractGenerator implements CacheableProcessingComponent
 {
+    private static final Logger log = Logger.getLogger(DSpaceMETSGenerator.class);
+
+    /** Cached validity object */
+    private SourceValidity validity = null;
+
+    /**
+     * Generate the unique caching key. The document depends on the object,
+     * on the parts of it requested and on what the user is allowed to see.
+     */
+    public Serializable getKey()
+    {
+        try
+        {
+            Context context = ContextUtil.obtainContext(objectModel);
+            Request request = ObjectModelHelper.getRequest(objectModel);
+
+            StringBuilder key = new StringBuilder();
+            key.append(parameters.getParameter("handle", "")).append(':');
+            key.append(parameters.getParameter("internal", "")).append(':');
+            key.append(request.getContextPath());
+            for (String name : new String[] { "sections", "dmdTypes", "techMDTypes", "rightsMDTypes",
+                    "sourceMDTypes", "digiprovMDTypes", "fileGrpTypes", "structTypes" })
+            {
+                key.append(':').append(request.getParameter(name));
+            }
+
+            key.append(":user:");
+            key.append(context.getCurrentUser() == null ? "anonymous" : context.getCurrentUser().getID());
+            Group[] specialGroups = context.getSpecialGroups();
+            int[] groupIDs = new int[specialGroups.length];
+            for (int i = 0; i < specialGroups.length; i++)
+            {
+                groupIDs[i] = specialGroups[i].getID();
+            }
+            Arrays.sort(groupIDs);
+            key.append(Arrays.toString(groupIDs));
+
+            return HashUtil.hash(key.toString());
+        }
+        catch (SQLException sqle)
+        {
+            // Ignore all errors and just don't cache.
+            return "0";
+        }
+    }
+
+    /**
+     * Generate the cache validity object: the change stamp of the object and,
+     * for an item, when it was last modified and its policies, for a community
+     * or collection, its metadata, logo and item count. The document of the
+     * repository is not cached.
+     */
+    public SourceValidity getValidity()
+    {
+        if (this.validity == null)
+        {
+            try
+            {
+                if (!ConfigurationManager.getBooleanProperty("xmlui.mets.cache", true))
+                {
+                    return null;
+                }
+
+                Context context = ContextUtil.obtainContext(objectModel);
+                DSpaceObject dso = resolveObject(context);
+                if (dso == null)
+                {
+                    return null;
+                }
+
+                DSpaceValidity validity = new DSpaceValidity();
+                validity.add(dso.getType() + ":" + dso.getID() + ":" + ChangeStamps.get(dso.getType(), dso.getID()));
+                if (dso instanceof Item)
+                {
+                    validity.add(String.valueOf(((Item) dso).getLastModified().getTime()));
+
+                    // The fileSec and the crosswalks depend on the policies,
+                    // which may change without the item being modified
+                    for (ResourcePolicy policy : AuthorizeManager.getItemContentPolicies(context, (Item) dso))
+                    {
+                        validity.add(policy.getID() + ":" + policy.getResourceType() + ":"
+                                + policy.getResourceID() + ":" + policy.getAction() + ":"
+                                + policy.getEPersonID() + ":" + policy.getGroupID() + ":"
+                                + policy.getStartDate() + ":" + policy.getEndDate());
+                    }
+                }
+                else
+                {
+                    // Communities and collections have no modification date:
+                    // their metadata and logo, as just read from the database,
+                    // show changes made outside this JVM too
+                    validity.add(dso);
+                    if (ConfigurationManager.getBooleanProperty("webui.strengths.show"))
+                    {
+                        validity.add(String.valueOf(new ItemCounter(context).getCount(dso)));
+                    }
+                }
+                this.validity = validity.complete();
+            }
+            catch (SQLException sqle)
+            {
+                log.warn("Unable to build the validity of a METS document", sqle);
+                // Just ignore all errors and return an invalid cache.
+            }
+            catch (ItemCountException ice)
+            {
+                log.warn("Unable to build the validity of a METS document", ice);
+                // Just ignore all errors and return an invalid cache.
+            }
+        }
+        return this.validity;
+    }
+
+    /**
+     * Recycle
+     */
+    public void recycle()
+    {
+        this.validity = null;
+        super.recycle();
+    }
+
 	/**
 	 * Generate the METS Document.
 	 */
@@ -201,6 +343,50 @@ public class DSpaceMETSGenerator extends AbstractGenerator
 		 return adapter;
 	}
 	
+	/**
+	 * Find the item, collection or community to render, from the same identifiers as
+	 * {@link #resolveAdapter(Context)}.
+	 * 
+	 * @return the object, or null if none found or if the repository is to be rendered.
+	 */
+	private DSpaceObject resolveObject(Context context) throws SQLException
+	{
+        String handle = parameters.getParameter("handle",null);
+        String internal = parameters.getParameter("internal",null);
+
+        DSpaceObject dso = null;
+        if (handle != null)
+        {
+            dso = HandleManager.resolveToObject(context, handle);
+        }
+        else if (internal != null)
+        {
+            String[] parts = internal.split(":");
+            if (parts.length == 2 && !"repository".equals(parts[0]))
+            {
+                int id = Integer.valueOf(parts[1]);
+                if ("item".equals(parts[0]))
+                {
+                    dso = Item.find(context, id);
+                }
+                else if ("collection".equals(parts[0]))
+                {
+                    dso = Collection.find(context, id);
+                }
+                else if ("community".equals(parts[0]))
+                {
+                    dso = Community.find(context, id);
+                }
+            }
+        }
+
+        if (dso instanceof Item || dso instanceof Collection || dso instanceof Community)
+        {
+            return dso;
+        }
+        return null;
+	}
+
 	/**
 	 * Configure the adapter according to the supplied parameters.
 	 */
@@ -36,7 +36,6 @@ import org.dspace.content.Community;
 import org.dspace.content.DSpaceObject;
 import org.dspace.content.ItemIterator;
 
-import org.dspace.app.bulkedit.DSpaceCSV;
 import org.dspace.app.bulkedit.MetadataExport;
 
 /**
@@ -82,7 +81,6 @@ public class MetadataExportReader extends AbstractReader implements Recyclable
     private static Logger log = Logger.getLogger(MetadataExportReader.class);
 
 
-    DSpaceCSV csv = null;
     MetadataExport exporter = null;
     String filename = null;
     /**
@@ -131,7 +129,6 @@ public class MetadataExportReader extends AbstractReader implements Recyclable
             }
 
             log.info(LogManager.getHeader(context, "metadataexport", "exporting_handle:" + handle));
-            csv = exporter.export();
             filename = handle.replaceAll("/", "-") + ".csv";
             log.info(LogManager.getHeader(context, "metadataexport", "exported_file:" + filename));
             }
@@ -184,7 +181,19 @@ public class MetadataExportReader extends AbstractReader implements Recyclable
         response.setContentType("text/csv; charset=UTF-8");
         response.setHeader("Content-Disposition","attachment; filename=" + filename);
  
-        out.write(csv.toString().getBytes("UTF-8"));
+        try
+        {
+            // Stream the CSV rather than building it all in memory first
+            exporter.export(out);
+        }
+        catch (IOException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new ProcessingException("Unable to export metadata.", e);
+        }
         out.flush();
         out.close();
 
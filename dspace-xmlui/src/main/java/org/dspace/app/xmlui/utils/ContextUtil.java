@@ -19,6 +19,7 @@ import org.apache.log4j.Logger;
 import org.dspace.authenticate.AuthenticationManager;
 import org.dspace.core.ConfigurationManager;
 import org.dspace.core.Context;
+import org.dspace.core.LogManager;
 
 /**
  * Miscellaneous UI utility methods methods for managing DSpace context.
@@ -39,6 +40,13 @@ public class ContextUtil
     /** Where the context is stored on an HTTP Request object */
     public static final String DSPACE_CONTEXT = "dspace.context";
 
+    /**
+     * Where the time the context held its database connection for, in
+     * milliseconds, is stored on an HTTP Request object once the context
+     * has been completed or aborted
+     */
+    public static final String CONNECTION_HOLD_TIME = "dspace.connection.held_ms";
+
     
     /**
      * Obtain a new context object. If a context object has already been created
@@ -139,16 +147,20 @@ public class ContextUtil
     {
     	Context context = (Context) request.getAttribute(DSPACE_CONTEXT);
 
-    	if (context != null && context.isValid())
+    	try
+    	{
+    		if (context != null && context.isValid())
+    		{
+    			context.complete();
+    		}
+    	}
+    	catch (SQLException e)
+    	{
+    		throw new ServletException(e);
+    	}
+    	finally
     	{
-   			try
-			{
-				context.complete();
-			}
-			catch (SQLException e)
-			{
-				throw new ServletException(e);
-			}
+    		reportConnectionHoldTime(request, context);
     	}
     }
 
@@ -160,6 +172,34 @@ public class ContextUtil
     	{
    			context.abort();
     	}
+    	reportConnectionHoldTime(request, context);
 	}
 
+    /**
+     * Once the context of a request has ended, store the time it held its
+     * database connection for on the request, and log it, so that requests
+     * which keep a connection from the pool for long can be found. This is
+     * done once per request, though it may be aborted before it is completed.
+     *
+     * @param request
+     *            The request object
+     * @param context
+     *            The context of the request, or null if it has none
+     */
+    private static void reportConnectionHoldTime(HttpServletRequest request, Context context)
+    {
+        if (context == null || context.isValid() || request.getAttribute(CONNECTION_HOLD_TIME) != null)
+        {
+            return;
+        }
+
+        long held = context.getConnectionHoldTime();
+        request.setAttribute(CONNECTION_HOLD_TIME, Long.valueOf(held));
+        if (held > 0)
+        {
+            log.info(LogManager.getHeader(context, "connection_held",
+                    "held_ms=" + held + ",uri=" + request.getRequestURI()));
+        }
+    }
+
 }
@@ -76,6 +76,17 @@
 
 
             <xsl:choose>
+                <!-- Results rendered from the search index alone, without their METS document -->
+                <xsl:when test="dri:list[@n=(concat($handle, ':projection'))]">
+                    <xsl:call-template name="projectionSummaryList">
+                        <xsl:with-param name="handle">
+                            <xsl:value-of select="$handle"/>
+                        </xsl:with-param>
+                        <xsl:with-param name="type">
+                            <xsl:value-of select="$type"/>
+                        </xsl:with-param>
+                    </xsl:call-template>
+                </xsl:when>
                 <xsl:when test="$type='community'">
                     <xsl:call-template name="communitySummaryList">
                         <xsl:with-param name="handle">
@@ -295,4 +306,91 @@
         </div>
     </xsl:template>
 
+    <xsl:template name="projectionSummaryList">
+        <xsl:param name="handle"/>
+        <xsl:param name="type"/>
+
+        <xsl:variable name="projection" select="dri:list[@n=(concat($handle, ':projection'))]"/>
+        <!--The lists of the fields configured as the title, author and date (discovery.projection.*)-->
+        <xsl:variable name="titleList" select="concat($handle, ':', $projection/dri:item[@n='title-field'])"/>
+        <xsl:variable name="authorList" select="concat($handle, ':', $projection/dri:item[@n='author-field'])"/>
+        <xsl:variable name="dateList" select="concat($handle, ':', $projection/dri:item[@n='date-field'])"/>
+
+        <!--Generates the thumbnail (if present)-->
+        <xsl:if test="$projection/dri:item[@n='thumbnail']">
+            <div class="artifact-preview">
+                <a href="{concat($context-path, '/handle/', $handle)}">
+                    <img alt="Thumbnail" src="{$projection/dri:item[@n='thumbnail']}"/>
+                </a>
+            </div>
+        </xsl:if>
+
+        <div class="artifact-description">
+            <div class="artifact-title">
+                <a href="{concat($context-path, '/handle/', $handle)}">
+                    <xsl:choose>
+                        <xsl:when test="dri:list[@n=$titleList and descendant::text()]">
+                            <xsl:apply-templates select="dri:list[@n=$titleList]/dri:item"/>
+                        </xsl:when>
+                        <xsl:otherwise>
+                            <i18n:text>xmlui.dri2xhtml.METS-1.0.no-title</i18n:text>
+                        </xsl:otherwise>
+                    </xsl:choose>
+                </a>
+            </div>
+            <xsl:if test="$type='item'">
+                <div class="artifact-info">
+                    <span class="author">
+                        <xsl:choose>
+                            <xsl:when test="dri:list[@n=$authorList]">
+                                <xsl:for-each select="dri:list[@n=$authorList]/dri:item">
+                                    <span>
+                                        <xsl:apply-templates select="."/>
+                                    </span>
+                                    <xsl:if test="count(following-sibling::dri:item) != 0">
+                                        <xsl:text>; </xsl:text>
+                                    </xsl:if>
+                                </xsl:for-each>
+                            </xsl:when>
+                            <xsl:otherwise>
+                                <i18n:text>xmlui.dri2xhtml.METS-1.0.no-author</i18n:text>
+                            </xsl:otherwise>
+                        </xsl:choose>
+                    </span>
+                    <xsl:text> </xsl:text>
+                    <xsl:if test="dri:list[@n=$dateList]">
+                        <span class="publisher-date">
+                            <xsl:text>(</xsl:text>
+                            <span class="date">
+                                <xsl:value-of
+                                        select="substring(dri:list[@n=$dateList]/dri:item,1,10)"/>
+                            </span>
+                            <xsl:text>)</xsl:text>
+                        </span>
+                    </xsl:if>
+                    <xsl:choose>
+                        <xsl:when test="dri:list[@n=(concat($handle, ':dc.description.abstract'))]/dri:item/dri:hi">
+                            <div class="abstract">
+                                <xsl:for-each select="dri:list[@n=(concat($handle, ':dc.description.abstract'))]/dri:item">
+                                    <xsl:apply-templates select="."/>
+                                    <xsl:text>...</xsl:text>
+                                    <br/>
+                                </xsl:for-each>
+                            </div>
+                        </xsl:when>
+                        <xsl:when test="dri:list[@n=(concat($handle, ':fulltext'))]">
+                            <div class="abstract">
+                                <xsl:for-each select="dri:list[@n=(concat($handle, ':fulltext'))]/dri:item">
+                                    <xsl:apply-templates select="."/>
+                                    <xsl:text>...</xsl:text>
+                                    <br/>
+                                </xsl:for-each>
+                            </div>
+                        </xsl:when>
+                    </xsl:choose>
+                </div>
+            </xsl:if>
+        </div>
+    </xsl:template>
+
 </xsl:stylesheet>